@@ -1,6 +1,7 @@
 package edu.yaprnn.gui.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.yaprnn.networks.CompactNetwork;
 import edu.yaprnn.networks.MultiLayerNetwork;
 import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
 import edu.yaprnn.support.JacksonConfigurer;
@@ -57,6 +58,18 @@ public class PersistenceService {
     return read(() -> objectMapper.readValue(url, MultiLayerNetwork.class));
   }
 
+  public void saveCompactNetwork(CompactNetwork compactNetwork, String path) {
+    write(() -> objectMapper.writeValue(new File(path), compactNetwork));
+  }
+
+  public CompactNetwork loadCompactNetwork(String path) {
+    return read(() -> objectMapper.readValue(new File(path), CompactNetwork.class));
+  }
+
+  public CompactNetwork loadCompactNetwork(URL url) {
+    return read(() -> objectMapper.readValue(url, CompactNetwork.class));
+  }
+
   private <T> T read(IOSupplier<T> supplier) {
     try {
       return supplier.get();
@@ -5,20 +5,27 @@ import edu.yaprnn.gui.services.SamplesService;
 import edu.yaprnn.gui.services.SwtIconsService;
 import edu.yaprnn.gui.services.VisualizationService;
 import edu.yaprnn.model.Repository;
+import edu.yaprnn.networks.AccuracyResult;
 import edu.yaprnn.networks.ClassificationService;
 import edu.yaprnn.networks.ClassificationService.ClassificationResult;
 import edu.yaprnn.networks.Layer;
 import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.QuantizedNetwork;
+import edu.yaprnn.networks.SparseNetwork;
+import edu.yaprnn.networks.WorkerPool;
 import edu.yaprnn.samples.model.ImageSample;
 import edu.yaprnn.samples.model.Sample;
 import edu.yaprnn.support.swt.ImageCanvas;
 import edu.yaprnn.support.swt.SwtImages;
+import edu.yaprnn.training.PruningService;
+import edu.yaprnn.training.QuantizationService;
 import edu.yaprnn.training.selectors.DataSelector;
 import jakarta.inject.Inject;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.stream.IntStream;
 import lombok.extern.java.Log;
@@ -53,6 +60,10 @@ import org.eclipse.swt.widgets.ToolItem;
 public class ClassifyShell {
 
   static final String TITLE = "Classify";
+  /**
+   * Samples that the input scales of int8 weights are calibrated on.
+   */
+  static final int CALIBRATION_SIZE = 256;
 
   @Inject
   Display display;
@@ -61,6 +72,10 @@ public class ClassifyShell {
   @Inject
   DataSelectorControlsService dataSelectorControlsService;
   @Inject
+  PruningService pruningService;
+  @Inject
+  QuantizationService quantizationService;
+  @Inject
   Repository repository;
   @Inject
   SamplesService samplesService;
@@ -71,9 +86,13 @@ public class ClassifyShell {
 
   private Shell shell;
   private ToolItem classifyButton;
+  private ToolItem accuracyButton;
   private ComboViewer samplesViewer;
   private ComboViewer networksViewer;
   private ComboViewer dataSelectorViewer;
+  private ComboViewer weightsViewer;
+  private Spinner sparsitySpinner;
+  private Label accuracyLabel;
   private Table layersTable;
   private SwtSampleDetailsComposite sampleDetailsComposite;
   private ImageCanvas outputReconstructionCanvas;
@@ -84,6 +103,10 @@ public class ClassifyShell {
   // Cached result for output reconstruction re-render on zoom/gamma change
   private float[] lastOutput;
   private int lastOutputWidth;
+  // Quantized once per network and data selector, written by the classify and accuracy threads
+  private volatile QuantizedWeights quantizedWeights;
+  // Pruned once per network and sparsity, written by the classify and accuracy threads
+  private volatile PrunedWeights prunedWeights;
 
   public void open() {
     if (shell != null && !shell.isDisposed()) {
@@ -101,6 +124,8 @@ public class ClassifyShell {
     shell.setSize(900, 700);
 
     createToolBar();
+    accuracyLabel = new Label(shell, SWT.NONE);
+    accuracyLabel.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
     createContent();
     syncView();
   }
@@ -114,6 +139,11 @@ public class ClassifyShell {
     classifyButton.setImage(icon("/edu/yaprnn/gui/views/action/srip-classify.png"));
     classifyButton.addListener(SWT.Selection, e -> classify());
 
+    accuracyButton = new ToolItem(toolBar, SWT.PUSH);
+    accuracyButton.setText("Accuracy");
+    accuracyButton.setToolTipText("Accuracy on all samples");
+    accuracyButton.addListener(SWT.Selection, e -> computeAccuracy());
+
     new ToolItem(toolBar, SWT.SEPARATOR);
 
     var samplesItem = new ToolItem(toolBar, SWT.SEPARATOR);
@@ -127,19 +157,40 @@ public class ClassifyShell {
     networksViewer = createComboViewer(toolBar);
     networksViewer.setInput(
         repository.getMultiLayerNetworks().toArray(MultiLayerNetwork[]::new));
-    networksViewer.addSelectionChangedListener(e -> syncView());
+    networksViewer.addSelectionChangedListener(e -> {
+      quantizedWeights = null;
+      prunedWeights = null;
+      syncView();
+    });
     networksItem.setControl(networksViewer.getCombo());
     networksItem.setWidth(200);
 
     var dataSelectorItem = new ToolItem(toolBar, SWT.SEPARATOR);
     dataSelectorViewer = createComboViewer(toolBar);
     dataSelectorViewer.setInput(dataSelectorControlsService.dataSelectors());
+    dataSelectorViewer.addSelectionChangedListener(e -> quantizedWeights = null);
     dataSelectorItem.setControl(dataSelectorViewer.getCombo());
     dataSelectorItem.setWidth(200);
     var selectors = dataSelectorControlsService.dataSelectors();
     if (selectors.length > 0) {
       dataSelectorViewer.setSelection(new StructuredSelection(selectors[0]));
     }
+
+    var weightsItem = new ToolItem(toolBar, SWT.SEPARATOR);
+    weightsViewer = createComboViewer(toolBar);
+    weightsViewer.setInput(InferenceWeights.values());
+    weightsViewer.setSelection(new StructuredSelection(InferenceWeights.FLOAT));
+    weightsItem.setControl(weightsViewer.getCombo());
+    weightsItem.setWidth(120);
+    weightsViewer.addSelectionChangedListener(e -> syncView());
+
+    var sparsityItem = new ToolItem(toolBar, SWT.SEPARATOR);
+    sparsitySpinner = new Spinner(toolBar, SWT.BORDER);
+    sparsitySpinner.setValues(90, 0, 99, 0, 1, 10);
+    sparsitySpinner.setToolTipText("Share of pruned weights in percent");
+    sparsitySpinner.addListener(SWT.Modify, e -> prunedWeights = null);
+    sparsityItem.setControl(sparsitySpinner);
+    sparsityItem.setWidth(60);
   }
 
   private ComboViewer createComboViewer(Composite parent) {
@@ -230,11 +281,21 @@ public class ClassifyShell {
     if (sample == null || network == null || selector == null) {
       return;
     }
+    var weights = getSelectedWeights();
+    var calibrationSamples = List.copyOf(repository.getSamples());
+    var sparsity = getSelectedSparsity();
 
     classifyButton.setEnabled(false);
     Thread.ofVirtual().name("classify").start(() -> {
       try {
-        var result = classificationService.classify(network, sample, selector);
+        var result = switch (weights) {
+          case FLOAT -> classificationService.classify(network, sample, selector);
+          case INT8 -> classificationService.classify(
+              quantize(network, calibrationSamples, selector), sample, selector);
+          case PRUNED -> prune(network, sparsity)
+              .map(sparseNetwork -> classificationService.classify(sparseNetwork, sample, selector))
+              .orElseGet(() -> classificationService.classify(network, sample, selector));
+        };
 
         // Compute output reconstruction image if applicable
         int outputWidth = 0;
@@ -267,6 +328,75 @@ public class ClassifyShell {
     });
   }
 
+  private void computeAccuracy() {
+    var network = getSelectedNetwork();
+    var selector = getSelectedDataSelector();
+    var samples = List.copyOf(repository.getSamples());
+    if (network == null || selector == null || samples.isEmpty()) {
+      return;
+    }
+    var weights = getSelectedWeights();
+    var sparsity = getSelectedSparsity();
+
+    accuracyButton.setEnabled(false);
+    Thread.ofVirtual().name("accuracy").start(() -> {
+      String text;
+      try (var workerPool = WorkerPool.persistent(Runtime.getRuntime().availableProcessors())) {
+        text = switch (weights) {
+          case FLOAT -> format(network.computeAccuracy(workerPool, samples, selector));
+          case INT8 -> quantizationService.report(network,
+              quantize(network, samples, selector), samples, selector, workerPool).toString();
+          case PRUNED -> format(prune(network, sparsity)
+              .map(sparseNetwork -> sparseNetwork.computeAccuracy(workerPool, samples, selector))
+              .orElseGet(() -> network.computeAccuracy(workerPool, samples, selector)));
+        };
+      } catch (Exception e) {
+        log.log(Level.WARNING, "Accuracy failed", e);
+        text = "Accuracy failed: " + e.getMessage();
+      }
+
+      var finalText = text;
+      display.asyncExec(() -> {
+        if (!shell.isDisposed()) {
+          accuracyLabel.setText(finalText);
+          accuracyButton.setEnabled(true);
+        }
+      });
+    });
+  }
+
+  /**
+   * @return the int8 weights of {@code network}, quantized on the first call after the network or
+   * the data selector changed
+   */
+  private QuantizedNetwork quantize(MultiLayerNetwork network,
+      List<? extends Sample> calibrationSamples, DataSelector selector) {
+    var cached = quantizedWeights;
+    if (cached == null || cached.network() != network || cached.selector() != selector) {
+      cached = new QuantizedWeights(network, selector,
+          quantizationService.quantize(network, calibrationSamples, selector, CALIBRATION_SIZE));
+      quantizedWeights = cached;
+    }
+    return cached.quantizedNetwork();
+  }
+
+  /**
+   * @return the pruned weights of {@code network}, pruned on the first call after the network or
+   * the sparsity changed, or empty to classify with {@code network}
+   */
+  private Optional<SparseNetwork> prune(MultiLayerNetwork network, float sparsity) {
+    var cached = prunedWeights;
+    if (cached == null || cached.network() != network || cached.sparsity() != sparsity) {
+      cached = new PrunedWeights(network, sparsity, pruningService.compress(network, sparsity));
+      prunedWeights = cached;
+    }
+    return cached.sparseNetwork();
+  }
+
+  private static String format(AccuracyResult accuracy) {
+    return "accuracy %.4f, error %.6f".formatted(accuracy.hits(), accuracy.error());
+  }
+
   private void updateLayersTable(Layer[] layers, String[] labels, float[] output) {
     layersTable.setRedraw(false);
     try {
@@ -392,6 +522,8 @@ public class ClassifyShell {
     var hasSample = getSelectedSample() != null;
     var hasNetwork = getSelectedNetwork() != null;
     classifyButton.setEnabled(hasSample && hasNetwork);
+    accuracyButton.setEnabled(hasNetwork);
+    sparsitySpinner.setEnabled(getSelectedWeights() == InferenceWeights.PRUNED);
 
     shell.setText("%s: %s, %s".formatted(TITLE,
         hasSample ? getSelectedSample().getName() : "\u2014",
@@ -408,6 +540,15 @@ public class ClassifyShell {
     return sel.isEmpty() ? null : (MultiLayerNetwork) sel.getFirstElement();
   }
 
+  private InferenceWeights getSelectedWeights() {
+    var sel = weightsViewer.getStructuredSelection();
+    return sel.isEmpty() ? InferenceWeights.FLOAT : (InferenceWeights) sel.getFirstElement();
+  }
+
+  private float getSelectedSparsity() {
+    return sparsitySpinner.getSelection() / 100f;
+  }
+
   private DataSelector getSelectedDataSelector() {
     var sel = dataSelectorViewer.getStructuredSelection();
     return sel.isEmpty() ? null : (DataSelector) sel.getFirstElement();
@@ -471,4 +612,32 @@ public class ClassifyShell {
       return null;
     }
   }
+
+  private record QuantizedWeights(MultiLayerNetwork network, DataSelector selector,
+                                  QuantizedNetwork quantizedNetwork) {
+  }
+
+  private record PrunedWeights(MultiLayerNetwork network, float sparsity,
+                               Optional<SparseNetwork> sparseNetwork) {
+  }
+
+  /**
+   * Weights that classification and accuracy run on.
+   */
+  enum InferenceWeights {
+    FLOAT("Float weights"),
+    INT8("Int8 weights"),
+    PRUNED("Pruned weights");
+
+    private final String text;
+
+    InferenceWeights(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public String toString() {
+      return text;
+    }
+  }
 }
@@ -41,6 +41,7 @@ import edu.yaprnn.gui.views.mappings.RandomizeTrainingDataParameters;
 import edu.yaprnn.gui.views.mappings.TrainingDataMapper;
 import edu.yaprnn.model.Repository;
 import edu.yaprnn.model.ScenarioService;
+import edu.yaprnn.networks.CompactNetwork;
 import edu.yaprnn.networks.GradientMatrixService;
 import edu.yaprnn.networks.activation.ActivationFunction;
 import edu.yaprnn.networks.loss.LossFunction;
@@ -49,6 +50,7 @@ import edu.yaprnn.samples.AudiosImportService;
 import edu.yaprnn.samples.ImagesImportService;
 import edu.yaprnn.training.selectors.DataSelector;
 import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.Precision;
 import edu.yaprnn.samples.model.Sample;
 import edu.yaprnn.training.TrainingData;
 import jakarta.enterprise.event.Observes;
@@ -192,6 +194,7 @@ public class MainShell {
   private MenuItem saveTrainingDataMenuItem;
   private MenuItem saveTemplateMenuItem;
   private MenuItem saveNetworkMenuItem;
+  private MenuItem saveCompactNetworkMenuItem;
 
   public void initialize() {
     shell.setText("YAPRNN");
@@ -280,6 +283,11 @@ public class MainShell {
         () -> loadFile("Network", "*.yaprnn-mln", this::loadMultiLayerNetwork));
     saveNetworkMenuItem = addMenuItem(fileMenu, "Save Network...", icon(ICON_SAVE),
         () -> saveFile("Network", "*.yaprnn-mln", this::saveMultiLayerNetwork));
+    addMenuItem(fileMenu, "Load Compact Network...", icon(ICON_OPEN),
+        () -> loadFile("Compact Network", "*.yaprnn-mln16", this::loadCompactNetwork));
+    saveCompactNetworkMenuItem = addMenuItem(fileMenu, "Save Compact Network (FP16)...",
+        icon(ICON_SAVE),
+        () -> saveFile("Compact Network", "*.yaprnn-mln16", this::saveCompactNetwork));
   }
 
   private void createHelpMenu(Menu menuBar) {
@@ -504,6 +512,7 @@ public class MainShell {
     saveTemplateMenuItem.setEnabled(
         isTemplateNode || isLayerTemplateNode || isLayerSizeNode || isActivationFunctionNode);
     saveNetworkMenuItem.setEnabled(isNetworkNode || isWeightsNode);
+    saveCompactNetworkMenuItem.setEnabled(isNetworkNode || isWeightsNode);
   }
 
   // --- Actions ---
@@ -863,6 +872,15 @@ public class MainShell {
     persistenceService.saveMultiLayerNetwork(onMultiLayerNetworkSelectedRouter.getSelected(), path);
   }
 
+  private void loadCompactNetwork(String path) {
+    networksTreeModel.add(persistenceService.loadCompactNetwork(path).toMultiLayerNetwork());
+  }
+
+  private void saveCompactNetwork(String path) {
+    persistenceService.saveCompactNetwork(
+        CompactNetwork.of(onMultiLayerNetworkSelectedRouter.getSelected(), Precision.FP16), path);
+  }
+
   private void loadFile(String title, String extension,
       java.util.function.Consumer<String> loader) {
     var dialog = new FileDialog(shell, SWT.OPEN);
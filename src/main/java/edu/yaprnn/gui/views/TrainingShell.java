@@ -4,7 +4,10 @@ import edu.yaprnn.events.OnMultiLayerNetworkWeightsPreviewModifiedRouter;
 import edu.yaprnn.gui.services.SwtIconsService;
 import edu.yaprnn.model.Repository;
 import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.Precision;
+import edu.yaprnn.networks.TrainingEngine;
 import edu.yaprnn.training.LearningRateModifier;
+import edu.yaprnn.training.OptimizerType;
 import edu.yaprnn.training.TrainingData;
 import edu.yaprnn.training.TrainingParameters;
 import edu.yaprnn.training.TrainingService;
@@ -24,6 +27,7 @@ import org.eclipse.swt.custom.ScrolledComposite;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
@@ -66,14 +70,20 @@ public class TrainingShell {
   private Spinner maxTrainingErrorSpinner;
   private Spinner batchSizeSpinner;
   private Spinner maxParallelismSpinner;
+  private Spinner workerProcessesSpinner;
   private Spinner learningRateSpinner;
   private ComboViewer learningRateModifierViewer;
   private Spinner learningRateChangeIntervalSpinner;
   private Spinner learningRateAscendSpinner;
   private Spinner learningRateDescendSpinner;
+  private ComboViewer optimizerViewer;
   private Spinner momentumSpinner;
   private Spinner decayL1Spinner;
   private Spinner decayL2Spinner;
+  private ComboViewer trainingEngineViewer;
+  private Spinner activationMemorySpinner;
+  private Button offHeapParametersButton;
+  private ComboViewer precisionViewer;
 
   // Chart
   private XYSeries trainingError;
@@ -179,6 +189,8 @@ public class TrainingShell {
     batchSizeSpinner = createIntSpinner(panel, "Batch size", 100, 1, 10000, 1);
     maxParallelismSpinner = createIntSpinner(panel, "Max parallelism",
         ForkJoinPool.getCommonPoolParallelism(), 1, ForkJoinPool.getCommonPoolParallelism(), 1);
+    workerProcessesSpinner = createIntSpinner(panel, "Worker processes", 1, 1,
+        Runtime.getRuntime().availableProcessors(), 1);
     learningRateSpinner = createDecimalSpinner(panel, "Learning rate", 20, 0, 1000, 1, 3);
 
     new Label(panel, SWT.NONE).setText("Learning rate modifier");
@@ -195,10 +207,39 @@ public class TrainingShell {
         1);
     learningRateAscendSpinner = createDecimalSpinner(panel, "LR ascend", 1010, 0, 2000, 1, 3);
     learningRateDescendSpinner = createDecimalSpinner(panel, "LR descend", 980, 0, 1000, 1, 3);
+    new Label(panel, SWT.NONE).setText("Optimizer");
+    optimizerViewer = new ComboViewer(panel, SWT.READ_ONLY);
+    optimizerViewer.getCombo().setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+    optimizerViewer.setContentProvider(ArrayContentProvider.getInstance());
+    optimizerViewer.setLabelProvider(new LabelProvider());
+    optimizerViewer.setInput(OptimizerType.values());
+    optimizerViewer.setSelection(new StructuredSelection(OptimizerType.NESTEROV));
+
     momentumSpinner = createDecimalSpinner(panel, "Momentum", 200, -1000, 1000, 1, 3);
     decayL1Spinner = createDecimalSpinner(panel, "Decay L1", 1, -1000, 1000, 1, 3);
     decayL2Spinner = createDecimalSpinner(panel, "Decay L2", 1, -1000, 1000, 1, 3);
 
+    new Label(panel, SWT.NONE).setText("Training engine");
+    trainingEngineViewer = new ComboViewer(panel, SWT.READ_ONLY);
+    trainingEngineViewer.getCombo().setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+    trainingEngineViewer.setContentProvider(ArrayContentProvider.getInstance());
+    trainingEngineViewer.setLabelProvider(new LabelProvider());
+    trainingEngineViewer.setInput(TrainingEngine.values());
+    trainingEngineViewer.setSelection(new StructuredSelection(TrainingEngine.PER_SAMPLE));
+    activationMemorySpinner = createIntSpinner(panel, "Activation memory MiB (0 = no limit)", 0,
+        0, 65536, 16);
+
+    new Label(panel, SWT.NONE).setText("Off-heap parameters");
+    offHeapParametersButton = new Button(panel, SWT.CHECK);
+
+    new Label(panel, SWT.NONE).setText("Precision");
+    precisionViewer = new ComboViewer(panel, SWT.READ_ONLY);
+    precisionViewer.getCombo().setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+    precisionViewer.setContentProvider(ArrayContentProvider.getInstance());
+    precisionViewer.setLabelProvider(new LabelProvider());
+    precisionViewer.setInput(Precision.values());
+    precisionViewer.setSelection(new StructuredSelection(Precision.FP32));
+
     scroll.setContent(panel);
     scroll.setExpandHorizontal(true);
     panel.setSize(panel.computeSize(SWT.DEFAULT, SWT.DEFAULT));
@@ -253,14 +294,20 @@ public class TrainingShell {
         .maxTrainingError(getDecimalValue(maxTrainingErrorSpinner))
         .batchSize(batchSizeSpinner.getSelection())
         .maxParallelism(maxParallelismSpinner.getSelection())
+        .workerProcesses(workerProcessesSpinner.getSelection())
         .learningRate(getDecimalValue(learningRateSpinner))
         .learningRateModifier(getSelectedLearningRateModifier())
         .learningRateChangeInterval(learningRateChangeIntervalSpinner.getSelection())
         .learningRateAscend(getDecimalValue(learningRateAscendSpinner))
         .learningRateDescend(getDecimalValue(learningRateDescendSpinner))
+        .optimizerType(getSelectedOptimizerType())
         .momentum(getDecimalValue(momentumSpinner))
         .decayL1(getDecimalValue(decayL1Spinner))
         .decayL2(getDecimalValue(decayL2Spinner))
+        .trainingEngine(getSelectedTrainingEngine())
+        .activationMemoryBudget(activationMemorySpinner.getSelection() * 1024L * 1024L)
+        .offHeapParameters(offHeapParametersButton.getSelection())
+        .precision(getSelectedPrecision())
         .trainingData(selectedTrainingData)
         .multiLayerNetwork(selectedNetwork)
         .build();
@@ -345,6 +392,21 @@ public class TrainingShell {
         : (LearningRateModifier) sel.getFirstElement();
   }
 
+  private OptimizerType getSelectedOptimizerType() {
+    var sel = optimizerViewer.getStructuredSelection();
+    return sel.isEmpty() ? OptimizerType.NESTEROV : (OptimizerType) sel.getFirstElement();
+  }
+
+  private TrainingEngine getSelectedTrainingEngine() {
+    var sel = trainingEngineViewer.getStructuredSelection();
+    return sel.isEmpty() ? TrainingEngine.PER_SAMPLE : (TrainingEngine) sel.getFirstElement();
+  }
+
+  private Precision getSelectedPrecision() {
+    var sel = precisionViewer.getStructuredSelection();
+    return sel.isEmpty() ? Precision.FP32 : (Precision) sel.getFirstElement();
+  }
+
   public void setSelectedTrainingData(TrainingData trainingData) {
     if (Objects.nonNull(trainingData) && shell != null && !shell.isDisposed()) {
       trainingDataViewer.setSelection(new StructuredSelection(trainingData));
@@ -0,0 +1,39 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.support.Floats;
+
+/**
+ * Mutable sums of the {@link AccuracyResult}s of many samples, so that evaluating them allocates
+ * no result per sample. Each worker thread must own its own accumulator.
+ */
+public final class AccuracyAccumulator {
+
+  private float error;
+  private int count;
+  private float hits;
+
+  /**
+   * Adds the result of one sample like {@link AccuracyResult#from(float[], float[], float)}.
+   */
+  public void add(float[] h, float[] target, float error) {
+    this.error += error;
+    count++;
+    hits += Floats.haveMaxAtSameIndex(h, target) ? 1f : 0f;
+  }
+
+  /**
+   * Adds the sums of {@code other} like {@link AccuracyResult#sum(AccuracyResult, AccuracyResult)}.
+   */
+  public void add(AccuracyAccumulator other) {
+    error += other.error;
+    count += other.count;
+    hits += other.hits;
+  }
+
+  /**
+   * @return average of the added results like {@link AccuracyResult#average(AccuracyResult)}
+   */
+  public AccuracyResult average() {
+    return AccuracyResult.average(new AccuracyResult(error, count, hits));
+  }
+}
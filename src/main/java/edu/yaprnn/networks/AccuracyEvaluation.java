@@ -0,0 +1,79 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.networks.loss.SoftMaxCrossEntropy;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Computes the {@link AccuracyResult} of a network over samples, split into one chunk per worker
+ * that sums into its own {@link AccuracyAccumulator}. The network types only differ in how they
+ * feed a sample forward.
+ */
+final class AccuracyEvaluation {
+
+  private AccuracyEvaluation() {
+  }
+
+  /**
+   * Feeds single samples through a network with the buffers {@code B} of one worker.
+   */
+  @FunctionalInterface
+  interface SampleForward<B> {
+
+    /**
+     * @param input input of {@code sample} selected by the {@link DataSelector}
+     * @return workspace of {@code buffers} holding the outputs of all layers
+     */
+    NetworkWorkspace feedForward(B buffers, Sample sample, float[] input);
+  }
+
+  /**
+   * @param buffers creates the buffers of one worker
+   */
+  static <B> AccuracyResult computeAccuracy(WorkerPool workerPool, List<? extends Sample> samples,
+      DataSelector dataSelector, ActivationFunction outputActivationFunction,
+      LossFunction lossFunction, Supplier<B> buffers, SampleForward<B> sampleForward) {
+    Objects.requireNonNull(workerPool, "workerPool");
+    Objects.requireNonNull(samples, "samples");
+    Objects.requireNonNull(dataSelector, "dataSelector");
+    if (samples.isEmpty()) {
+      throw new NoSuchElementException("samples must not be empty");
+    }
+
+    var chunkCount = Math.min(workerPool.parallelism(), samples.size());
+    var chunkAccumulators = new AccuracyAccumulator[chunkCount];
+
+    workerPool.run(chunkCount, c -> chunkAccumulators[c] = computeChunkAccuracy(buffers.get(),
+        samples, dataSelector, outputActivationFunction, lossFunction, sampleForward,
+        c * samples.size() / chunkCount, (c + 1) * samples.size() / chunkCount));
+
+    var accumulator = chunkAccumulators[0];
+    for (var c = 1; c < chunkCount; c++) {
+      accumulator.add(chunkAccumulators[c]);
+    }
+    return accumulator.average();
+  }
+
+  private static <B> AccuracyAccumulator computeChunkAccuracy(B buffers,
+      List<? extends Sample> samples, DataSelector dataSelector,
+      ActivationFunction outputActivationFunction, LossFunction lossFunction,
+      SampleForward<B> sampleForward, int chunkStart, int chunkEnd) {
+    var accumulator = new AccuracyAccumulator();
+    for (var i = chunkStart; i < chunkEnd; i++) {
+      var sample = samples.get(i);
+      var workspace = sampleForward.feedForward(buffers, sample, dataSelector.input(sample));
+      var h = workspace.output();
+      var target = dataSelector.target(sample, outputActivationFunction);
+      var error = SoftMaxCrossEntropy.networkError(lossFunction, outputActivationFunction,
+          workspace.v[workspace.v.length - 1], h, target);
+      accumulator.add(h, target, error);
+    }
+    return accumulator;
+  }
+}
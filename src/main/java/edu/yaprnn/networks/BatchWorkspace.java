@@ -0,0 +1,225 @@
+package edu.yaprnn.networks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Reusable matrices for the {@link TrainingEngine#BATCHED} engine. Holds up to {@code capacity}
+ * samples of a chunk as rows per layer. Like {@link NetworkWorkspace}, each worker thread must own
+ * its own batch workspace.
+ *
+ * <p>With a {@code checkpointInterval} {@code k > 1} only the activations of every k-th layer,
+ * the checkpoints, keep their own matrices. The layers between two checkpoints form a segment and
+ * share their matrices with the same-sized layers of the other segments, so the forward pass
+ * overwrites them and the backpropagation has to recompute each segment from its checkpoint before
+ * it gets there. The error gradients are only needed for two adjacent layers at a time and
+ * alternate between two matrices per layer size.
+ */
+final class BatchWorkspace {
+
+  /**
+   * Upper bound of packed samples, so that large chunks are processed in slices instead of holding
+   * the activations of all their samples at once.
+   */
+  static final int MAX_CAPACITY = 256;
+
+  /**
+   * Every k-th layer keeps its activations, the others are recomputed during backpropagation
+   */
+  final int checkpointInterval;
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] outputs before activation, layers between
+   * checkpoints share their matrices
+   */
+  final float[][][] v;
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] outputs after activation, shared like {@link #v}
+   */
+  final float[][][] h;
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] intermediates of the activation, shared like
+   * {@link #v}, {@code null} for layers that keep none
+   */
+  final float[][][] intermediates;
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] error gradients with respect to {@code v},
+   * alternating between two matrices per layer size
+   */
+  final float[][][] errors;
+  /**
+   * [capacity] targets of the packed samples
+   */
+  final float[][] targets;
+  /**
+   * [capacity] ascending indices of the non-zero inputs of the packed samples, or {@code null} for
+   * dense ones
+   */
+  final int[][] nonZeroInputs;
+  /**
+   * Whether all packed samples have {@link #nonZeroInputs}, so the first layer skips zero inputs
+   */
+  boolean sparseInputs;
+  /**
+   * transposed error tile and sums of {@link MatrixKernels#backpropagate}
+   */
+  final float[] scratch;
+
+  BatchWorkspace(int[] layerSizes, int capacity) {
+    this(layerSizes, capacity, 1);
+  }
+
+  BatchWorkspace(int[] layerSizes, int capacity, int checkpointInterval) {
+    this(layerSizes, capacity, checkpointInterval, null);
+  }
+
+  /**
+   * @param cachesIntermediates [layerSizes.length] whether a layer keeps the intermediates of its
+   *                            activation for backpropagation, or {@code null} for none
+   */
+  BatchWorkspace(int[] layerSizes, int capacity, int checkpointInterval,
+      boolean[] cachesIntermediates) {
+    if (checkpointInterval < 1) {
+      throw new IllegalArgumentException("checkpointInterval must be >= 1");
+    }
+    this.checkpointInterval = checkpointInterval;
+    v = new float[layerSizes.length][][];
+    h = new float[layerSizes.length][][];
+    intermediates = new float[layerSizes.length][][];
+    errors = new float[layerSizes.length][][];
+    targets = new float[capacity][];
+    nonZeroInputs = new int[capacity][];
+    scratch = new float[MatrixKernels.ROW_TILE * (Arrays.stream(layerSizes).max().orElse(0) + 1)];
+
+    var slots = activationSlots(layerSizes, checkpointInterval);
+    var slotV = new float[layerSizes.length][][];
+    var slotH = new float[layerSizes.length][][];
+    var slotIntermediates = new float[layerSizes.length][][];
+    var sizeErrors = new HashMap<Integer, float[][][]>();
+    for (var l = 0; l < layerSizes.length; l++) {
+      var size = layerSizes[l];
+      if (slotV[slots[l]] == null) {
+        slotV[slots[l]] = new float[capacity][size];
+        slotH[slots[l]] = new float[capacity][size];
+      }
+      v[l] = slotV[slots[l]];
+      h[l] = slotH[slots[l]];
+      if (cachesIntermediates != null && cachesIntermediates[l]) {
+        if (slotIntermediates[slots[l]] == null) {
+          slotIntermediates[slots[l]] = new float[capacity][size];
+        }
+        intermediates[l] = slotIntermediates[slots[l]];
+      }
+      var alternatingErrors = sizeErrors.computeIfAbsent(size, s -> new float[2][][]);
+      if (alternatingErrors[l % 2] == null) {
+        alternatingErrors[l % 2] = new float[capacity][size];
+      }
+      errors[l] = alternatingErrors[l % 2];
+    }
+  }
+
+  /**
+   * Creates the workspace with the smallest checkpoint interval whose activations of
+   * {@code capacity} samples fit into {@code memoryBudget} bytes. If none fits, the interval with
+   * the least memory is taken and the capacity is lowered until it fits, but not below one sample.
+   *
+   * @param memoryBudget bytes of activations and error gradients, or {@code 0} for no limit
+   */
+  static BatchWorkspace withinBudget(int[] layerSizes, int capacity, long memoryBudget) {
+    return withinBudget(layerSizes, capacity, memoryBudget, null);
+  }
+
+  /**
+   * Same as {@link #withinBudget(int[], int, long)}, counting the intermediates of the layers that
+   * keep them.
+   */
+  static BatchWorkspace withinBudget(int[] layerSizes, int capacity, long memoryBudget,
+      boolean[] cachesIntermediates) {
+    if (memoryBudget == 0L) {
+      return new BatchWorkspace(layerSizes, capacity, 1, cachesIntermediates);
+    }
+
+    var bestInterval = 1;
+    var bestRowBytes = Long.MAX_VALUE;
+    for (var interval = 1; interval <= Math.max(1, layerSizes.length - 1); interval++) {
+      var rowBytes = rowBytes(layerSizes, interval, cachesIntermediates);
+      if (rowBytes * capacity <= memoryBudget) {
+        return new BatchWorkspace(layerSizes, capacity, interval, cachesIntermediates);
+      }
+      if (rowBytes < bestRowBytes) {
+        bestInterval = interval;
+        bestRowBytes = rowBytes;
+      }
+    }
+    var fittingCapacity = (int) Math.clamp(memoryBudget / bestRowBytes, 1L, capacity);
+    return new BatchWorkspace(layerSizes, fittingCapacity, bestInterval, cachesIntermediates);
+  }
+
+  /**
+   * @return bytes of activations and error gradients held per packed sample
+   */
+  static long rowBytes(int[] layerSizes, int checkpointInterval) {
+    return rowBytes(layerSizes, checkpointInterval, null);
+  }
+
+  /**
+   * @return bytes of activations, intermediates and error gradients held per packed sample
+   */
+  static long rowBytes(int[] layerSizes, int checkpointInterval, boolean[] cachesIntermediates) {
+    var slots = activationSlots(layerSizes, checkpointInterval);
+    var counted = new boolean[layerSizes.length];
+    var countedIntermediates = new boolean[layerSizes.length];
+    var errorSizes = new HashMap<Integer, boolean[]>();
+    var floats = 0L;
+    for (var l = 0; l < layerSizes.length; l++) {
+      var size = layerSizes[l];
+      if (!counted[slots[l]]) {
+        counted[slots[l]] = true;
+        floats += 2L * size;
+      }
+      if (cachesIntermediates != null && cachesIntermediates[l]
+          && !countedIntermediates[slots[l]]) {
+        countedIntermediates[slots[l]] = true;
+        floats += size;
+      }
+      var parities = errorSizes.computeIfAbsent(size, s -> new boolean[2]);
+      if (!parities[l % 2]) {
+        parities[l % 2] = true;
+        floats += size;
+      }
+    }
+    return floats * Float.BYTES;
+  }
+
+  /**
+   * Assigns the activation matrices of each layer. Checkpoints get their own slot, the layers of a
+   * segment claim the shared slots of their size in order, so no two layers of a segment collide.
+   *
+   * @return [layerSizes.length] slot of each layer
+   */
+  private static int[] activationSlots(int[] layerSizes, int checkpointInterval) {
+    var slots = new int[layerSizes.length];
+    var slotCount = 0;
+    var sharedSlots = new HashMap<Integer, List<Integer>>();
+    var claimedSlots = new HashMap<Integer, Integer>();
+    for (var l = 0; l < layerSizes.length; l++) {
+      if (l % checkpointInterval == 0) {
+        slots[l] = slotCount++;
+        claimedSlots.clear();
+        continue;
+      }
+      var sizeSlots = sharedSlots.computeIfAbsent(layerSizes[l], s -> new ArrayList<>());
+      var claimed = claimedSlots.merge(layerSizes[l], 1, Integer::sum) - 1;
+      if (claimed == sizeSlots.size()) {
+        sizeSlots.add(slotCount++);
+      }
+      slots[l] = sizeSlots.get(claimed);
+    }
+    return slots;
+  }
+
+  int capacity() {
+    return targets.length;
+  }
+}
@@ -15,7 +15,38 @@ public class ClassificationService {
    */
   public ClassificationResult classify(MultiLayerNetwork network, Sample sample,
       DataSelector dataSelector) {
-    var layers = network.feedForward(sample, dataSelector);
+    return toResult(network.feedForward(sample, dataSelector), sample, dataSelector);
+  }
+
+  /**
+   * Same as {@link #classify(MultiLayerNetwork, Sample, DataSelector)} with the int8 weights of a
+   * {@link QuantizedNetwork}.
+   */
+  public ClassificationResult classify(QuantizedNetwork network, Sample sample,
+      DataSelector dataSelector) {
+    return toResult(network.feedForward(sample, dataSelector), sample, dataSelector);
+  }
+
+  /**
+   * Same as {@link #classify(MultiLayerNetwork, Sample, DataSelector)} with the 16 bit weights of a
+   * {@link CompactNetwork}.
+   */
+  public ClassificationResult classify(CompactNetwork network, Sample sample,
+      DataSelector dataSelector) {
+    return toResult(network.feedForward(sample, dataSelector), sample, dataSelector);
+  }
+
+  /**
+   * Same as {@link #classify(MultiLayerNetwork, Sample, DataSelector)} with the pruned weights of a
+   * {@link SparseNetwork}.
+   */
+  public ClassificationResult classify(SparseNetwork network, Sample sample,
+      DataSelector dataSelector) {
+    return toResult(network.feedForward(sample, dataSelector), sample, dataSelector);
+  }
+
+  private ClassificationResult toResult(Layer[] layers, Sample sample,
+      DataSelector dataSelector) {
     var outputLayer = Layer.output(layers);
     var output = dataSelector.postprocessOutput(outputLayer.v(), outputLayer.h(),
         outputLayer.activationFunction());
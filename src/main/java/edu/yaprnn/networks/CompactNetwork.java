@@ -0,0 +1,175 @@
+package edu.yaprnn.networks;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.support.FloatKernels;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Inference-only copy of a {@link MultiLayerNetwork} with the weights stored in 16 bits of
+ * {@link #getPrecision()}, taking half the memory and half the persisted size. Each weight row is
+ * widened to float right before it is used, so the transforms run on float like the ones of
+ * {@link MultiLayerNetwork}.
+ */
+@JsonDeserialize(builder = CompactNetwork.CompactNetworkBuilder.class)
+@Builder
+@Getter
+public final class CompactNetwork {
+
+  private final String name;
+  private final int[] layerSizes;
+  private final ActivationFunction[] activationFunctions;
+  private final float bias;
+  private final LossFunction lossFunction;
+  private final HalfPrecision precision;
+
+  // same layout as MultiLayerNetwork#getLayerWeights() in precision
+  private final short[][] layerWeights;
+
+  /**
+   * Rounds the weights of {@code multiLayerNetwork} to {@code precision}.
+   */
+  public static CompactNetwork of(MultiLayerNetwork multiLayerNetwork, Precision precision) {
+    Objects.requireNonNull(multiLayerNetwork, "multiLayerNetwork");
+    var halfPrecision = Objects.requireNonNull(precision, "precision").halfPrecision()
+        .orElseThrow(() -> new IllegalArgumentException("precision must be a 16 bit format"));
+
+    var weights = multiLayerNetwork.getLayerWeights();
+    var packed = new short[weights.length][];
+    for (var l = 0; l < weights.length; l++) {
+      packed[l] = new short[weights[l].length];
+      halfPrecision.encode(weights[l], packed[l]);
+    }
+    return builder()
+        .name(multiLayerNetwork.getName())
+        .layerSizes(multiLayerNetwork.getLayerSizes())
+        .activationFunctions(multiLayerNetwork.getActivationFunctions())
+        .bias(multiLayerNetwork.getBias())
+        .lossFunction(multiLayerNetwork.getLossFunction())
+        .precision(halfPrecision)
+        .layerWeights(packed)
+        .build();
+  }
+
+  /**
+   * Widens the weights into a {@link MultiLayerNetwork}, e.g. to continue training it. The momentum
+   * is allocated lazily by the first training step, like after
+   * {@link MultiLayerNetwork#resetLayerWeights(GradientMatrixService)}.
+   */
+  public MultiLayerNetwork toMultiLayerNetwork() {
+    var weights = new float[layerWeights.length][];
+    for (var l = 0; l < weights.length; l++) {
+      weights[l] = new float[layerWeights[l].length];
+      precision.decode(layerWeights[l], weights[l]);
+    }
+    var multiLayerNetwork = MultiLayerNetwork.builder()
+        .layerSizes(layerSizes)
+        .activationFunctions(activationFunctions)
+        .bias(bias)
+        .lossFunction(lossFunction)
+        .layerWeights(weights)
+        .build();
+    multiLayerNetwork.setName(name);
+    return multiLayerNetwork;
+  }
+
+  /**
+   * @return bytes taken by the weights
+   */
+  public long sizeInBytes() {
+    var size = 0L;
+    for (var weights : layerWeights) {
+      size += (long) Short.BYTES * weights.length;
+    }
+    return size;
+  }
+
+  private void feedForward(Buffers buffers, float[] input) {
+    var workspace = buffers.workspace;
+    NetworkWorkspace.copyInput(input, workspace.v[0]);
+    activationFunctions[0].applyInto(workspace.v[0], workspace.h[0]);
+
+    for (var l = 0; l < layerWeights.length; l++) {
+      transform(buffers, l);
+      activationFunctions[l + 1].applyInto(workspace.v[l + 1], workspace.h[l + 1]);
+    }
+  }
+
+  private void transform(Buffers buffers, int layerIndex) {
+    var h = buffers.workspace.h[layerIndex];
+    var v = buffers.workspace.v[layerIndex + 1];
+    var weights = layerWeights[layerIndex];
+    var row = buffers.row;
+    var outputSize = v.length;
+
+    Arrays.fill(v, 0f);
+    var w = 0;
+    for (var j = 0; j < h.length; j++, w += outputSize) {
+      if (h[j] != 0f) {
+        widenRow(weights, w, row, outputSize);
+        FloatKernels.axpy(h[j], row, 0, v, 0, outputSize);
+      }
+    }
+    widenRow(weights, w, row, outputSize);
+    FloatKernels.axpy(bias, row, 0, v, 0, outputSize);
+  }
+
+  private void widenRow(short[] weights, int offset, float[] row, int length) {
+    for (var i = 0; i < length; i++) {
+      row[i] = precision.decode(weights[offset + i]);
+    }
+  }
+
+  public Layer[] feedForward(Sample sample, DataSelector dataSelector) {
+    // fresh buffers, because the returned layers outlive this call
+    var buffers = new Buffers(layerSizes);
+    feedForward(buffers, dataSelector.input(sample));
+    return buffers.workspace.toLayers(activationFunctions);
+  }
+
+  /**
+   * Same as {@link MultiLayerNetwork#computeAccuracy(WorkerPool, List, DataSelector)} with the
+   * compact weights.
+   */
+  public AccuracyResult computeAccuracy(WorkerPool workerPool, List<? extends Sample> samples,
+      DataSelector dataSelector) {
+    return AccuracyEvaluation.computeAccuracy(workerPool, samples, dataSelector,
+        activationFunctions[activationFunctions.length - 1], lossFunction,
+        () -> new Buffers(layerSizes), (buffers, sample, input) -> {
+          feedForward(buffers, input);
+          return buffers.workspace;
+        });
+  }
+
+  @Override
+  public String toString() {
+    return "%s (%s, %s)".formatted(name, Arrays.toString(layerSizes), precision);
+  }
+
+  /**
+   * Float buffers of one sample plus one widened weight row, owned by one thread.
+   */
+  private static final class Buffers {
+
+    final NetworkWorkspace workspace;
+    final float[] row;
+
+    Buffers(int[] layerSizes) {
+      workspace = new NetworkWorkspace(layerSizes);
+      row = new float[Arrays.stream(layerSizes).max().orElse(0)];
+    }
+  }
+
+  @JsonPOJOBuilder(withPrefix = "")
+  public static class CompactNetworkBuilder {
+    // Make Jackson use the lombok builder for deserialization
+  }
+}
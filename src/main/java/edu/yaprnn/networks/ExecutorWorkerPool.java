@@ -0,0 +1,49 @@
+package edu.yaprnn.networks;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+record ExecutorWorkerPool(ExecutorService executor, int parallelism) implements WorkerPool {
+
+  ExecutorWorkerPool {
+    Objects.requireNonNull(executor, "executor");
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("maxParallelism must be >= 1");
+    }
+  }
+
+  @Override
+  public void run(int count, IntConsumer task) {
+    if (count < 1 || count > parallelism) {
+      throw new IllegalArgumentException("count must be in [1, parallelism]");
+    }
+
+    try {
+      var futures = new ArrayList<Future<?>>(count - 1);
+      for (var c = 1; c < count; c++) {
+        var chunk = c;
+        futures.add(executor.submit(() -> task.accept(chunk)));
+      }
+
+      task.accept(0);
+
+      for (var future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Worker pool interrupted", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Worker task failed", e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    // the executor is owned by the caller
+  }
+}
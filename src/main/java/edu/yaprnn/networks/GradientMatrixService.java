@@ -1,11 +1,13 @@
 package edu.yaprnn.networks;
 
 import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.support.FloatKernels;
 import edu.yaprnn.support.RandomConfigurer;
 import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import java.lang.foreign.MemorySegment;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -56,8 +58,29 @@ public class GradientMatrixService {
             "accumulator and layerGradients at index %d must have same length".formatted(i));
       }
 
-      for (var w = 0; w < accumulatorGradients.length; w++) {
-        accumulatorGradients[w] += layerGradients[w];
+      FloatKernels.addInPlace(accumulatorGradients, layerGradients);
+    }
+  }
+
+  /**
+   * Adds the native gradients of {@code chunkGradients[1..chunkCount)} into
+   * {@code chunkGradients[0]}, but only for the {@code slice}-th of {@code chunkCount} equally
+   * sized slices of every layer. Calls for different slices touch disjoint ranges, so they can run
+   * concurrently without locking. {@link MultiLayerNetwork} sums heap gradients slice by slice
+   * together with the update of the weights instead.
+   */
+  public void reduceSliceInPlace(MemorySegment[][] chunkGradients, int chunkCount, int slice) {
+    if (slice < 0 || slice >= chunkCount) {
+      throw new IllegalArgumentException("slice must be in [0, chunkCount)");
+    }
+
+    var accumulator = chunkGradients[0];
+    for (var l = 0; l < accumulator.length; l++) {
+      var length = accumulator[l].byteSize() / Float.BYTES;
+      var from = (int) (slice * length / chunkCount);
+      var to = (int) ((slice + 1) * length / chunkCount);
+      for (var c = 1; c < chunkCount; c++) {
+        FloatKernels.addInPlace(accumulator[l], chunkGradients[c][l], from, to);
       }
     }
   }
@@ -0,0 +1,68 @@
+package edu.yaprnn.networks;
+
+/**
+ * 16-bit floating point format that packs a float into a {@code short}, halving the memory and the
+ * traffic of what it stores. Arithmetic always happens in float.
+ */
+public enum HalfPrecision {
+  /**
+   * IEEE 754 half precision: 11 significant bits, but values above 65504 overflow to infinity and
+   * values below 6e-8 underflow to zero.
+   */
+  FP16,
+  /**
+   * bfloat16: the range of float with only 8 significant bits.
+   */
+  BF16;
+
+  public short encode(float value) {
+    return switch (this) {
+      case FP16 -> Float.floatToFloat16(value);
+      case BF16 -> encodeBFloat16(value);
+    };
+  }
+
+  public float decode(short value) {
+    return switch (this) {
+      case FP16 -> Float.float16ToFloat(value);
+      case BF16 -> Float.intBitsToFloat(value << 16);
+    };
+  }
+
+  private static short encodeBFloat16(float value) {
+    var bits = Float.floatToRawIntBits(value);
+    if (Float.isNaN(value)) {
+      return (short) ((bits >>> 16) | 0x0040);
+    }
+    // round to nearest, ties to even
+    return (short) ((bits + 0x7fff + ((bits >>> 16) & 1)) >>> 16);
+  }
+
+  public void encode(float[] values, short[] packed) {
+    for (var i = 0; i < values.length; i++) {
+      packed[i] = encode(values[i]);
+    }
+  }
+
+  public void decode(short[] packed, float[] values) {
+    for (var i = 0; i < values.length; i++) {
+      values[i] = decode(packed[i]);
+    }
+  }
+
+  /**
+   * Loss scale that mixed precision training starts with. The errors are multiplied by it before
+   * the backpropagation, so that small gradients do not underflow when stored in this precision.
+   * {@link #BF16} has the range of float and needs no scaling.
+   */
+  public float initialLossScale() {
+    return this == FP16 ? 1 << 10 : 1f;
+  }
+
+  /**
+   * @return whether the loss scale grows again after steps without overflow
+   */
+  boolean scalesLoss() {
+    return this == FP16;
+  }
+}
@@ -0,0 +1,432 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.support.FloatKernels;
+import java.util.Arrays;
+
+/**
+ * Matrix-matrix kernels over a chunk of samples for the weight layout documented in
+ * {@link MultiLayerNetwork}. Samples are packed as rows {@code [rows][size]}, so every weight row is
+ * loaded once per tile of {@link #ROW_TILE} samples instead of once per sample.
+ *
+ * <p>Layers with at least {@link #TILING_THRESHOLD} weights exceed L2, so the transform and the
+ * gradient accumulation switch to variants that additionally block the output columns by
+ * {@link #COLUMN_TILE}. Their working set then stays in L1/L2 while the weights stream through.
+ *
+ * <p>Every kernel sums the terms of each output element in the same order as the per-sample loops
+ * in {@link MultiLayerNetwork}, so both paths produce bitwise identical results. Terms with a
+ * factor of {@code 0}, of zero inputs or of inactive neurons, may be skipped, since they would only
+ * add zeros.
+ */
+final class MatrixKernels {
+
+  /**
+   * Count of sample rows sharing one pass over the weights. 16 rows of 1000 floats still fit into
+   * L2 next to the weight row in use.
+   */
+  static final int ROW_TILE = 16;
+  /**
+   * Count of output columns per block of the tiled kernels. A row tile of 16 x 256 floats takes 16
+   * KiB of L1, and up to {@link BatchWorkspace#MAX_CAPACITY} error rows of 256 floats take 256 KiB
+   * of L2.
+   */
+  static final int COLUMN_TILE = 256;
+  /**
+   * Weights count from which a layer uses the tiled kernels, 256 KiB of floats.
+   */
+  static final int TILING_THRESHOLD = 64 * 1024;
+  /**
+   * Rows and columns per block of {@link #transpose}, two blocks of 32 x 32 floats take 8 KiB.
+   */
+  static final int TRANSPOSE_TILE = 32;
+  /**
+   * Output size up to which {@link #backpropagateTransposed} beats the SIMD dot products of
+   * {@link #backpropagate}, which are too short to fill the lanes below. Without SIMD it is faster
+   * for any size.
+   */
+  static final int TRANSPOSED_MAX_OUTPUT_SIZE = 64;
+
+  private MatrixKernels() {
+  }
+
+  /**
+   * Computes {@code v = [input | bias] * weights} for the first {@code rows} samples.
+   *
+   * @param input   [rows][inputSize] outputs after activation of the input layer
+   * @param weights (inputSize + 1) x outputSize row-major weights including the bias row
+   * @param v       [rows][outputSize] receives the outputs before activation
+   */
+  static void transform(float[][] input, int rows, float[] weights, float bias, float[][] v) {
+    if (weights.length >= TILING_THRESHOLD) {
+      transformTiled(input, rows, weights, bias, v);
+    } else {
+      transformRows(input, rows, weights, bias, v);
+    }
+  }
+
+  static void transformRows(float[][] input, int rows, float[] weights, float bias,
+      float[][] v) {
+    for (var rowStart = 0; rowStart < rows; rowStart += ROW_TILE) {
+      var rowEnd = Math.min(rowStart + ROW_TILE, rows);
+      for (var s = rowStart; s < rowEnd; s++) {
+        Arrays.fill(v[s], 0f);
+      }
+
+      var inputSize = input[rowStart].length;
+      var w = 0;
+      var outputSize = v[rowStart].length;
+      for (var row = 0; row < inputSize; row++, w += outputSize) {
+        for (var s = rowStart; s < rowEnd; s++) {
+          addScaledRow(v[s], 0, outputSize, weights, w, input[s][row]);
+        }
+      }
+      for (var s = rowStart; s < rowEnd; s++) {
+        addScaledRow(v[s], 0, outputSize, weights, w, bias);
+      }
+    }
+  }
+
+  /**
+   * Like {@link #transformRows} but passes the weights once per block of {@link #COLUMN_TILE}
+   * output columns, so the outputs of a row tile stay in L1.
+   */
+  static void transformTiled(float[][] input, int rows, float[] weights, float bias,
+      float[][] v) {
+    for (var rowStart = 0; rowStart < rows; rowStart += ROW_TILE) {
+      var rowEnd = Math.min(rowStart + ROW_TILE, rows);
+      for (var s = rowStart; s < rowEnd; s++) {
+        Arrays.fill(v[s], 0f);
+      }
+
+      var inputSize = input[rowStart].length;
+      var outputSize = v[rowStart].length;
+      for (var colStart = 0; colStart < outputSize; colStart += COLUMN_TILE) {
+        var colEnd = Math.min(colStart + COLUMN_TILE, outputSize);
+        var w = 0;
+        for (var row = 0; row < inputSize; row++, w += outputSize) {
+          for (var s = rowStart; s < rowEnd; s++) {
+            addScaledRow(v[s], colStart, colEnd, weights, w, input[s][row]);
+          }
+        }
+        for (var s = rowStart; s < rowEnd; s++) {
+          addScaledRow(v[s], colStart, colEnd, weights, w, bias);
+        }
+      }
+    }
+  }
+
+  /**
+   * Like {@link #transform} for mostly zero inputs, adding only the weight rows of the non-zero
+   * inputs of each sample. The skipped rows would only add zeros, so the outputs stay exactly the
+   * same.
+   *
+   * @param nonZeroInputs [rows] ascending indices of the non-zero inputs of each sample
+   */
+  static void transformSparse(float[][] input, int[][] nonZeroInputs, int rows, float[] weights,
+      float bias, float[][] v) {
+    for (var s = 0; s < rows; s++) {
+      var outputs = v[s];
+      var outputSize = outputs.length;
+      Arrays.fill(outputs, 0f);
+
+      for (var row : nonZeroInputs[s]) {
+        addScaledRow(outputs, 0, outputSize, weights, row * outputSize, input[s][row]);
+      }
+      addScaledRow(outputs, 0, outputSize, weights, input[s].length * outputSize, bias);
+    }
+  }
+
+  /**
+   * Multiplies {@code layerError} in place by {@code outputError * weights^T} without the bias row.
+   * The errors of a tile are transposed into {@code scratch}, so that the innermost loop runs over
+   * the samples of the tile instead of reducing one dot product after another. With SIMD enabled,
+   * the lane-wise {@link FloatKernels#dot} reductions of the per-sample path are used instead to
+   * keep both paths identical.
+   *
+   * @param outputError [rows][outputSize] error gradients of the output layer
+   * @param weights     (inputSize + 1) x outputSize row-major weights including the bias row
+   * @param layerError   [rows][inputSize] derivatives of the input layer, receives its errors
+   * @param scratch      at least {@code ROW_TILE * (outputSize + 1)} floats
+   * @param skipInactive whether to skip the inputs whose derivatives are {@code 0}, because their
+   *                     errors stay {@code 0} anyway
+   */
+  static void backpropagate(float[][] outputError, int rows, float[] weights, float[][] layerError,
+      float[] scratch, boolean skipInactive) {
+    if (FloatKernels.isSimdEnabled()) {
+      backpropagateDots(outputError, rows, weights, layerError, skipInactive);
+      return;
+    }
+
+    for (var rowStart = 0; rowStart < rows; rowStart += ROW_TILE) {
+      var tile = Math.min(ROW_TILE, rows - rowStart);
+      var inputSize = layerError[rowStart].length;
+      var outputSize = outputError[rowStart].length;
+      var sums = outputSize * tile;
+
+      for (var s = 0; s < tile; s++) {
+        var error = outputError[rowStart + s];
+        for (var i = 0; i < outputSize; i++) {
+          scratch[i * tile + s] = error[i];
+        }
+      }
+
+      for (int j = 0, w = 0; j < inputSize; j++, w += outputSize) {
+        if (skipInactive && isInactive(layerError, rowStart, tile, j)) {
+          continue;
+        }
+        Arrays.fill(scratch, sums, sums + tile, 0f);
+        for (var i = 0; i < outputSize; i++) {
+          var weight = weights[w + i];
+          var e = i * tile;
+          for (var s = 0; s < tile; s++) {
+            scratch[sums + s] += weight * scratch[e + s];
+          }
+        }
+        for (var s = 0; s < tile; s++) {
+          layerError[rowStart + s][j] *= scratch[sums + s];
+        }
+      }
+    }
+  }
+
+  /**
+   * @return whether input {@code j} of all samples of a tile has a derivative of {@code 0}
+   */
+  private static boolean isInactive(float[][] layerError, int rowStart, int tile, int j) {
+    for (var s = rowStart; s < rowStart + tile; s++) {
+      if (layerError[s][j] != 0f) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void backpropagateDots(float[][] outputError, int rows, float[] weights,
+      float[][] layerError, boolean skipInactive) {
+    for (var rowStart = 0; rowStart < rows; rowStart += ROW_TILE) {
+      var rowEnd = Math.min(rowStart + ROW_TILE, rows);
+      var inputSize = layerError[rowStart].length;
+      var outputSize = outputError[rowStart].length;
+
+      for (int j = 0, w = 0; j < inputSize; j++, w += outputSize) {
+        for (var s = rowStart; s < rowEnd; s++) {
+          if (!skipInactive || layerError[s][j] != 0f) {
+            layerError[s][j] *= FloatKernels.dot(weights, w, outputError[s], 0, outputSize);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Like {@link #backpropagate} with {@code outputSize x inputSize} weights, the transpose of the
+   * weights without the bias row. Every transposed row is added scaled by one error to the sums of
+   * each sample of a tile, so the weights are read contiguously once per tile, without transposing
+   * the errors and without short dot products for small output layers. The sums add the errors in
+   * order with separate multiply and add, exactly like the scalar {@link FloatKernels#dot}.
+   *
+   * @param transposedWeights outputSize x inputSize row-major weights, see {@link #transpose}
+   * @param scratch           at least {@code ROW_TILE * inputSize} floats
+   * @param skipZeroErrors    whether to skip the transposed rows of the output errors that are
+   *                          {@code 0}, e.g. of inactive outputs
+   */
+  static void backpropagateTransposed(float[][] outputError, int rows, float[] transposedWeights,
+      float[][] layerError, float[] scratch, boolean skipZeroErrors) {
+    for (var rowStart = 0; rowStart < rows; rowStart += ROW_TILE) {
+      var tile = Math.min(ROW_TILE, rows - rowStart);
+      var inputSize = layerError[rowStart].length;
+      var outputSize = outputError[rowStart].length;
+      Arrays.fill(scratch, 0, tile * inputSize, 0f);
+
+      for (int i = 0, w = 0; i < outputSize; i++, w += inputSize) {
+        for (var s = 0; s < tile; s++) {
+          var error = outputError[rowStart + s][i];
+          if (!skipZeroErrors || error != 0f) {
+            FloatKernels.axpy(error, transposedWeights, w, scratch, s * inputSize, inputSize);
+          }
+        }
+      }
+      for (var s = 0; s < tile; s++) {
+        var error = layerError[rowStart + s];
+        for (var j = 0; j < inputSize; j++) {
+          error[j] *= scratch[s * inputSize + j];
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the transpose of the first {@code inputSize} rows of {@code weights}, i.e. without the
+   * bias row, into {@code transposed}. Blocks of {@link #TRANSPOSE_TILE} squared floats keep both
+   * the read and the written rows in L1.
+   *
+   * @param weights    (inputSize + 1) x outputSize row-major weights including the bias row
+   * @param transposed outputSize x inputSize row-major transpose
+   */
+  static void transpose(float[] weights, int inputSize, int outputSize, float[] transposed) {
+    for (var rowStart = 0; rowStart < inputSize; rowStart += TRANSPOSE_TILE) {
+      var rowEnd = Math.min(rowStart + TRANSPOSE_TILE, inputSize);
+      for (var colStart = 0; colStart < outputSize; colStart += TRANSPOSE_TILE) {
+        var colEnd = Math.min(colStart + TRANSPOSE_TILE, outputSize);
+        for (var row = rowStart; row < rowEnd; row++) {
+          for (var col = colStart; col < colEnd; col++) {
+            transposed[col * inputSize + row] = weights[row * outputSize + col];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Accumulates {@code [input | bias]^T * outputError} into {@code gradients}, adding the samples
+   * in row order.
+   *
+   * @param input       [rows][inputSize] outputs after activation of the input layer
+   * @param outputError [rows][outputSize] error gradients of the output layer
+   * @param gradients      (inputSize + 1) x outputSize row-major gradients including the bias row
+   * @param skipZeroInputs whether to skip the inputs that are {@code 0}, e.g. of inactive neurons
+   */
+  static void accumulateGradients(float[][] input, float[][] outputError, int rows, float bias,
+      float[] gradients, boolean skipZeroInputs) {
+    if (gradients.length >= TILING_THRESHOLD) {
+      accumulateGradientsTiled(input, outputError, rows, bias, gradients, skipZeroInputs);
+    } else {
+      accumulateGradientsRows(input, outputError, rows, bias, gradients, skipZeroInputs);
+    }
+  }
+
+  static void accumulateGradientsRows(float[][] input, float[][] outputError, int rows,
+      float bias, float[] gradients, boolean skipZeroInputs) {
+    if (rows == 0) {
+      return;
+    }
+
+    var inputSize = input[0].length;
+    var outputSize = outputError[0].length;
+    var w = 0;
+    for (var j = 0; j < inputSize; j++, w += outputSize) {
+      for (var s = 0; s < rows; s++) {
+        var scale = input[s][j];
+        if (!skipZeroInputs || scale != 0f) {
+          addScaledInto(gradients, w, outputError[s], 0, outputSize, scale);
+        }
+      }
+    }
+    for (var s = 0; s < rows; s++) {
+      addScaledInto(gradients, w, outputError[s], 0, outputSize, bias);
+    }
+  }
+
+  /**
+   * Like {@link #accumulateGradientsRows} but reads the errors once per block of
+   * {@link #COLUMN_TILE} output columns, so they stay in L2 instead of streaming from memory for
+   * every gradient row.
+   */
+  static void accumulateGradientsTiled(float[][] input, float[][] outputError, int rows,
+      float bias, float[] gradients, boolean skipZeroInputs) {
+    if (rows == 0) {
+      return;
+    }
+
+    var inputSize = input[0].length;
+    var outputSize = outputError[0].length;
+    for (var colStart = 0; colStart < outputSize; colStart += COLUMN_TILE) {
+      var colEnd = Math.min(colStart + COLUMN_TILE, outputSize);
+      var w = 0;
+      for (var j = 0; j < inputSize; j++, w += outputSize) {
+        for (var s = 0; s < rows; s++) {
+          var scale = input[s][j];
+          if (!skipZeroInputs || scale != 0f) {
+            addScaledInto(gradients, w, outputError[s], colStart, colEnd, scale);
+          }
+        }
+      }
+      for (var s = 0; s < rows; s++) {
+        addScaledInto(gradients, w, outputError[s], colStart, colEnd, bias);
+      }
+    }
+  }
+
+  /**
+   * Like {@link #accumulateGradients} for mostly zero inputs, adding the errors of each sample only
+   * to the gradient rows of its non-zero inputs. Every gradient still sums the samples in row
+   * order, so the gradients stay exactly the same.
+   *
+   * @param nonZeroInputs [rows] ascending indices of the non-zero inputs of each sample
+   */
+  static void accumulateGradientsSparse(float[][] input, int[][] nonZeroInputs,
+      float[][] outputError, int rows, float bias, float[] gradients) {
+    if (rows == 0) {
+      return;
+    }
+
+    var inputSize = input[0].length;
+    var outputSize = outputError[0].length;
+    for (var s = 0; s < rows; s++) {
+      for (var j : nonZeroInputs[s]) {
+        addScaledInto(gradients, j * outputSize, outputError[s], 0, outputSize, input[s][j]);
+      }
+    }
+    for (var s = 0; s < rows; s++) {
+      addScaledInto(gradients, inputSize * outputSize, outputError[s], 0, outputSize, bias);
+    }
+  }
+
+  /**
+   * Like {@link #transformRows} with the inputs stored in {@code precision}. Every input is only
+   * used as a scalar factor, so it is converted once per weight row.
+   */
+  static void transform(short[][] input, HalfPrecision precision, int rows, float[] weights,
+      float bias, float[][] v) {
+    for (var rowStart = 0; rowStart < rows; rowStart += ROW_TILE) {
+      var rowEnd = Math.min(rowStart + ROW_TILE, rows);
+      for (var s = rowStart; s < rowEnd; s++) {
+        Arrays.fill(v[s], 0f);
+      }
+
+      var inputSize = input[rowStart].length;
+      var w = 0;
+      var outputSize = v[rowStart].length;
+      for (var row = 0; row < inputSize; row++, w += outputSize) {
+        for (var s = rowStart; s < rowEnd; s++) {
+          addScaledRow(v[s], 0, outputSize, weights, w, precision.decode(input[s][row]));
+        }
+      }
+      for (var s = rowStart; s < rowEnd; s++) {
+        addScaledRow(v[s], 0, outputSize, weights, w, bias);
+      }
+    }
+  }
+
+  /**
+   * Like {@link #accumulateGradientsRows} with the inputs stored in {@code precision}.
+   */
+  static void accumulateGradients(short[][] input, HalfPrecision precision, float[][] outputError,
+      int rows, float bias, float[] gradients) {
+    if (rows == 0) {
+      return;
+    }
+
+    var inputSize = input[0].length;
+    var outputSize = outputError[0].length;
+    var w = 0;
+    for (var j = 0; j < inputSize; j++, w += outputSize) {
+      for (var s = 0; s < rows; s++) {
+        addScaledInto(gradients, w, outputError[s], 0, outputSize,
+            precision.decode(input[s][j]));
+      }
+    }
+    for (var s = 0; s < rows; s++) {
+      addScaledInto(gradients, w, outputError[s], 0, outputSize, bias);
+    }
+  }
+
+  private static void addScaledRow(float[] target, int from, int to, float[] matrix,
+      int rowOffset, float scale) {
+    FloatKernels.axpy(scale, matrix, rowOffset + from, target, from, to - from);
+  }
+
+  private static void addScaledInto(float[] matrix, int rowOffset, float[] row, int from, int to,
+      float scale) {
+    FloatKernels.axpy(scale, row, from, matrix, rowOffset + from, to - from);
+  }
+}
@@ -0,0 +1,32 @@
+package edu.yaprnn.networks;
+
+/**
+ * Wall times spent in the phases of {@link MultiLayerNetwork#learnMiniBatch}, summed over all
+ * mini-batches of an epoch.
+ *
+ * @param gradientsNanos computing the gradients of the chunks
+ * @param reductionNanos reducing the chunk gradients into one, including the update of the
+ *                       weights where it is fused into the reduction
+ * @param updateNanos    applying the reduced gradients to the weights
+ */
+public record MiniBatchTimings(long gradientsNanos, long reductionNanos, long updateNanos) {
+
+  public static final MiniBatchTimings ZERO = new MiniBatchTimings(0L, 0L, 0L);
+
+  public static MiniBatchTimings sum(MiniBatchTimings left, MiniBatchTimings right) {
+    return new MiniBatchTimings(left.gradientsNanos + right.gradientsNanos,
+        left.reductionNanos + right.reductionNanos, left.updateNanos + right.updateNanos);
+  }
+
+  public long totalNanos() {
+    return gradientsNanos + reductionNanos + updateNanos;
+  }
+
+  /**
+   * @return share of the reduction in the total wall time, {@code 0} if nothing was measured
+   */
+  public float reductionShare() {
+    var total = totalNanos();
+    return total > 0L ? reductionNanos / (float) total : 0f;
+  }
+}
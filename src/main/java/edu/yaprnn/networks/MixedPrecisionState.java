@@ -0,0 +1,138 @@
+package edu.yaprnn.networks;
+
+import java.util.Objects;
+
+/**
+ * Per-chunk gradients and dynamic loss scale of a mixed precision training session. The chunk
+ * gradients are stored in 16 bits and summed into float gradients before the float weights of the
+ * network are updated.
+ *
+ * <p>The errors are multiplied by {@link #lossScale()} before the backpropagation. A mini-batch
+ * whose gradients overflow is skipped and halves the scale, and every
+ * {@link #GROWTH_INTERVAL} steps without overflow double it again.
+ */
+public final class MixedPrecisionState {
+
+  static final int GROWTH_INTERVAL = 2000;
+  /**
+   * Keeps scaled errors of a single sample far below the range of float.
+   */
+  static final float MAX_LOSS_SCALE = 1 << 24;
+
+  private final HalfPrecision precision;
+  private final int parallelism;
+  /**
+   * [parallelism][layerSizes.length - 1] loss scaled gradients accumulated by each worker chunk
+   */
+  final short[][][] chunkGradients;
+  /**
+   * [layerSizes.length - 1] unscaled sum of the chunk gradients
+   */
+  final float[][] gradients;
+  /**
+   * [parallelism] whether the slice reduced by each chunk is finite
+   */
+  final boolean[] finiteSlices;
+
+  private float lossScale;
+  private int stepsSinceOverflow;
+  private int skippedSteps;
+
+  private MixedPrecisionState(float[][] layerWeights, HalfPrecision precision,
+      int parallelism) {
+    this.precision = precision;
+    this.parallelism = parallelism;
+    lossScale = precision.initialLossScale();
+    gradients = new float[layerWeights.length][];
+    chunkGradients = new short[parallelism][layerWeights.length][];
+    finiteSlices = new boolean[parallelism];
+    for (var l = 0; l < layerWeights.length; l++) {
+      gradients[l] = new float[layerWeights[l].length];
+      for (var c = 0; c < parallelism; c++) {
+        chunkGradients[c][l] = new short[layerWeights[l].length];
+      }
+    }
+  }
+
+  /**
+   * Allocates the state for training {@code multiLayerNetwork} with up to {@code parallelism}
+   * workers in {@code precision}.
+   */
+  public static MixedPrecisionState create(MultiLayerNetwork multiLayerNetwork,
+      Precision precision, int parallelism) {
+    Objects.requireNonNull(multiLayerNetwork, "multiLayerNetwork");
+    var halfPrecision = Objects.requireNonNull(precision, "precision").halfPrecision()
+        .orElseThrow(() -> new IllegalArgumentException("precision must be a 16 bit format"));
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be >= 1");
+    }
+    return new MixedPrecisionState(multiLayerNetwork.getLayerWeights(), halfPrecision,
+        parallelism);
+  }
+
+  public HalfPrecision precision() {
+    return precision;
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  public float lossScale() {
+    return lossScale;
+  }
+
+  /**
+   * @return count of mini-batches skipped, because their gradients overflowed
+   */
+  public int skippedSteps() {
+    return skippedSteps;
+  }
+
+  /**
+   * Sums the {@code slice}-th of {@code chunkCount} slices of the chunk gradients into
+   * {@link #gradients} and divides them by the loss scale, like
+   * {@link GradientMatrixService#reduceSliceInPlace(java.lang.foreign.MemorySegment[][], int, int)}
+   * sums native gradients.
+   */
+  void reduceSlice(int chunkCount, int slice) {
+    var inverseLossScale = 1f / lossScale;
+    var finite = true;
+    for (var l = 0; l < gradients.length; l++) {
+      var target = gradients[l];
+      var from = (int) ((long) slice * target.length / chunkCount);
+      var to = (int) ((long) (slice + 1) * target.length / chunkCount);
+      for (var i = from; i < to; i++) {
+        var sum = precision.decode(chunkGradients[0][l][i]);
+        for (var c = 1; c < chunkCount; c++) {
+          sum += precision.decode(chunkGradients[c][l][i]);
+        }
+        target[i] = sum * inverseLossScale;
+        finite &= Float.isFinite(sum);
+      }
+    }
+    finiteSlices[slice] = finite;
+  }
+
+  /**
+   * Adjusts the loss scale after a mini-batch reduced by {@code chunkCount} slices.
+   *
+   * @return whether the gradients are finite and may be applied
+   */
+  boolean completeStep(int chunkCount) {
+    for (var c = 0; c < chunkCount; c++) {
+      if (!finiteSlices[c]) {
+        lossScale = Math.max(lossScale / 2f, 1f);
+        stepsSinceOverflow = 0;
+        skippedSteps++;
+        return false;
+      }
+    }
+
+    if (precision.scalesLoss() && ++stepsSinceOverflow >= GROWTH_INTERVAL) {
+      lossScale = Math.min(lossScale * 2f, MAX_LOSS_SCALE);
+      stepsSinceOverflow = 0;
+    }
+    return true;
+  }
+}
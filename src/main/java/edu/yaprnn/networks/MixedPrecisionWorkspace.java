@@ -0,0 +1,70 @@
+package edu.yaprnn.networks;
+
+import java.util.Arrays;
+
+/**
+ * Reusable matrices for mixed precision training like {@link BatchWorkspace}, but the activations
+ * of the packed samples, including their inputs, are stored in 16 bits. Only the errors and the
+ * rows currently converted stay float. Each worker thread must own its own workspace.
+ */
+final class MixedPrecisionWorkspace {
+
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] outputs before activation
+   */
+  final short[][][] v;
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] outputs after activation
+   */
+  final short[][][] h;
+  /**
+   * [layerSizes.length][capacity][layerSizes[l]] error gradients with respect to {@code v}, which
+   * also receive the outputs of the forward pass before they are packed
+   */
+  final float[][][] errors;
+  /**
+   * [layerSizes.length][layerSizes[l]] one row of {@code v} and {@code h} converted to float
+   */
+  final float[][] rowV;
+  final float[][] rowH;
+  /**
+   * float gradients of the layer currently backpropagated, sized for the largest layer
+   */
+  final float[] layerGradients;
+  /**
+   * [capacity] targets of the packed samples
+   */
+  final float[][] targets;
+  /**
+   * transposed error tile and sums of {@link MatrixKernels#backpropagate}
+   */
+  final float[] scratch;
+
+  MixedPrecisionWorkspace(int[] layerSizes, int capacity) {
+    v = new short[layerSizes.length][capacity][];
+    h = new short[layerSizes.length][capacity][];
+    errors = new float[layerSizes.length][capacity][];
+    rowV = new float[layerSizes.length][];
+    rowH = new float[layerSizes.length][];
+    targets = new float[capacity][];
+    scratch = new float[MatrixKernels.ROW_TILE * (Arrays.stream(layerSizes).max().orElse(0) + 1)];
+    var maxWeights = 0;
+    for (var l = 0; l < layerSizes.length; l++) {
+      rowV[l] = new float[layerSizes[l]];
+      rowH[l] = new float[layerSizes[l]];
+      for (var s = 0; s < capacity; s++) {
+        v[l][s] = new short[layerSizes[l]];
+        h[l][s] = new short[layerSizes[l]];
+        errors[l][s] = new float[layerSizes[l]];
+      }
+      if (l > 0) {
+        maxWeights = Math.max(maxWeights, (layerSizes[l - 1] + 1) * layerSizes[l]);
+      }
+    }
+    layerGradients = new float[maxWeights];
+  }
+
+  int capacity() {
+    return targets.length;
+  }
+}
@@ -4,14 +4,19 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import edu.yaprnn.networks.activation.ActivationFunction;
 import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.networks.loss.SoftMaxCrossEntropy;
+import edu.yaprnn.networks.optimizers.NesterovOptimizer;
+import edu.yaprnn.networks.optimizers.Optimizer;
+import edu.yaprnn.networks.optimizers.OptimizerState;
 import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.support.FloatKernels;
 import edu.yaprnn.training.selectors.DataSelector;
-import java.util.ArrayList;
+import java.lang.foreign.MemorySegment;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -22,6 +27,16 @@ import lombok.Setter;
 public final class MultiLayerNetwork {
 
   private static final int[] EMPTY_LAYER_SIZES = new int[0];
+  /**
+   * Weights reduced and updated at once, small enough for their gradients, weights and optimizer
+   * buffers to stay in the L1 cache
+   */
+  private static final int UPDATE_BLOCK = 1024;
+  /**
+   * Share of non-zero inputs up to which the first layer only visits the weight rows of the
+   * non-zero inputs, e.g. the ink of an image of a digit
+   */
+  static final float MAX_SPARSE_INPUT_DENSITY = 0.5f;
 
   private final int[] layerSizes;
   private final ActivationFunction[] activationFunctions;
@@ -35,257 +50,943 @@ public final class MultiLayerNetwork {
   // rows -> from input layer nodes with 1 bias node
   // cols -> to output layer nodes without 1 bias node
   private float[][] layerWeights;
+  // like layerWeights, allocated by the first training with momentum
   private float[][] previousLayerGradients;
 
   public void resetLayerWeights(GradientMatrixService gradientMatrixService) {
     layerWeights = gradientMatrixService.resetLayerWeights(layerSizes, activationFunctions);
-    previousLayerGradients = gradientMatrixService.zeroMatrices(layerSizes);
+    previousLayerGradients = null;
   }
 
-  private void computeGradients(float[][] layerGradients, float[][] layerWeights, float[] input,
-      float[] target) {
-    var layers = feedForward(input, layerWeights);
-    var layerIndex = Layer.outputIndex(layers);
+  /**
+   * @return {@link #getPreviousLayerGradients()}, zeroed on the first call after
+   * {@link #resetLayerWeights(GradientMatrixService)}
+   */
+  public float[][] momentumBuffers() {
+    if (previousLayerGradients == null) {
+      previousLayerGradients = new float[layerSizes.length - 1][];
+      for (var l = 0; l < previousLayerGradients.length; l++) {
+        previousLayerGradients[l] = new float[(layerSizes[l] + 1) * layerSizes[l + 1]];
+      }
+    }
+    return previousLayerGradients;
+  }
+
+  /**
+   * @param nonZeroInputs see {@link #nonZeroInputs(Sample, float[])}
+   */
+  private void computeGradients(NetworkWorkspace workspace, float[][] layerGradients,
+      float[][] layerWeights, float[] input, int[] nonZeroInputs, float[] target) {
+    feedForward(workspace, input, nonZeroInputs, layerWeights);
+    var layerIndex = layerSizes.length - 1;
 
-    var outputLayer = layers[layerIndex];
-    var outputError = lossFunction.computeOutputError(outputLayer.v(), outputLayer.h(), target,
-        outputLayer.activationFunction());
+    var outputError = workspace.errors[layerIndex];
+    computeOutputErrorInto(workspace.v[layerIndex], workspace.h[layerIndex],
+        workspace.intermediates[layerIndex], target, outputError);
 
     for (layerIndex -= 1; layerIndex >= 0; layerIndex--) {
       var gradients = layerGradients[layerIndex];
-      var inputLayer = layers[layerIndex];
-      var h = inputLayer.h();
-      var w = 0;
-
-      for (var j = 0; j < h.length; j++) {
-        var value = h[j];
-        for (var i = 0; i < outputError.length; i++, w++) {
-          gradients[w] += outputError[i] * value;
+      var h = workspace.h[layerIndex];
+      var w = h.length * outputError.length;
+
+      if (layerIndex == 0 && nonZeroInputs != null) {
+        // zero inputs add nothing to their gradient rows
+        for (var j : nonZeroInputs) {
+          FloatKernels.axpy(h[j], outputError, 0, gradients, j * outputError.length,
+              outputError.length);
+        }
+      } else if (activationFunctions[layerIndex].hasInactiveNeurons()) {
+        // so do the zero outputs of inactive neurons
+        for (int j = 0, r = 0; j < h.length; j++, r += outputError.length) {
+          if (h[j] != 0f) {
+            FloatKernels.axpy(h[j], outputError, 0, gradients, r, outputError.length);
+          }
+        }
+      } else {
+        for (int j = 0, r = 0; j < h.length; j++, r += outputError.length) {
+          FloatKernels.axpy(h[j], outputError, 0, gradients, r, outputError.length);
         }
       }
-      for (var i = 0; i < outputError.length; i++, w++) {
-        gradients[w] += outputError[i] * bias;
-      }
+      FloatKernels.axpy(bias, outputError, 0, gradients, w, outputError.length);
 
       if (layerIndex > 0) {
-        outputError = computeLayerError(inputLayer, outputError, layerWeights[layerIndex],
-            activationFunctions[layerIndex]);
+        outputError = computeLayerError(workspace, layerIndex, outputError,
+            layerWeights[layerIndex]);
       }
     }
   }
 
-  private void applyGradients(float[][] learnedLayerGradients, float[][] layerWeights,
-      int batchSize, float learningRate, float momentum, float decayL1, float decayL2) {
-    var miniLearningRate = learningRate / (float) Math.max(batchSize, 1);
-
+  private void applyGradients(float[][] learnedLayerGradients, OptimizerState optimizerState,
+      int batchSize, float learningRate) {
+    optimizerState.beginStep();
     for (var lw = 0; lw < layerWeights.length; lw++) {
-      var weights = layerWeights[lw];
-      var gradients = learnedLayerGradients[lw];
-      var thisWeights = this.layerWeights[lw];
-      var previousGradients = previousLayerGradients[lw];
-
-      for (var w = 0; w < weights.length; w++) {
-        var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
-        var gradient = momentum * previousGradients[w] - miniLearningRate * (gradients[w] + decay);
-        thisWeights[w] += (1f + momentum) * gradient - momentum * previousGradients[w];
-        previousGradients[w] = gradient;
-      }
+      optimizerState.update(lw, layerWeights[lw], learnedLayerGradients[lw], learningRate,
+          batchSize);
     }
   }
 
-  private Layer[] feedForward(float[] input, float[][] layerWeights) {
-    var v = input.length == layerSizes[0] ? input : Arrays.copyOf(input, layerSizes[0]);
-    var layers = new Layer[layerSizes.length];
-    var inputActivationFunction = activationFunctions[0];
-    layers[0] = new Layer(0, v, inputActivationFunction.apply(v), inputActivationFunction);
+  /**
+   * @param nonZeroInputs see {@link #nonZeroInputs(Sample, float[])}
+   */
+  private void feedForward(NetworkWorkspace workspace, float[] input, int[] nonZeroInputs,
+      float[][] layerWeights) {
+    NetworkWorkspace.copyInput(input, workspace.v[0]);
+    activationFunctions[0].applyInto(workspace.v[0], workspace.h[0], workspace.intermediates[0]);
 
-    for (int i = 1; i < layers.length; i++) {
-      layers[i] = feedForward(layers[i - 1], layerWeights[i - 1], i);
+    var i = 1;
+    if (nonZeroInputs != null) {
+      feedForwardSparse(workspace, layerWeights[0], nonZeroInputs);
+      i++;
     }
+    for (; i < layerSizes.length; i++) {
+      feedForward(workspace, layerWeights[i - 1], i);
+    }
+  }
 
-    return layers;
+  /**
+   * @return ascending indices of the non-zero inputs of {@code sample}, if {@code input} is its
+   * input, the input layer keeps zeros and they are few enough for the first layer to skip the
+   * others, otherwise {@code null}
+   */
+  private int[] nonZeroInputs(Sample sample, float[] input) {
+    if (layerSizes.length < 2 || input != sample.getInput()
+        || !activationFunctions[0].preservesZero()) {
+      return null;
+    }
+
+    var indices = sample.getNonZeroInputIndices();
+    var inputSize = layerSizes[0];
+    var fits = indices.length == 0 || indices[indices.length - 1] < inputSize;
+    return fits && indices.length <= MAX_SPARSE_INPUT_DENSITY * inputSize ? indices : null;
   }
 
-  private float[] computeLayerError(Layer inputLayer, float[] outputError, float[] weights,
-      ActivationFunction inputActivationFunction) {
-    var layerError = inputActivationFunction.derivative(inputLayer.h(), inputLayer.v());
+  private float[] computeLayerError(NetworkWorkspace workspace, int layerIndex,
+      float[] outputError, float[] weights) {
+    var layerError = workspace.errors[layerIndex];
+    var activationFunction = activationFunctions[layerIndex];
+    activationFunction.derivativeInto(workspace.h[layerIndex], workspace.v[layerIndex],
+        workspace.intermediates[layerIndex], layerError);
 
-    for (int j = 0, w = 0; j < layerError.length; j++) {
-      var weightedErrorSum = 0f;
-      for (var i = 0; i < outputError.length; i++, w++) {
-        weightedErrorSum += weights[w] * outputError[i];
+    // inactive neurons with a derivative of 0 pass no error back
+    var skipInactive = activationFunction.hasInactiveNeurons();
+    for (int j = 0, w = 0; j < layerError.length; j++, w += outputError.length) {
+      if (!skipInactive || layerError[j] != 0f) {
+        layerError[j] *= FloatKernels.dot(weights, w, outputError, 0, outputError.length);
       }
-      layerError[j] *= weightedErrorSum;
     }
 
     return layerError;
   }
 
-  private Layer feedForward(Layer inputLayer, float[] weights, int nextLayerIndex) {
-    var input = inputLayer.h();
-    var v = new float[layerSizes[nextLayerIndex]];
+  private void feedForward(NetworkWorkspace workspace, float[] weights, int nextLayerIndex) {
+    var input = workspace.h[nextLayerIndex - 1];
+    var v = workspace.v[nextLayerIndex];
+    Arrays.fill(v, 0f);
     var w = 0;
 
-    for (var row = 0; row < input.length; row++) {
-      var value = input[row];
-      for (var i = 0; i < v.length; i++, w++) {
-        v[i] += weights[w] * value;
+    for (var row = 0; row < input.length; row++, w += v.length) {
+      FloatKernels.axpy(input[row], weights, w, v, 0, v.length);
+    }
+    FloatKernels.axpy(bias, weights, w, v, 0, v.length);
+
+    activationFunctions[nextLayerIndex].applyInto(v, workspace.h[nextLayerIndex],
+        workspace.intermediates[nextLayerIndex]);
+  }
+
+  /**
+   * Like {@link #feedForward(NetworkWorkspace, float[], int)} into the first layer, adding only the
+   * weight rows of {@code nonZeroInputs}. The skipped rows would only add zeros, so the outputs
+   * stay exactly the same.
+   */
+  private void feedForwardSparse(NetworkWorkspace workspace, float[] weights,
+      int[] nonZeroInputs) {
+    var input = workspace.h[0];
+    var v = workspace.v[1];
+    Arrays.fill(v, 0f);
+
+    for (var row : nonZeroInputs) {
+      FloatKernels.axpy(input[row], weights, row * v.length, v, 0, v.length);
+    }
+    FloatKernels.axpy(bias, weights, input.length * v.length, v, 0, v.length);
+
+    activationFunctions[1].applyInto(v, workspace.h[1], workspace.intermediates[1]);
+  }
+
+  private void computeGradients(NetworkWorkspace workspace, MemorySegment[] layerGradients,
+      MemorySegment[] layerWeights, float[] input, float[] target) {
+    feedForward(workspace, input, layerWeights);
+    var layerIndex = layerSizes.length - 1;
+
+    var outputError = workspace.errors[layerIndex];
+    computeOutputErrorInto(workspace.v[layerIndex], workspace.h[layerIndex],
+        workspace.intermediates[layerIndex], target, outputError);
+
+    for (layerIndex -= 1; layerIndex >= 0; layerIndex--) {
+      var gradients = layerGradients[layerIndex];
+      var h = workspace.h[layerIndex];
+      var w = 0L;
+
+      for (var j = 0; j < h.length; j++, w += outputError.length) {
+        FloatKernels.axpy(h[j], outputError, 0, gradients, w, outputError.length);
+      }
+      FloatKernels.axpy(bias, outputError, 0, gradients, w, outputError.length);
+
+      if (layerIndex > 0) {
+        outputError = computeLayerError(workspace, layerIndex, outputError,
+            layerWeights[layerIndex]);
+      }
+    }
+  }
+
+  private void applyGradients(OffHeapParameters parameters, int batchSize, float learningRate,
+      float momentum, float decayL1, float decayL2) {
+    var miniLearningRate = learningRate / (float) Math.max(batchSize, 1);
+
+    for (var lw = 0; lw < layerWeights.length; lw++) {
+      FloatKernels.momentumStep(parameters.weights[lw], parameters.chunkGradients[0][lw],
+          parameters.previousGradients[lw], layerWeights[lw].length, miniLearningRate, momentum,
+          decayL1, decayL2);
+    }
+  }
+
+  private void feedForward(NetworkWorkspace workspace, float[] input,
+      MemorySegment[] layerWeights) {
+    NetworkWorkspace.copyInput(input, workspace.v[0]);
+    activationFunctions[0].applyInto(workspace.v[0], workspace.h[0], workspace.intermediates[0]);
+
+    for (var i = 1; i < layerSizes.length; i++) {
+      feedForward(workspace, layerWeights[i - 1], i);
+    }
+  }
+
+  private float[] computeLayerError(NetworkWorkspace workspace, int layerIndex,
+      float[] outputError, MemorySegment weights) {
+    var layerError = workspace.errors[layerIndex];
+    activationFunctions[layerIndex].derivativeInto(workspace.h[layerIndex],
+        workspace.v[layerIndex], workspace.intermediates[layerIndex], layerError);
+
+    var w = 0L;
+    for (var j = 0; j < layerError.length; j++, w += outputError.length) {
+      layerError[j] *= FloatKernels.dot(weights, w, outputError, 0, outputError.length);
+    }
+
+    return layerError;
+  }
+
+  private void feedForward(NetworkWorkspace workspace, MemorySegment weights,
+      int nextLayerIndex) {
+    var input = workspace.h[nextLayerIndex - 1];
+    var v = workspace.v[nextLayerIndex];
+    Arrays.fill(v, 0f);
+    var w = 0L;
+
+    for (var row = 0; row < input.length; row++, w += v.length) {
+      FloatKernels.axpy(input[row], weights, w, v, 0, v.length);
+    }
+    FloatKernels.axpy(bias, weights, w, v, 0, v.length);
+
+    activationFunctions[nextLayerIndex].applyInto(v, workspace.h[nextLayerIndex],
+        workspace.intermediates[nextLayerIndex]);
+  }
+
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      ExecutorService executor, List<? extends Sample> trainingSamples, DataSelector dataSelector,
+      int maxParallelism, int batchSize, float learningRate, float momentum, float decayL1,
+      float decayL2) {
+    return learnMiniBatch(gradientMatrixService, executor, trainingSamples, dataSelector,
+        maxParallelism, batchSize, learningRate, momentum, decayL1, decayL2,
+        TrainingEngine.PER_SAMPLE);
+  }
+
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      ExecutorService executor, List<? extends Sample> trainingSamples, DataSelector dataSelector,
+      int maxParallelism, int batchSize, float learningRate, float momentum, float decayL1,
+      float decayL2, TrainingEngine trainingEngine) {
+    Objects.requireNonNull(gradientMatrixService, "gradientMatrixService");
+    return learnMiniBatch(gradientMatrixService, WorkerPool.of(executor, maxParallelism),
+        trainingSamples, dataSelector, batchSize, learningRate, momentum, decayL1, decayL2,
+        trainingEngine);
+  }
+
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, List<? extends Sample> trainingSamples, DataSelector dataSelector,
+      int batchSize, float learningRate, float momentum, float decayL1, float decayL2,
+      TrainingEngine trainingEngine) {
+    return learnMiniBatch(gradientMatrixService, workerPool, trainingSamples, dataSelector,
+        batchSize, learningRate, momentum, decayL1, decayL2, trainingEngine, 0L);
+  }
+
+  /**
+   * Like {@link #learnMiniBatch} with a cap on the activation memory of every worker of the
+   * {@link TrainingEngine#BATCHED} and {@link TrainingEngine#HOGWILD} engines. Deep networks whose
+   * activations of a chunk exceed it only keep the activations of every k-th layer and recompute
+   * the others during backpropagation, with the smallest k that fits. The gradients stay exactly
+   * the same, the recomputation costs up to one more forward pass.
+   *
+   * @param activationMemoryBudget bytes of activations and error gradients per worker, or
+   *                               {@code 0} for no limit
+   */
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, List<? extends Sample> trainingSamples, DataSelector dataSelector,
+      int batchSize, float learningRate, float momentum, float decayL1, float decayL2,
+      TrainingEngine trainingEngine, long activationMemoryBudget) {
+    // validated before the momentum of this network is wrapped, which may not exist yet
+    requireValidMiniBatch(gradientMatrixService, workerPool, trainingSamples, dataSelector,
+        batchSize, trainingEngine, activationMemoryBudget);
+    return learnMiniBatch(gradientMatrixService, workerPool, trainingSamples, dataSelector,
+        batchSize, learningRate, nesterovState(momentum, decayL1, decayL2), trainingEngine,
+        activationMemoryBudget);
+  }
+
+  /**
+   * Like {@link #learnMiniBatch} with the weights updated by {@code optimizerState} instead of the
+   * momentum stored with this network. {@link TrainingEngine#HOGWILD} gives every worker a fresh
+   * state of the same optimizer per call.
+   */
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, List<? extends Sample> trainingSamples, DataSelector dataSelector,
+      int batchSize, float learningRate, OptimizerState optimizerState,
+      TrainingEngine trainingEngine, long activationMemoryBudget) {
+    requireValidMiniBatch(gradientMatrixService, workerPool, trainingSamples, dataSelector,
+        batchSize, trainingEngine, activationMemoryBudget);
+    Objects.requireNonNull(optimizerState, "optimizerState");
+    try (var session = TrainingSession.of(this, gradientMatrixService, optimizerState)) {
+      return learnMiniBatch(workerPool, session, trainingSamples, dataSelector, batchSize,
+          learningRate, trainingEngine, activationMemoryBudget);
+    }
+  }
+
+  /**
+   * Like {@link #learnMiniBatch} with the optimizer and the buffers of {@code session}, which keeps
+   * them for its next call. Apart from the first epoch of a session, and any epoch that changes the
+   * engine, the batch size or the parallelism, no gradients or workspaces are allocated. The
+   * per-worker optimizer states of {@link TrainingEngine#HOGWILD} carry their momentum across the
+   * epochs of the session, like the state of the other engines.
+   */
+  public MiniBatchTimings learnMiniBatch(WorkerPool workerPool, TrainingSession session,
+      List<? extends Sample> trainingSamples, DataSelector dataSelector, int batchSize,
+      float learningRate, TrainingEngine trainingEngine, long activationMemoryBudget) {
+    Objects.requireNonNull(session, "session");
+    var gradientMatrixService = session.gradientMatrixService();
+    requireValidMiniBatch(gradientMatrixService, workerPool, trainingSamples, dataSelector,
+        batchSize, trainingEngine, activationMemoryBudget);
+    if (session.multiLayerNetwork() != this) {
+      throw new IllegalArgumentException("session must belong to this network");
+    }
+    if (trainingEngine == TrainingEngine.HOGWILD) {
+      return learnHogwild(workerPool, session, trainingSamples, dataSelector, batchSize,
+          learningRate, activationMemoryBudget);
+    }
+
+    var maxParallelism = workerPool.parallelism();
+    var chunkCapacity = Math.ceilDiv(batchSize, Math.min(maxParallelism, batchSize));
+    var transposedWeights = session.transposedWeights(trainingEngine);
+    var chunkGradients = session.chunkGradients(maxParallelism);
+    var chunkAccumulators = session.chunkAccumulators(maxParallelism, trainingEngine,
+        chunkCapacity, activationMemoryBudget);
+    var optimizerState = session.optimizerState();
+
+    // The steps are created once, each batch only updates the range they read
+    var batch = new BatchRange();
+    IntConsumer computeChunk = c -> computeChunkGradients(gradientMatrixService,
+        chunkAccumulators[c], chunkGradients[c], trainingSamples, dataSelector,
+        batch.chunkStart(c), batch.chunkEnd(c));
+    // Each worker sums a disjoint slice of all chunk gradients into chunkGradients[0] and updates
+    // the weights of its slice right away, so the reduction and the update need no lock, always
+    // add the chunks in the same order and touch every weight once while it is in cache
+    var weightSlices = new WeightSlices(layerWeights);
+    WeightSlices.LayerRangeConsumer reduceAndUpdate = (l, from, to) -> reduceAndUpdate(
+        chunkGradients, batch.chunkCount, optimizerState, l, from, to, batchSize, learningRate);
+    IntConsumer reduceSlice = s -> weightSlices.forEach(s, batch.sliceCount, reduceAndUpdate);
+
+    return runMiniBatches(workerPool, batch, trainingSamples.size(), batchSize,
+        weightSlices.sliceCount(maxParallelism), computeChunk, optimizerState::beginStep,
+        reduceSlice, () -> {
+          if (transposedWeights != null) {
+            transposeLayerWeights(transposedWeights);
+          }
+        });
+  }
+
+  /**
+   * Sums the chunk gradients of the weights {@code [from, to)} of layer {@code layerIndex} into
+   * {@code chunkGradients[0]} and updates them, block by block while the gradients are in cache.
+   */
+  private void reduceAndUpdate(float[][][] chunkGradients, int chunkCount,
+      OptimizerState optimizerState, int layerIndex, int from, int to, int batchSize,
+      float learningRate) {
+    var gradients = chunkGradients[0][layerIndex];
+    for (var blockFrom = from; blockFrom < to; blockFrom += UPDATE_BLOCK) {
+      var blockTo = Math.min(blockFrom + UPDATE_BLOCK, to);
+      for (var c = 1; c < chunkCount; c++) {
+        FloatKernels.addInPlace(gradients, chunkGradients[c][layerIndex], blockFrom, blockTo);
       }
+      optimizerState.update(layerIndex, layerWeights[layerIndex], gradients, learningRate,
+          batchSize, blockFrom, blockTo);
     }
+  }
 
-    for (var i = 0; i < v.length; i++, w++) {
-      v[i] += weights[w] * bias;
+  /**
+   * Transposes the weights of the layers that backpropagate faster through the transpose, see
+   * {@link MatrixKernels#TRANSPOSED_MAX_OUTPUT_SIZE}. The errors are never backpropagated into the
+   * input layer, so its weights are never transposed.
+   *
+   * @return [layerSizes.length - 1][each l : layerSizes[l + 1] x layerSizes[l] or {@code null}]
+   * transposed weights without the bias row, see {@link MatrixKernels#transpose}
+   */
+  float[][] transposeLayerWeights() {
+    var transposedWeights = new float[layerWeights.length][];
+    for (var l = 1; l < layerWeights.length; l++) {
+      if (!FloatKernels.isSimdEnabled()
+          || layerSizes[l + 1] <= MatrixKernels.TRANSPOSED_MAX_OUTPUT_SIZE) {
+        transposedWeights[l] = new float[layerSizes[l] * layerSizes[l + 1]];
+      }
     }
+    transposeLayerWeights(transposedWeights);
+    return transposedWeights;
+  }
 
-    var nextLayerActivationFunction = activationFunctions[nextLayerIndex];
-    return new Layer(nextLayerIndex, v, nextLayerActivationFunction.apply(v),
-        nextLayerActivationFunction);
+  void transposeLayerWeights(float[][] transposedWeights) {
+    for (var l = 0; l < layerWeights.length; l++) {
+      if (transposedWeights[l] != null) {
+        MatrixKernels.transpose(layerWeights[l], layerSizes[l], layerSizes[l + 1],
+            transposedWeights[l]);
+      }
+    }
   }
 
-  public void learnMiniBatch(GradientMatrixService gradientMatrixService, ExecutorService executor,
-      List<? extends Sample> trainingSamples, DataSelector dataSelector, int maxParallelism,
-      int batchSize, float learningRate, float momentum, float decayL1, float decayL2) {
+  /**
+   * Like {@link #learnMiniBatch} with {@link TrainingEngine#PER_SAMPLE}, but reads and updates the
+   * weights and momentum in {@code parameters} and accumulates the chunk gradients there. The
+   * trained weights and momentum are copied back into this network at the end.
+   */
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, OffHeapParameters parameters,
+      List<? extends Sample> trainingSamples, DataSelector dataSelector, int batchSize,
+      float learningRate, float momentum, float decayL1, float decayL2) {
     Objects.requireNonNull(gradientMatrixService, "gradientMatrixService");
-    Objects.requireNonNull(executor, "executor");
+    Objects.requireNonNull(workerPool, "workerPool");
+    Objects.requireNonNull(parameters, "parameters");
     Objects.requireNonNull(trainingSamples, "trainingSamples");
     Objects.requireNonNull(dataSelector, "dataSelector");
-    if (maxParallelism < 1) {
-      throw new IllegalArgumentException("maxParallelism must be >= 1");
-    }
     if (batchSize < 1) {
       throw new IllegalArgumentException("batchSize must be >= 1");
     }
+    if (parameters.parallelism() < workerPool.parallelism()) {
+      throw new IllegalArgumentException("parameters must hold gradients of every worker");
+    }
 
-    // Pre-allocate per-chunk gradient buffers
-    var chunkGradients = new float[maxParallelism][][];
+    var maxParallelism = workerPool.parallelism();
+    var workspaces = new NetworkWorkspace[maxParallelism];
     for (var t = 0; t < maxParallelism; t++) {
-      chunkGradients[t] = gradientMatrixService.zeroMatrices(layerSizes);
+      workspaces[t] = new NetworkWorkspace(layerSizes, activationFunctions);
     }
 
-    try {
-      for (var batchStart = 0; batchStart < trainingSamples.size(); batchStart += batchSize) {
-        var batchEnd = Math.min(batchStart + batchSize, trainingSamples.size());
-        var batchSamples = trainingSamples.subList(batchStart, batchEnd);
+    var batch = new BatchRange();
+    IntConsumer computeChunk = c -> {
+      parameters.zeroFillChunkGradients(c);
+      accumulateSampleGradients(workspaces[c], parameters.chunkGradients[c], parameters.weights,
+          trainingSamples, dataSelector, batch.chunkStart(c), batch.chunkEnd(c));
+    };
+    IntConsumer reduceSlice = c -> gradientMatrixService.reduceSliceInPlace(
+        parameters.chunkGradients, batch.chunkCount, c);
 
-        var chunkCount = Math.min(maxParallelism, batchSamples.size());
+    var timings = runMiniBatches(workerPool, batch, trainingSamples.size(), batchSize,
+        computeChunk, reduceSlice,
+        () -> applyGradients(parameters, batchSize, learningRate, momentum, decayL1, decayL2));
+    parameters.copyTo(this, momentum);
+    return timings;
+  }
 
-        // Submit N-1 tasks to executor, run chunk 0 on the calling thread
-        var futures = new ArrayList<Future<?>>(chunkCount - 1);
-        for (var c = 1; c < chunkCount; c++) {
-          var chunkStart = c * batchSamples.size() / chunkCount;
-          var chunkEnd = (c + 1) * batchSamples.size() / chunkCount;
-          var gradients = chunkGradients[c];
-          futures.add(executor.submit(() -> {
-            computeChunkGradients(gradientMatrixService, gradients, batchSamples, dataSelector,
-                chunkStart, chunkEnd);
-            // Merge into accumulator under lock as soon as this chunk finishes
-            synchronized (chunkGradients[0]) {
-              gradientMatrixService.accumulateGradientsInPlace(chunkGradients[0], gradients);
+  /**
+   * Like {@link #learnMiniBatch} with {@link TrainingEngine#BATCHED}, but stores the activations
+   * and the chunk gradients in the 16 bit precision of {@code state}. The weights and momentum of
+   * this network stay float and are updated with the unscaled float sum of the chunk gradients.
+   * Mini-batches whose gradients overflow leave the weights untouched.
+   */
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, MixedPrecisionState state, List<? extends Sample> trainingSamples,
+      DataSelector dataSelector, int batchSize, float learningRate, float momentum,
+      float decayL1, float decayL2) {
+    return learnMiniBatch(gradientMatrixService, workerPool, state, trainingSamples, dataSelector,
+        batchSize, learningRate, nesterovState(momentum, decayL1, decayL2));
+  }
+
+  /**
+   * Like the mixed precision {@link #learnMiniBatch} with the weights updated by
+   * {@code optimizerState}.
+   */
+  public MiniBatchTimings learnMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, MixedPrecisionState state, List<? extends Sample> trainingSamples,
+      DataSelector dataSelector, int batchSize, float learningRate,
+      OptimizerState optimizerState) {
+    Objects.requireNonNull(gradientMatrixService, "gradientMatrixService");
+    Objects.requireNonNull(workerPool, "workerPool");
+    Objects.requireNonNull(state, "state");
+    Objects.requireNonNull(trainingSamples, "trainingSamples");
+    Objects.requireNonNull(dataSelector, "dataSelector");
+    Objects.requireNonNull(optimizerState, "optimizerState");
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be >= 1");
+    }
+    if (state.parallelism() < workerPool.parallelism()) {
+      throw new IllegalArgumentException("state must hold gradients of every worker");
+    }
+
+    var maxParallelism = workerPool.parallelism();
+    var workspaces = new MixedPrecisionWorkspace[maxParallelism];
+    var chunkCapacity = Math.ceilDiv(batchSize, Math.min(maxParallelism, batchSize));
+    for (var t = 0; t < maxParallelism; t++) {
+      workspaces[t] = new MixedPrecisionWorkspace(layerSizes,
+          Math.min(chunkCapacity, BatchWorkspace.MAX_CAPACITY));
+    }
+
+    var batch = new BatchRange();
+    IntConsumer computeChunk = c -> accumulateMixedPrecisionGradients(workspaces[c],
+        state.chunkGradients[c], state.precision(), state.lossScale(), trainingSamples,
+        dataSelector, batch.chunkStart(c), batch.chunkEnd(c));
+    IntConsumer reduceSlice = c -> state.reduceSlice(batch.chunkCount, c);
+    var weightSlices = new WeightSlices(layerWeights);
+    var updateSliceCount = weightSlices.sliceCount(maxParallelism);
+    WeightSlices.LayerRangeConsumer update = (l, from, to) -> optimizerState.update(l,
+        layerWeights[l], state.gradients[l], learningRate, batchSize, from, to);
+    IntConsumer updateSlice = s -> weightSlices.forEach(s, updateSliceCount, update);
+
+    return runMiniBatches(workerPool, batch, trainingSamples.size(), batchSize, computeChunk,
+        reduceSlice, () -> {
+          // a single chunk still needs its gradients converted and unscaled
+          if (batch.chunkCount == 1) {
+            state.reduceSlice(1, 0);
+          }
+          // the gradients are only known to be finite after the reduction, so the update is
+          // split across the workers on its own instead of fused into it
+          if (state.completeStep(batch.chunkCount)) {
+            optimizerState.beginStep();
+            if (updateSliceCount > 1) {
+              workerPool.run(updateSliceCount, updateSlice);
+            } else {
+              updateSlice.accept(0);
             }
-          }));
-        }
+          }
+        });
+  }
+
+  private static void requireValidMiniBatch(GradientMatrixService gradientMatrixService,
+      WorkerPool workerPool, List<? extends Sample> trainingSamples, DataSelector dataSelector,
+      int batchSize, TrainingEngine trainingEngine, long activationMemoryBudget) {
+    Objects.requireNonNull(gradientMatrixService, "gradientMatrixService");
+    Objects.requireNonNull(workerPool, "workerPool");
+    Objects.requireNonNull(trainingSamples, "trainingSamples");
+    Objects.requireNonNull(dataSelector, "dataSelector");
+    Objects.requireNonNull(trainingEngine, "trainingEngine");
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be >= 1");
+    }
+    if (activationMemoryBudget < 0L) {
+      throw new IllegalArgumentException("activationMemoryBudget must be >= 0");
+    }
+  }
 
-        // Calling thread computes chunk 0 (the accumulator)
-        var chunk0End = batchSamples.size() / chunkCount;
-        computeChunkGradients(gradientMatrixService, chunkGradients[0], batchSamples, dataSelector,
-            0, chunk0End);
+  /**
+   * Creates the state of {@code optimizer} for the weights of this network. The
+   * {@link NesterovOptimizer} keeps its momentum in {@link #getPreviousLayerGradients()}, so it
+   * continues across trainings like before, every other optimizer starts with zeroed buffers.
+   * Optimizers without buffers, like gradient descent without momentum, allocate nothing.
+   */
+  public OptimizerState createOptimizerState(Optimizer optimizer) {
+    Objects.requireNonNull(optimizer, "optimizer");
+    return optimizer instanceof NesterovOptimizer && optimizer.stateBuffers() == 1
+        ? OptimizerState.wrap(optimizer, momentumBuffers())
+        : OptimizerState.create(optimizer, layerSizes);
+  }
 
-        // Wait for all other chunks to finish (they already merged into chunkGradients[0])
-        for (var future : futures) {
-          future.get();
-        }
+  private OptimizerState nesterovState(float momentum, float decayL1, float decayL2) {
+    return createOptimizerState(new NesterovOptimizer(momentum, decayL1, decayL2));
+  }
+
+  /**
+   * Runs the steps for every mini-batch of {@code sampleCount} samples: gradients per chunk,
+   * reduction of the chunk gradients by slices, and the update of the weights.
+   */
+  private static MiniBatchTimings runMiniBatches(WorkerPool workerPool, BatchRange batch,
+      int sampleCount, int batchSize, IntConsumer computeChunk, IntConsumer reduceSlice,
+      Runnable update) {
+    return runMiniBatches(workerPool, batch, sampleCount, batchSize, 0, computeChunk, null,
+        reduceSlice, update);
+  }
+
+  /**
+   * Like {@link #runMiniBatches(WorkerPool, BatchRange, int, int, IntConsumer, IntConsumer,
+   * Runnable)}, but with {@code fusedSliceCount > 0} the reduction runs in that many slices even
+   * for a single chunk, because {@code reduceSlice} also updates the weights of its slice.
+   * {@code beginFusedUpdate} runs before, the remaining {@code update} after the reduction.
+   */
+  private static MiniBatchTimings runMiniBatches(WorkerPool workerPool, BatchRange batch,
+      int sampleCount, int batchSize, int fusedSliceCount, IntConsumer computeChunk,
+      Runnable beginFusedUpdate, IntConsumer reduceSlice, Runnable update) {
+    var gradientsNanos = 0L;
+    var reductionNanos = 0L;
+    var updateNanos = 0L;
+    for (batch.start = 0; batch.start < sampleCount; batch.start += batchSize) {
+      batch.size = Math.min(batchSize, sampleCount - batch.start);
+      batch.chunkCount = Math.min(workerPool.parallelism(), batch.size);
+      batch.sliceCount = fusedSliceCount > 0 ? fusedSliceCount : batch.chunkCount;
 
-        applyGradients(chunkGradients[0], layerWeights, batchSize, learningRate, momentum, decayL1,
-            decayL2);
+      var gradientsStart = System.nanoTime();
+      workerPool.run(batch.chunkCount, computeChunk);
+
+      var reductionStart = System.nanoTime();
+      if (fusedSliceCount > 1) {
+        beginFusedUpdate.run();
+        workerPool.run(batch.sliceCount, reduceSlice);
+      } else if (fusedSliceCount == 1) {
+        // a single slice is not worth waking the workers
+        beginFusedUpdate.run();
+        reduceSlice.accept(0);
+      } else if (batch.chunkCount > 1) {
+        workerPool.run(batch.chunkCount, reduceSlice);
       }
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new RuntimeException("Training interrupted", e);
-    } catch (java.util.concurrent.ExecutionException e) {
-      throw new RuntimeException("Training failed", e.getCause());
+
+      var updateStart = System.nanoTime();
+      update.run();
+      var updateEnd = System.nanoTime();
+
+      gradientsNanos += reductionStart - gradientsStart;
+      reductionNanos += updateStart - reductionStart;
+      updateNanos += updateEnd - updateStart;
     }
+    return new MiniBatchTimings(gradientsNanos, reductionNanos, updateNanos);
+  }
+
+  /**
+   * Every worker trains on its own contiguous shard of the samples and applies the gradients of
+   * each of its mini-batches straight to the shared weights, racing with the other workers.
+   */
+  private MiniBatchTimings learnHogwild(WorkerPool workerPool, TrainingSession session,
+      List<? extends Sample> trainingSamples, DataSelector dataSelector, int batchSize,
+      float learningRate, long activationMemoryBudget) {
+    if (trainingSamples.isEmpty()) {
+      return MiniBatchTimings.ZERO;
+    }
+
+    var gradientMatrixService = session.gradientMatrixService();
+    var chunkCount = Math.min(workerPool.parallelism(), trainingSamples.size());
+    var chunkGradients = session.chunkGradients(chunkCount);
+    var chunkOptimizerStates = session.hogwildOptimizerStates(chunkCount);
+    var chunkAccumulators = session.chunkAccumulators(chunkCount, TrainingEngine.HOGWILD,
+        batchSize, activationMemoryBudget);
+
+    var start = System.nanoTime();
+    workerPool.run(chunkCount, c -> {
+      var shardStart = c * trainingSamples.size() / chunkCount;
+      var shardEnd = (c + 1) * trainingSamples.size() / chunkCount;
+      for (var batchStart = shardStart; batchStart < shardEnd; batchStart += batchSize) {
+        var batchEnd = Math.min(batchStart + batchSize, shardEnd);
+        computeChunkGradients(gradientMatrixService, chunkAccumulators[c], chunkGradients[c],
+            trainingSamples, dataSelector, batchStart, batchEnd);
+        applyGradients(chunkGradients[c], chunkOptimizerStates[c], batchSize, learningRate);
+      }
+    });
+    return new MiniBatchTimings(System.nanoTime() - start, 0L, 0L);
+  }
+
+  ChunkGradientsAccumulator createChunkGradientsAccumulator(
+      TrainingEngine trainingEngine, int chunkCapacity, long activationMemoryBudget,
+      float[][] transposedWeights) {
+    return switch (trainingEngine) {
+      case PER_SAMPLE -> {
+        var workspace = new NetworkWorkspace(layerSizes, activationFunctions);
+        yield (gradients, batchSamples, dataSelector, chunkStart, chunkEnd) ->
+            accumulateSampleGradients(workspace, gradients, batchSamples, dataSelector,
+                chunkStart, chunkEnd);
+      }
+      case BATCHED, BATCHED_TRANSPOSED, HOGWILD -> {
+        var batchWorkspace = BatchWorkspace.withinBudget(layerSizes,
+            Math.min(chunkCapacity, BatchWorkspace.MAX_CAPACITY), activationMemoryBudget,
+            cachesIntermediates());
+        yield (gradients, batchSamples, dataSelector, chunkStart, chunkEnd) ->
+            accumulateBatchedGradients(batchWorkspace, gradients, transposedWeights, batchSamples,
+                dataSelector, chunkStart, chunkEnd);
+      }
+    };
   }
 
   private void computeChunkGradients(GradientMatrixService gradientMatrixService,
-      float[][] gradients, List<? extends Sample> batchSamples, DataSelector dataSelector,
-      int chunkStart, int chunkEnd) {
+      ChunkGradientsAccumulator accumulator, float[][] gradients,
+      List<? extends Sample> batchSamples, DataSelector dataSelector, int chunkStart,
+      int chunkEnd) {
     gradientMatrixService.zeroFillMatrices(gradients);
+    accumulator.accumulate(gradients, batchSamples, dataSelector, chunkStart, chunkEnd);
+  }
+
+  private void accumulateSampleGradients(NetworkWorkspace workspace, float[][] gradients,
+      List<? extends Sample> batchSamples, DataSelector dataSelector, int chunkStart,
+      int chunkEnd) {
     for (var s = chunkStart; s < chunkEnd; s++) {
       var sample = batchSamples.get(s);
       var input = dataSelector.input(sample);
       var target = dataSelector.target(sample, activationFunctions[activationFunctions.length - 1]);
-      computeGradients(gradients, layerWeights, input, target);
+      computeGradients(workspace, gradients, layerWeights, input, nonZeroInputs(sample, input),
+          target);
     }
   }
 
-  public AccuracyResult computeAccuracy(ExecutorService executor, List<? extends Sample> samples,
-      DataSelector dataSelector, int maxParallelism) {
-    Objects.requireNonNull(executor, "executor");
-    Objects.requireNonNull(samples, "samples");
-    Objects.requireNonNull(dataSelector, "dataSelector");
-    if (maxParallelism < 1) {
-      throw new IllegalArgumentException("maxParallelism must be >= 1");
+  private void accumulateSampleGradients(NetworkWorkspace workspace, MemorySegment[] gradients,
+      MemorySegment[] layerWeights, List<? extends Sample> batchSamples,
+      DataSelector dataSelector, int chunkStart, int chunkEnd) {
+    for (var s = chunkStart; s < chunkEnd; s++) {
+      var sample = batchSamples.get(s);
+      var input = dataSelector.input(sample);
+      var target = dataSelector.target(sample, activationFunctions[activationFunctions.length - 1]);
+      computeGradients(workspace, gradients, layerWeights, input, target);
     }
-    if (samples.isEmpty()) {
-      throw new java.util.NoSuchElementException("samples must not be empty");
+  }
+
+  private void accumulateBatchedGradients(BatchWorkspace batchWorkspace, float[][] gradients,
+      float[][] transposedWeights, List<? extends Sample> batchSamples, DataSelector dataSelector,
+      int chunkStart, int chunkEnd) {
+    // Slices keep the sample order, so gradients sum up exactly like in the per-sample engine
+    for (var sliceStart = chunkStart; sliceStart < chunkEnd;
+        sliceStart += batchWorkspace.capacity()) {
+      var rows = Math.min(batchWorkspace.capacity(), chunkEnd - sliceStart);
+      packSamples(batchWorkspace, batchSamples, dataSelector, sliceStart, rows);
+      computeBatchedGradients(batchWorkspace, gradients, layerWeights, transposedWeights, rows);
     }
+  }
 
+  private void packSamples(BatchWorkspace batchWorkspace, List<? extends Sample> batchSamples,
+      DataSelector dataSelector, int sliceStart, int rows) {
     var outputActivationFunction = activationFunctions[activationFunctions.length - 1];
-    var chunkCount = Math.min(maxParallelism, samples.size());
+    var sparseInputs = true;
+    for (var s = 0; s < rows; s++) {
+      var sample = batchSamples.get(sliceStart + s);
+      var input = dataSelector.input(sample);
+      NetworkWorkspace.copyInput(input, batchWorkspace.v[0][s]);
+      batchWorkspace.targets[s] = dataSelector.target(sample, outputActivationFunction);
+      batchWorkspace.nonZeroInputs[s] = nonZeroInputs(sample, input);
+      sparseInputs &= batchWorkspace.nonZeroInputs[s] != null;
+    }
+    batchWorkspace.sparseInputs = sparseInputs;
+  }
 
-    try {
-      // Submit N-1 chunk tasks to executor, run chunk 0 on the calling thread
-      var futures = new ArrayList<Future<AccuracyResult>>(chunkCount - 1);
-      for (var c = 1; c < chunkCount; c++) {
-        var chunkStart = c * samples.size() / chunkCount;
-        var chunkEnd = (c + 1) * samples.size() / chunkCount;
-        futures.add(executor.submit(
-            () -> computeChunkAccuracy(samples, dataSelector, outputActivationFunction, chunkStart,
-                chunkEnd)));
-      }
+  /**
+   * @param transposedWeights transposed weights for {@link MatrixKernels#backpropagateTransposed},
+   *                          or {@code null} for the layers, or all layers, that backpropagate
+   *                          with {@code layerWeights}
+   */
+  private void computeBatchedGradients(BatchWorkspace batchWorkspace, float[][] layerGradients,
+      float[][] layerWeights, float[][] transposedWeights, int rows) {
+    var v = batchWorkspace.v;
+    var h = batchWorkspace.h;
+    var errors = batchWorkspace.errors;
+    var intermediates = batchWorkspace.intermediates;
 
-      // Calling thread computes chunk 0
-      var chunk0End = samples.size() / chunkCount;
-      var result = computeChunkAccuracy(samples, dataSelector, outputActivationFunction, 0,
-          chunk0End);
+    applyActivation(0, v[0], h[0], intermediates[0], rows);
+    feedForward(batchWorkspace, layerWeights, 1, layerSizes.length, rows);
 
-      // Collect results
-      for (var future : futures) {
-        result = AccuracyResult.sum(result, future.get());
+    var layerIndex = layerSizes.length - 1;
+    // the forward pass left the activations of the topmost segment intact
+    var recomputedFrom = layerIndex - layerIndex % batchWorkspace.checkpointInterval;
+    for (var s = 0; s < rows; s++) {
+      computeOutputErrorInto(v[layerIndex][s], h[layerIndex][s], row(intermediates[layerIndex], s),
+          batchWorkspace.targets[s], errors[layerIndex][s]);
+    }
+
+    for (layerIndex -= 1; layerIndex >= 0; layerIndex--) {
+      if (layerIndex < recomputedFrom) {
+        recomputedFrom = layerIndex - layerIndex % batchWorkspace.checkpointInterval;
+        feedForward(batchWorkspace, layerWeights, recomputedFrom + 1, layerIndex + 1, rows);
+      }
+      if (layerIndex == 0 && batchWorkspace.sparseInputs) {
+        MatrixKernels.accumulateGradientsSparse(h[0], batchWorkspace.nonZeroInputs,
+            errors[1], rows, bias, layerGradients[0]);
+      } else {
+        MatrixKernels.accumulateGradients(h[layerIndex], errors[layerIndex + 1], rows, bias,
+            layerGradients[layerIndex], activationFunctions[layerIndex].hasInactiveNeurons());
+      }
+
+      if (layerIndex > 0) {
+        var activationFunction = activationFunctions[layerIndex];
+        for (var s = 0; s < rows; s++) {
+          activationFunction.derivativeInto(h[layerIndex][s], v[layerIndex][s],
+              row(intermediates[layerIndex], s), errors[layerIndex][s]);
+        }
+        if (transposedWeights != null && transposedWeights[layerIndex] != null) {
+          MatrixKernels.backpropagateTransposed(errors[layerIndex + 1], rows,
+              transposedWeights[layerIndex], errors[layerIndex], batchWorkspace.scratch,
+              activationFunctions[layerIndex + 1].hasInactiveNeurons());
+        } else {
+          MatrixKernels.backpropagate(errors[layerIndex + 1], rows, layerWeights[layerIndex],
+              errors[layerIndex], batchWorkspace.scratch, activationFunction.hasInactiveNeurons());
+        }
       }
+    }
+  }
 
-      return AccuracyResult.average(result);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new RuntimeException("Accuracy computation interrupted", e);
-    } catch (java.util.concurrent.ExecutionException e) {
-      throw new RuntimeException("Accuracy computation failed", e.getCause());
+  /**
+   * Feeds the packed samples from the activations of {@code fromLayerIndex - 1} through the layers
+   * up to {@code toLayerIndex}, exclusive.
+   */
+  private void feedForward(BatchWorkspace batchWorkspace, float[][] layerWeights,
+      int fromLayerIndex, int toLayerIndex, int rows) {
+    var v = batchWorkspace.v;
+    var h = batchWorkspace.h;
+    for (var l = fromLayerIndex; l < toLayerIndex; l++) {
+      if (l == 1 && batchWorkspace.sparseInputs) {
+        MatrixKernels.transformSparse(h[0], batchWorkspace.nonZeroInputs, rows, layerWeights[0],
+            bias, v[1]);
+      } else {
+        MatrixKernels.transform(h[l - 1], rows, layerWeights[l - 1], bias, v[l]);
+      }
+      applyActivation(l, v[l], h[l], batchWorkspace.intermediates[l], rows);
     }
   }
 
-  private AccuracyResult computeChunkAccuracy(List<? extends Sample> samples,
-      DataSelector dataSelector, ActivationFunction outputActivationFunction, int chunkStart,
+  private void accumulateMixedPrecisionGradients(MixedPrecisionWorkspace workspace,
+      short[][] gradients, HalfPrecision precision, float lossScale,
+      List<? extends Sample> batchSamples, DataSelector dataSelector, int chunkStart,
       int chunkEnd) {
-    var result = computeSampleAccuracy(samples.get(chunkStart), dataSelector,
-        outputActivationFunction);
-    for (var i = chunkStart + 1; i < chunkEnd; i++) {
-      result = AccuracyResult.sum(result,
-          computeSampleAccuracy(samples.get(i), dataSelector, outputActivationFunction));
+    var outputActivationFunction = activationFunctions[activationFunctions.length - 1];
+    for (var sliceStart = chunkStart; sliceStart < chunkEnd;
+        sliceStart += workspace.capacity()) {
+      var rows = Math.min(workspace.capacity(), chunkEnd - sliceStart);
+      for (var s = 0; s < rows; s++) {
+        var sample = batchSamples.get(sliceStart + s);
+        NetworkWorkspace.copyInput(dataSelector.input(sample), workspace.rowV[0]);
+        precision.encode(workspace.rowV[0], workspace.v[0][s]);
+        workspace.targets[s] = dataSelector.target(sample, outputActivationFunction);
+      }
+      computeMixedPrecisionGradients(workspace, gradients, precision, lossScale, rows,
+          sliceStart == chunkStart);
     }
-    return result;
   }
 
-  private AccuracyResult computeSampleAccuracy(Sample sample, DataSelector dataSelector,
-      ActivationFunction outputActivationFunction) {
-    var layers = feedForward(dataSelector.input(sample), layerWeights);
-    var h = Layer.output(layers).h();
-    var target = dataSelector.target(sample, outputActivationFunction);
-    var error = lossFunction.computeNetworkError(h, target);
-    return AccuracyResult.from(h, target, error);
+  private void computeMixedPrecisionGradients(MixedPrecisionWorkspace workspace,
+      short[][] layerGradients, HalfPrecision precision, float lossScale, int rows,
+      boolean firstSlice) {
+    var v = workspace.v;
+    var h = workspace.h;
+    var errors = workspace.errors;
+
+    for (var s = 0; s < rows; s++) {
+      precision.decode(v[0][s], workspace.rowV[0]);
+      activationFunctions[0].applyInto(workspace.rowV[0], workspace.rowH[0]);
+      precision.encode(workspace.rowH[0], h[0][s]);
+    }
+    for (var l = 1; l < layerSizes.length; l++) {
+      // the errors of the layer are free until the backpropagation and receive v in float first
+      MatrixKernels.transform(h[l - 1], precision, rows, layerWeights[l - 1], bias, errors[l]);
+      for (var s = 0; s < rows; s++) {
+        activationFunctions[l].applyInto(errors[l][s], workspace.rowH[l]);
+        precision.encode(errors[l][s], v[l][s]);
+        precision.encode(workspace.rowH[l], h[l][s]);
+      }
+    }
+
+    var layerIndex = layerSizes.length - 1;
+    for (var s = 0; s < rows; s++) {
+      decodeRow(workspace, precision, layerIndex, s);
+      var outputError = errors[layerIndex][s];
+      computeOutputErrorInto(workspace.rowV[layerIndex], workspace.rowH[layerIndex], null,
+          workspace.targets[s], outputError);
+      for (var i = 0; i < outputError.length; i++) {
+        outputError[i] *= lossScale;
+      }
+    }
+
+    for (layerIndex -= 1; layerIndex >= 0; layerIndex--) {
+      var gradients = layerGradients[layerIndex];
+      Arrays.fill(workspace.layerGradients, 0, gradients.length, 0f);
+      MatrixKernels.accumulateGradients(h[layerIndex], precision, errors[layerIndex + 1], rows,
+          bias, workspace.layerGradients);
+      for (var i = 0; i < gradients.length; i++) {
+        var gradient = workspace.layerGradients[i];
+        gradients[i] = precision.encode(
+            firstSlice ? gradient : precision.decode(gradients[i]) + gradient);
+      }
+
+      if (layerIndex > 0) {
+        var activationFunction = activationFunctions[layerIndex];
+        for (var s = 0; s < rows; s++) {
+          decodeRow(workspace, precision, layerIndex, s);
+          activationFunction.derivativeInto(workspace.rowH[layerIndex],
+              workspace.rowV[layerIndex], errors[layerIndex][s]);
+        }
+        MatrixKernels.backpropagate(errors[layerIndex + 1], rows, layerWeights[layerIndex],
+            errors[layerIndex], workspace.scratch, activationFunction.hasInactiveNeurons());
+      }
+    }
+  }
+
+  private static void decodeRow(MixedPrecisionWorkspace workspace, HalfPrecision precision,
+      int layerIndex, int row) {
+    precision.decode(workspace.v[layerIndex][row], workspace.rowV[layerIndex]);
+    precision.decode(workspace.h[layerIndex][row], workspace.rowH[layerIndex]);
+  }
+
+  /**
+   * @param intermediates see {@link BatchWorkspace#intermediates}
+   */
+  private void applyActivation(int layerIndex, float[][] v, float[][] h, float[][] intermediates,
+      int rows) {
+    var activationFunction = activationFunctions[layerIndex];
+    for (var s = 0; s < rows; s++) {
+      activationFunction.applyInto(v[s], h[s], row(intermediates, s));
+    }
+  }
+
+  private static float[] row(float[][] matrix, int row) {
+    return matrix == null ? null : matrix[row];
+  }
+
+  /**
+   * @return [layerSizes.length] whether the activation function of each layer keeps intermediates
+   * for its derivative, see {@link ActivationFunction#cachesIntermediates()}
+   */
+  private boolean[] cachesIntermediates() {
+    var cachesIntermediates = new boolean[layerSizes.length];
+    for (var l = 0; l < cachesIntermediates.length; l++) {
+      cachesIntermediates[l] = activationFunctions[l].cachesIntermediates();
+    }
+    return cachesIntermediates;
+  }
+
+  public AccuracyResult computeAccuracy(ExecutorService executor, List<? extends Sample> samples,
+      DataSelector dataSelector, int maxParallelism) {
+    return computeAccuracy(WorkerPool.of(executor, maxParallelism), samples, dataSelector);
+  }
+
+  public AccuracyResult computeAccuracy(WorkerPool workerPool, List<? extends Sample> samples,
+      DataSelector dataSelector) {
+    return AccuracyEvaluation.computeAccuracy(workerPool, samples, dataSelector,
+        activationFunctions[activationFunctions.length - 1], lossFunction,
+        () -> new NetworkWorkspace(layerSizes), (workspace, sample, input) -> {
+          feedForward(workspace, input, nonZeroInputs(sample, input), layerWeights);
+          return workspace;
+        });
+  }
+
+  /**
+   * Output error of the loss function, fused with the output activation where
+   * {@link SoftMaxCrossEntropy} applies.
+   */
+  private void computeOutputErrorInto(float[] v, float[] h, float[] intermediates, float[] target,
+      float[] error) {
+    var outputActivationFunction = activationFunctions[activationFunctions.length - 1];
+    if (SoftMaxCrossEntropy.isFused(lossFunction, outputActivationFunction)) {
+      SoftMaxCrossEntropy.computeOutputErrorInto(lossFunction, h, target, error);
+    } else {
+      lossFunction.computeOutputErrorInto(v, h, intermediates, target, outputActivationFunction,
+          error);
+    }
   }
 
   public Layer[] feedForward(Sample sample, DataSelector dataSelector) {
-    return feedForward(dataSelector.input(sample), layerWeights);
+    // fresh workspace, because the returned layers outlive this call
+    var workspace = new NetworkWorkspace(layerSizes);
+    var input = dataSelector.input(sample);
+    feedForward(workspace, input, nonZeroInputs(sample, input), layerWeights);
+    return workspace.toLayers(activationFunctions);
   }
 
   @Override
@@ -294,6 +995,36 @@ public final class MultiLayerNetwork {
         Arrays.toString(Objects.requireNonNullElse(layerSizes, EMPTY_LAYER_SIZES)));
   }
 
+  /**
+   * Sample range of the current mini-batch, split into {@code chunkCount} chunks.
+   */
+  private static final class BatchRange {
+
+    int start;
+    int size;
+    int chunkCount;
+    int sliceCount;
+
+    int chunkStart(int chunk) {
+      return start + chunk * size / chunkCount;
+    }
+
+    int chunkEnd(int chunk) {
+      return start + (chunk + 1) * size / chunkCount;
+    }
+  }
+
+  /**
+   * Accumulates the gradients of the samples {@code [chunkStart, chunkEnd)} of a mini-batch with
+   * the buffers owned by one worker chunk.
+   */
+  @FunctionalInterface
+  interface ChunkGradientsAccumulator {
+
+    void accumulate(float[][] gradients, List<? extends Sample> batchSamples,
+        DataSelector dataSelector, int chunkStart, int chunkEnd);
+  }
+
   @JsonPOJOBuilder(withPrefix = "")
   public static class MultiLayerNetworkBuilder {
     // Make Jackson use the lombok builder for deserialization
@@ -0,0 +1,83 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import java.util.Arrays;
+
+/**
+ * Reusable buffers for feeding samples through a {@link MultiLayerNetwork} and backpropagating the
+ * output error. A workspace is sized once from the layer sizes of a network and is overwritten by
+ * every sample fed through it, so each worker thread must own its own workspace.
+ *
+ * <p>Denotation of the buffers is similar to the one in {@link Layer}.
+ */
+public final class NetworkWorkspace {
+
+  /**
+   * [layerSizes.length][layerSizes[l]] outputs before activation
+   */
+  final float[][] v;
+  /**
+   * [layerSizes.length][layerSizes[l]] outputs after activation
+   */
+  final float[][] h;
+  /**
+   * [layerSizes.length][layerSizes[l]] error gradients with respect to {@code v} of each layer
+   */
+  final float[][] errors;
+  /**
+   * [layerSizes.length][layerSizes[l]] intermediates of the activation, {@code null} for layers
+   * whose activation function keeps none, see {@link ActivationFunction#cachesIntermediates()}
+   */
+  final float[][] intermediates;
+
+  public NetworkWorkspace(int[] layerSizes) {
+    this(layerSizes, null);
+  }
+
+  /**
+   * @param activationFunctions activation functions of the layers whose intermediates are kept
+   *                            for backpropagation, or {@code null} to keep none
+   */
+  public NetworkWorkspace(int[] layerSizes, ActivationFunction[] activationFunctions) {
+    v = new float[layerSizes.length][];
+    h = new float[layerSizes.length][];
+    errors = new float[layerSizes.length][];
+    intermediates = new float[layerSizes.length][];
+    for (var l = 0; l < layerSizes.length; l++) {
+      v[l] = new float[layerSizes[l]];
+      h[l] = new float[layerSizes[l]];
+      errors[l] = new float[layerSizes[l]];
+      if (activationFunctions != null && activationFunctions[l].cachesIntermediates()) {
+        intermediates[l] = new float[layerSizes[l]];
+      }
+    }
+  }
+
+  /**
+   * Copies {@code input} into {@code v}, truncated or padded with zeros to the length of {@code v}.
+   */
+  static void copyInput(float[] input, float[] v) {
+    var length = Math.min(input.length, v.length);
+    System.arraycopy(input, 0, v, 0, length);
+    Arrays.fill(v, length, v.length, 0f);
+  }
+
+  /**
+   * @return {@code h} outputs after activation of the output layer
+   */
+  public float[] output() {
+    return h[h.length - 1];
+  }
+
+  /**
+   * Wraps the current buffers into {@link Layer}s. The layers share the buffers of this workspace,
+   * so they are only valid until the next sample is fed through it.
+   */
+  public Layer[] toLayers(ActivationFunction[] activationFunctions) {
+    var layers = new Layer[v.length];
+    for (var l = 0; l < layers.length; l++) {
+      layers[l] = new Layer(l, v[l], h[l], activationFunctions[l]);
+    }
+    return layers;
+  }
+}
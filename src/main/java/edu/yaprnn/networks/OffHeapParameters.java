@@ -0,0 +1,115 @@
+package edu.yaprnn.networks;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/**
+ * Weights, momentum and per-chunk gradients of a {@link MultiLayerNetwork} in native memory, so
+ * that a training session keeps the {@code maxParallelism + 2} copies of all weights out of the
+ * heap. The matrices have the layout of {@link MultiLayerNetwork#getLayerWeights()} and every
+ * matrix starts on a cache line, aligned for any vector width.
+ *
+ * <p>The memory belongs to a shared {@link Arena} and is freed by {@link #close()}, after which
+ * the parameters must not be used anymore.
+ */
+public final class OffHeapParameters implements AutoCloseable {
+
+  static final long ALIGNMENT = 64L;
+
+  private final Arena arena;
+  private final int parallelism;
+  /**
+   * [layerSizes.length - 1] weights like {@link MultiLayerNetwork#getLayerWeights()}
+   */
+  final MemorySegment[] weights;
+  /**
+   * [layerSizes.length - 1] momentum of the last update
+   */
+  final MemorySegment[] previousGradients;
+  /**
+   * [parallelism][layerSizes.length - 1] gradients accumulated by each worker chunk
+   */
+  final MemorySegment[][] chunkGradients;
+
+  private OffHeapParameters(float[][] layerWeights, int parallelism) {
+    this.parallelism = parallelism;
+    arena = Arena.ofShared();
+    weights = allocate(layerWeights);
+    previousGradients = allocate(layerWeights);
+    chunkGradients = new MemorySegment[parallelism][];
+    for (var c = 0; c < parallelism; c++) {
+      chunkGradients[c] = allocate(layerWeights);
+    }
+  }
+
+  /**
+   * Allocates the parameters for training {@code multiLayerNetwork} with up to
+   * {@code parallelism} workers, starting from its current weights and momentum. A network without
+   * momentum starts with zeroed momentum, without allocating it on the heap.
+   */
+  public static OffHeapParameters copyOf(MultiLayerNetwork multiLayerNetwork, int parallelism) {
+    Objects.requireNonNull(multiLayerNetwork, "multiLayerNetwork");
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be >= 1");
+    }
+
+    var parameters = new OffHeapParameters(multiLayerNetwork.getLayerWeights(), parallelism);
+    copy(multiLayerNetwork.getLayerWeights(), parameters.weights);
+    if (multiLayerNetwork.getPreviousLayerGradients() != null) {
+      copy(multiLayerNetwork.getPreviousLayerGradients(), parameters.previousGradients);
+    }
+    return parameters;
+  }
+
+  private static void copy(float[][] source, MemorySegment[] target) {
+    for (var l = 0; l < source.length; l++) {
+      MemorySegment.copy(source[l], 0, target[l], ValueLayout.JAVA_FLOAT, 0L, source[l].length);
+    }
+  }
+
+  private static void copy(MemorySegment[] source, float[][] target) {
+    for (var l = 0; l < target.length; l++) {
+      MemorySegment.copy(source[l], ValueLayout.JAVA_FLOAT, 0L, target[l], 0, target[l].length);
+    }
+  }
+
+  private MemorySegment[] allocate(float[][] layerWeights) {
+    var segments = new MemorySegment[layerWeights.length];
+    for (var l = 0; l < segments.length; l++) {
+      segments[l] = arena.allocate((long) layerWeights[l].length * Float.BYTES, ALIGNMENT);
+    }
+    return segments;
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Copies the weights into the arrays of {@code multiLayerNetwork}, so inference and persistence
+   * see the trained state. The momentum is only copied if it was trained with, like the
+   * {@link MultiLayerNetwork#createOptimizerState optimizer state} that plain gradient descent
+   * neither allocates nor updates.
+   *
+   * @param momentum momentum that the parameters were trained with
+   */
+  public void copyTo(MultiLayerNetwork multiLayerNetwork, float momentum) {
+    copy(weights, multiLayerNetwork.getLayerWeights());
+    if (momentum != 0f) {
+      copy(previousGradients, multiLayerNetwork.momentumBuffers());
+    }
+  }
+
+  void zeroFillChunkGradients(int chunk) {
+    for (var gradients : chunkGradients[chunk]) {
+      gradients.fill((byte) 0);
+    }
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
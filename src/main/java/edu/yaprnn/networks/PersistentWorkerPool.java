@@ -0,0 +1,137 @@
+package edu.yaprnn.networks;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Long-lived platform workers, one per chunk index {@code 1..parallelism-1}. Every
+ * {@link #run(int, IntConsumer)} passes a start and an end barrier, so a step neither submits tasks
+ * nor allocates futures.
+ */
+final class PersistentWorkerPool implements WorkerPool {
+
+  private final int parallelism;
+  private final CyclicBarrier startBarrier;
+  private final CyclicBarrier endBarrier;
+  private final Thread[] workers;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  // published to the workers by the start barrier
+  private IntConsumer task;
+  private int count;
+  private boolean closed;
+
+  PersistentWorkerPool(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("maxParallelism must be >= 1");
+    }
+
+    this.parallelism = parallelism;
+    startBarrier = new CyclicBarrier(parallelism);
+    endBarrier = new CyclicBarrier(parallelism);
+    workers = new Thread[parallelism - 1];
+    for (var c = 1; c < parallelism; c++) {
+      var chunk = c;
+      workers[c - 1] = Thread.ofPlatform()
+          .daemon()
+          .name("training-worker-" + c)
+          .start(() -> work(chunk));
+    }
+  }
+
+  private void work(int chunk) {
+    try {
+      while (true) {
+        startBarrier.await();
+        if (closed) {
+          return;
+        }
+        runChunk(chunk);
+        endBarrier.await();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (BrokenBarrierException e) {
+      // the calling thread was interrupted or the pool is closing
+    }
+  }
+
+  private void runChunk(int chunk) {
+    if (chunk < count) {
+      try {
+        task.accept(chunk);
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      }
+    }
+  }
+
+  @Override
+  public int parallelism() {
+    return parallelism;
+  }
+
+  @Override
+  public void run(int count, IntConsumer task) {
+    if (count < 1 || count > parallelism) {
+      throw new IllegalArgumentException("count must be in [1, parallelism]");
+    }
+    if (closed) {
+      throw new IllegalStateException("worker pool is closed");
+    }
+
+    this.task = task;
+    this.count = count;
+    try {
+      startBarrier.await();
+      runChunk(0);
+      endBarrier.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Worker pool interrupted", e);
+    } catch (BrokenBarrierException e) {
+      throw new RuntimeException("Worker pool is broken", e);
+    } finally {
+      this.task = null;
+    }
+
+    var t = failure.getAndSet(null);
+    if (t != null) {
+      throw new RuntimeException("Worker task failed", t);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    if (startBarrier.isBroken()) {
+      for (var worker : workers) {
+        worker.interrupt();
+      }
+    } else {
+      try {
+        startBarrier.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        startBarrier.reset();
+      } catch (BrokenBarrierException e) {
+        // workers already left
+      }
+    }
+
+    for (var worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+}
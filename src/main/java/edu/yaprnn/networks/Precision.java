@@ -0,0 +1,36 @@
+package edu.yaprnn.networks;
+
+import java.util.Optional;
+
+/**
+ * Floating point format that training stores activations and gradients in. {@link #FP16} and
+ * {@link #BF16} select mixed precision training with the {@link HalfPrecision} of the same name,
+ * {@link #FP32} trains in plain floats.
+ */
+public enum Precision {
+  /**
+   * Plain 32-bit floats.
+   */
+  FP32(null),
+  /**
+   * @see HalfPrecision#FP16
+   */
+  FP16(HalfPrecision.FP16),
+  /**
+   * @see HalfPrecision#BF16
+   */
+  BF16(HalfPrecision.BF16);
+
+  private final HalfPrecision halfPrecision;
+
+  Precision(HalfPrecision halfPrecision) {
+    this.halfPrecision = halfPrecision;
+  }
+
+  /**
+   * @return 16-bit format of this precision, empty for {@link #FP32}
+   */
+  public Optional<HalfPrecision> halfPrecision() {
+    return Optional.ofNullable(halfPrecision);
+  }
+}
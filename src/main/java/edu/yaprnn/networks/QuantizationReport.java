@@ -0,0 +1,32 @@
+package edu.yaprnn.networks;
+
+/**
+ * Compares a {@link QuantizedNetwork} with the float {@link MultiLayerNetwork} it was quantized
+ * from on the same samples.
+ */
+public record QuantizationReport(AccuracyResult floatAccuracy, AccuracyResult quantizedAccuracy,
+                                 long floatBytes, long quantizedBytes) {
+
+  /**
+   * @return accuracy of the quantized network minus the one of the float network
+   */
+  public float hitsDelta() {
+    return quantizedAccuracy.hits() - floatAccuracy.hits();
+  }
+
+  public float errorDelta() {
+    return quantizedAccuracy.error() - floatAccuracy.error();
+  }
+
+  public float compressionRatio() {
+    return (float) floatBytes / quantizedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "accuracy %.4f -> %.4f (%+.4f), error %.6f -> %.6f, %d -> %d bytes (%.2fx smaller)"
+        .formatted(floatAccuracy.hits(), quantizedAccuracy.hits(), hitsDelta(),
+            floatAccuracy.error(), quantizedAccuracy.error(), floatBytes, quantizedBytes,
+            compressionRatio());
+  }
+}
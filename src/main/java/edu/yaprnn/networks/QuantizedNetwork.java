@@ -0,0 +1,214 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Inference-only copy of a trained {@link MultiLayerNetwork} with int8 weights. Each weight column,
+ * i.e. all weights into one output node, has its own symmetric scale. The inputs of each weight
+ * matrix are quantized with a per-layer scale calibrated on sample data, so every transform sums
+ * int8 products into int accumulators and only dequantizes the outputs. The bias row stays float.
+ *
+ * <p>The weights take a quarter of the memory of the float model. Zero inputs, e.g. the background
+ * of images, are skipped entirely.
+ */
+public final class QuantizedNetwork {
+
+  static final int MAX_QUANTIZED = 127;
+
+  private final int[] layerSizes;
+  private final ActivationFunction[] activationFunctions;
+  private final float bias;
+  private final LossFunction lossFunction;
+  /**
+   * [layerSizes.length - 1][each l : layerSizes[l] x layerSizes[l + 1]] without the bias row
+   */
+  private final byte[][] layerWeights;
+  /**
+   * [layerSizes.length - 1][layerSizes[l + 1]] float weights of the bias row
+   */
+  private final float[][] biasWeights;
+  /**
+   * [layerSizes.length - 1] scale of the quantized inputs of each weight matrix
+   */
+  private final float[] inputScales;
+  /**
+   * [layerSizes.length - 1][layerSizes[l + 1]] input scale times the scale of each weight column
+   */
+  private final float[][] outputScales;
+
+  private QuantizedNetwork(MultiLayerNetwork network, float[] inputScales) {
+    layerSizes = network.getLayerSizes();
+    activationFunctions = network.getActivationFunctions();
+    bias = network.getBias();
+    lossFunction = network.getLossFunction();
+    this.inputScales = inputScales;
+
+    var weights = network.getLayerWeights();
+    layerWeights = new byte[weights.length][];
+    biasWeights = new float[weights.length][];
+    outputScales = new float[weights.length][];
+    for (var l = 0; l < weights.length; l++) {
+      var inputSize = layerSizes[l];
+      var outputSize = layerSizes[l + 1];
+      layerWeights[l] = new byte[inputSize * outputSize];
+      biasWeights[l] = Arrays.copyOfRange(weights[l], inputSize * outputSize,
+          (inputSize + 1) * outputSize);
+      outputScales[l] = new float[outputSize];
+      quantizeColumns(weights[l], inputSize, outputSize, layerWeights[l], outputScales[l]);
+      for (var c = 0; c < outputSize; c++) {
+        outputScales[l][c] *= inputScales[l];
+      }
+    }
+  }
+
+  /**
+   * Quantizes the weights of {@code network}. The input scales are calibrated from the largest
+   * absolute activations of the {@code calibrationSamples} fed through the float network.
+   */
+  public static QuantizedNetwork quantize(MultiLayerNetwork network,
+      List<? extends Sample> calibrationSamples, DataSelector dataSelector) {
+    Objects.requireNonNull(network, "network");
+    Objects.requireNonNull(calibrationSamples, "calibrationSamples");
+    Objects.requireNonNull(dataSelector, "dataSelector");
+    if (calibrationSamples.isEmpty()) {
+      throw new NoSuchElementException("calibrationSamples must not be empty");
+    }
+
+    var maxActivations = new float[network.getLayerSizes().length - 1];
+    for (var sample : calibrationSamples) {
+      var layers = network.feedForward(sample, dataSelector);
+      for (var l = 0; l < maxActivations.length; l++) {
+        for (var value : layers[l].h()) {
+          maxActivations[l] = Math.max(maxActivations[l], Math.abs(value));
+        }
+      }
+    }
+
+    var inputScales = new float[maxActivations.length];
+    for (var l = 0; l < inputScales.length; l++) {
+      inputScales[l] = scaleOf(maxActivations[l]);
+    }
+    return new QuantizedNetwork(network, inputScales);
+  }
+
+  private static float scaleOf(float maxAbs) {
+    return maxAbs > 0f ? maxAbs / MAX_QUANTIZED : 1f;
+  }
+
+  private static byte quantize(float value, float scale) {
+    return (byte) Math.clamp(Math.round(value / scale), -MAX_QUANTIZED, MAX_QUANTIZED);
+  }
+
+  private static void quantizeColumns(float[] weights, int inputSize, int outputSize,
+      byte[] quantized, float[] scales) {
+    for (var c = 0; c < outputSize; c++) {
+      var maxAbs = 0f;
+      for (var w = c; w < inputSize * outputSize; w += outputSize) {
+        maxAbs = Math.max(maxAbs, Math.abs(weights[w]));
+      }
+      scales[c] = scaleOf(maxAbs);
+      for (var w = c; w < inputSize * outputSize; w += outputSize) {
+        quantized[w] = quantize(weights[w], scales[c]);
+      }
+    }
+  }
+
+  public int[] getLayerSizes() {
+    return layerSizes;
+  }
+
+  public ActivationFunction[] getActivationFunctions() {
+    return activationFunctions;
+  }
+
+  /**
+   * @return bytes taken by the weights, bias row and scales
+   */
+  public long sizeInBytes() {
+    var size = (long) Float.BYTES * inputScales.length;
+    for (var l = 0; l < layerWeights.length; l++) {
+      size += layerWeights[l].length
+          + (long) Float.BYTES * (biasWeights[l].length + outputScales[l].length);
+    }
+    return size;
+  }
+
+  private void feedForward(Buffers buffers, float[] input) {
+    var workspace = buffers.workspace;
+    NetworkWorkspace.copyInput(input, workspace.v[0]);
+    activationFunctions[0].applyInto(workspace.v[0], workspace.h[0]);
+
+    for (var l = 0; l < layerWeights.length; l++) {
+      transform(buffers, l);
+      activationFunctions[l + 1].applyInto(workspace.v[l + 1], workspace.h[l + 1]);
+    }
+  }
+
+  private void transform(Buffers buffers, int layerIndex) {
+    var h = buffers.workspace.h[layerIndex];
+    var v = buffers.workspace.v[layerIndex + 1];
+    var weights = layerWeights[layerIndex];
+    var accumulators = buffers.accumulators;
+    var outputSize = v.length;
+    var inputScale = inputScales[layerIndex];
+
+    Arrays.fill(accumulators, 0, outputSize, 0);
+    for (int row = 0, w = 0; row < h.length; row++, w += outputSize) {
+      var x = quantize(h[row], inputScale);
+      if (x == 0) {
+        continue;
+      }
+      for (var c = 0; c < outputSize; c++) {
+        accumulators[c] += x * weights[w + c];
+      }
+    }
+
+    var scales = outputScales[layerIndex];
+    var biasRow = biasWeights[layerIndex];
+    for (var c = 0; c < outputSize; c++) {
+      v[c] = accumulators[c] * scales[c] + bias * biasRow[c];
+    }
+  }
+
+  public Layer[] feedForward(Sample sample, DataSelector dataSelector) {
+    // fresh buffers, because the returned layers outlive this call
+    var buffers = new Buffers(layerSizes);
+    feedForward(buffers, dataSelector.input(sample));
+    return buffers.workspace.toLayers(activationFunctions);
+  }
+
+  /**
+   * Same as {@link MultiLayerNetwork#computeAccuracy(WorkerPool, List, DataSelector)} with the
+   * quantized weights.
+   */
+  public AccuracyResult computeAccuracy(WorkerPool workerPool, List<? extends Sample> samples,
+      DataSelector dataSelector) {
+    return AccuracyEvaluation.computeAccuracy(workerPool, samples, dataSelector,
+        activationFunctions[activationFunctions.length - 1], lossFunction,
+        () -> new Buffers(layerSizes), (buffers, sample, input) -> {
+          feedForward(buffers, input);
+          return buffers.workspace;
+        });
+  }
+
+  /**
+   * Float buffers of one sample plus the int accumulators of the transforms, owned by one thread.
+   */
+  private static final class Buffers {
+
+    final NetworkWorkspace workspace;
+    final int[] accumulators;
+
+    Buffers(int[] layerSizes) {
+      workspace = new NetworkWorkspace(layerSizes);
+      accumulators = new int[Arrays.stream(layerSizes).max().orElse(0)];
+    }
+  }
+}
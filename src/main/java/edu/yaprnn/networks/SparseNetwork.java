@@ -0,0 +1,294 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.support.FloatKernels;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inference-only copy of a {@link MultiLayerNetwork} whose smallest weights are pruned to zero. Each
+ * layer pruned at least to {@link #breakEvenSparsity()} is stored in compressed sparse rows: per
+ * input node only the output columns and values of its remaining weights. Denser layers keep the
+ * float rows of {@link MultiLayerNetwork}, because scattering single weights cannot keep up with
+ * the rows there. The bias row is never pruned.
+ */
+public final class SparseNetwork {
+
+  /**
+   * Measured on a 784 x 300 layer: the vectorized rows multiply about 8 weights in the time the CSR
+   * loop reads the column index of one weight and scatters its product.
+   */
+  static final float SIMD_BREAK_EVEN_SPARSITY = 0.9f;
+  static final float SCALAR_BREAK_EVEN_SPARSITY = 0.6f;
+
+  private final int[] layerSizes;
+  private final ActivationFunction[] activationFunctions;
+  private final float bias;
+  private final LossFunction lossFunction;
+  private final WeightMatrix[] layerWeights;
+
+  private SparseNetwork(MultiLayerNetwork network, float[][] prunedWeights) {
+    layerSizes = network.getLayerSizes();
+    activationFunctions = network.getActivationFunctions();
+    bias = network.getBias();
+    lossFunction = network.getLossFunction();
+    layerWeights = new WeightMatrix[prunedWeights.length];
+    for (var l = 0; l < prunedWeights.length; l++) {
+      layerWeights[l] = WeightMatrix.of(prunedWeights[l], layerSizes[l], layerSizes[l + 1]);
+    }
+  }
+
+  /**
+   * Prunes the weights of each layer with the smallest magnitudes to zero, so that at least
+   * {@code sparsities[l]} of the weights of layer {@code l} without the bias row are zero.
+   *
+   * @param sparsities [layerSizes.length - 1] target share of zero weights in [0, 1]
+   */
+  public static SparseNetwork prune(MultiLayerNetwork network, float[] sparsities) {
+    Objects.requireNonNull(network, "network");
+    Objects.requireNonNull(sparsities, "sparsities");
+    var weights = network.getLayerWeights();
+    if (sparsities.length != weights.length) {
+      throw new IllegalArgumentException("sparsities must have one value per weight matrix");
+    }
+
+    var prunedWeights = new float[weights.length][];
+    for (var l = 0; l < weights.length; l++) {
+      if (!(sparsities[l] >= 0f && sparsities[l] <= 1f)) {
+        throw new IllegalArgumentException("sparsities must be in [0, 1]");
+      }
+      prunedWeights[l] = weights[l].clone();
+      pruneSmallest(prunedWeights[l], network.getLayerSizes()[l] * network.getLayerSizes()[l + 1],
+          sparsities[l]);
+    }
+    return new SparseNetwork(network, prunedWeights);
+  }
+
+  /**
+   * Same as {@link #prune(MultiLayerNetwork, float[])} with the same sparsity for every layer.
+   */
+  public static SparseNetwork prune(MultiLayerNetwork network, float sparsity) {
+    Objects.requireNonNull(network, "network");
+    var sparsities = new float[network.getLayerWeights().length];
+    Arrays.fill(sparsities, sparsity);
+    return prune(network, sparsities);
+  }
+
+  private static void pruneSmallest(float[] weights, int length, float sparsity) {
+    var count = (int) Math.ceil(sparsity * length);
+    if (count == 0) {
+      return;
+    }
+
+    var magnitudes = new float[length];
+    for (var w = 0; w < length; w++) {
+      magnitudes[w] = Math.abs(weights[w]);
+    }
+    Arrays.sort(magnitudes);
+    var threshold = magnitudes[count - 1];
+
+    // ties at the threshold are pruned in order until the count is reached
+    var pruned = 0;
+    for (var w = 0; w < length; w++) {
+      if (Math.abs(weights[w]) < threshold) {
+        weights[w] = 0f;
+        pruned++;
+      }
+    }
+    for (var w = 0; w < length && pruned < count; w++) {
+      if (weights[w] != 0f && Math.abs(weights[w]) == threshold) {
+        weights[w] = 0f;
+        pruned++;
+      }
+    }
+  }
+
+  /**
+   * @return share of zero weights from which a CSR layer multiplies faster than the dense rows
+   */
+  public static float breakEvenSparsity() {
+    return FloatKernels.isSimdEnabled() ? SIMD_BREAK_EVEN_SPARSITY : SCALAR_BREAK_EVEN_SPARSITY;
+  }
+
+  public int[] getLayerSizes() {
+    return layerSizes;
+  }
+
+  public ActivationFunction[] getActivationFunctions() {
+    return activationFunctions;
+  }
+
+  /**
+   * @return share of zero weights of each layer without the bias row
+   */
+  public float[] sparsities() {
+    var sparsities = new float[layerWeights.length];
+    for (var l = 0; l < sparsities.length; l++) {
+      sparsities[l] = 1f - (float) layerWeights[l].nonZeros() / (layerSizes[l] * layerSizes[l + 1]);
+    }
+    return sparsities;
+  }
+
+  /**
+   * @return whether each layer is stored in compressed sparse rows
+   */
+  public boolean[] compressedLayers() {
+    var compressed = new boolean[layerWeights.length];
+    for (var l = 0; l < compressed.length; l++) {
+      compressed[l] = layerWeights[l] instanceof CsrMatrix;
+    }
+    return compressed;
+  }
+
+  /**
+   * @return bytes taken by the weights and indices
+   */
+  public long sizeInBytes() {
+    var size = 0L;
+    for (var weights : layerWeights) {
+      size += weights.sizeInBytes();
+    }
+    return size;
+  }
+
+  private void feedForward(NetworkWorkspace workspace, float[] input) {
+    NetworkWorkspace.copyInput(input, workspace.v[0]);
+    activationFunctions[0].applyInto(workspace.v[0], workspace.h[0]);
+
+    for (var l = 0; l < layerWeights.length; l++) {
+      var v = workspace.v[l + 1];
+      layerWeights[l].transform(workspace.h[l], bias, v);
+      activationFunctions[l + 1].applyInto(v, workspace.h[l + 1]);
+    }
+  }
+
+  public Layer[] feedForward(Sample sample, DataSelector dataSelector) {
+    // fresh workspace, because the returned layers outlive this call
+    var workspace = new NetworkWorkspace(layerSizes);
+    feedForward(workspace, dataSelector.input(sample));
+    return workspace.toLayers(activationFunctions);
+  }
+
+  /**
+   * Same as {@link MultiLayerNetwork#computeAccuracy(WorkerPool, List, DataSelector)} with the
+   * pruned weights.
+   */
+  public AccuracyResult computeAccuracy(WorkerPool workerPool, List<? extends Sample> samples,
+      DataSelector dataSelector) {
+    return AccuracyEvaluation.computeAccuracy(workerPool, samples, dataSelector,
+        activationFunctions[activationFunctions.length - 1], lossFunction,
+        () -> new NetworkWorkspace(layerSizes), (workspace, sample, input) -> {
+          feedForward(workspace, input);
+          return workspace;
+        });
+  }
+
+  /**
+   * Weights between two layers in the layout chosen for their sparsity.
+   */
+  private sealed interface WeightMatrix permits DenseMatrix, CsrMatrix {
+
+    static WeightMatrix of(float[] weights, int inputSize, int outputSize) {
+      var nonZeros = 0;
+      for (var w = 0; w < inputSize * outputSize; w++) {
+        if (weights[w] != 0f) {
+          nonZeros++;
+        }
+      }
+      var sparsity = 1f - (float) nonZeros / (inputSize * outputSize);
+      return sparsity >= breakEvenSparsity()
+          ? CsrMatrix.of(weights, inputSize, outputSize, nonZeros)
+          : new DenseMatrix(weights, inputSize, nonZeros);
+    }
+
+    /**
+     * Computes {@code v = [h | bias] * weights}.
+     */
+    void transform(float[] h, float bias, float[] v);
+
+    int nonZeros();
+
+    long sizeInBytes();
+  }
+
+  private record DenseMatrix(float[] weights, int inputSize, int nonZeros) implements
+      WeightMatrix {
+
+    @Override
+    public void transform(float[] h, float bias, float[] v) {
+      Arrays.fill(v, 0f);
+      var w = 0;
+      for (var j = 0; j < inputSize; j++, w += v.length) {
+        if (h[j] != 0f) {
+          FloatKernels.axpy(h[j], weights, w, v, 0, v.length);
+        }
+      }
+      FloatKernels.axpy(bias, weights, w, v, 0, v.length);
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return (long) Float.BYTES * weights.length;
+    }
+  }
+
+  /**
+   * Weights without the bias row in compressed sparse rows: the non-zero weights of input row
+   * {@code j} are {@code values[rowStarts[j]..rowStarts[j + 1])} in the output columns
+   * {@code columns[rowStarts[j]..rowStarts[j + 1])}.
+   */
+  private record CsrMatrix(int[] rowStarts, int[] columns, float[] values, float[] biasRow)
+      implements WeightMatrix {
+
+    static CsrMatrix of(float[] weights, int inputSize, int outputSize, int nonZeros) {
+      var rowStarts = new int[inputSize + 1];
+      var columns = new int[nonZeros];
+      var values = new float[nonZeros];
+      var n = 0;
+      for (int j = 0, w = 0; j < inputSize; j++) {
+        rowStarts[j] = n;
+        for (var c = 0; c < outputSize; c++, w++) {
+          if (weights[w] != 0f) {
+            columns[n] = c;
+            values[n++] = weights[w];
+          }
+        }
+      }
+      rowStarts[inputSize] = n;
+      var biasRow = Arrays.copyOfRange(weights, inputSize * outputSize,
+          (inputSize + 1) * outputSize);
+      return new CsrMatrix(rowStarts, columns, values, biasRow);
+    }
+
+    @Override
+    public void transform(float[] h, float bias, float[] v) {
+      for (var c = 0; c < v.length; c++) {
+        v[c] = bias * biasRow[c];
+      }
+      for (var j = 0; j < rowStarts.length - 1; j++) {
+        var x = h[j];
+        if (x == 0f) {
+          continue;
+        }
+        for (var n = rowStarts[j]; n < rowStarts[j + 1]; n++) {
+          v[columns[n]] += x * values[n];
+        }
+      }
+    }
+
+    @Override
+    public int nonZeros() {
+      return values.length;
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return (long) Integer.BYTES * (rowStarts.length + columns.length)
+          + (long) Float.BYTES * (values.length + biasRow.length);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package edu.yaprnn.networks;
+
+import java.util.List;
+
+/**
+ * Accuracy of a {@link MultiLayerNetwork} pruned to increasing sparsities, compared with the
+ * unpruned float network on the same samples.
+ */
+public record SparsitySweep(AccuracyResult floatAccuracy, long floatBytes, List<Step> steps) {
+
+  @Override
+  public String toString() {
+    var report = new StringBuilder("sparsity | accuracy (delta) | error | CSR layers | bytes\n");
+    report.append("%8.3f | %8.4f (%+.4f) | %.6f | %s | %d%n".formatted(0f, floatAccuracy.hits(),
+        0f, floatAccuracy.error(), "-", floatBytes));
+    for (var step : steps) {
+      report.append("%8.3f | %8.4f (%+.4f) | %.6f | %d | %d%n".formatted(step.sparsity(),
+          step.accuracy().hits(), step.accuracy().hits() - floatAccuracy.hits(),
+          step.accuracy().error(), step.compressedLayers(), step.sizeInBytes()));
+    }
+    return report.toString();
+  }
+
+  /**
+   * @param sparsity         target share of pruned weights of every layer
+   * @param compressedLayers count of layers stored in compressed sparse rows
+   */
+  public record Step(float sparsity, AccuracyResult accuracy, int compressedLayers,
+                     long sizeInBytes) {
+
+  }
+}
@@ -0,0 +1,35 @@
+package edu.yaprnn.networks;
+
+/**
+ * Selects how {@link MultiLayerNetwork#learnMiniBatch} computes the gradients of a chunk of a
+ * mini-batch. {@link #PER_SAMPLE} and {@link #BATCHED} produce identical gradients.
+ */
+public enum TrainingEngine {
+  /**
+   * Feeds and backpropagates one sample after another through vector-matrix products.
+   */
+  PER_SAMPLE,
+  /**
+   * Packs all samples of a chunk into matrices and runs the forward pass, the error backpropagation
+   * and the gradient outer products as matrix-matrix products, so weights are reused from cache
+   * across samples.
+   */
+  BATCHED,
+  /**
+   * Like {@link #BATCHED}, but keeps a transposed copy of the weights that is refreshed after every
+   * update, so the error backpropagation streams through contiguous rows instead of transposing
+   * the errors or reducing short dot products. With SIMD only layers of up to 64 outputs are
+   * mirrored, wider layers fill the lanes of the dot products anyway. It pays off for narrow hidden
+   * and output layers and for larger mini-batches, which spread the cost of the copy over more
+   * samples. The gradients equal those of {@link #PER_SAMPLE} with SIMD disabled, while SIMD
+   * reductions of the other engines may differ in the last bits.
+   */
+  BATCHED_TRANSPOSED,
+  /**
+   * Lock-free asynchronous SGD: every worker trains on its own shard of the samples in mini-batches
+   * like {@link #BATCHED}, and applies its gradients straight to the shared weights with its own
+   * momentum, without reducing them with the other workers. Concurrent updates may overwrite each
+   * other, so results are not reproducible.
+   */
+  HOGWILD
+}
@@ -0,0 +1,191 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.networks.MultiLayerNetwork.ChunkGradientsAccumulator;
+import edu.yaprnn.networks.optimizers.Optimizer;
+import edu.yaprnn.networks.optimizers.OptimizerState;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Buffers of one training of a {@link MultiLayerNetwork}, reused by all its epochs. The chunk
+ * gradients, workspaces and transposed weights are allocated by the first epoch that needs them,
+ * and only again when the engine, the batch size or the parallelism grow. The state of the
+ * optimizer is created with the first update, so a training without momentum never allocates one.
+ * Closing the session releases all of them.
+ *
+ * <p>A session belongs to one network and is used by one epoch at a time.
+ */
+public final class TrainingSession implements AutoCloseable {
+
+  private static final float[][][] NO_GRADIENTS = new float[0][][];
+  private static final ChunkGradientsAccumulator[] NO_ACCUMULATORS =
+      new ChunkGradientsAccumulator[0];
+  private static final OptimizerState[] NO_OPTIMIZER_STATES = new OptimizerState[0];
+
+  private final MultiLayerNetwork multiLayerNetwork;
+  private final GradientMatrixService gradientMatrixService;
+  private final Optimizer optimizer;
+  private OptimizerState optimizerState;
+  private boolean closed;
+
+  /**
+   * [workers][layerSizes.length - 1][weights of layer l]
+   */
+  private float[][][] chunkGradients = NO_GRADIENTS;
+  /**
+   * [workers] accumulators of {@link #accumulatorsKey}
+   */
+  private ChunkGradientsAccumulator[] chunkAccumulators = NO_ACCUMULATORS;
+  private AccumulatorsKey accumulatorsKey;
+  private float[][] transposedWeights;
+  private OptimizerState[] hogwildOptimizerStates = NO_OPTIMIZER_STATES;
+
+  private TrainingSession(MultiLayerNetwork multiLayerNetwork,
+      GradientMatrixService gradientMatrixService, Optimizer optimizer,
+      OptimizerState optimizerState) {
+    this.multiLayerNetwork = multiLayerNetwork;
+    this.gradientMatrixService = gradientMatrixService;
+    this.optimizer = optimizer;
+    this.optimizerState = optimizerState;
+  }
+
+  /**
+   * Starts a training of {@code multiLayerNetwork} whose weights are updated by {@code optimizer},
+   * see {@link MultiLayerNetwork#createOptimizerState(Optimizer)}.
+   */
+  public static TrainingSession open(MultiLayerNetwork multiLayerNetwork,
+      GradientMatrixService gradientMatrixService, Optimizer optimizer) {
+    Objects.requireNonNull(multiLayerNetwork, "multiLayerNetwork");
+    Objects.requireNonNull(gradientMatrixService, "gradientMatrixService");
+    Objects.requireNonNull(optimizer, "optimizer");
+    return new TrainingSession(multiLayerNetwork, gradientMatrixService, optimizer, null);
+  }
+
+  /**
+   * Session of a single call that updates the weights with an existing {@code optimizerState}.
+   */
+  static TrainingSession of(MultiLayerNetwork multiLayerNetwork,
+      GradientMatrixService gradientMatrixService, OptimizerState optimizerState) {
+    return new TrainingSession(multiLayerNetwork, gradientMatrixService,
+        optimizerState.optimizer(), optimizerState);
+  }
+
+  public MultiLayerNetwork multiLayerNetwork() {
+    return multiLayerNetwork;
+  }
+
+  public Optimizer optimizer() {
+    return optimizer;
+  }
+
+  GradientMatrixService gradientMatrixService() {
+    return gradientMatrixService;
+  }
+
+  /**
+   * @return state of the optimizer, created by the first call
+   */
+  public OptimizerState optimizerState() {
+    requireOpen();
+    if (optimizerState == null) {
+      optimizerState = multiLayerNetwork.createOptimizerState(optimizer);
+    }
+    return optimizerState;
+  }
+
+  /**
+   * @return at least {@code count} sets of gradients of the network
+   */
+  float[][][] chunkGradients(int count) {
+    requireOpen();
+    if (chunkGradients.length < count) {
+      var grown = Arrays.copyOf(chunkGradients, count);
+      for (var c = chunkGradients.length; c < count; c++) {
+        grown[c] = gradientMatrixService.zeroMatrices(multiLayerNetwork.getLayerSizes());
+      }
+      chunkGradients = grown;
+    }
+    return chunkGradients;
+  }
+
+  /**
+   * @return at least {@code count} accumulators of {@code trainingEngine}, all created again when
+   * the engine, the capacity or the budget changed
+   */
+  ChunkGradientsAccumulator[] chunkAccumulators(int count, TrainingEngine trainingEngine,
+      int chunkCapacity, long activationMemoryBudget) {
+    requireOpen();
+    var key = new AccumulatorsKey(trainingEngine, chunkCapacity, activationMemoryBudget);
+    if (!key.equals(accumulatorsKey)) {
+      accumulatorsKey = key;
+      chunkAccumulators = NO_ACCUMULATORS;
+    }
+    if (chunkAccumulators.length < count) {
+      var grown = Arrays.copyOf(chunkAccumulators, count);
+      for (var c = chunkAccumulators.length; c < count; c++) {
+        grown[c] = multiLayerNetwork.createChunkGradientsAccumulator(trainingEngine, chunkCapacity,
+            activationMemoryBudget,
+            trainingEngine == TrainingEngine.BATCHED_TRANSPOSED ? transposedWeights : null);
+      }
+      chunkAccumulators = grown;
+    }
+    return chunkAccumulators;
+  }
+
+  /**
+   * @return for {@link TrainingEngine#BATCHED_TRANSPOSED} the transposed weights, refreshed from
+   * the current weights, otherwise {@code null}
+   */
+  float[][] transposedWeights(TrainingEngine trainingEngine) {
+    requireOpen();
+    if (trainingEngine != TrainingEngine.BATCHED_TRANSPOSED) {
+      return null;
+    }
+    if (transposedWeights == null) {
+      transposedWeights = multiLayerNetwork.transposeLayerWeights();
+    } else {
+      multiLayerNetwork.transposeLayerWeights(transposedWeights);
+    }
+    return transposedWeights;
+  }
+
+  /**
+   * @return at least {@code count} states of the optimizer, one per worker, kept across the epochs
+   * of this session like {@link #optimizerState()}
+   */
+  OptimizerState[] hogwildOptimizerStates(int count) {
+    requireOpen();
+    if (hogwildOptimizerStates.length < count) {
+      var grown = Arrays.copyOf(hogwildOptimizerStates, count);
+      for (var c = hogwildOptimizerStates.length; c < count; c++) {
+        grown[c] = OptimizerState.create(optimizer, multiLayerNetwork.getLayerSizes());
+      }
+      hogwildOptimizerStates = grown;
+    }
+    return hogwildOptimizerStates;
+  }
+
+  private void requireOpen() {
+    if (closed) {
+      throw new IllegalStateException("training session is closed");
+    }
+  }
+
+  /**
+   * Releases all buffers. The momentum stored with the network stays.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    optimizerState = null;
+    chunkGradients = NO_GRADIENTS;
+    chunkAccumulators = NO_ACCUMULATORS;
+    accumulatorsKey = null;
+    transposedWeights = null;
+    hogwildOptimizerStates = NO_OPTIMIZER_STATES;
+  }
+
+  private record AccumulatorsKey(TrainingEngine trainingEngine, int chunkCapacity,
+                                 long activationMemoryBudget) {
+  }
+}
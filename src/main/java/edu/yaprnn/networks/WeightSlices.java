@@ -0,0 +1,80 @@
+package edu.yaprnn.networks;
+
+/**
+ * Splits the weights of all layers, taken one after the other, into contiguous slices of about the
+ * same size, so that the workers can reduce and update the weights of a mini-batch in parallel. A
+ * slice may span the end of one layer and the start of the next, so small layers are not cut into
+ * tiny pieces and large layers are shared by several workers.
+ */
+final class WeightSlices {
+
+  /**
+   * Slices start at multiples of 16 floats, so that neighbouring slices rarely write to the same
+   * cache line
+   */
+  static final int ALIGNMENT = 16;
+  /**
+   * Fewer weights per slice do not pay for handing them to another worker
+   */
+  static final int MIN_SLICE_WEIGHTS = 1 << 14;
+
+  /**
+   * [layerWeights.length + 1] index of the first weight of each layer, and the count of all weights
+   */
+  private final int[] layerOffsets;
+
+  WeightSlices(float[][] layerWeights) {
+    layerOffsets = new int[layerWeights.length + 1];
+    for (var l = 0; l < layerWeights.length; l++) {
+      layerOffsets[l + 1] = layerOffsets[l] + layerWeights[l].length;
+    }
+  }
+
+  int weightCount() {
+    return layerOffsets[layerOffsets.length - 1];
+  }
+
+  /**
+   * @return count of slices for up to {@code parallelism} workers, at least one
+   */
+  int sliceCount(int parallelism) {
+    return Math.max(1, Math.min(parallelism, weightCount() / MIN_SLICE_WEIGHTS));
+  }
+
+  private int sliceStart(int slice, int sliceCount) {
+    if (slice == sliceCount) {
+      return weightCount();
+    }
+    var start = (int) ((long) slice * weightCount() / sliceCount);
+    return start - start % ALIGNMENT;
+  }
+
+  /**
+   * Passes the weight ranges of each layer in the {@code slice}-th of {@code sliceCount} slices to
+   * {@code consumer}, in layer order.
+   */
+  void forEach(int slice, int sliceCount, LayerRangeConsumer consumer) {
+    if (slice < 0 || slice >= sliceCount) {
+      throw new IllegalArgumentException("slice must be in [0, sliceCount)");
+    }
+
+    var from = sliceStart(slice, sliceCount);
+    var to = sliceStart(slice + 1, sliceCount);
+    for (var l = 0; l < layerOffsets.length - 1; l++) {
+      var layerFrom = Math.max(from, layerOffsets[l]);
+      var layerTo = Math.min(to, layerOffsets[l + 1]);
+      if (layerFrom < layerTo) {
+        consumer.accept(l, layerFrom - layerOffsets[l], layerTo - layerOffsets[l]);
+      }
+    }
+  }
+
+  /**
+   * Receives the weights {@code [from, to)} of layer {@code layerIndex}.
+   */
+  @FunctionalInterface
+  interface LayerRangeConsumer {
+
+    void accept(int layerIndex, int from, int to);
+  }
+}
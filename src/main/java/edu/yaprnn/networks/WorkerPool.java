@@ -0,0 +1,42 @@
+package edu.yaprnn.networks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the chunks of one parallel step of {@link MultiLayerNetwork} on up to {@link #parallelism()}
+ * workers. Chunk {@code 0} always runs on the calling thread.
+ */
+public sealed interface WorkerPool extends AutoCloseable permits ExecutorWorkerPool,
+    PersistentWorkerPool {
+
+  /**
+   * Submits chunks {@code 1..count-1} of every step as new tasks to the given executor. The executor
+   * stays owned by the caller.
+   */
+  static WorkerPool of(ExecutorService executor, int parallelism) {
+    return new ExecutorWorkerPool(executor, parallelism);
+  }
+
+  /**
+   * Starts {@code parallelism - 1} platform threads that stay pinned to their chunk indices until
+   * the pool is closed, and are released for every step by a barrier.
+   */
+  static WorkerPool persistent(int parallelism) {
+    return new PersistentWorkerPool(parallelism);
+  }
+
+  int parallelism();
+
+  /**
+   * Runs {@code task} for every chunk index in {@code [0, count)} and returns when all chunks are
+   * done.
+   *
+   * @throws IllegalArgumentException if {@code count} is not in {@code [1, parallelism]}
+   * @throws RuntimeException         wrapping the first failure of a chunk, or if interrupted
+   */
+  void run(int count, IntConsumer task);
+
+  @Override
+  void close();
+}
@@ -30,6 +30,15 @@ public sealed interface ActivationFunction permits BinaryStepActivationFunction,
    */
   float[] apply(float[] v);
 
+  /**
+   * Same as {@link #apply(float[])}, but writes into a preallocated buffer without allocating.
+   *
+   * @param v outputs before activation
+   * @param h receives the outputs after activation, must have the same length as {@code v}, may
+   *          be {@code v} itself
+   */
+  void applyInto(float[] v, float[] h);
+
   /**
    * @param h outputs after activation
    * @param v outputs before activation
@@ -45,5 +54,62 @@ public sealed interface ActivationFunction permits BinaryStepActivationFunction,
    */
   float[] derivative(float[] v);
 
+  /**
+   * Same as {@link #derivative(float[], float[])}, but writes into a preallocated buffer without
+   * allocating.
+   *
+   * @param h outputs after activation
+   * @param v outputs before activation
+   * @param d receives the derivative of outputs, must have the same length as {@code v}
+   */
+  void derivativeInto(float[] h, float[] v, float[] d);
+
+  /**
+   * @return whether {@link #applyInto(float[], float[], float[])} keeps intermediates, such as
+   * transcendental terms, that {@link #derivativeInto(float[], float[], float[], float[])} reuses
+   * instead of computing them again
+   */
+  default boolean cachesIntermediates() {
+    return false;
+  }
+
+  /**
+   * Same as {@link #applyInto(float[], float[])}, but keeps the intermediates of the outputs if
+   * {@link #cachesIntermediates()}.
+   *
+   * @param intermediates receives the intermediates, must have the same length as {@code v}, or
+   *                      {@code null} to keep none
+   */
+  default void applyInto(float[] v, float[] h, float[] intermediates) {
+    applyInto(v, h);
+  }
+
+  /**
+   * Same as {@link #derivativeInto(float[], float[], float[])}, but reuses the intermediates kept
+   * while computing {@code h} from {@code v}.
+   *
+   * @param intermediates filled by {@link #applyInto(float[], float[], float[])} with the same
+   *                      {@code v}, or {@code null} to compute the derivative without them
+   */
+  default void derivativeInto(float[] h, float[] v, float[] intermediates, float[] d) {
+    derivativeInto(h, v, d);
+  }
+
+  /**
+   * @return whether {@code h} is {@code 0} wherever {@code v} is {@code 0}, so that zero inputs of
+   * a layer can be skipped
+   */
+  default boolean preservesZero() {
+    return false;
+  }
+
+  /**
+   * @return whether the outputs or the derivatives are exactly {@code 0} for whole ranges of
+   * {@code v}, so that backpropagation skips these inactive neurons of each sample
+   */
+  default boolean hasInactiveNeurons() {
+    return false;
+  }
+
   float[] initialize(Random random, int count, int outputSize);
 }
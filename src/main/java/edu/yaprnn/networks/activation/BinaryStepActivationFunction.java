@@ -2,6 +2,7 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import java.util.Arrays;
 import java.util.Random;
 
 public final class BinaryStepActivationFunction implements ActivationFunction {
@@ -15,6 +16,13 @@ public final class BinaryStepActivationFunction implements ActivationFunction {
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    for (var i = 0; i < h.length; i++) {
+      h[i] = v[i] < 0f ? 0f : 1f;
+    }
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = new float[v.length];
@@ -25,6 +33,17 @@ public final class BinaryStepActivationFunction implements ActivationFunction {
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    // good enough as a surrogate derivative
+    Arrays.fill(d, 1f);
+  }
+
+  @Override
+  public boolean hasInactiveNeurons() {
+    return true;
+  }
+
   @Override
   public float[] initialize(Random random, int count, int outputSize) {
     return Initialization.shell(random, count, outputSize, UniformInitializer::normalized);
@@ -2,65 +2,74 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import edu.yaprnn.support.FloatKernels;
 import java.util.Random;
 
+/**
+ * GeLU with the tanh approximation of the error function as proposed in <a
+ * href="https://arxiv.org/pdf/1606.08415">...</a>, see {@link FloatKernels#geluInto}.
+ */
 public final class GeLUActivationFunction implements ActivationFunction {
 
   @Override
   public float[] apply(float[] v) {
     var h = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      var x = v[i];
-      h[i] = 0.5f * x * (1f + ErfApproximation.of(x));
-    }
+    FloatKernels.geluInto(v, h);
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    FloatKernels.geluInto(v, h);
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      var x = v[i];
-      var erf = ErfApproximation.of(x);
-      d[i] = 0.5f * (1f + erf + (x - x * erf * erf) * ErfApproximation.transformDerivative(x));
-    }
+    FloatKernels.geluDerivativeInto(v, d);
     return d;
   }
 
   @Override
-  public float[] initialize(Random random, int count, int outputSize) {
-    return Initialization.shell(random, count, outputSize, UniformInitializer::xavier);
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    FloatKernels.geluDerivativeInto(v, d);
   }
 
   @Override
-  public String toString() {
-    return "GeLU: x/2 * (1 + erf[x / sqrt(2)])";
+  public boolean cachesIntermediates() {
+    return true;
   }
 
-  /**
-   * Approximation of the error function as proposed in <a
-   * href="https://arxiv.org/pdf/1606.08415">...</a>
-   */
-  private static final class ErfApproximation {
-
-    private static final float SQRT_2_DIVIDED_BY_PI = 0.7978845608028654f;
-
-    /**
-     * Approximation constant from Hendrycks & Gimpel (2016), Section 2.
-     */
-    private static final float ALPHA = 0.044715f;
-    private static final float DERIVATIVE_ALPHA = SQRT_2_DIVIDED_BY_PI * 3f * ALPHA;
-
-    private static float of(float x) {
-      return (float) Math.tanh(transform(x));
+  @Override
+  public void applyInto(float[] v, float[] h, float[] intermediates) {
+    if (intermediates == null) {
+      applyInto(v, h);
+    } else {
+      FloatKernels.geluInto(v, h, intermediates);
     }
+  }
 
-    private static float transform(float x) {
-      return SQRT_2_DIVIDED_BY_PI * (x + ALPHA * x * x * x);
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] intermediates, float[] d) {
+    if (intermediates == null) {
+      derivativeInto(h, v, d);
+    } else {
+      FloatKernels.geluDerivativeFromTanhInto(v, intermediates, d);
     }
+  }
 
-    private static float transformDerivative(float x) {
-      return SQRT_2_DIVIDED_BY_PI + DERIVATIVE_ALPHA * x * x;
-    }
+  @Override
+  public boolean preservesZero() {
+    return true;
+  }
+
+  @Override
+  public float[] initialize(Random random, int count, int outputSize) {
+    return Initialization.shell(random, count, outputSize, UniformInitializer::xavier);
+  }
+
+  @Override
+  public String toString() {
+    return "GeLU: x/2 * (1 + erf[x / sqrt(2)])";
   }
 }
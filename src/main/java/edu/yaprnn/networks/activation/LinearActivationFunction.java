@@ -12,6 +12,13 @@ public final class LinearActivationFunction implements ActivationFunction {
     return v;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    if (h != v) {
+      System.arraycopy(v, 0, h, 0, h.length);
+    }
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = new float[v.length];
@@ -19,6 +26,16 @@ public final class LinearActivationFunction implements ActivationFunction {
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    Arrays.fill(d, 1f);
+  }
+
+  @Override
+  public boolean preservesZero() {
+    return true;
+  }
+
   @Override
   public float[] initialize(Random random, int count, int outputSize) {
     return Initialization.shell(random, count, outputSize, GaussianInitializer::he);
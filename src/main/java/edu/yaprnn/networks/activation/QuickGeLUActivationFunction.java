@@ -2,6 +2,7 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import edu.yaprnn.support.FloatKernels;
 import java.util.Random;
 
 public final class QuickGeLUActivationFunction implements ActivationFunction {
@@ -14,32 +15,58 @@ public final class QuickGeLUActivationFunction implements ActivationFunction {
   @Override
   public float[] apply(float[] v) {
     var h = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      var x = v[i];
-      h[i] = x * Sigmoid.of(ALPHA * x);
-    }
+    FloatKernels.swishInto(ALPHA, v, h);
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    FloatKernels.swishInto(ALPHA, v, h);
+  }
+
   @Override
   public float[] derivative(float[] h, float[] v) {
     var d = new float[h.length];
-    for (var i = 0; i < h.length; i++) {
-      var s = Sigmoid.of(ALPHA * v[i]);
-      d[i] = s + ALPHA * h[i] * (1f - s);
-    }
+    FloatKernels.swishDerivativeInto(ALPHA, h, v, d);
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    FloatKernels.swishDerivativeInto(ALPHA, h, v, d);
+  }
+
   @Override
   public float[] derivative(float[] v) {
-    var d = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      var x = v[i];
-      var s = Sigmoid.of(ALPHA * x);
-      d[i] = s + ALPHA * x * s * (1f - s);
+    return derivative(apply(v), v);
+  }
+
+  @Override
+  public boolean cachesIntermediates() {
+    return true;
+  }
+
+  @Override
+  public void applyInto(float[] v, float[] h, float[] intermediates) {
+    if (intermediates == null) {
+      applyInto(v, h);
+    } else {
+      FloatKernels.swishInto(ALPHA, v, h, intermediates);
     }
-    return d;
+  }
+
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] intermediates, float[] d) {
+    if (intermediates == null) {
+      derivativeInto(h, v, d);
+    } else {
+      FloatKernels.swishDerivativeFromSigmoidInto(ALPHA, h, intermediates, d);
+    }
+  }
+
+  @Override
+  public boolean preservesZero() {
+    return true;
   }
 
   @Override
@@ -2,6 +2,7 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import edu.yaprnn.support.FloatKernels;
 import java.util.Random;
 
 public final class ReLUActivationFunction implements ActivationFunction {
@@ -15,6 +16,11 @@ public final class ReLUActivationFunction implements ActivationFunction {
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    FloatKernels.reluInto(v, h);
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = new float[v.length];
@@ -24,6 +30,23 @@ public final class ReLUActivationFunction implements ActivationFunction {
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    for (var i = 0; i < d.length; i++) {
+      d[i] = v[i] >= 0f ? 1f : 0f;
+    }
+  }
+
+  @Override
+  public boolean preservesZero() {
+    return true;
+  }
+
+  @Override
+  public boolean hasInactiveNeurons() {
+    return true;
+  }
+
   @Override
   public float[] initialize(Random random, int count, int outputSize) {
     return Initialization.shell(random, count, outputSize, UniformInitializer::he);
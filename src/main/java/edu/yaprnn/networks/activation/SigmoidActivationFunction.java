@@ -2,6 +2,7 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import edu.yaprnn.support.FloatKernels;
 import java.util.Random;
 
 public final class SigmoidActivationFunction implements ActivationFunction {
@@ -9,12 +10,15 @@ public final class SigmoidActivationFunction implements ActivationFunction {
   @Override
   public float[] apply(float[] v) {
     var h = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      h[i] = Sigmoid.of(v[i]);
-    }
+    FloatKernels.sigmoidInto(v, h);
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    FloatKernels.sigmoidInto(v, h);
+  }
+
   @Override
   public float[] derivative(float[] h, float[] v) {
     var d = new float[h.length];
@@ -25,13 +29,15 @@ public final class SigmoidActivationFunction implements ActivationFunction {
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    FloatKernels.sigmoidDerivativeInto(h, d);
+  }
+
   @Override
   public float[] derivative(float[] v) {
-    var d = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      var y = Sigmoid.of(v[i]);
-      d[i] = y * (1f - y);
-    }
+    var d = apply(v);
+    FloatKernels.sigmoidDerivativeInto(d, d);
     return d;
   }
 
@@ -2,6 +2,7 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import edu.yaprnn.support.FloatKernels;
 import java.util.Random;
 
 /**
@@ -21,6 +22,13 @@ public final class SoftMaxActivationFunction implements ActivationFunction {
 
   @Override
   public float[] apply(float[] v) {
+    var h = new float[v.length];
+    applyInto(v, h);
+    return h;
+  }
+
+  @Override
+  public void applyInto(float[] v, float[] h) {
     var max = v[0];
     for (var i = 1; i < v.length; i++) {
       if (v[i] > max) {
@@ -28,15 +36,10 @@ public final class SoftMaxActivationFunction implements ActivationFunction {
       }
     }
 
-    var s = 0f;
-    var h = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      s += (h[i] = (float) Math.exp(v[i] - max));
-    }
+    var s = FloatKernels.expInto(v, max, h);
     for (var i = 0; i < v.length; i++) {
       h[i] /= s;
     }
-    return h;
   }
 
   @Override
@@ -50,6 +53,14 @@ public final class SoftMaxActivationFunction implements ActivationFunction {
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    for (var i = 0; i < d.length; i++) {
+      // same approximation as derivative(h, v)
+      d[i] = h[i] * (1f - h[i]);
+    }
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = apply(v);
@@ -2,6 +2,7 @@ package edu.yaprnn.networks.activation;
 
 import edu.yaprnn.networks.weights.Initialization;
 import edu.yaprnn.networks.weights.UniformInitializer;
+import edu.yaprnn.support.FloatKernels;
 import java.util.Random;
 
 public final class TangentHyperbolicActivationFunction implements ActivationFunction {
@@ -9,12 +10,15 @@ public final class TangentHyperbolicActivationFunction implements ActivationFunc
   @Override
   public float[] apply(float[] v) {
     var h = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      h[i] = (float) Math.tanh(v[i]);
-    }
+    FloatKernels.tanhInto(v, h);
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    FloatKernels.tanhInto(v, h);
+  }
+
   @Override
   public float[] derivative(float[] h, float[] v) {
     var d = new float[h.length];
@@ -24,16 +28,23 @@ public final class TangentHyperbolicActivationFunction implements ActivationFunc
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    FloatKernels.tanhDerivativeInto(h, d);
+  }
+
   @Override
   public float[] derivative(float[] v) {
-    var d = new float[v.length];
-    for (var i = 0; i < v.length; i++) {
-      var h = (float) Math.tanh(v[i]);
-      d[i] = 1f - h * h;
-    }
+    var d = apply(v);
+    FloatKernels.tanhDerivativeInto(d, d);
     return d;
   }
 
+  @Override
+  public boolean preservesZero() {
+    return true;
+  }
+
   @Override
   public float[] initialize(Random random, int count, int outputSize) {
     return Initialization.shell(random, count, outputSize, UniformInitializer::xavier);
@@ -15,6 +15,13 @@ public final class TangentHyperbolicHardActivationFunction implements Activation
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    for (var i = 0; i < h.length; i++) {
+      h[i] = Math.clamp(v[i], -1f, 1f);
+    }
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = new float[v.length];
@@ -24,6 +31,18 @@ public final class TangentHyperbolicHardActivationFunction implements Activation
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    for (var i = 0; i < d.length; i++) {
+      d[i] = -1f < v[i] && v[i] < 1f ? 1f : 0f;
+    }
+  }
+
+  @Override
+  public boolean preservesZero() {
+    return true;
+  }
+
   @Override
   public float[] initialize(Random random, int count, int outputSize) {
     return Initialization.shell(random, count, outputSize, UniformInitializer::xavier);
@@ -21,6 +21,14 @@ public final class ThresholdActivationFunction implements ActivationFunction {
     return h;
   }
 
+  @Override
+  public void applyInto(float[] v, float[] h) {
+    for (var i = 0; i < h.length; i++) {
+      var x = v[i];
+      h[i] = x > threshold ? x : value;
+    }
+  }
+
   @Override
   public float[] derivative(float[] v) {
     var d = new float[v.length];
@@ -30,6 +38,18 @@ public final class ThresholdActivationFunction implements ActivationFunction {
     return d;
   }
 
+  @Override
+  public void derivativeInto(float[] h, float[] v, float[] d) {
+    for (var i = 0; i < d.length; i++) {
+      d[i] = v[i] > threshold ? 1f : 0f;
+    }
+  }
+
+  @Override
+  public boolean hasInactiveNeurons() {
+    return true;
+  }
+
   @Override
   public float[] initialize(Random random, int count, int outputSize) {
     return Initialization.shell(random, count, outputSize, UniformInitializer::he);
@@ -5,7 +5,22 @@ import java.util.Arrays;
 record AlignedArrays(float[] h, float[] target, int length) {
 
   static AlignedArrays of(float[] h, float[] target) {
-    var length = Math.max(h.length, target.length);
+    var length = length(h, target);
     return new AlignedArrays(Arrays.copyOf(h, length), Arrays.copyOf(target, length), length);
   }
+
+  /**
+   * @return length of both arrays aligned by {@link #of(float[], float[])}
+   */
+  static int length(float[] h, float[] target) {
+    return Math.max(h.length, target.length);
+  }
+
+  /**
+   * @return {@code values[i]}, or {@code 0} beyond its length like the padding of
+   * {@link #of(float[], float[])}, without copying
+   */
+  static float valueAt(float[] values, int i) {
+    return i < values.length ? values[i] : 0f;
+  }
 }
@@ -13,7 +13,15 @@ public final class BinaryCrossEntropyLossFunction implements LossFunction {
   @Override
   public float[] computeOutputError(float[] v, float[] h, float[] target,
       ActivationFunction activationFunction) {
-    var error = activationFunction.derivative(h, v);
+    var error = new float[h.length];
+    computeOutputErrorInto(v, h, null, target, activationFunction, error);
+    return error;
+  }
+
+  @Override
+  public void computeOutputErrorInto(float[] v, float[] h, float[] intermediates,
+      float[] target, ActivationFunction activationFunction, float[] error) {
+    activationFunction.derivativeInto(h, v, intermediates, error);
 
     var i = 0;
     for (var minLength = Math.min(h.length, target.length); i < minLength; i++) {
@@ -28,18 +36,16 @@ public final class BinaryCrossEntropyLossFunction implements LossFunction {
       var xMxx = x - x * x;
       error[i] *= xMxx == 0f ? 0f : x / xMxx;
     }
-
-    return error;
   }
 
   @Override
   public float computeNetworkError(float[] h, float[] target) {
-    var aligned = AlignedArrays.of(h, target);
+    var length = AlignedArrays.length(h, target);
 
     var loss = 0f;
-    for (var i = 0; i < aligned.length(); i++) {
-      var x = Math.max(EPS, Math.min(1f - EPS, aligned.h()[i]));
-      var y = aligned.target()[i];
+    for (var i = 0; i < length; i++) {
+      var x = Math.max(EPS, Math.min(1f - EPS, AlignedArrays.valueAt(h, i)));
+      var y = AlignedArrays.valueAt(target, i);
       loss -= y * (float) Math.log(x) + (1f - y) * (float) Math.log(1f - x);
     }
 
@@ -29,6 +29,27 @@ public sealed interface LossFunction permits BinaryCrossEntropyLossFunction,
   float[] computeOutputError(float[] v, float[] h, float[] target,
       ActivationFunction activationFunction);
 
+  /**
+   * Same as {@link #computeOutputError(float[], float[], float[], ActivationFunction)}, but writes
+   * into a preallocated buffer without allocating.
+   *
+   * @param error receives the error gradient, must have the same length as {@code h}
+   */
+  default void computeOutputErrorInto(float[] v, float[] h, float[] target,
+      ActivationFunction activationFunction, float[] error) {
+    computeOutputErrorInto(v, h, null, target, activationFunction, error);
+  }
+
+  /**
+   * Same as the overload without {@code intermediates}, but the derivative of
+   * {@code activationFunction} reuses the intermediates kept by the forward pass, see
+   * {@link ActivationFunction#applyInto(float[], float[], float[])}.
+   *
+   * @param intermediates intermediates of the output layer, or {@code null}
+   */
+  void computeOutputErrorInto(float[] v, float[] h, float[] intermediates, float[] target,
+      ActivationFunction activationFunction, float[] error);
+
   /**
    * Computes the network error between the predicted values after activation and the actual output
    * values for a single sample. This function is used to quantify the overall error in training the
@@ -1,6 +1,7 @@
 package edu.yaprnn.networks.loss;
 
 import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.support.FloatKernels;
 
 /**
  * Computes the Mean Squared Error (MSE) and gradients for training neural networks. The MSE is
@@ -11,31 +12,35 @@ public final class MeanSquaredErrorLossFunction implements LossFunction {
   @Override
   public float[] computeOutputError(float[] v, float[] h, float[] target,
       ActivationFunction activationFunction) {
-    var error = activationFunction.derivative(h, v);
+    var error = new float[h.length];
+    computeOutputErrorInto(v, h, null, target, activationFunction, error);
+    return error;
+  }
+
+  @Override
+  public void computeOutputErrorInto(float[] v, float[] h, float[] intermediates,
+      float[] target, ActivationFunction activationFunction, float[] error) {
+    activationFunction.derivativeInto(h, v, intermediates, error);
 
     var normalization = 2f / h.length;
-    var i = 0;
-    for (var minLength = Math.min(h.length, target.length); i < minLength; i++) {
-      error[i] *= normalization * (h[i] - target[i]);
-    }
+    var minLength = Math.min(h.length, target.length);
+    FloatKernels.multiplyByScaledDifference(error, h, target, minLength, normalization);
     // for any remaining h (when target is the smaller array), assume target=0
-    for (; i < h.length; i++) {
+    for (var i = minLength; i < h.length; i++) {
       error[i] *= normalization * h[i];
     }
-
-    return error;
   }
 
   @Override
   public float computeNetworkError(float[] h, float[] target) {
-    var aligned = AlignedArrays.of(h, target);
+    var length = AlignedArrays.length(h, target);
 
     var sumSquaredError = 0f;
-    for (var i = 0; i < aligned.length(); i++) {
-      var residual = aligned.target()[i] - aligned.h()[i];
+    for (var i = 0; i < length; i++) {
+      var residual = AlignedArrays.valueAt(target, i) - AlignedArrays.valueAt(h, i);
       sumSquaredError += residual * residual;
     }
-    return sumSquaredError / aligned.length();
+    return sumSquaredError / length;
   }
 
   @Override
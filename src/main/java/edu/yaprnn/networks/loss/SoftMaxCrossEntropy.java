@@ -0,0 +1,144 @@
+package edu.yaprnn.networks.loss;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.SoftMaxActivationFunction;
+
+/**
+ * Fused output layer of {@link SoftMaxActivationFunction} with
+ * {@link BinaryCrossEntropyLossFunction} or {@link MeanBinaryCrossEntropyLossFunction}. The
+ * derivative of the loss by the SoftMax inputs simplifies to {@code h - target}, so the output
+ * error is computed in a single pass without the diagonal Jacobian of the SoftMax and without
+ * dividing it out again, which also keeps the gradient alive for saturated outputs.
+ *
+ * <p>The loss uses {@code log(h[i]) = v[i] - logSumExp(v)} instead of clamping {@code h}, so it
+ * stays exact for confidently wrong outputs. {@code logSumExp(v)} is taken from the SoftMax
+ * outputs: with {@code m} the index of the largest {@code v}, {@code h[m] = 1 / sum(exp[v - v[m]])}
+ * and therefore {@code logSumExp(v) = v[m] - log(h[m])}, where {@code h[m] >= 1 / h.length} never
+ * underflows. Likewise {@code 1 - h[m]} is summed from the other outputs instead of subtracted from
+ * 1, while all other {@code h[i] <= 1 / 2} need no care.
+ *
+ * <p>Targets shorter than {@code h} are padded with zeros, like in the loss functions.
+ */
+public final class SoftMaxCrossEntropy {
+
+  private static final float EPS = 1e-7f;
+
+  private SoftMaxCrossEntropy() {
+  }
+
+  /**
+   * @return {@code true} if the output layer of {@code activationFunction} with
+   * {@code lossFunction} can be fused
+   */
+  public static boolean isFused(LossFunction lossFunction, ActivationFunction activationFunction) {
+    return activationFunction instanceof SoftMaxActivationFunction && (
+        lossFunction instanceof BinaryCrossEntropyLossFunction
+            || lossFunction instanceof MeanBinaryCrossEntropyLossFunction);
+  }
+
+  /**
+   * Writes {@code h - target} into {@code error}, divided by {@code h.length} for the mean loss.
+   * The loss is left to {@link #computeNetworkError(LossFunction, float[], float[], float[])}.
+   *
+   * @param lossFunction one of the cross-entropy loss functions, see
+   *                     {@link #isFused(LossFunction, ActivationFunction)}
+   * @param h            SoftMax outputs
+   * @param error        receives the error gradient, must have the same length as {@code h}
+   */
+  public static void computeOutputErrorInto(LossFunction lossFunction, float[] h, float[] target,
+      float[] error) {
+    var scale = isMean(lossFunction) ? 1f / h.length : 1f;
+    var i = 0;
+    for (var minLength = Math.min(h.length, target.length); i < minLength; i++) {
+      error[i] = scale * (h[i] - target[i]);
+    }
+    for (; i < h.length; i++) {
+      error[i] = scale * h[i];
+    }
+  }
+
+  /**
+   * @param lossFunction one of the cross-entropy loss functions, see
+   *                     {@link #isFused(LossFunction, ActivationFunction)}
+   * @param v            SoftMax inputs
+   * @param h            SoftMax outputs of {@code v}
+   * @return the loss like {@link LossFunction#computeNetworkError(float[], float[])}
+   */
+  public static float computeNetworkError(LossFunction lossFunction, float[] v, float[] h,
+      float[] target) {
+    var m = argMax(v);
+    var logSumExp = v[m] - (float) Math.log(h[m]);
+    var logOneMinusMax = logOneMinusMax(h, m);
+
+    var loss = 0f;
+    var i = 0;
+    for (var minLength = Math.min(h.length, target.length); i < minLength; i++) {
+      var y = target[i];
+      loss -= y * (v[i] - logSumExp) + (1f - y) * (i == m ? logOneMinusMax
+          : (float) Math.log1p(-h[i]));
+    }
+    for (; i < h.length; i++) {
+      loss -= i == m ? logOneMinusMax : (float) Math.log1p(-h[i]);
+    }
+    return normalize(lossFunction, loss + paddedTargetsLoss(h, target), h, target);
+  }
+
+  /**
+   * Network error of {@code lossFunction}, fused with the output {@code activationFunction} where
+   * {@link #isFused(LossFunction, ActivationFunction)}.
+   *
+   * @param v SoftMax inputs, only read if fused
+   */
+  public static float networkError(LossFunction lossFunction,
+      ActivationFunction activationFunction, float[] v, float[] h, float[] target) {
+    return isFused(lossFunction, activationFunction)
+        ? computeNetworkError(lossFunction, v, h, target)
+        : lossFunction.computeNetworkError(h, target);
+  }
+
+  private static boolean isMean(LossFunction lossFunction) {
+    return lossFunction instanceof MeanBinaryCrossEntropyLossFunction;
+  }
+
+  private static int argMax(float[] v) {
+    var m = 0;
+    for (var i = 1; i < v.length; i++) {
+      if (v[i] > v[m]) {
+        m = i;
+      }
+    }
+    return m;
+  }
+
+  /**
+   * @return {@code log(1 - h[m])} from the sum of all other outputs, limited to the smallest normal
+   * float when they all underflow
+   */
+  private static float logOneMinusMax(float[] h, int m) {
+    var rest = 0f;
+    for (var i = 0; i < h.length; i++) {
+      if (i != m) {
+        rest += h[i];
+      }
+    }
+    return (float) Math.log(Math.max(rest, Float.MIN_NORMAL));
+  }
+
+  /**
+   * Loss of targets beyond {@code h}, where the loss functions assume {@code h = 0} clamped to
+   * {@code EPS}.
+   */
+  private static float paddedTargetsLoss(float[] h, float[] target) {
+    var loss = 0f;
+    for (var i = h.length; i < target.length; i++) {
+      var y = target[i];
+      loss -= y * (float) Math.log(EPS) + (1f - y) * (float) Math.log(1f - EPS);
+    }
+    return loss;
+  }
+
+  private static float normalize(LossFunction lossFunction, float loss, float[] h,
+      float[] target) {
+    return isMean(lossFunction) ? loss / Math.max(h.length, target.length) : loss;
+  }
+}
@@ -0,0 +1,41 @@
+package edu.yaprnn.networks.optimizers;
+
+import edu.yaprnn.support.FloatKernels;
+
+/**
+ * Adam with bias corrected first and second moments of the gradients, see
+ * {@link FloatKernels#adamStep}. With {@code decoupledDecay} it is AdamW, whose weight decay is not
+ * scaled down for weights with large gradients.
+ */
+public record AdamOptimizer(float beta1, float beta2, float epsilon, float decayL1,
+                            float decayL2, boolean decoupledDecay) implements Optimizer {
+
+  public static final float DEFAULT_BETA1 = 0.9f;
+  public static final float DEFAULT_BETA2 = 0.999f;
+  public static final float DEFAULT_EPSILON = 1e-8f;
+
+  public static AdamOptimizer adam(float decayL1, float decayL2) {
+    return new AdamOptimizer(DEFAULT_BETA1, DEFAULT_BETA2, DEFAULT_EPSILON, decayL1, decayL2,
+        false);
+  }
+
+  public static AdamOptimizer adamW(float decayL1, float decayL2) {
+    return new AdamOptimizer(DEFAULT_BETA1, DEFAULT_BETA2, DEFAULT_EPSILON, decayL1, decayL2,
+        true);
+  }
+
+  @Override
+  public int stateBuffers() {
+    return 2;
+  }
+
+  @Override
+  public void update(float[] weights, float[] gradients, float[][] state, int step,
+      float learningRate, int batchSize, int from, int to) {
+    var correction1 = (float) (1d / (1d - Math.pow(beta1, step)));
+    var correction2 = (float) (1d / (1d - Math.pow(beta2, step)));
+    FloatKernels.adamStep(weights, gradients, state[0], state[1], from, to,
+        1f / Math.max(batchSize, 1), learningRate, beta1, beta2, epsilon, correction1,
+        correction2, decayL1, decayL2, decoupledDecay);
+  }
+}
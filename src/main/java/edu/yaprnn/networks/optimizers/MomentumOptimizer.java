@@ -0,0 +1,29 @@
+package edu.yaprnn.networks.optimizers;
+
+import edu.yaprnn.support.FloatKernels;
+
+/**
+ * Stochastic gradient descent with classical momentum, see
+ * {@link FloatKernels#heavyBallStep(float[], float[], float[], float, float, float, float)}. A
+ * momentum of {@code 0} is plain SGD and keeps no buffer.
+ */
+public record MomentumOptimizer(float momentum, float decayL1, float decayL2) implements
+    Optimizer {
+
+  @Override
+  public int stateBuffers() {
+    return momentum != 0f ? 1 : 0;
+  }
+
+  @Override
+  public void update(float[] weights, float[] gradients, float[][] state, int step,
+      float learningRate, int batchSize, int from, int to) {
+    var scaledLearningRate = learningRate / (float) Math.max(batchSize, 1);
+    if (state.length == 0) {
+      FloatKernels.sgdStep(weights, gradients, from, to, scaledLearningRate, decayL1, decayL2);
+    } else {
+      FloatKernels.heavyBallStep(weights, gradients, state[0], from, to, scaledLearningRate,
+          momentum, decayL1, decayL2);
+    }
+  }
+}
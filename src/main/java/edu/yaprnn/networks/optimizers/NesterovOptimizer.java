@@ -0,0 +1,31 @@
+package edu.yaprnn.networks.optimizers;
+
+import edu.yaprnn.support.FloatKernels;
+
+/**
+ * Nesterov momentum in the formulation that only needs the gradients at the current weights, see
+ * {@link FloatKernels#momentumStep(float[], float[], float[], float[], float, float, float, float)}.
+ * Its buffer is the {@code previousLayerGradients} of a
+ * {@link edu.yaprnn.networks.MultiLayerNetwork}, so the momentum persists with the network. Without
+ * momentum it keeps no buffer and takes plain gradient descent steps.
+ */
+public record NesterovOptimizer(float momentum, float decayL1, float decayL2) implements
+    Optimizer {
+
+  @Override
+  public int stateBuffers() {
+    return momentum != 0f ? 1 : 0;
+  }
+
+  @Override
+  public void update(float[] weights, float[] gradients, float[][] state, int step,
+      float learningRate, int batchSize, int from, int to) {
+    var scaledLearningRate = learningRate / (float) Math.max(batchSize, 1);
+    if (state.length == 0) {
+      FloatKernels.sgdStep(weights, gradients, from, to, scaledLearningRate, decayL1, decayL2);
+    } else {
+      FloatKernels.momentumStep(weights, weights, gradients, state[0], from, to,
+          scaledLearningRate, momentum, decayL1, decayL2);
+    }
+  }
+}
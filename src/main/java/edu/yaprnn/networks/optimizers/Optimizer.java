@@ -0,0 +1,32 @@
+package edu.yaprnn.networks.optimizers;
+
+/**
+ * Rule that updates the weights of a layer from its gradients summed over a mini-batch. The
+ * optimizer itself is immutable configuration, the buffers it keeps between steps belong to an
+ * {@link OptimizerState}. Every update runs as one fused, vectorized pass over the weights of a
+ * layer, see the steps of {@link edu.yaprnn.support.FloatKernels}.
+ *
+ * <p>All optimizers add the weight decay {@code decayL1 * signum(w) + decayL2 * 2 * w} to the
+ * gradients, except for AdamW, which subtracts it from the weights separately.
+ */
+public sealed interface Optimizer permits MomentumOptimizer, NesterovOptimizer,
+    AdaGradOptimizer, RmsPropOptimizer, AdamOptimizer {
+
+  /**
+   * @return count of buffers of the size of the weights kept between steps
+   */
+  int stateBuffers();
+
+  /**
+   * Updates the weights in {@code [from, to)} in place. The updates of disjoint ranges of a layer
+   * are independent, so they may run concurrently.
+   *
+   * @param gradients    gradients summed over the samples of the mini-batch
+   * @param state        [{@link #stateBuffers()}][weights.length] buffers of this layer
+   * @param step         count of updates so far including this one, starting at 1
+   * @param learningRate learning rate of the current epoch
+   * @param batchSize    count of samples the gradients are summed over
+   */
+  void update(float[] weights, float[] gradients, float[][] state, int step, float learningRate,
+      int batchSize, int from, int to);
+}
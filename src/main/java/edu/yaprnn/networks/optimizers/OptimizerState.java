@@ -0,0 +1,108 @@
+package edu.yaprnn.networks.optimizers;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Buffers an {@link Optimizer} keeps between the updates of all layers of one network, and the
+ * count of updates so far. The state outlives single epochs, so it is created once per training
+ * and must not be shared between networks.
+ */
+public final class OptimizerState {
+
+  private final Optimizer optimizer;
+  /**
+   * [layerSizes.length - 1][optimizer.stateBuffers()][weights of layer l]
+   */
+  private final float[][][] buffers;
+  private int step;
+
+  private OptimizerState(Optimizer optimizer, float[][][] buffers) {
+    this.optimizer = optimizer;
+    this.buffers = buffers;
+  }
+
+  /**
+   * Creates zeroed buffers for the weights of {@code layerSizes} like
+   * {@link edu.yaprnn.networks.MultiLayerNetwork#getLayerWeights()}.
+   */
+  public static OptimizerState create(Optimizer optimizer, int[] layerSizes) {
+    Objects.requireNonNull(optimizer, "optimizer");
+    Objects.requireNonNull(layerSizes, "layerSizes");
+
+    var buffers = new float[Math.max(layerSizes.length - 1, 0)][optimizer.stateBuffers()][];
+    for (var l = 0; l < buffers.length; l++) {
+      for (var b = 0; b < buffers[l].length; b++) {
+        buffers[l][b] = new float[(layerSizes[l] + 1) * layerSizes[l + 1]];
+      }
+    }
+    return new OptimizerState(optimizer, buffers);
+  }
+
+  /**
+   * Uses {@code layerBuffers} as the only buffer of each layer, e.g. the momentum stored with a
+   * network, so updates write through to them.
+   */
+  public static OptimizerState wrap(Optimizer optimizer, float[][] layerBuffers) {
+    Objects.requireNonNull(optimizer, "optimizer");
+    Objects.requireNonNull(layerBuffers, "layerBuffers");
+    if (optimizer.stateBuffers() != 1) {
+      throw new IllegalArgumentException("optimizer must keep exactly one buffer");
+    }
+
+    var buffers = new float[layerBuffers.length][][];
+    for (var l = 0; l < buffers.length; l++) {
+      buffers[l] = new float[][]{layerBuffers[l]};
+    }
+    return new OptimizerState(optimizer, buffers);
+  }
+
+  public Optimizer optimizer() {
+    return optimizer;
+  }
+
+  /**
+   * @return count of {@link #beginStep()} calls so far
+   */
+  public int step() {
+    return step;
+  }
+
+  /**
+   * Zeroes the buffers and the count of steps, so the next update starts like a fresh state.
+   */
+  public void reset() {
+    for (var layerBuffers : buffers) {
+      for (var buffer : layerBuffers) {
+        Arrays.fill(buffer, 0f);
+      }
+    }
+    step = 0;
+  }
+
+  /**
+   * Starts the update of one mini-batch, before the layers are updated.
+   */
+  public void beginStep() {
+    step++;
+  }
+
+  /**
+   * Updates the weights of layer {@code layerIndex} in place, see
+   * {@link Optimizer#update(float[], float[], float[][], int, float, int, int, int)}.
+   */
+  public void update(int layerIndex, float[] weights, float[] gradients, float learningRate,
+      int batchSize) {
+    update(layerIndex, weights, gradients, learningRate, batchSize, 0, weights.length);
+  }
+
+  /**
+   * Updates the weights in {@code [from, to)} of layer {@code layerIndex} in place. Concurrent
+   * calls for disjoint ranges are safe between two {@link #beginStep()}.
+   */
+  public void update(int layerIndex, float[] weights, float[] gradients, float learningRate,
+      int batchSize, int from, int to) {
+    optimizer.update(weights, gradients, buffers[layerIndex], step, learningRate, batchSize,
+        from, to);
+  }
+}
@@ -0,0 +1,30 @@
+package edu.yaprnn.networks.optimizers;
+
+import edu.yaprnn.support.FloatKernels;
+
+/**
+ * Scales the step of each weight by the root of an exponentially decaying average of its squared
+ * gradients with decay rate {@code rho}, see {@link FloatKernels#rmsPropStep}.
+ */
+public record RmsPropOptimizer(float rho, float epsilon, float decayL1, float decayL2) implements
+    Optimizer {
+
+  public static final float DEFAULT_RHO = 0.9f;
+  public static final float DEFAULT_EPSILON = 1e-8f;
+
+  public static RmsPropOptimizer withDefaults(float decayL1, float decayL2) {
+    return new RmsPropOptimizer(DEFAULT_RHO, DEFAULT_EPSILON, decayL1, decayL2);
+  }
+
+  @Override
+  public int stateBuffers() {
+    return 1;
+  }
+
+  @Override
+  public void update(float[] weights, float[] gradients, float[][] state, int step,
+      float learningRate, int batchSize, int from, int to) {
+    FloatKernels.rmsPropStep(weights, gradients, state[0], from, to,
+        1f / Math.max(batchSize, 1), learningRate, rho, 1f - rho, epsilon, decayL1, decayL2);
+  }
+}
@@ -5,6 +5,7 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.List;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -31,6 +32,9 @@ public final class ImageSample implements Sample {
   private final int inputHeight;
   private final float[] input;
 
+  @Getter(AccessLevel.NONE)
+  private final NonZeroIndices nonZeroInputIndices = new NonZeroIndices();
+
   private static Image createPreviewFrom(int width, int height, float[] values) {
     var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
@@ -107,6 +111,11 @@ public final class ImageSample implements Sample {
     return LABELS.toArray(String[]::new);
   }
 
+  @Override
+  public int[] getNonZeroInputIndices() {
+    return nonZeroInputIndices.of(input);
+  }
+
   @Override
   public Image createPreviewFromOriginal() {
     return createPreviewFrom(originalWidth, originalHeight, original);
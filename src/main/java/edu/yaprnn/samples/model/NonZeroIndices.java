@@ -0,0 +1,21 @@
+package edu.yaprnn.samples.model;
+
+import edu.yaprnn.support.Floats;
+
+/**
+ * Indices of the non-zero values of an immutable input, computed by the first call and shared by
+ * all later ones. Concurrent first calls may compute them more than once, all with the same result.
+ */
+final class NonZeroIndices {
+
+  private volatile int[] indices;
+
+  int[] of(float[] values) {
+    var cached = indices;
+    if (cached == null) {
+      cached = Floats.nonZeroIndices(values);
+      indices = cached;
+    }
+    return cached;
+  }
+}
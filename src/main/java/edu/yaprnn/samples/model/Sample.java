@@ -19,6 +19,12 @@ public sealed interface Sample permits ImageSample, SimpleSample, SoundSample {
 
   float[] getInput();
 
+  /**
+   * @return ascending indices of the non-zero values of {@link #getInput()}, computed once per
+   * sample
+   */
+  int[] getNonZeroInputIndices();
+
   float[] getOriginal();
 
   Image createPreviewFromOriginal();
@@ -5,6 +5,7 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import lombok.Builder;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -18,6 +19,9 @@ public final class SimpleSample implements Sample {
   private final float[] target;
   private final float[] input;
 
+  @Getter(AccessLevel.NONE)
+  private final NonZeroIndices nonZeroInputIndices = new NonZeroIndices();
+
   private static Image createPreviewFrom(float[] values) {
     var image = new BufferedImage(values.length, 1, BufferedImage.TYPE_BYTE_GRAY);
     for (var x = 0; x < values.length; x++) {
@@ -41,6 +45,11 @@ public final class SimpleSample implements Sample {
     return input;
   }
 
+  @Override
+  public int[] getNonZeroInputIndices() {
+    return nonZeroInputIndices.of(input);
+  }
+
   @Override
   public Image createPreviewFromOriginal() {
     return createPreviewFrom(input);
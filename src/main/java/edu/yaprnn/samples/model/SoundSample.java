@@ -5,6 +5,7 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.List;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -26,6 +27,9 @@ public final class SoundSample implements Sample {
   private final float[] input;
   private final float[] original;
 
+  @Getter(AccessLevel.NONE)
+  private final NonZeroIndices nonZeroInputIndices = new NonZeroIndices();
+
   private static Image createPreviewFrom(float[] values) {
     var image = new BufferedImage(values.length, PREVIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
     var scale = PREVIEW_HEIGHT / Floats.max(values);
@@ -100,6 +104,11 @@ public final class SoundSample implements Sample {
     return LABELS_ARRAY;
   }
 
+  @Override
+  public int[] getNonZeroInputIndices() {
+    return nonZeroInputIndices.of(input);
+  }
+
   @Override
   public Image createPreviewFromOriginal() {
     return createPreviewFrom(original);
@@ -0,0 +1,731 @@
+package edu.yaprnn.support;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Dense float kernels of the network math. Each kernel runs on the JDK Vector API with the
+ * preferred species width of the host, or falls back to scalar loops.
+ *
+ * <p>The Vector API is used when the incubator module {@code jdk.incubator.vector} is present and
+ * the system property {@value #SIMD_PROPERTY} is not {@code false}. It can be switched at runtime
+ * with {@link #setSimdEnabled(boolean)}, e.g. to compare both modes in benchmarks.
+ *
+ * <p>Element-wise kernels return bitwise identical results in both modes. Reductions like
+ * {@link #dot} sum lane-wise and the transcendental functions use the Vector API approximations,
+ * so they may differ from the scalar loops in the last bits.
+ *
+ * <p>The {@link MemorySegment} overloads address the segments by float index and compute exactly
+ * like their array counterparts.
+ *
+ * <p>Fast math, enabled by the system property {@value #FAST_MATH_PROPERTY} or
+ * {@link #setFastMathEnabled(boolean)}, replaces the double precision {@link Math#exp} and
+ * {@link Math#tanh} of the transcendental kernels by a float approximation: exp is reduced to
+ * {@code 2^n * exp(r)} with {@code |r| <= ln(2) / 2} and a degree 7 polynomial, and sigmoid and tanh
+ * are built from it. It is computed with the same operations in both SIMD modes, so the results
+ * are bitwise identical. Fast math mainly speeds up the scalar mode and hosts where the Vector API
+ * has no intrinsic for {@code EXP} and {@code TANH}; on x86 with the vector math library of the
+ * JDK, the SIMD kernels are faster without it. The maximum errors against the double precision
+ * functions are:
+ *
+ * <table>
+ *   <caption>Maximum errors of fast math</caption>
+ *   <tr><th>kernel</th><th>error</th></tr>
+ *   <tr><td>exp</td><td>{@value #FAST_EXP_MAX_RELATIVE_ERROR} relative in
+ *   [{@value #FAST_EXP_MIN}, {@value #FAST_EXP_MAX}], clamped to this range outside</td></tr>
+ *   <tr><td>sigmoid</td><td>{@value #FAST_SIGMOID_MAX_ERROR} absolute</td></tr>
+ *   <tr><td>tanh</td><td>{@value #FAST_TANH_MAX_ERROR} absolute</td></tr>
+ *   <tr><td>GeLU, Swish</td><td>the error of tanh respectively sigmoid times {@code |v|}</td></tr>
+ * </table>
+ */
+public final class FloatKernels {
+
+  public static final String SIMD_PROPERTY = "yaprnn.simd";
+  public static final String FAST_MATH_PROPERTY = "yaprnn.fastmath";
+
+  static final float FAST_EXP_MIN = -87.33654f;
+  static final float FAST_EXP_MAX = 88f;
+  static final float FAST_EXP_MAX_RELATIVE_ERROR = 1.5e-7f;
+  static final float FAST_SIGMOID_MAX_ERROR = 1.5e-7f;
+  static final float FAST_TANH_MAX_ERROR = 1.5e-7f;
+
+  /**
+   * {@code 1.5 * 2^23}, adding it rounds floats below {@code 2^22} to integers
+   */
+  static final float ROUNDING_SHIFT = 12582912f;
+  static final int ROUNDING_SHIFT_BITS = Float.floatToRawIntBits(ROUNDING_SHIFT);
+  static final float LOG2_E = 1.442695f;
+  /**
+   * ln(2) split into a high part with few mantissa bits, so {@code n * LN_2_HIGH} is exact
+   */
+  static final float LN_2_HIGH = 0.693359375f;
+  static final float LN_2_LOW = -2.12194440e-4f;
+  /**
+   * Minimax coefficients of {@code (exp(r) - 1 - r) / r^2} on {@code [-ln(2) / 2, ln(2) / 2]} from
+   * the Cephes expf
+   */
+  static final float EXP_P0 = 5.0000001201e-1f;
+  static final float EXP_P1 = 1.6666665459e-1f;
+  static final float EXP_P2 = 4.1665795894e-2f;
+  static final float EXP_P3 = 8.3334519073e-3f;
+  static final float EXP_P4 = 1.3981999507e-3f;
+  static final float EXP_P5 = 1.9875691500e-4f;
+
+  /**
+   * {@code sqrt(2 / pi)} of the tanh approximation of GeLU
+   */
+  static final float GELU_SCALE = 0.7978845608028654f;
+  /**
+   * Approximation constant from Hendrycks &amp; Gimpel (2016), Section 2,
+   * <a href="https://arxiv.org/pdf/1606.08415">...</a>
+   */
+  static final float GELU_ALPHA = 0.044715f;
+  static final float GELU_DERIVATIVE_ALPHA = GELU_SCALE * 3f * GELU_ALPHA;
+
+  private static final boolean SIMD_AVAILABLE = ModuleLayer.boot()
+      .findModule("jdk.incubator.vector")
+      .isPresent();
+
+  private static volatile boolean simdEnabled =
+      SIMD_AVAILABLE && !"false".equalsIgnoreCase(System.getProperty(SIMD_PROPERTY));
+
+  private static volatile boolean fastMathEnabled = Boolean.getBoolean(FAST_MATH_PROPERTY);
+
+  private FloatKernels() {
+  }
+
+  public static boolean isSimdAvailable() {
+    return SIMD_AVAILABLE;
+  }
+
+  public static boolean isSimdEnabled() {
+    return simdEnabled;
+  }
+
+  public static void setSimdEnabled(boolean enabled) {
+    if (enabled && !SIMD_AVAILABLE) {
+      throw new IllegalStateException("jdk.incubator.vector module is not available");
+    }
+    simdEnabled = enabled;
+  }
+
+  public static boolean isFastMathEnabled() {
+    return fastMathEnabled;
+  }
+
+  public static void setFastMathEnabled(boolean enabled) {
+    fastMathEnabled = enabled;
+  }
+
+  /**
+   * Fast math approximation of {@code exp(x)}, see the class comment.
+   */
+  static float fastExp(float x) {
+    // comparisons instead of Math.min and Math.max, which are slower on scalars
+    var clamped = x < FAST_EXP_MIN ? FAST_EXP_MIN : x > FAST_EXP_MAX ? FAST_EXP_MAX : x;
+    var shifted = clamped * LOG2_E + ROUNDING_SHIFT;
+    var n = shifted - ROUNDING_SHIFT;
+    var r = clamped - n * LN_2_HIGH - n * LN_2_LOW;
+    var p = ((((EXP_P5 * r + EXP_P4) * r + EXP_P3) * r + EXP_P2) * r + EXP_P1) * r + EXP_P0;
+    var powerOfTwo = Float.intBitsToFloat(
+        (Float.floatToRawIntBits(shifted) - ROUNDING_SHIFT_BITS + 127) << 23);
+    return (p * r * r + r + 1f) * powerOfTwo;
+  }
+
+  /**
+   * Fast math approximation of {@code 1 / (1 + exp(-x))}
+   */
+  static float fastSigmoid(float x) {
+    return 1f / (1f + fastExp(-x));
+  }
+
+  /**
+   * Fast math approximation of {@code tanh(x) = sign(x) * (1 - exp(-2|x|)) / (1 + exp(-2|x|))}
+   */
+  static float fastTanh(float x) {
+    var t = fastExp(-2f * Math.abs(x));
+    return Math.copySign((1f - t) / (1f + t), x);
+  }
+
+  private static float exp(float x, boolean fast) {
+    return fast ? fastExp(x) : (float) Math.exp(x);
+  }
+
+  private static float sigmoid(float x, boolean fast) {
+    return fast ? fastSigmoid(x) : 1f / (1f + (float) Math.exp(-x));
+  }
+
+  private static float tanh(float x, boolean fast) {
+    return fast ? fastTanh(x) : (float) Math.tanh(x);
+  }
+
+  /**
+   * {@code y[yOffset + i] += x[xOffset + i] * a} for {@code i} in {@code [0, length)}
+   */
+  public static void axpy(float a, float[] x, int xOffset, float[] y, int yOffset, int length) {
+    if (simdEnabled) {
+      VectorFloatKernels.axpy(a, x, xOffset, y, yOffset, length);
+      return;
+    }
+
+    for (var i = 0; i < length; i++) {
+      y[yOffset + i] += x[xOffset + i] * a;
+    }
+  }
+
+  /**
+   * @return sum of {@code x[xOffset + i] * y[yOffset + i]} for {@code i} in {@code [0, length)}
+   */
+  public static float dot(float[] x, int xOffset, float[] y, int yOffset, int length) {
+    if (simdEnabled) {
+      return VectorFloatKernels.dot(x, xOffset, y, yOffset, length);
+    }
+
+    var sum = 0f;
+    for (var i = 0; i < length; i++) {
+      sum += x[xOffset + i] * y[yOffset + i];
+    }
+    return sum;
+  }
+
+  /**
+   * {@code y[yOffset + i] += x[xIndex + i] * a} for {@code i} in {@code [0, length)}
+   */
+  public static void axpy(float a, MemorySegment x, long xIndex, float[] y, int yOffset,
+      int length) {
+    if (simdEnabled) {
+      VectorFloatKernels.axpy(a, x, xIndex, y, yOffset, length);
+      return;
+    }
+
+    for (var i = 0; i < length; i++) {
+      y[yOffset + i] += x.getAtIndex(ValueLayout.JAVA_FLOAT, xIndex + i) * a;
+    }
+  }
+
+  /**
+   * {@code y[yIndex + i] += x[xOffset + i] * a} for {@code i} in {@code [0, length)}
+   */
+  public static void axpy(float a, float[] x, int xOffset, MemorySegment y, long yIndex,
+      int length) {
+    if (simdEnabled) {
+      VectorFloatKernels.axpy(a, x, xOffset, y, yIndex, length);
+      return;
+    }
+
+    for (var i = 0; i < length; i++) {
+      var index = yIndex + i;
+      y.setAtIndex(ValueLayout.JAVA_FLOAT, index,
+          y.getAtIndex(ValueLayout.JAVA_FLOAT, index) + x[xOffset + i] * a);
+    }
+  }
+
+  /**
+   * @return sum of {@code x[xIndex + i] * y[yOffset + i]} for {@code i} in {@code [0, length)}
+   */
+  public static float dot(MemorySegment x, long xIndex, float[] y, int yOffset, int length) {
+    if (simdEnabled) {
+      return VectorFloatKernels.dot(x, xIndex, y, yOffset, length);
+    }
+
+    var sum = 0f;
+    for (var i = 0; i < length; i++) {
+      sum += x.getAtIndex(ValueLayout.JAVA_FLOAT, xIndex + i) * y[yOffset + i];
+    }
+    return sum;
+  }
+
+  /**
+   * {@code accumulator[i] += values[i]}
+   */
+  public static void addInPlace(float[] accumulator, float[] values) {
+    addInPlace(accumulator, values, 0, accumulator.length);
+  }
+
+  /**
+   * {@code accumulator[i] += values[i]} for {@code i} in {@code [from, to)}
+   */
+  public static void addInPlace(float[] accumulator, float[] values, int from, int to) {
+    if (simdEnabled) {
+      VectorFloatKernels.addInPlace(accumulator, values, from, to);
+      return;
+    }
+
+    for (var i = from; i < to; i++) {
+      accumulator[i] += values[i];
+    }
+  }
+
+  /**
+   * {@code accumulator[i] += values[i]} for {@code i} in {@code [from, to)}
+   */
+  public static void addInPlace(MemorySegment accumulator, MemorySegment values, int from,
+      int to) {
+    if (simdEnabled) {
+      VectorFloatKernels.addInPlace(accumulator, values, from, to);
+      return;
+    }
+
+    for (var i = from; i < to; i++) {
+      accumulator.setAtIndex(ValueLayout.JAVA_FLOAT, i,
+          accumulator.getAtIndex(ValueLayout.JAVA_FLOAT, i)
+              + values.getAtIndex(ValueLayout.JAVA_FLOAT, i));
+    }
+  }
+
+  /**
+   * {@code d[i] *= scale * (h[i] - target[i])} for {@code i} in {@code [0, length)}
+   */
+  public static void multiplyByScaledDifference(float[] d, float[] h, float[] target, int length,
+      float scale) {
+    if (simdEnabled) {
+      VectorFloatKernels.multiplyByScaledDifference(d, h, target, length, scale);
+      return;
+    }
+
+    for (var i = 0; i < length; i++) {
+      d[i] *= scale * (h[i] - target[i]);
+    }
+  }
+
+  /**
+   * Momentum step with L1 and L2 weight decay, reading the weights from {@code weights} and writing
+   * them to {@code targetWeights}, which may be the same array.
+   *
+   * <pre>
+   * decay = decayL1 * signum(w) + decayL2 * 2 * w
+   * gradient = momentum * previousGradient - learningRate * (gradient + decay)
+   * w += (1 + momentum) * gradient - momentum * previousGradient
+   * previousGradient = gradient
+   * </pre>
+   */
+  public static void momentumStep(float[] weights, float[] targetWeights, float[] gradients,
+      float[] previousGradients, float learningRate, float momentum, float decayL1,
+      float decayL2) {
+    momentumStep(weights, targetWeights, gradients, previousGradients, 0, weights.length,
+        learningRate, momentum, decayL1, decayL2);
+  }
+
+  /**
+   * Like {@link #momentumStep(float[], float[], float[], float[], float, float, float, float)} for
+   * the weights in {@code [from, to)}.
+   */
+  public static void momentumStep(float[] weights, float[] targetWeights, float[] gradients,
+      float[] previousGradients, int from, int to, float learningRate, float momentum,
+      float decayL1, float decayL2) {
+    if (simdEnabled) {
+      VectorFloatKernels.momentumStep(weights, targetWeights, gradients, previousGradients, from,
+          to, learningRate, momentum, decayL1, decayL2);
+      return;
+    }
+
+    for (var w = from; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var gradient = momentum * previousGradients[w] - learningRate * (gradients[w] + decay);
+      targetWeights[w] += (1f + momentum) * gradient - momentum * previousGradients[w];
+      previousGradients[w] = gradient;
+    }
+  }
+
+  /**
+   * Like {@link #momentumStep(float[], float[], float[], float[], float, float, float, float)}
+   * updating the first {@code length} weights in place.
+   */
+  public static void momentumStep(MemorySegment weights, MemorySegment gradients,
+      MemorySegment previousGradients, int length, float learningRate, float momentum,
+      float decayL1, float decayL2) {
+    if (simdEnabled) {
+      VectorFloatKernels.momentumStep(weights, gradients, previousGradients, length, learningRate,
+          momentum, decayL1, decayL2);
+      return;
+    }
+
+    for (var w = 0; w < length; w++) {
+      var weight = weights.getAtIndex(ValueLayout.JAVA_FLOAT, w);
+      var previousGradient = previousGradients.getAtIndex(ValueLayout.JAVA_FLOAT, w);
+      var decay = decayL1 * Math.signum(weight) + decayL2 * 2f * weight;
+      var gradient = momentum * previousGradient - learningRate * (
+          gradients.getAtIndex(ValueLayout.JAVA_FLOAT, w) + decay);
+      weights.setAtIndex(ValueLayout.JAVA_FLOAT, w,
+          weight + ((1f + momentum) * gradient - momentum * previousGradient));
+      previousGradients.setAtIndex(ValueLayout.JAVA_FLOAT, w, gradient);
+    }
+  }
+
+  /**
+   * Plain gradient descent step with L1 and L2 weight decay for the weights in {@code [from, to)},
+   * the same as a momentum step with a momentum of {@code 0} without writing any momentum.
+   *
+   * <pre>
+   * decay = decayL1 * signum(w) + decayL2 * 2 * w
+   * w -= learningRate * (gradient + decay)
+   * </pre>
+   */
+  public static void sgdStep(float[] weights, float[] gradients, int from, int to,
+      float learningRate, float decayL1, float decayL2) {
+    if (simdEnabled) {
+      VectorFloatKernels.sgdStep(weights, gradients, from, to, learningRate, decayL1, decayL2);
+      return;
+    }
+
+    for (var w = from; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      weights[w] -= learningRate * (gradients[w] + decay);
+    }
+  }
+
+  /**
+   * Classical momentum step with L1 and L2 weight decay, updating the weights in place.
+   *
+   * <pre>
+   * decay = decayL1 * signum(w) + decayL2 * 2 * w
+   * velocity = momentum * velocity - learningRate * (gradient + decay)
+   * w += velocity
+   * </pre>
+   */
+  public static void heavyBallStep(float[] weights, float[] gradients, float[] velocities,
+      float learningRate, float momentum, float decayL1, float decayL2) {
+    heavyBallStep(weights, gradients, velocities, 0, weights.length, learningRate, momentum,
+        decayL1, decayL2);
+  }
+
+  /**
+   * Like {@link #heavyBallStep(float[], float[], float[], float, float, float, float)} for the
+   * weights in {@code [from, to)}.
+   */
+  public static void heavyBallStep(float[] weights, float[] gradients, float[] velocities,
+      int from, int to, float learningRate, float momentum, float decayL1, float decayL2) {
+    if (simdEnabled) {
+      VectorFloatKernels.heavyBallStep(weights, gradients, velocities, from, to, learningRate,
+          momentum, decayL1, decayL2);
+      return;
+    }
+
+    for (var w = from; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var velocity = momentum * velocities[w] - learningRate * (gradients[w] + decay);
+      weights[w] += velocity;
+      velocities[w] = velocity;
+    }
+  }
+
+  /**
+   * Step scaled by the root of a running average of squared gradients, updating the weights in
+   * place. RMSProp uses {@code gain = 1 - rho}, AdaGrad sums up all squared gradients with
+   * {@code rho = gain = 1}.
+   *
+   * <pre>
+   * decay = decayL1 * signum(w) + decayL2 * 2 * w
+   * g = gradientScale * gradient + decay
+   * average = rho * average + gain * g * g
+   * w -= learningRate * g / (sqrt(average) + epsilon)
+   * </pre>
+   */
+  public static void rmsPropStep(float[] weights, float[] gradients, float[] averages,
+      float gradientScale, float learningRate, float rho, float gain, float epsilon,
+      float decayL1, float decayL2) {
+    rmsPropStep(weights, gradients, averages, 0, weights.length, gradientScale, learningRate, rho,
+        gain, epsilon, decayL1, decayL2);
+  }
+
+  /**
+   * Like {@link #rmsPropStep(float[], float[], float[], float, float, float, float, float, float,
+   * float)} for the weights in {@code [from, to)}.
+   */
+  public static void rmsPropStep(float[] weights, float[] gradients, float[] averages, int from,
+      int to, float gradientScale, float learningRate, float rho, float gain, float epsilon,
+      float decayL1, float decayL2) {
+    if (simdEnabled) {
+      VectorFloatKernels.rmsPropStep(weights, gradients, averages, from, to, gradientScale,
+          learningRate, rho, gain, epsilon, decayL1, decayL2);
+      return;
+    }
+
+    for (var w = from; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var g = gradientScale * gradients[w] + decay;
+      var average = rho * averages[w] + gain * (g * g);
+      weights[w] -= learningRate * (g / ((float) Math.sqrt(average) + epsilon));
+      averages[w] = average;
+    }
+  }
+
+  /**
+   * Adam step, updating the weights in place. The bias corrections are
+   * {@code 1 / (1 - beta^step)} of the current step. AdamW applies the decay decoupled from the
+   * adaptive scaling.
+   *
+   * <pre>
+   * decay = decayL1 * signum(w) + decayL2 * 2 * w
+   * g = gradientScale * gradient + (decoupledDecay ? 0 : decay)
+   * m = beta1 * m + (1 - beta1) * g
+   * v = beta2 * v + (1 - beta2) * g * g
+   * w -= learningRate * (m * correction1 / (sqrt(v * correction2) + epsilon)
+   *     + (decoupledDecay ? decay : 0))
+   * </pre>
+   */
+  public static void adamStep(float[] weights, float[] gradients, float[] firstMoments,
+      float[] secondMoments, float gradientScale, float learningRate, float beta1, float beta2,
+      float epsilon, float correction1, float correction2, float decayL1, float decayL2,
+      boolean decoupledDecay) {
+    adamStep(weights, gradients, firstMoments, secondMoments, 0, weights.length, gradientScale,
+        learningRate, beta1, beta2, epsilon, correction1, correction2, decayL1, decayL2,
+        decoupledDecay);
+  }
+
+  /**
+   * Like {@link #adamStep(float[], float[], float[], float[], float, float, float, float, float,
+   * float, float, float, float, boolean)} for the weights in {@code [from, to)}.
+   */
+  public static void adamStep(float[] weights, float[] gradients, float[] firstMoments,
+      float[] secondMoments, int from, int to, float gradientScale, float learningRate,
+      float beta1, float beta2, float epsilon, float correction1, float correction2,
+      float decayL1, float decayL2, boolean decoupledDecay) {
+    if (simdEnabled) {
+      VectorFloatKernels.adamStep(weights, gradients, firstMoments, secondMoments, from, to,
+          gradientScale, learningRate, beta1, beta2, epsilon, correction1, correction2, decayL1,
+          decayL2, decoupledDecay);
+      return;
+    }
+
+    var coupled = decoupledDecay ? 0f : 1f;
+    var decoupled = 1f - coupled;
+    for (var w = from; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var g = gradientScale * gradients[w] + coupled * decay;
+      var m = beta1 * firstMoments[w] + (1f - beta1) * g;
+      var v = beta2 * secondMoments[w] + (1f - beta2) * (g * g);
+      weights[w] -= learningRate * (m * correction1 / ((float) Math.sqrt(v * correction2)
+          + epsilon) + decoupled * decay);
+      firstMoments[w] = m;
+      secondMoments[w] = v;
+    }
+  }
+
+  /**
+   * {@code h[i] = max(v[i], 0)}
+   */
+  public static void reluInto(float[] v, float[] h) {
+    if (simdEnabled) {
+      VectorFloatKernels.reluInto(v, h);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      h[i] = Math.max(v[i], 0f);
+    }
+  }
+
+  /**
+   * {@code h[i] = 1 / (1 + exp(-v[i]))}
+   */
+  public static void sigmoidInto(float[] v, float[] h) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.sigmoidInto(v, h, fast);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      h[i] = sigmoid(v[i], fast);
+    }
+  }
+
+  /**
+   * {@code h[i] = tanh(v[i])}
+   */
+  public static void tanhInto(float[] v, float[] h) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.tanhInto(v, h, fast);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      h[i] = tanh(v[i], fast);
+    }
+  }
+
+  /**
+   * {@code h[i] = exp(v[i] - shift)}, e.g. with the maximum of {@code v} as {@code shift} to keep
+   * SoftMax from overflowing
+   *
+   * @return sum of all {@code h[i]}
+   */
+  public static float expInto(float[] v, float shift, float[] h) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      return VectorFloatKernels.expInto(v, shift, h, fast);
+    }
+
+    var sum = 0f;
+    for (var i = 0; i < h.length; i++) {
+      sum += (h[i] = exp(v[i] - shift, fast));
+    }
+    return sum;
+  }
+
+  /**
+   * {@code h[i] = v[i] / 2 * (1 + tanh(sqrt(2 / pi) * (v[i] + 0.044715 * v[i]^3)))}, the tanh
+   * approximation of GeLU
+   */
+  public static void geluInto(float[] v, float[] h) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.geluInto(v, h, fast);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      var x = v[i];
+      h[i] = 0.5f * x * (1f + tanh(GELU_SCALE * (x + GELU_ALPHA * x * x * x), fast));
+    }
+  }
+
+  /**
+   * Derivative of {@link #geluInto(float[], float[])} by its inputs {@code v}
+   */
+  public static void geluDerivativeInto(float[] v, float[] d) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.geluDerivativeInto(v, d, fast);
+      return;
+    }
+
+    for (var i = 0; i < d.length; i++) {
+      var x = v[i];
+      var t = tanh(GELU_SCALE * (x + GELU_ALPHA * x * x * x), fast);
+      d[i] = 0.5f * (1f + t + (x - x * t * t) * (GELU_SCALE + GELU_DERIVATIVE_ALPHA * x * x));
+    }
+  }
+
+  /**
+   * Same as {@link #geluInto(float[], float[])}, but also keeps the tanh term of each output in
+   * {@code t} for {@link #geluDerivativeFromTanhInto(float[], float[], float[])}
+   */
+  public static void geluInto(float[] v, float[] h, float[] t) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.geluInto(v, h, t, fast);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      var x = v[i];
+      h[i] = 0.5f * x * (1f + (t[i] = tanh(GELU_SCALE * (x + GELU_ALPHA * x * x * x), fast)));
+    }
+  }
+
+  /**
+   * Same as {@link #geluDerivativeInto(float[], float[])}, but takes the tanh terms {@code t} kept
+   * by {@link #geluInto(float[], float[], float[])} instead of evaluating tanh again
+   */
+  public static void geluDerivativeFromTanhInto(float[] v, float[] t, float[] d) {
+    if (simdEnabled) {
+      VectorFloatKernels.geluDerivativeFromTanhInto(v, t, d);
+      return;
+    }
+
+    for (var i = 0; i < d.length; i++) {
+      var x = v[i];
+      var ti = t[i];
+      d[i] = 0.5f * (1f + ti + (x - x * ti * ti) * (GELU_SCALE + GELU_DERIVATIVE_ALPHA * x * x));
+    }
+  }
+
+  /**
+   * {@code h[i] = v[i] * sigmoid(beta * v[i])}
+   */
+  public static void swishInto(float beta, float[] v, float[] h) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.swishInto(beta, v, h, fast);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      var x = v[i];
+      h[i] = x * sigmoid(beta * x, fast);
+    }
+  }
+
+  /**
+   * {@code d[i] = s + beta * h[i] * (1 - s)} with {@code s = sigmoid(beta * v[i])}, the derivative
+   * of {@link #swishInto(float, float[], float[])} by its inputs and outputs
+   */
+  public static void swishDerivativeInto(float beta, float[] h, float[] v, float[] d) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.swishDerivativeInto(beta, h, v, d, fast);
+      return;
+    }
+
+    for (var i = 0; i < d.length; i++) {
+      var s = sigmoid(beta * v[i], fast);
+      d[i] = s + beta * h[i] * (1f - s);
+    }
+  }
+
+  /**
+   * Same as {@link #swishInto(float, float[], float[])}, but also keeps the sigmoid of each output
+   * in {@code s} for {@link #swishDerivativeFromSigmoidInto(float, float[], float[], float[])}
+   */
+  public static void swishInto(float beta, float[] v, float[] h, float[] s) {
+    var fast = fastMathEnabled;
+    if (simdEnabled) {
+      VectorFloatKernels.swishInto(beta, v, h, s, fast);
+      return;
+    }
+
+    for (var i = 0; i < h.length; i++) {
+      var x = v[i];
+      h[i] = x * (s[i] = sigmoid(beta * x, fast));
+    }
+  }
+
+  /**
+   * Same as {@link #swishDerivativeInto(float, float[], float[], float[])}, but takes the sigmoids
+   * {@code s} kept by {@link #swishInto(float, float[], float[], float[])} instead of evaluating
+   * them again
+   */
+  public static void swishDerivativeFromSigmoidInto(float beta, float[] h, float[] s, float[] d) {
+    if (simdEnabled) {
+      VectorFloatKernels.swishDerivativeFromSigmoidInto(beta, h, s, d);
+      return;
+    }
+
+    for (var i = 0; i < d.length; i++) {
+      var si = s[i];
+      d[i] = si + beta * h[i] * (1f - si);
+    }
+  }
+
+  /**
+   * {@code d[i] = h[i] * (1 - h[i])}, the derivative of the sigmoid by its outputs
+   */
+  public static void sigmoidDerivativeInto(float[] h, float[] d) {
+    if (simdEnabled) {
+      VectorFloatKernels.sigmoidDerivativeInto(h, d);
+      return;
+    }
+
+    for (var i = 0; i < d.length; i++) {
+      var y = h[i];
+      d[i] = y * (1f - y);
+    }
+  }
+
+  /**
+   * {@code d[i] = 1 - h[i] * h[i]}, the derivative of tanh by its outputs
+   */
+  public static void tanhDerivativeInto(float[] h, float[] d) {
+    if (simdEnabled) {
+      VectorFloatKernels.tanhDerivativeInto(h, d);
+      return;
+    }
+
+    for (var i = 0; i < d.length; i++) {
+      d[i] = 1f - h[i] * h[i];
+    }
+  }
+}
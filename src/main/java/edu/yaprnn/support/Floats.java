@@ -42,6 +42,26 @@ public final class Floats {
     return max;
   }
 
+  /**
+   * @return ascending indices of the values that are not {@code 0f} or {@code -0f}
+   */
+  public static int[] nonZeroIndices(float[] array) {
+    var count = 0;
+    for (var value : array) {
+      if (value != 0f) {
+        count++;
+      }
+    }
+
+    var indices = new int[count];
+    for (int i = 0, n = 0; n < count; i++) {
+      if (array[i] != 0f) {
+        indices[n++] = i;
+      }
+    }
+    return indices;
+  }
+
   public static boolean haveMaxAtSameIndex(float[] h, float[] target) {
     if (h.length == 0) {
       throw new IllegalArgumentException("arrays must not be empty");
@@ -14,9 +14,17 @@ public final class JacksonConfigurer {
 
   private ObjectMapper objectMapper;
 
+  /**
+   * Creates a mapper configured like {@link #getObjectMapper()}, for processes that run without
+   * the container, like the training workers.
+   */
+  public static ObjectMapper createObjectMapper() {
+    return new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+  }
+
   @PostConstruct
   void postConstruct() {
-    objectMapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    objectMapper = createObjectMapper();
   }
 
   @Named(YAPRNN_OBJECT_MAPPER_BEAN)
@@ -0,0 +1,532 @@
+package edu.yaprnn.support;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementations of {@link FloatKernels}. Only loaded when the incubator module is
+ * present, so no other class may reference it.
+ */
+final class VectorFloatKernels {
+
+  private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+  private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+  private static final int SIGN_BIT = 0x80000000;
+
+  private VectorFloatKernels() {
+  }
+
+  static void axpy(float a, float[] x, int xOffset, float[] y, int yOffset, int length) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+      var vx = FloatVector.fromArray(SPECIES, x, xOffset + i);
+      var vy = FloatVector.fromArray(SPECIES, y, yOffset + i);
+      vy.add(vx.mul(a)).intoArray(y, yOffset + i);
+    }
+    for (; i < length; i++) {
+      y[yOffset + i] += x[xOffset + i] * a;
+    }
+  }
+
+  static float dot(float[] x, int xOffset, float[] y, int yOffset, int length) {
+    var sums = FloatVector.zero(SPECIES);
+    var i = 0;
+    for (var upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+      var vx = FloatVector.fromArray(SPECIES, x, xOffset + i);
+      var vy = FloatVector.fromArray(SPECIES, y, yOffset + i);
+      sums = vx.fma(vy, sums);
+    }
+    var sum = sums.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += x[xOffset + i] * y[yOffset + i];
+    }
+    return sum;
+  }
+
+  static void axpy(float a, MemorySegment x, long xIndex, float[] y, int yOffset, int length) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+      var vx = FloatVector.fromMemorySegment(SPECIES, x, (xIndex + i) * Float.BYTES, ORDER);
+      var vy = FloatVector.fromArray(SPECIES, y, yOffset + i);
+      vy.add(vx.mul(a)).intoArray(y, yOffset + i);
+    }
+    for (; i < length; i++) {
+      y[yOffset + i] += x.getAtIndex(ValueLayout.JAVA_FLOAT, xIndex + i) * a;
+    }
+  }
+
+  static void axpy(float a, float[] x, int xOffset, MemorySegment y, long yIndex, int length) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+      var offset = (yIndex + i) * Float.BYTES;
+      var vx = FloatVector.fromArray(SPECIES, x, xOffset + i);
+      var vy = FloatVector.fromMemorySegment(SPECIES, y, offset, ORDER);
+      vy.add(vx.mul(a)).intoMemorySegment(y, offset, ORDER);
+    }
+    for (; i < length; i++) {
+      var index = yIndex + i;
+      y.setAtIndex(ValueLayout.JAVA_FLOAT, index,
+          y.getAtIndex(ValueLayout.JAVA_FLOAT, index) + x[xOffset + i] * a);
+    }
+  }
+
+  static float dot(MemorySegment x, long xIndex, float[] y, int yOffset, int length) {
+    var sums = FloatVector.zero(SPECIES);
+    var i = 0;
+    for (var upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+      var vx = FloatVector.fromMemorySegment(SPECIES, x, (xIndex + i) * Float.BYTES, ORDER);
+      var vy = FloatVector.fromArray(SPECIES, y, yOffset + i);
+      sums = vx.fma(vy, sums);
+    }
+    var sum = sums.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += x.getAtIndex(ValueLayout.JAVA_FLOAT, xIndex + i) * y[yOffset + i];
+    }
+    return sum;
+  }
+
+  static void addInPlace(MemorySegment accumulator, MemorySegment values, int from, int to) {
+    var i = from;
+    for (var upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+      var offset = (long) i * Float.BYTES;
+      var va = FloatVector.fromMemorySegment(SPECIES, accumulator, offset, ORDER);
+      va.add(FloatVector.fromMemorySegment(SPECIES, values, offset, ORDER))
+          .intoMemorySegment(accumulator, offset, ORDER);
+    }
+    for (; i < to; i++) {
+      accumulator.setAtIndex(ValueLayout.JAVA_FLOAT, i,
+          accumulator.getAtIndex(ValueLayout.JAVA_FLOAT, i)
+              + values.getAtIndex(ValueLayout.JAVA_FLOAT, i));
+    }
+  }
+
+  static void addInPlace(float[] accumulator, float[] values, int from, int to) {
+    var i = from;
+    for (var upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+      var va = FloatVector.fromArray(SPECIES, accumulator, i);
+      va.add(FloatVector.fromArray(SPECIES, values, i)).intoArray(accumulator, i);
+    }
+    for (; i < to; i++) {
+      accumulator[i] += values[i];
+    }
+  }
+
+  static void multiplyByScaledDifference(float[] d, float[] h, float[] target, int length,
+      float scale) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(length); i < upper; i += SPECIES.length()) {
+      var difference = FloatVector.fromArray(SPECIES, h, i)
+          .sub(FloatVector.fromArray(SPECIES, target, i));
+      FloatVector.fromArray(SPECIES, d, i).mul(difference.mul(scale)).intoArray(d, i);
+    }
+    for (; i < length; i++) {
+      d[i] *= scale * (h[i] - target[i]);
+    }
+  }
+
+  static void momentumStep(float[] weights, float[] targetWeights, float[] gradients,
+      float[] previousGradients, int from, int to, float learningRate, float momentum,
+      float decayL1, float decayL2) {
+    var decayL2Twice = decayL2 * 2f;
+    var momentumPlusOne = 1f + momentum;
+    var w = from;
+    for (var upper = from + SPECIES.loopBound(to - from); w < upper; w += SPECIES.length()) {
+      var weight = FloatVector.fromArray(SPECIES, weights, w);
+      var previous = FloatVector.fromArray(SPECIES, previousGradients, w);
+      var signum = weight.blend(1f, weight.compare(VectorOperators.GT, 0f))
+          .blend(-1f, weight.compare(VectorOperators.LT, 0f));
+      var decay = signum.mul(decayL1).add(weight.mul(decayL2Twice));
+      var previousMomentum = previous.mul(momentum);
+      var gradient = previousMomentum.sub(
+          FloatVector.fromArray(SPECIES, gradients, w).add(decay).mul(learningRate));
+      FloatVector.fromArray(SPECIES, targetWeights, w)
+          .add(gradient.mul(momentumPlusOne).sub(previousMomentum))
+          .intoArray(targetWeights, w);
+      gradient.intoArray(previousGradients, w);
+    }
+    for (; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var gradient = momentum * previousGradients[w] - learningRate * (gradients[w] + decay);
+      targetWeights[w] += (1f + momentum) * gradient - momentum * previousGradients[w];
+      previousGradients[w] = gradient;
+    }
+  }
+
+  static void sgdStep(float[] weights, float[] gradients, int from, int to, float learningRate,
+      float decayL1, float decayL2) {
+    var decayL2Twice = decayL2 * 2f;
+    var w = from;
+    for (var upper = from + SPECIES.loopBound(to - from); w < upper; w += SPECIES.length()) {
+      var weight = FloatVector.fromArray(SPECIES, weights, w);
+      weight.sub(FloatVector.fromArray(SPECIES, gradients, w)
+              .add(decay(weight, decayL1, decayL2Twice)).mul(learningRate))
+          .intoArray(weights, w);
+    }
+    for (; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      weights[w] -= learningRate * (gradients[w] + decay);
+    }
+  }
+
+  static void heavyBallStep(float[] weights, float[] gradients, float[] velocities, int from,
+      int to, float learningRate, float momentum, float decayL1, float decayL2) {
+    var decayL2Twice = decayL2 * 2f;
+    var w = from;
+    for (var upper = from + SPECIES.loopBound(to - from); w < upper; w += SPECIES.length()) {
+      var weight = FloatVector.fromArray(SPECIES, weights, w);
+      var velocity = FloatVector.fromArray(SPECIES, velocities, w).mul(momentum).sub(
+          FloatVector.fromArray(SPECIES, gradients, w).add(decay(weight, decayL1, decayL2Twice))
+              .mul(learningRate));
+      weight.add(velocity).intoArray(weights, w);
+      velocity.intoArray(velocities, w);
+    }
+    for (; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var velocity = momentum * velocities[w] - learningRate * (gradients[w] + decay);
+      weights[w] += velocity;
+      velocities[w] = velocity;
+    }
+  }
+
+  static void rmsPropStep(float[] weights, float[] gradients, float[] averages, int from,
+      int to, float gradientScale, float learningRate, float rho, float gain, float epsilon,
+      float decayL1, float decayL2) {
+    var decayL2Twice = decayL2 * 2f;
+    var w = from;
+    for (var upper = from + SPECIES.loopBound(to - from); w < upper; w += SPECIES.length()) {
+      var weight = FloatVector.fromArray(SPECIES, weights, w);
+      var g = FloatVector.fromArray(SPECIES, gradients, w).mul(gradientScale)
+          .add(decay(weight, decayL1, decayL2Twice));
+      var average = FloatVector.fromArray(SPECIES, averages, w).mul(rho)
+          .add(g.mul(g).mul(gain));
+      weight.sub(g.div(average.sqrt().add(epsilon)).mul(learningRate)).intoArray(weights, w);
+      average.intoArray(averages, w);
+    }
+    for (; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var g = gradientScale * gradients[w] + decay;
+      var average = rho * averages[w] + gain * (g * g);
+      weights[w] -= learningRate * (g / ((float) Math.sqrt(average) + epsilon));
+      averages[w] = average;
+    }
+  }
+
+  static void adamStep(float[] weights, float[] gradients, float[] firstMoments,
+      float[] secondMoments, int from, int to, float gradientScale, float learningRate, float beta1, float beta2,
+      float epsilon, float correction1, float correction2, float decayL1, float decayL2,
+      boolean decoupledDecay) {
+    var decayL2Twice = decayL2 * 2f;
+    var coupled = decoupledDecay ? 0f : 1f;
+    var decoupled = 1f - coupled;
+    var w = from;
+    for (var upper = from + SPECIES.loopBound(to - from); w < upper; w += SPECIES.length()) {
+      var weight = FloatVector.fromArray(SPECIES, weights, w);
+      var decay = decay(weight, decayL1, decayL2Twice);
+      var g = FloatVector.fromArray(SPECIES, gradients, w).mul(gradientScale)
+          .add(decay.mul(coupled));
+      var m = FloatVector.fromArray(SPECIES, firstMoments, w).mul(beta1)
+          .add(g.mul(1f - beta1));
+      var v = FloatVector.fromArray(SPECIES, secondMoments, w).mul(beta2)
+          .add(g.mul(g).mul(1f - beta2));
+      var step = m.mul(correction1).div(v.mul(correction2).sqrt().add(epsilon))
+          .add(decay.mul(decoupled));
+      weight.sub(step.mul(learningRate)).intoArray(weights, w);
+      m.intoArray(firstMoments, w);
+      v.intoArray(secondMoments, w);
+    }
+    for (; w < to; w++) {
+      var decay = decayL1 * Math.signum(weights[w]) + decayL2 * 2f * weights[w];
+      var g = gradientScale * gradients[w] + coupled * decay;
+      var m = beta1 * firstMoments[w] + (1f - beta1) * g;
+      var v = beta2 * secondMoments[w] + (1f - beta2) * (g * g);
+      weights[w] -= learningRate * (m * correction1 / ((float) Math.sqrt(v * correction2)
+          + epsilon) + decoupled * decay);
+      firstMoments[w] = m;
+      secondMoments[w] = v;
+    }
+  }
+
+  /**
+   * {@code decayL1 * signum(weight) + decayL2Twice * weight}
+   */
+  private static FloatVector decay(FloatVector weight, float decayL1, float decayL2Twice) {
+    var signum = weight.blend(1f, weight.compare(VectorOperators.GT, 0f))
+        .blend(-1f, weight.compare(VectorOperators.LT, 0f));
+    return signum.mul(decayL1).add(weight.mul(decayL2Twice));
+  }
+
+  static void momentumStep(MemorySegment weights, MemorySegment gradients,
+      MemorySegment previousGradients, int length, float learningRate, float momentum,
+      float decayL1, float decayL2) {
+    var decayL2Twice = decayL2 * 2f;
+    var momentumPlusOne = 1f + momentum;
+    var w = 0;
+    for (var upper = SPECIES.loopBound(length); w < upper; w += SPECIES.length()) {
+      var offset = (long) w * Float.BYTES;
+      var weight = FloatVector.fromMemorySegment(SPECIES, weights, offset, ORDER);
+      var previous = FloatVector.fromMemorySegment(SPECIES, previousGradients, offset, ORDER);
+      var signum = weight.blend(1f, weight.compare(VectorOperators.GT, 0f))
+          .blend(-1f, weight.compare(VectorOperators.LT, 0f));
+      var decay = signum.mul(decayL1).add(weight.mul(decayL2Twice));
+      var previousMomentum = previous.mul(momentum);
+      var gradient = previousMomentum.sub(
+          FloatVector.fromMemorySegment(SPECIES, gradients, offset, ORDER).add(decay)
+              .mul(learningRate));
+      weight.add(gradient.mul(momentumPlusOne).sub(previousMomentum))
+          .intoMemorySegment(weights, offset, ORDER);
+      gradient.intoMemorySegment(previousGradients, offset, ORDER);
+    }
+    for (; w < length; w++) {
+      var weight = weights.getAtIndex(ValueLayout.JAVA_FLOAT, w);
+      var previousGradient = previousGradients.getAtIndex(ValueLayout.JAVA_FLOAT, w);
+      var decay = decayL1 * Math.signum(weight) + decayL2 * 2f * weight;
+      var gradient = momentum * previousGradient - learningRate * (
+          gradients.getAtIndex(ValueLayout.JAVA_FLOAT, w) + decay);
+      weights.setAtIndex(ValueLayout.JAVA_FLOAT, w,
+          weight + ((1f + momentum) * gradient - momentum * previousGradient));
+      previousGradients.setAtIndex(ValueLayout.JAVA_FLOAT, w, gradient);
+    }
+  }
+
+  static void reluInto(float[] v, float[] h) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      FloatVector.fromArray(SPECIES, v, i).max(0f).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      h[i] = Math.max(v[i], 0f);
+    }
+  }
+
+  static void sigmoidInto(float[] v, float[] h, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      sigmoid(FloatVector.fromArray(SPECIES, v, i), fast).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      h[i] = fast ? FloatKernels.fastSigmoid(v[i]) : 1f / (1f + (float) Math.exp(-v[i]));
+    }
+  }
+
+  static void tanhInto(float[] v, float[] h, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      tanh(FloatVector.fromArray(SPECIES, v, i), fast).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      h[i] = tanh(v[i], fast);
+    }
+  }
+
+  static float expInto(float[] v, float shift, float[] h, boolean fast) {
+    var sums = FloatVector.zero(SPECIES);
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      var exp = exp(FloatVector.fromArray(SPECIES, v, i).sub(shift), fast);
+      exp.intoArray(h, i);
+      sums = sums.add(exp);
+    }
+    var sum = sums.reduceLanes(VectorOperators.ADD);
+    for (; i < h.length; i++) {
+      var x = v[i] - shift;
+      sum += (h[i] = fast ? FloatKernels.fastExp(x) : (float) Math.exp(x));
+    }
+    return sum;
+  }
+
+  static void geluInto(float[] v, float[] h, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      var x = FloatVector.fromArray(SPECIES, v, i);
+      x.mul(0.5f).mul(tanh(geluTransform(x), fast).add(1f)).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      var x = v[i];
+      h[i] = 0.5f * x * (1f + tanh(FloatKernels.GELU_SCALE * (x
+          + FloatKernels.GELU_ALPHA * x * x * x), fast));
+    }
+  }
+
+  static void geluDerivativeInto(float[] v, float[] d, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(d.length); i < upper; i += SPECIES.length()) {
+      var x = FloatVector.fromArray(SPECIES, v, i);
+      var t = tanh(geluTransform(x), fast);
+      var transformDerivative = x.mul(FloatKernels.GELU_DERIVATIVE_ALPHA).mul(x)
+          .add(FloatKernels.GELU_SCALE);
+      t.add(1f).add(x.sub(x.mul(t).mul(t)).mul(transformDerivative)).mul(0.5f)
+          .intoArray(d, i);
+    }
+    for (; i < d.length; i++) {
+      var x = v[i];
+      var t = tanh(FloatKernels.GELU_SCALE * (x + FloatKernels.GELU_ALPHA * x * x * x), fast);
+      d[i] = 0.5f * (1f + t + (x - x * t * t) * (FloatKernels.GELU_SCALE
+          + FloatKernels.GELU_DERIVATIVE_ALPHA * x * x));
+    }
+  }
+
+  static void geluInto(float[] v, float[] h, float[] t, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      var x = FloatVector.fromArray(SPECIES, v, i);
+      var ti = tanh(geluTransform(x), fast);
+      ti.intoArray(t, i);
+      x.mul(0.5f).mul(ti.add(1f)).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      var x = v[i];
+      h[i] = 0.5f * x * (1f + (t[i] = tanh(FloatKernels.GELU_SCALE * (x
+          + FloatKernels.GELU_ALPHA * x * x * x), fast)));
+    }
+  }
+
+  static void geluDerivativeFromTanhInto(float[] v, float[] t, float[] d) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(d.length); i < upper; i += SPECIES.length()) {
+      var x = FloatVector.fromArray(SPECIES, v, i);
+      var ti = FloatVector.fromArray(SPECIES, t, i);
+      var transformDerivative = x.mul(FloatKernels.GELU_DERIVATIVE_ALPHA).mul(x)
+          .add(FloatKernels.GELU_SCALE);
+      ti.add(1f).add(x.sub(x.mul(ti).mul(ti)).mul(transformDerivative)).mul(0.5f)
+          .intoArray(d, i);
+    }
+    for (; i < d.length; i++) {
+      var x = v[i];
+      var ti = t[i];
+      d[i] = 0.5f * (1f + ti + (x - x * ti * ti) * (FloatKernels.GELU_SCALE
+          + FloatKernels.GELU_DERIVATIVE_ALPHA * x * x));
+    }
+  }
+
+  static void swishInto(float beta, float[] v, float[] h, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      var x = FloatVector.fromArray(SPECIES, v, i);
+      x.mul(sigmoid(x.mul(beta), fast)).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      var x = v[i];
+      var z = beta * x;
+      h[i] = x * (fast ? FloatKernels.fastSigmoid(z) : 1f / (1f + (float) Math.exp(-z)));
+    }
+  }
+
+  static void swishDerivativeInto(float beta, float[] h, float[] v, float[] d, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(d.length); i < upper; i += SPECIES.length()) {
+      var s = sigmoid(FloatVector.fromArray(SPECIES, v, i).mul(beta), fast);
+      s.add(FloatVector.fromArray(SPECIES, h, i).mul(beta).mul(s.neg().add(1f)))
+          .intoArray(d, i);
+    }
+    for (; i < d.length; i++) {
+      var z = beta * v[i];
+      var s = fast ? FloatKernels.fastSigmoid(z) : 1f / (1f + (float) Math.exp(-z));
+      d[i] = s + beta * h[i] * (1f - s);
+    }
+  }
+
+  static void swishInto(float beta, float[] v, float[] h, float[] s, boolean fast) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(h.length); i < upper; i += SPECIES.length()) {
+      var x = FloatVector.fromArray(SPECIES, v, i);
+      var si = sigmoid(x.mul(beta), fast);
+      si.intoArray(s, i);
+      x.mul(si).intoArray(h, i);
+    }
+    for (; i < h.length; i++) {
+      var x = v[i];
+      var z = beta * x;
+      h[i] = x * (s[i] = fast ? FloatKernels.fastSigmoid(z) : 1f / (1f + (float) Math.exp(-z)));
+    }
+  }
+
+  static void swishDerivativeFromSigmoidInto(float beta, float[] h, float[] s, float[] d) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(d.length); i < upper; i += SPECIES.length()) {
+      var si = FloatVector.fromArray(SPECIES, s, i);
+      si.add(FloatVector.fromArray(SPECIES, h, i).mul(beta).mul(si.neg().add(1f)))
+          .intoArray(d, i);
+    }
+    for (; i < d.length; i++) {
+      var si = s[i];
+      d[i] = si + beta * h[i] * (1f - si);
+    }
+  }
+
+  /**
+   * {@code sqrt(2 / pi) * (x + 0.044715 * x^3)} evaluated like the scalar loops
+   */
+  private static FloatVector geluTransform(FloatVector x) {
+    return x.mul(FloatKernels.GELU_ALPHA).mul(x).mul(x).add(x).mul(FloatKernels.GELU_SCALE);
+  }
+
+  private static float tanh(float x, boolean fast) {
+    return fast ? FloatKernels.fastTanh(x) : (float) Math.tanh(x);
+  }
+
+  private static FloatVector exp(FloatVector x, boolean fast) {
+    return fast ? fastExp(x) : x.lanewise(VectorOperators.EXP);
+  }
+
+  private static FloatVector sigmoid(FloatVector x, boolean fast) {
+    return FloatVector.broadcast(SPECIES, 1f).div(exp(x.neg(), fast).add(1f));
+  }
+
+  private static FloatVector tanh(FloatVector x, boolean fast) {
+    if (!fast) {
+      return x.lanewise(VectorOperators.TANH);
+    }
+    var t = fastExp(x.abs().mul(-2f));
+    var magnitude = t.neg().add(1f).div(t.add(1f));
+    return magnitude.reinterpretAsInts()
+        .or(x.reinterpretAsInts().and(SIGN_BIT))
+        .reinterpretAsFloats();
+  }
+
+  /**
+   * Lane-wise {@link FloatKernels#fastExp(float)} with the same operations.
+   */
+  private static FloatVector fastExp(FloatVector x) {
+    var clamped = x.max(FloatKernels.FAST_EXP_MIN).min(FloatKernels.FAST_EXP_MAX);
+    var shifted = clamped.mul(FloatKernels.LOG2_E).add(FloatKernels.ROUNDING_SHIFT);
+    var n = shifted.sub(FloatKernels.ROUNDING_SHIFT);
+    var r = clamped.sub(n.mul(FloatKernels.LN_2_HIGH)).sub(n.mul(FloatKernels.LN_2_LOW));
+    var p = r.mul(FloatKernels.EXP_P5).add(FloatKernels.EXP_P4)
+        .mul(r).add(FloatKernels.EXP_P3)
+        .mul(r).add(FloatKernels.EXP_P2)
+        .mul(r).add(FloatKernels.EXP_P1)
+        .mul(r).add(FloatKernels.EXP_P0);
+    var powerOfTwo = shifted.reinterpretAsInts()
+        .sub(FloatKernels.ROUNDING_SHIFT_BITS - 127)
+        .lanewise(VectorOperators.LSHL, 23)
+        .reinterpretAsFloats();
+    return p.mul(r).mul(r).add(r).add(1f).mul(powerOfTwo);
+  }
+
+  static void sigmoidDerivativeInto(float[] h, float[] d) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(d.length); i < upper; i += SPECIES.length()) {
+      var y = FloatVector.fromArray(SPECIES, h, i);
+      y.mul(y.neg().add(1f)).intoArray(d, i);
+    }
+    for (; i < d.length; i++) {
+      var y = h[i];
+      d[i] = y * (1f - y);
+    }
+  }
+
+  static void tanhDerivativeInto(float[] h, float[] d) {
+    var i = 0;
+    for (var upper = SPECIES.loopBound(d.length); i < upper; i += SPECIES.length()) {
+      var y = FloatVector.fromArray(SPECIES, h, i);
+      y.mul(y).neg().add(1f).intoArray(d, i);
+    }
+    for (; i < d.length; i++) {
+      d[i] = 1f - h[i] * h[i];
+    }
+  }
+}
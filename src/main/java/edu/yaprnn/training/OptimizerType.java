@@ -0,0 +1,8 @@
+package edu.yaprnn.training;
+
+/**
+ * Selects the {@link edu.yaprnn.networks.optimizers.Optimizer} that updates the weights.
+ */
+public enum OptimizerType {
+  NESTEROV, MOMENTUM, ADAGRAD, RMSPROP, ADAM, ADAMW
+}
@@ -0,0 +1,77 @@
+package edu.yaprnn.training;
+
+import edu.yaprnn.model.Repository;
+import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.SparseNetwork;
+import edu.yaprnn.networks.SparsitySweep;
+import edu.yaprnn.networks.WorkerPool;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.extern.java.Log;
+
+/**
+ * Prunes trained networks by weight magnitude and reports what accuracy each sparsity costs.
+ * Toolkit-agnostic.
+ */
+@Log
+@Singleton
+public class PruningService {
+
+  @Inject
+  Repository repository;
+
+  /**
+   * Prunes every layer of {@code multiLayerNetwork} to {@code sparsity}, if that stores at least one
+   * layer in compressed sparse rows. Below {@link SparseNetwork#breakEvenSparsity()} the pruned
+   * network would only lose accuracy without multiplying any faster.
+   *
+   * @return the pruned network, or empty to keep {@code multiLayerNetwork}
+   */
+  public Optional<SparseNetwork> compress(MultiLayerNetwork multiLayerNetwork, float sparsity) {
+    var sparseNetwork = SparseNetwork.prune(multiLayerNetwork, sparsity);
+    for (var compressed : sparseNetwork.compressedLayers()) {
+      if (compressed) {
+        return Optional.of(sparseNetwork);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Prunes every layer of {@code multiLayerNetwork} to each of {@code sparsities} and measures the
+   * accuracy on the dev/test samples of {@code trainingData}.
+   */
+  public SparsitySweep sweep(MultiLayerNetwork multiLayerNetwork, TrainingData trainingData,
+      WorkerPool workerPool, float... sparsities) {
+    Objects.requireNonNull(multiLayerNetwork, "multiLayerNetwork");
+    Objects.requireNonNull(trainingData, "trainingData");
+
+    var dataSelector = trainingData.getDataSelector();
+    var devTestSamples = repository.querySamplesByName(trainingData.getDevTestSampleNames());
+    var floatBytes = 0L;
+    for (var weights : multiLayerNetwork.getLayerWeights()) {
+      floatBytes += (long) Float.BYTES * weights.length;
+    }
+
+    var steps = new ArrayList<SparsitySweep.Step>();
+    for (var sparsity : sparsities) {
+      var sparseNetwork = SparseNetwork.prune(multiLayerNetwork, sparsity);
+      var compressedLayers = 0;
+      for (var compressed : sparseNetwork.compressedLayers()) {
+        compressedLayers += compressed ? 1 : 0;
+      }
+      steps.add(new SparsitySweep.Step(sparsity,
+          sparseNetwork.computeAccuracy(workerPool, devTestSamples, dataSelector),
+          compressedLayers, sparseNetwork.sizeInBytes()));
+    }
+
+    var sweep = new SparsitySweep(
+        multiLayerNetwork.computeAccuracy(workerPool, devTestSamples, dataSelector), floatBytes,
+        steps);
+    log.info(() -> "Sparsity sweep of %s:%n%s".formatted(multiLayerNetwork, sweep));
+    return sweep;
+  }
+}
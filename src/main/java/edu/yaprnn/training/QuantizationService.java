@@ -0,0 +1,93 @@
+package edu.yaprnn.training;
+
+import edu.yaprnn.model.Repository;
+import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.QuantizationReport;
+import edu.yaprnn.networks.QuantizedNetwork;
+import edu.yaprnn.networks.WorkerPool;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.training.selectors.DataSelector;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Quantizes trained networks to int8 weights for inference and reports what accuracy that costs.
+ * Toolkit-agnostic.
+ */
+@Singleton
+public class QuantizationService {
+
+  @Inject
+  Repository repository;
+
+  /**
+   * Quantizes {@code multiLayerNetwork}, calibrating the input scales on up to
+   * {@code calibrationSize} training samples spread evenly over the training set.
+   */
+  public QuantizedNetwork quantize(MultiLayerNetwork multiLayerNetwork, TrainingData trainingData,
+      int calibrationSize) {
+    Objects.requireNonNull(trainingData, "trainingData");
+
+    var trainingSamples = repository.querySamplesByName(trainingData.getTrainingSampleNames());
+    return quantize(multiLayerNetwork, trainingSamples, trainingData.getDataSelector(),
+        calibrationSize);
+  }
+
+  /**
+   * Same as {@link #quantize(MultiLayerNetwork, TrainingData, int)} calibrated on {@code samples}.
+   */
+  public QuantizedNetwork quantize(MultiLayerNetwork multiLayerNetwork,
+      List<? extends Sample> samples, DataSelector dataSelector, int calibrationSize) {
+    Objects.requireNonNull(samples, "samples");
+    if (calibrationSize < 1) {
+      throw new IllegalArgumentException("calibrationSize must be >= 1");
+    }
+
+    return QuantizedNetwork.quantize(multiLayerNetwork, calibrationSubset(samples, calibrationSize),
+        dataSelector);
+  }
+
+  static List<Sample> calibrationSubset(List<? extends Sample> samples, int calibrationSize) {
+    var size = Math.min(calibrationSize, samples.size());
+    return IntStream.range(0, size)
+        .<Sample>mapToObj(i -> samples.get((int) ((long) i * samples.size() / size)))
+        .toList();
+  }
+
+  /**
+   * Compares accuracy and model size of both networks on the dev/test samples of
+   * {@code trainingData}.
+   */
+  public QuantizationReport report(MultiLayerNetwork multiLayerNetwork,
+      QuantizedNetwork quantizedNetwork, TrainingData trainingData, WorkerPool workerPool) {
+    Objects.requireNonNull(trainingData, "trainingData");
+
+    var devTestSamples = repository.querySamplesByName(trainingData.getDevTestSampleNames());
+    return report(multiLayerNetwork, quantizedNetwork, devTestSamples,
+        trainingData.getDataSelector(), workerPool);
+  }
+
+  /**
+   * Same as {@link #report(MultiLayerNetwork, QuantizedNetwork, TrainingData, WorkerPool)} on
+   * {@code samples}.
+   */
+  public QuantizationReport report(MultiLayerNetwork multiLayerNetwork,
+      QuantizedNetwork quantizedNetwork, List<? extends Sample> samples, DataSelector dataSelector,
+      WorkerPool workerPool) {
+    return new QuantizationReport(
+        multiLayerNetwork.computeAccuracy(workerPool, samples, dataSelector),
+        quantizedNetwork.computeAccuracy(workerPool, samples, dataSelector),
+        sizeInBytes(multiLayerNetwork), quantizedNetwork.sizeInBytes());
+  }
+
+  private static long sizeInBytes(MultiLayerNetwork multiLayerNetwork) {
+    var size = 0L;
+    for (var weights : multiLayerNetwork.getLayerWeights()) {
+      size += (long) Float.BYTES * weights.length;
+    }
+    return size;
+  }
+}
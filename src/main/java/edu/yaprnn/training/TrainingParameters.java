@@ -1,6 +1,8 @@
 package edu.yaprnn.training;
 
 import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.Precision;
+import edu.yaprnn.networks.TrainingEngine;
 import lombok.Builder;
 
 @Builder
@@ -9,14 +11,20 @@ public record TrainingParameters(
     float maxTrainingError,
     int batchSize,
     int maxParallelism,
+    int workerProcesses,
     float learningRate,
     LearningRateModifier learningRateModifier,
     int learningRateChangeInterval,
     float learningRateAscend,
     float learningRateDescend,
+    OptimizerType optimizerType,
     float momentum,
     float decayL1,
     float decayL2,
+    TrainingEngine trainingEngine,
+    long activationMemoryBudget,
+    boolean offHeapParameters,
+    Precision precision,
     TrainingData trainingData,
     MultiLayerNetwork multiLayerNetwork) {
 }
@@ -1,19 +1,35 @@
 package edu.yaprnn.training;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.yaprnn.model.Repository;
 import edu.yaprnn.networks.GradientMatrixService;
+import edu.yaprnn.networks.MiniBatchTimings;
+import edu.yaprnn.networks.MixedPrecisionState;
+import edu.yaprnn.networks.OffHeapParameters;
+import edu.yaprnn.networks.TrainingEngine;
+import edu.yaprnn.networks.TrainingSession;
+import edu.yaprnn.networks.WorkerPool;
 import edu.yaprnn.networks.learningrate.ConstantLearningRateState;
 import edu.yaprnn.networks.learningrate.DynamicLearningRateState;
 import edu.yaprnn.networks.learningrate.EpochLearningRateState;
 import edu.yaprnn.networks.learningrate.LearningRateState;
+import edu.yaprnn.networks.optimizers.AdaGradOptimizer;
+import edu.yaprnn.networks.optimizers.AdamOptimizer;
+import edu.yaprnn.networks.optimizers.MomentumOptimizer;
+import edu.yaprnn.networks.optimizers.NesterovOptimizer;
+import edu.yaprnn.networks.optimizers.Optimizer;
+import edu.yaprnn.networks.optimizers.RmsPropOptimizer;
 import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.support.JacksonConfigurer;
+import edu.yaprnn.training.processes.ProcessTrainingCoordinator;
 import edu.yaprnn.training.selectors.DataSelector;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import lombok.extern.java.Log;
 
 /**
@@ -30,6 +46,9 @@ public class TrainingService {
   Repository repository;
   @Inject
   ShuffleService shuffleService;
+  @Named(JacksonConfigurer.YAPRNN_OBJECT_MAPPER_BEAN)
+  @Inject
+  ObjectMapper objectMapper;
 
   /**
    * Runs the training loop. Blocks until training completes or the calling thread is interrupted.
@@ -59,12 +78,47 @@ public class TrainingService {
     if (params.learningRate() <= 0f) {
       throw new IllegalStateException("Learning rate must be greater than 0");
     }
+    var optimizer = createOptimizer(params);
+    var trainingEngine = Objects.requireNonNullElse(params.trainingEngine(),
+        TrainingEngine.PER_SAMPLE);
+    var halfPrecision = params.precision() != null
+        && params.precision().halfPrecision().isPresent();
+    if (params.workerProcesses() > 1 && (params.offHeapParameters() || halfPrecision)) {
+      throw new IllegalStateException(
+          "Worker processes support neither off-heap parameters nor 16 bit precision");
+    }
+    if (params.offHeapParameters() && (halfPrecision
+        || trainingEngine != TrainingEngine.PER_SAMPLE)) {
+      throw new IllegalStateException(
+          "Off-heap parameters only support the PER_SAMPLE engine in FP32 precision");
+    }
+    // mixed precision always trains like BATCHED, whose gradients equal those of PER_SAMPLE
+    if (halfPrecision && trainingEngine != TrainingEngine.PER_SAMPLE
+        && trainingEngine != TrainingEngine.BATCHED) {
+      throw new IllegalStateException(
+          "16 bit precision only supports the PER_SAMPLE and BATCHED engines");
+    }
+    if (!(optimizer instanceof NesterovOptimizer) && (params.workerProcesses() > 1
+        || params.offHeapParameters())) {
+      throw new IllegalStateException(
+          "Worker processes and off-heap parameters only support the NESTEROV optimizer");
+    }
 
-    try (var executor = Executors.newFixedThreadPool(params.maxParallelism(),
-        Thread.ofVirtual().factory())) {
-
+    // Platform workers for the CPU-bound chunks, kept for the whole training session. With more
+    // than one worker process, the epochs are trained by those and the pool only tracks the error.
+    try (var workerPool = WorkerPool.persistent(params.maxParallelism());
+        var coordinator = params.workerProcesses() > 1 ? ProcessTrainingCoordinator.launch(
+            objectMapper, params, trainingSamples, dataSelector) : null;
+        var offHeapParameters = params.offHeapParameters()
+            ? OffHeapParameters.copyOf(multiLayerNetwork, params.maxParallelism()) : null;
+        // the gradients and optimizer buffers of all epochs, released when the training ends
+        var session = TrainingSession.open(multiLayerNetwork, gradientMatrixService, optimizer)) {
+
+      var mixedPrecisionState = halfPrecision
+          ? MixedPrecisionState.create(multiLayerNetwork, params.precision(),
+          params.maxParallelism()) : null;
       var learningRateState = createLearningRateState(params);
-      var trainingError = trackError(executor, params, multiLayerNetwork, -1, params.learningRate(),
+      var trainingError = trackError(workerPool, multiLayerNetwork, -1, params.learningRate(),
           trainingSamples, devTestSamples, dataSelector, callback);
 
       for (var i = 0;
@@ -74,18 +128,48 @@ public class TrainingService {
         var currentLearningRate = learningRateState.current();
 
         var iteration = i;
-        measureIterationTime(
-            () -> multiLayerNetwork.learnMiniBatch(gradientMatrixService, executor, samples,
-                dataSelector, params.maxParallelism(), params.batchSize(), currentLearningRate,
-                params.momentum(), params.decayL1(), params.decayL2()));
+        if (coordinator != null) {
+          measureIterationTime(
+              () -> coordinator.learnEpoch(multiLayerNetwork, currentLearningRate));
+        } else if (offHeapParameters != null) {
+          measureIterationTime(
+              () -> multiLayerNetwork.learnMiniBatch(gradientMatrixService, workerPool,
+                  offHeapParameters, samples, dataSelector, params.batchSize(),
+                  currentLearningRate, params.momentum(), params.decayL1(), params.decayL2()));
+        } else if (mixedPrecisionState != null) {
+          measureIterationTime(
+              () -> multiLayerNetwork.learnMiniBatch(gradientMatrixService, workerPool,
+                  mixedPrecisionState, samples, dataSelector, params.batchSize(),
+                  currentLearningRate, session.optimizerState()));
+          log.info(() -> "Loss scale: %s, skipped steps: %s".formatted(
+              mixedPrecisionState.lossScale(), mixedPrecisionState.skippedSteps()));
+        } else {
+          measureIterationTime(
+              () -> multiLayerNetwork.learnMiniBatch(workerPool, session, samples, dataSelector,
+                  params.batchSize(), currentLearningRate, trainingEngine,
+                  params.activationMemoryBudget()));
+        }
 
         learningRateState = learningRateState.updateRate(trainingError);
-        trainingError = trackError(executor, params, multiLayerNetwork, iteration,
+        trainingError = trackError(workerPool, multiLayerNetwork, iteration,
             currentLearningRate, samples, devTestSamples, dataSelector, callback);
       }
     }
   }
 
+  private Optimizer createOptimizer(TrainingParameters params) {
+    var optimizerType = Objects.requireNonNullElse(params.optimizerType(),
+        OptimizerType.NESTEROV);
+    return switch (optimizerType) {
+      case NESTEROV -> new NesterovOptimizer(params.momentum(), params.decayL1(), params.decayL2());
+      case MOMENTUM -> new MomentumOptimizer(params.momentum(), params.decayL1(), params.decayL2());
+      case ADAGRAD -> AdaGradOptimizer.withDefaults(params.decayL1(), params.decayL2());
+      case RMSPROP -> RmsPropOptimizer.withDefaults(params.decayL1(), params.decayL2());
+      case ADAM -> AdamOptimizer.adam(params.decayL1(), params.decayL2());
+      case ADAMW -> AdamOptimizer.adamW(params.decayL1(), params.decayL2());
+    };
+  }
+
   private LearningRateState createLearningRateState(TrainingParameters params) {
     return switch (params.learningRateModifier()) {
       case PERIODIC -> EpochLearningRateState.from(params.learningRateChangeInterval(),
@@ -96,15 +180,13 @@ public class TrainingService {
     };
   }
 
-  private float trackError(java.util.concurrent.ExecutorService executor,
-      TrainingParameters params,
+  private float trackError(WorkerPool workerPool,
       edu.yaprnn.networks.MultiLayerNetwork multiLayerNetwork, int iteration, float learningRate,
       List<Sample> samples, List<Sample> devTestSamples, DataSelector dataSelector,
       TrainingProgressCallback callback) {
-    var trainingAccuracy = multiLayerNetwork.computeAccuracy(executor, samples, dataSelector,
-        params.maxParallelism());
-    var devTestAccuracy = multiLayerNetwork.computeAccuracy(executor, devTestSamples, dataSelector,
-        params.maxParallelism());
+    var trainingAccuracy = multiLayerNetwork.computeAccuracy(workerPool, samples, dataSelector);
+    var devTestAccuracy = multiLayerNetwork.computeAccuracy(workerPool, devTestSamples,
+        dataSelector);
 
     callback.onEpochComplete(iteration, learningRate, trainingAccuracy, devTestAccuracy);
 
@@ -116,11 +198,12 @@ public class TrainingService {
     return trainingAccuracy.error();
   }
 
-  private void measureIterationTime(Runnable runnable) {
+  private void measureIterationTime(Supplier<MiniBatchTimings> learning) {
     var t = System.nanoTime();
-    runnable.run();
+    var timings = learning.get();
     var delta = System.nanoTime() - t;
     var iterationTime = delta / (float) Duration.ofSeconds(1).toNanos();
-    log.info(() -> "Iteration time: %s".formatted(iterationTime));
+    log.info(() -> "Iteration time: %s, gradient reduction share: %s".formatted(iterationTime,
+        timings.reductionShare()));
   }
 }
@@ -0,0 +1,194 @@
+package edu.yaprnn.training.processes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.yaprnn.networks.MiniBatchTimings;
+import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.TrainingEngine;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.support.FloatKernels;
+import edu.yaprnn.training.TrainingParameters;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lombok.extern.java.Log;
+
+/**
+ * Trains a network with several {@link ProcessTrainingWorker} JVMs on the same host. The training
+ * samples are split into one shard per worker. Every epoch the workers train their shards starting
+ * from the same weights and momentum, and both are averaged through a
+ * {@link SharedMemoryExchange} weighted by the shard sizes. Averaging the momentum keeps it in line
+ * with the averaged weights, like the momentum of a training in a single process.
+ */
+@Log
+public final class ProcessTrainingCoordinator implements AutoCloseable {
+
+  static final String SETUP_FILE = "setup.json";
+  static final String EXCHANGE_FILE = "exchange.bin";
+  private static final long STOP_TIMEOUT_SECONDS = 10L;
+
+  private final Path directory;
+  private final SharedMemoryExchange exchange;
+  private final float[] shares;
+  private final List<Process> processes;
+
+  ProcessTrainingCoordinator(Path directory, SharedMemoryExchange exchange, float[] shares,
+      List<Process> processes) {
+    this.directory = directory;
+    this.exchange = exchange;
+    this.shares = shares;
+    this.processes = processes;
+  }
+
+  /**
+   * Writes the setup and shards into a temporary directory and starts
+   * {@link TrainingParameters#workerProcesses()} worker JVMs with the class path of this one.
+   */
+  public static ProcessTrainingCoordinator launch(ObjectMapper objectMapper,
+      TrainingParameters params, List<? extends Sample> trainingSamples,
+      DataSelector dataSelector) {
+    var workerCount = params.workerProcesses();
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("workerProcesses must be >= 1");
+    }
+    var multiLayerNetwork = params.multiLayerNetwork();
+
+    try {
+      var directory = Files.createTempDirectory("yaprnn-training-");
+      objectMapper.writeValue(directory.resolve(SETUP_FILE).toFile(),
+          new ProcessTrainingSetup(multiLayerNetwork, params.batchSize(),
+              Math.max(1, params.maxParallelism() / workerCount), params.momentum(),
+              params.decayL1(), params.decayL2(),
+              Objects.requireNonNullElse(params.trainingEngine(), TrainingEngine.PER_SAMPLE),
+              params.activationMemoryBudget()));
+
+      var shares = writeShards(directory, workerCount, trainingSamples, dataSelector);
+      var weightsCount = Arrays.stream(multiLayerNetwork.getLayerWeights())
+          .mapToInt(w -> w.length)
+          .sum();
+      var exchange = SharedMemoryExchange.create(directory.resolve(EXCHANGE_FILE), workerCount,
+          weightsCount, params.momentum() != 0f);
+
+      var processes = new ArrayList<Process>(workerCount);
+      var coordinator = new ProcessTrainingCoordinator(directory, exchange, shares, processes);
+      try {
+        for (var i = 0; i < workerCount; i++) {
+          processes.add(new ProcessBuilder(workerCommand(directory, i)).inheritIO().start());
+        }
+      } catch (IOException | RuntimeException e) {
+        coordinator.close();
+        throw e;
+      }
+      return coordinator;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes every {@code workerCount}-th sample into the shard of a worker.
+   *
+   * @return fraction of the samples of each shard
+   */
+  static float[] writeShards(Path directory, int workerCount,
+      List<? extends Sample> trainingSamples, DataSelector dataSelector) {
+    var shares = new float[workerCount];
+    for (var i = 0; i < workerCount; i++) {
+      var worker = i;
+      var shard = IntStream.range(0, trainingSamples.size())
+          .filter(s -> s % workerCount == worker)
+          .mapToObj(trainingSamples::get)
+          .toList();
+      TrainingShards.write(directory.resolve(TrainingShards.fileName(i)), shard, dataSelector);
+      shares[i] = shard.size() / (float) trainingSamples.size();
+    }
+    return shares;
+  }
+
+  private static List<String> workerCommand(Path directory, int workerIndex) {
+    var command = new ArrayList<String>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    if (FloatKernels.isSimdAvailable()) {
+      command.add("--add-modules=jdk.incubator.vector");
+    }
+    command.add("-D%s=%s".formatted(FloatKernels.SIMD_PROPERTY, FloatKernels.isSimdEnabled()));
+    command.add("-D%s=%s".formatted(FloatKernels.FAST_MATH_PROPERTY,
+        FloatKernels.isFastMathEnabled()));
+    command.addAll(List.of("-cp", System.getProperty("java.class.path"),
+        ProcessTrainingWorker.class.getName(), directory.toString(),
+        Integer.toString(workerIndex)));
+    return command;
+  }
+
+  /**
+   * Trains one epoch on all workers and replaces the weights and momentum of
+   * {@code multiLayerNetwork} by the average of theirs.
+   *
+   * @return nanos spent waiting for the workers as gradients, averaging as reduction and publishing
+   * the weights as update
+   */
+  public MiniBatchTimings learnEpoch(MultiLayerNetwork multiLayerNetwork, float learningRate) {
+    var layerWeights = multiLayerNetwork.getLayerWeights();
+    var layerMomentum = exchange.exchangesMomentum() ? multiLayerNetwork.momentumBuffers() : null;
+
+    var start = System.nanoTime();
+    var generation = exchange.publish(layerWeights, layerMomentum, learningRate);
+    var published = System.nanoTime();
+    exchange.awaitSubmissions(generation, this::ensureWorkersAlive);
+    var submitted = System.nanoTime();
+    exchange.averageInto(layerWeights, layerMomentum, shares);
+
+    return new MiniBatchTimings(submitted - published, System.nanoTime() - submitted,
+        published - start);
+  }
+
+  private void ensureWorkersAlive() {
+    for (var i = 0; i < processes.size(); i++) {
+      var process = processes.get(i);
+      if (!process.isAlive()) {
+        throw new IllegalStateException(
+            "Training worker %d exited with code %d".formatted(i, process.exitValue()));
+      }
+    }
+  }
+
+  /**
+   * Stops the workers, kills those not exiting in time, and deletes the temporary directory.
+   */
+  @Override
+  public void close() {
+    exchange.stop();
+    try {
+      for (var process : processes) {
+        if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+          log.warning(() -> "Killing training worker %s".formatted(process.pid()));
+          process.destroyForcibly();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      processes.forEach(Process::destroyForcibly);
+    } finally {
+      exchange.close();
+      deleteDirectory();
+    }
+  }
+
+  private void deleteDirectory() {
+    try (var files = Files.walk(directory)) {
+      for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package edu.yaprnn.training.processes;
+
+import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.TrainingEngine;
+
+/**
+ * Everything but the samples and weights a {@link ProcessTrainingWorker} needs, written once by the
+ * coordinator as JSON.
+ */
+public record ProcessTrainingSetup(
+    MultiLayerNetwork multiLayerNetwork,
+    int batchSize,
+    int maxParallelism,
+    float momentum,
+    float decayL1,
+    float decayL2,
+    TrainingEngine trainingEngine,
+    long activationMemoryBudget) {
+}
@@ -0,0 +1,103 @@
+package edu.yaprnn.training.processes;
+
+import edu.yaprnn.networks.GradientMatrixService;
+import edu.yaprnn.networks.TrainingSession;
+import edu.yaprnn.networks.WorkerPool;
+import edu.yaprnn.networks.optimizers.NesterovOptimizer;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.support.JacksonConfigurer;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import lombok.extern.java.Log;
+
+/**
+ * Worker process of a multi-process training. Trains its shard for one epoch per generation
+ * published by the coordinator through the {@link SharedMemoryExchange}, starting from the
+ * published weights and momentum, and submits its weights and momentum.
+ *
+ * <p>The shard holds the inputs and targets as already selected by the {@link DataSelector} of the
+ * training data, except for the output activation, so the worker always selects them with the
+ * {@link ClassifierDataSelector}.
+ */
+@Log
+public final class ProcessTrainingWorker {
+
+  private final ProcessTrainingSetup setup;
+  private final List<SimpleSample> shard;
+  private final SharedMemoryExchange exchange;
+  private final int workerIndex;
+  private final Runnable healthCheck;
+  private final GradientMatrixService gradientMatrixService = new GradientMatrixService();
+  private final DataSelector dataSelector = new ClassifierDataSelector();
+  private final Random random;
+
+  ProcessTrainingWorker(ProcessTrainingSetup setup, List<SimpleSample> shard,
+      SharedMemoryExchange exchange, int workerIndex, Runnable healthCheck) {
+    this.setup = setup;
+    this.shard = shard;
+    this.exchange = exchange;
+    this.workerIndex = workerIndex;
+    this.healthCheck = healthCheck;
+    random = new Random(workerIndex);
+  }
+
+  /**
+   * @param args directory prepared by the {@link ProcessTrainingCoordinator}, index of this worker
+   */
+  public static void main(String[] args) {
+    var directory = Path.of(args[0]);
+    var workerIndex = Integer.parseInt(args[1]);
+
+    ProcessTrainingSetup setup;
+    try {
+      setup = JacksonConfigurer.createObjectMapper().readValue(
+          directory.resolve(ProcessTrainingCoordinator.SETUP_FILE).toFile(),
+          ProcessTrainingSetup.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    var shard = TrainingShards.read(directory.resolve(TrainingShards.fileName(workerIndex)));
+    var coordinator = ProcessHandle.current().parent().orElseThrow();
+
+    try (var exchange = SharedMemoryExchange.open(
+        directory.resolve(ProcessTrainingCoordinator.EXCHANGE_FILE))) {
+      new ProcessTrainingWorker(setup, shard, exchange, workerIndex, () -> {
+        if (!coordinator.isAlive()) {
+          throw new IllegalStateException("Training coordinator exited");
+        }
+      }).run();
+    }
+  }
+
+  /**
+   * Trains one epoch per published generation until the coordinator stops the workers.
+   */
+  void run() {
+    var multiLayerNetwork = setup.multiLayerNetwork();
+    var layerWeights = multiLayerNetwork.getLayerWeights();
+    var layerMomentum = exchange.exchangesMomentum() ? multiLayerNetwork.momentumBuffers() : null;
+
+    try (var workerPool = WorkerPool.persistent(setup.maxParallelism());
+        var session = TrainingSession.open(multiLayerNetwork, gradientMatrixService,
+            new NesterovOptimizer(setup.momentum(), setup.decayL1(), setup.decayL2()))) {
+      var generation = 0;
+      while ((generation = exchange.awaitPublication(generation, healthCheck)) >= 0) {
+        exchange.readPublished(layerWeights, layerMomentum);
+
+        Collections.shuffle(shard, random);
+        multiLayerNetwork.learnMiniBatch(workerPool, session, shard, dataSelector,
+            setup.batchSize(), exchange.learningRate(), setup.trainingEngine(),
+            setup.activationMemoryBudget());
+
+        exchange.submit(workerIndex, layerWeights, layerMomentum, generation);
+      }
+    }
+    log.info(() -> "Training worker %d stopped".formatted(workerIndex));
+  }
+}
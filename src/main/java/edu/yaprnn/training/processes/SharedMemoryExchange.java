@@ -0,0 +1,358 @@
+package edu.yaprnn.training.processes;
+
+import edu.yaprnn.support.FloatKernels;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Memory-mapped file through which a coordinator and its worker processes exchange the weights of
+ * one network. Every epoch the coordinator publishes the current weights, each worker trains its
+ * shard starting from them and submits its weights into its own region, and the coordinator
+ * averages the submissions back into the network. An exchange created with momentum carries the
+ * momentum along with the weights, so it is averaged like them.
+ *
+ * <p>Layout of the file, all values in native byte order:
+ * <pre>
+ *   0   int   workerCount
+ *   4   int   weightsCount
+ *   8   int   generation, incremented by every publication
+ *   12  int   stopped, 1 once the workers shall exit
+ *   16  float learning rate of the current generation
+ *   20  int   momentum, 1 if the momentum is exchanged
+ *   24  int[] generation of the last submission of each worker
+ *   ... float[weightsCount] published weights, then float[weightsCount] per worker, each followed
+ *       by float[weightsCount] momentum if exchanged
+ * </pre>
+ * Generations are written with volatile semantics after the weights they announce.
+ */
+public final class SharedMemoryExchange implements AutoCloseable {
+
+  private static final VarHandle INT_HANDLE = MethodHandles.byteBufferViewVarHandle(int[].class,
+      ByteOrder.nativeOrder());
+
+  private static final int WORKER_COUNT_OFFSET = 0;
+  private static final int WEIGHTS_COUNT_OFFSET = 4;
+  private static final int GENERATION_OFFSET = 8;
+  private static final int STOPPED_OFFSET = 12;
+  private static final int LEARNING_RATE_OFFSET = 16;
+  private static final int MOMENTUM_OFFSET = 20;
+  private static final int SUBMISSIONS_OFFSET = 24;
+  /**
+   * Weights regions start on a cache line, so workers do not share lines with the header.
+   */
+  private static final int ALIGNMENT = 64;
+  private static final long SPIN_PARK_NANOS = 100_000L;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int workerCount;
+  private final int weightsCount;
+  private final boolean momentum;
+  private final FloatBuffer publishedWeights;
+  private final FloatBuffer[] submittedWeights;
+  /**
+   * Regions of the momentum, {@code null} unless {@link #exchangesMomentum()}
+   */
+  private final FloatBuffer publishedMomentum;
+  private final FloatBuffer[] submittedMomentum;
+
+  private SharedMemoryExchange(FileChannel channel, MappedByteBuffer buffer, int workerCount,
+      int weightsCount, boolean momentum) {
+    this.channel = channel;
+    this.buffer = buffer;
+    this.workerCount = workerCount;
+    this.weightsCount = weightsCount;
+    this.momentum = momentum;
+
+    var regionSize = 4L * weightsCount;
+    var offset = weightsOffset(workerCount);
+    publishedWeights = floats(offset);
+    publishedMomentum = momentum ? floats(offset + regionSize) : null;
+    submittedWeights = new FloatBuffer[workerCount];
+    submittedMomentum = momentum ? new FloatBuffer[workerCount] : null;
+    for (var i = 0; i < workerCount; i++) {
+      offset += regionSize * regions(momentum);
+      submittedWeights[i] = floats(offset);
+      if (momentum) {
+        submittedMomentum[i] = floats(offset + regionSize);
+      }
+    }
+  }
+
+  /**
+   * Creates the exchange file of the coordinator without momentum.
+   */
+  public static SharedMemoryExchange create(Path file, int workerCount, int weightsCount) {
+    return create(file, workerCount, weightsCount, false);
+  }
+
+  /**
+   * Creates the exchange file of the coordinator.
+   *
+   * @param momentum whether the momentum is exchanged along with the weights
+   */
+  public static SharedMemoryExchange create(Path file, int workerCount, int weightsCount,
+      boolean momentum) {
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("workerCount must be >= 1");
+    }
+    if (weightsCount < 0) {
+      throw new IllegalArgumentException("weightsCount must be >= 0");
+    }
+    var size = weightsOffset(workerCount)
+        + 4L * weightsCount * regions(momentum) * (workerCount + 1);
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Weights of %d workers exceed %d bytes".formatted(
+          workerCount, Integer.MAX_VALUE));
+    }
+
+    try {
+      var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      var buffer = channel.map(MapMode.READ_WRITE, 0, size);
+      buffer.order(ByteOrder.nativeOrder());
+      buffer.putInt(WORKER_COUNT_OFFSET, workerCount);
+      buffer.putInt(WEIGHTS_COUNT_OFFSET, weightsCount);
+      buffer.putInt(MOMENTUM_OFFSET, momentum ? 1 : 0);
+      return new SharedMemoryExchange(channel, buffer, workerCount, weightsCount, momentum);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Opens the exchange file created by the coordinator from a worker.
+   */
+  public static SharedMemoryExchange open(Path file) {
+    try {
+      var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      var buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+      buffer.order(ByteOrder.nativeOrder());
+      return new SharedMemoryExchange(channel, buffer, buffer.getInt(WORKER_COUNT_OFFSET),
+          buffer.getInt(WEIGHTS_COUNT_OFFSET), buffer.getInt(MOMENTUM_OFFSET) != 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int regions(boolean momentum) {
+    return momentum ? 2 : 1;
+  }
+
+  private static long weightsOffset(int workerCount) {
+    var headerSize = SUBMISSIONS_OFFSET + 4L * workerCount;
+    return Math.ceilDiv(headerSize, ALIGNMENT) * ALIGNMENT;
+  }
+
+  private FloatBuffer floats(long offset) {
+    return buffer.slice((int) offset, 4 * weightsCount).order(ByteOrder.nativeOrder())
+        .asFloatBuffer();
+  }
+
+  public int workerCount() {
+    return workerCount;
+  }
+
+  public int weightsCount() {
+    return weightsCount;
+  }
+
+  public boolean exchangesMomentum() {
+    return momentum;
+  }
+
+  /**
+   * Same as {@link #publish(float[][], float[][], float)} without momentum.
+   */
+  public int publish(float[][] layerWeights, float learningRate) {
+    return publish(layerWeights, null, learningRate);
+  }
+
+  /**
+   * Writes the weights, momentum and learning rate of the next generation and announces it to the
+   * workers.
+   *
+   * @param layerMomentum momentum like {@code layerWeights} if {@link #exchangesMomentum()}, else
+   *                      ignored
+   * @return the published generation
+   */
+  public int publish(float[][] layerWeights, float[][] layerMomentum, float learningRate) {
+    write(publishedWeights, layerWeights);
+    if (momentum) {
+      write(publishedMomentum, layerMomentum);
+    }
+    buffer.putFloat(LEARNING_RATE_OFFSET, learningRate);
+    var generation = (int) INT_HANDLE.getVolatile(buffer, GENERATION_OFFSET) + 1;
+    INT_HANDLE.setVolatile(buffer, GENERATION_OFFSET, generation);
+    return generation;
+  }
+
+  /**
+   * Blocks until every worker submitted its weights of {@code generation}.
+   *
+   * @param healthCheck called while waiting, throws if a worker cannot submit anymore
+   */
+  public void awaitSubmissions(int generation, Runnable healthCheck) {
+    for (var i = 0; i < workerCount; i++) {
+      var offset = SUBMISSIONS_OFFSET + 4 * i;
+      while ((int) INT_HANDLE.getVolatile(buffer, offset) != generation) {
+        idle(healthCheck);
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #averageInto(float[][], float[][], float[])} without momentum.
+   */
+  public void averageInto(float[][] layerWeights, float[] shares) {
+    averageInto(layerWeights, null, shares);
+  }
+
+  /**
+   * Overwrites {@code layerWeights} and {@code layerMomentum} with the submissions of all workers,
+   * weighted by {@code shares}.
+   *
+   * @param layerMomentum momentum like {@code layerWeights} if {@link #exchangesMomentum()}, else
+   *                      ignored
+   * @param shares        weight of each worker, usually its fraction of the training samples
+   */
+  public void averageInto(float[][] layerWeights, float[][] layerMomentum, float[] shares) {
+    if (shares.length != workerCount) {
+      throw new IllegalArgumentException("shares must have workerCount elements");
+    }
+
+    average(submittedWeights, layerWeights, shares);
+    if (momentum) {
+      average(submittedMomentum, layerMomentum, shares);
+    }
+  }
+
+  private void average(FloatBuffer[] submitted, float[][] layerWeights, float[] shares) {
+    var scratch = new float[Arrays.stream(layerWeights).mapToInt(w -> w.length).max().orElse(0)];
+    var offset = 0;
+    for (var weights : layerWeights) {
+      Arrays.fill(weights, 0f);
+      for (var i = 0; i < workerCount; i++) {
+        submitted[i].get(offset, scratch, 0, weights.length);
+        FloatKernels.axpy(shares[i], scratch, 0, weights, 0, weights.length);
+      }
+      offset += weights.length;
+    }
+  }
+
+  /**
+   * Tells the workers to exit once they observe the next generation.
+   */
+  public void stop() {
+    INT_HANDLE.setVolatile(buffer, STOPPED_OFFSET, 1);
+    INT_HANDLE.setVolatile(buffer, GENERATION_OFFSET,
+        (int) INT_HANDLE.getVolatile(buffer, GENERATION_OFFSET) + 1);
+  }
+
+  /**
+   * Blocks a worker until a generation after {@code lastGeneration} is published.
+   *
+   * @param healthCheck called while waiting, throws if the coordinator is gone
+   * @return the new generation, or -1 once the coordinator stopped the workers
+   */
+  public int awaitPublication(int lastGeneration, Runnable healthCheck) {
+    int generation;
+    while ((generation = (int) INT_HANDLE.getVolatile(buffer, GENERATION_OFFSET))
+        == lastGeneration) {
+      idle(healthCheck);
+    }
+    return (int) INT_HANDLE.getVolatile(buffer, STOPPED_OFFSET) != 0 ? -1 : generation;
+  }
+
+  public float learningRate() {
+    return buffer.getFloat(LEARNING_RATE_OFFSET);
+  }
+
+  /**
+   * Same as {@link #readPublished(float[][], float[][])} without momentum.
+   */
+  public void readPublished(float[][] layerWeights) {
+    readPublished(layerWeights, null);
+  }
+
+  /**
+   * Copies the published weights into {@code layerWeights} and the published momentum into
+   * {@code layerMomentum}, which is ignored unless {@link #exchangesMomentum()}.
+   */
+  public void readPublished(float[][] layerWeights, float[][] layerMomentum) {
+    read(publishedWeights, layerWeights);
+    if (momentum) {
+      read(publishedMomentum, layerMomentum);
+    }
+  }
+
+  private static void read(FloatBuffer source, float[][] layerWeights) {
+    var offset = 0;
+    for (var weights : layerWeights) {
+      source.get(offset, weights);
+      offset += weights.length;
+    }
+  }
+
+  /**
+   * Same as {@link #submit(int, float[][], float[][], int)} without momentum.
+   */
+  public void submit(int worker, float[][] layerWeights, int generation) {
+    submit(worker, layerWeights, null, generation);
+  }
+
+  /**
+   * Writes the weights and momentum of a worker and marks them as submitted for
+   * {@code generation}.
+   *
+   * @param layerMomentum momentum like {@code layerWeights} if {@link #exchangesMomentum()}, else
+   *                      ignored
+   */
+  public void submit(int worker, float[][] layerWeights, float[][] layerMomentum, int generation) {
+    write(submittedWeights[worker], layerWeights);
+    if (momentum) {
+      write(submittedMomentum[worker], layerMomentum);
+    }
+    INT_HANDLE.setVolatile(buffer, SUBMISSIONS_OFFSET + 4 * worker, generation);
+  }
+
+  private void write(FloatBuffer target, float[][] layerWeights) {
+    if (Arrays.stream(layerWeights).mapToInt(w -> w.length).sum() != weightsCount) {
+      throw new IllegalArgumentException("layerWeights must have weightsCount elements");
+    }
+
+    var offset = 0;
+    for (var weights : layerWeights) {
+      target.put(offset, weights);
+      offset += weights.length;
+    }
+  }
+
+  private void idle(Runnable healthCheck) {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new RuntimeException("Shared memory exchange interrupted");
+    }
+    healthCheck.run();
+    LockSupport.parkNanos(SPIN_PARK_NANOS);
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package edu.yaprnn.training.processes;
+
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary files holding the selected inputs and targets of the samples of one worker process:
+ * {@code int count}, then per sample {@code int length, float[length] input, int length,
+ * float[length] target}.
+ */
+final class TrainingShards {
+
+  private TrainingShards() {
+  }
+
+  static String fileName(int workerIndex) {
+    return "shard-%d.bin".formatted(workerIndex);
+  }
+
+  /**
+   * Writes the samples as selected by {@code dataSelector}. Targets are selected with a linear
+   * output activation, so the worker can apply the actual one like the
+   * {@link edu.yaprnn.training.selectors.ClassifierDataSelector} does.
+   */
+  static void write(Path file, List<? extends Sample> samples, DataSelector dataSelector) {
+    var linear = new LinearActivationFunction();
+    try (var output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file)))) {
+      output.writeInt(samples.size());
+      for (var sample : samples) {
+        writeFloats(output, dataSelector.input(sample));
+        writeFloats(output, dataSelector.target(sample, linear));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static List<SimpleSample> read(Path file) {
+    try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      var count = input.readInt();
+      var samples = new ArrayList<SimpleSample>(count);
+      for (var i = 0; i < count; i++) {
+        samples.add(SimpleSample.builder()
+            .name("%s[%d]".formatted(file.getFileName(), i))
+            .input(readFloats(input))
+            .target(readFloats(input))
+            .build());
+      }
+      return samples;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeFloats(DataOutputStream output, float[] values) throws IOException {
+    output.writeInt(values.length);
+    for (var value : values) {
+      output.writeFloat(value);
+    }
+  }
+
+  private static float[] readFloats(DataInputStream input) throws IOException {
+    var values = new float[input.readInt()];
+    for (var i = 0; i < values.length; i++) {
+      values[i] = input.readFloat();
+    }
+    return values;
+  }
+}
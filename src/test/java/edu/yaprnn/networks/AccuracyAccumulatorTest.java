@@ -0,0 +1,45 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+class AccuracyAccumulatorTest {
+
+  static final Offset<Float> PRECISION = Offset.offset(0.001f);
+
+  @Test
+  void shouldAverageAddedSamples() {
+    var accumulator = new AccuracyAccumulator();
+
+    accumulator.add(new float[]{0.1f, 0.9f}, new float[]{0f, 1f}, 0.5f);
+    accumulator.add(new float[]{0.9f, 0.1f}, new float[]{0f, 1f}, 0.3f);
+    var average = accumulator.average();
+
+    assertThat(average.error()).isCloseTo(0.4f, PRECISION);
+    assertThat(average.count()).isEqualTo(1);
+    assertThat(average.hits()).isCloseTo(0.5f, PRECISION);
+  }
+
+  @Test
+  void shouldAddAccumulatorsExactlyLikeSummedResults() {
+    var errors = new float[]{0.1f, 0.7f, 0.3f, 0.9f, 0.2f};
+    var h = new float[]{0.1f, 0.9f};
+    var target = new float[]{0f, 1f};
+    var chunks = new AccuracyAccumulator[]{new AccuracyAccumulator(), new AccuracyAccumulator()};
+    var expectedChunks = new AccuracyResult[2];
+    for (var i = 0; i < errors.length; i++) {
+      var c = i < 3 ? 0 : 1;
+      var result = AccuracyResult.from(h, target, errors[i]);
+      expectedChunks[c] = expectedChunks[c] == null ? result
+          : AccuracyResult.sum(expectedChunks[c], result);
+      chunks[c].add(h, target, errors[i]);
+    }
+
+    chunks[0].add(chunks[1]);
+
+    assertThat(chunks[0].average()).isEqualTo(
+        AccuracyResult.average(AccuracyResult.sum(expectedChunks[0], expectedChunks[1])));
+  }
+}
@@ -0,0 +1,58 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class AccuracyEvaluationTest {
+
+  final int[] layerSizes = {2};
+  final List<SimpleSample> samples = IntStream.range(0, 7)
+      .mapToObj(i -> SimpleSample.builder()
+          .input(new float[]{i, 1f})
+          .target(new float[]{0f, 1f})
+          .build())
+      .toList();
+
+  AccuracyResult computeAccuracy(int parallelism) {
+    try (var workerPool = WorkerPool.persistent(parallelism)) {
+      // the input layer is the output layer, so outputs are the inputs
+      return AccuracyEvaluation.computeAccuracy(workerPool, samples, new ClassifierDataSelector(),
+          new LinearActivationFunction(), new HalfSquaredErrorLossFunction(),
+          () -> new NetworkWorkspace(layerSizes), (workspace, sample, input) -> {
+            NetworkWorkspace.copyInput(input, workspace.v[0]);
+            NetworkWorkspace.copyInput(input, workspace.h[0]);
+            return workspace;
+          });
+    }
+  }
+
+  @Test
+  void shouldAverageOverAllChunks() {
+    var result = computeAccuracy(3);
+
+    // only input 0 has its maximum at index 1 like the targets
+    assertThat(result.hits()).isEqualTo(1f / 7f);
+    assertThat(result.count()).isEqualTo(1);
+    assertThat(result).isEqualTo(computeAccuracy(1));
+  }
+
+  @Test
+  void shouldThrowOnEmptySamples() {
+    try (var workerPool = WorkerPool.persistent(1)) {
+      assertThatThrownBy(() -> AccuracyEvaluation.computeAccuracy(workerPool, List.of(),
+          new ClassifierDataSelector(), new LinearActivationFunction(),
+          new HalfSquaredErrorLossFunction(), () -> new NetworkWorkspace(layerSizes),
+          (workspace, sample, input) -> workspace))
+          .isInstanceOf(NoSuchElementException.class);
+    }
+  }
+}
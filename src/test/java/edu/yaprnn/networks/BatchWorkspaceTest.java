@@ -0,0 +1,98 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class BatchWorkspaceTest {
+
+  final int[] layerSizes = {4, 6, 6, 6, 6, 3};
+
+  @Test
+  void shouldKeepEveryLayerWithoutCheckpoints() {
+    var workspace = new BatchWorkspace(layerSizes, 2);
+
+    assertThat(workspace.checkpointInterval).isEqualTo(1);
+    assertThat(workspace.v[1]).isNotSameAs(workspace.v[3]);
+    assertThat(workspace.h[2]).isNotSameAs(workspace.h[4]);
+    assertThat(workspace.v[5][1]).hasSize(3);
+  }
+
+  @Test
+  void shouldShareActivationsBetweenSegments() {
+    var workspace = new BatchWorkspace(layerSizes, 2, 2);
+
+    assertThat(workspace.v[1]).isSameAs(workspace.v[3]);
+    assertThat(workspace.h[1]).isSameAs(workspace.h[3]);
+    assertThat(workspace.v[2]).isNotSameAs(workspace.v[1]);
+    assertThat(workspace.v[4]).isNotSameAs(workspace.v[2]);
+    assertThat(workspace.v[5][1]).hasSize(3);
+  }
+
+  @Test
+  void shouldAlternateErrorsOfAdjacentLayers() {
+    var workspace = new BatchWorkspace(layerSizes, 2);
+
+    assertThat(workspace.errors[1]).isSameAs(workspace.errors[3]);
+    assertThat(workspace.errors[2]).isSameAs(workspace.errors[4]);
+    assertThat(workspace.errors[2]).isNotSameAs(workspace.errors[1]);
+  }
+
+  @Test
+  void shouldCountBytesPerSample() {
+    // 2 * (4 + 6 + 6 + 6 + 6 + 3) activations plus errors 4 + 6 + 6 + 3
+    assertThat(BatchWorkspace.rowBytes(layerSizes, 1)).isEqualTo(81L * Float.BYTES);
+    // checkpoints 0, 2 and 4, layers 1 and 3 share
+    assertThat(BatchWorkspace.rowBytes(layerSizes, 2)).isEqualTo(69L * Float.BYTES);
+    // a single segment needs all its layers
+    assertThat(BatchWorkspace.rowBytes(layerSizes, 5)).isEqualTo(81L * Float.BYTES);
+  }
+
+  @Test
+  void shouldShareIntermediatesLikeActivations() {
+    var workspace = new BatchWorkspace(layerSizes, 2, 2,
+        new boolean[]{false, true, false, true, true, false});
+
+    assertThat(workspace.intermediates[0]).isNull();
+    assertThat(workspace.intermediates[1]).isSameAs(workspace.intermediates[3]);
+    assertThat(workspace.intermediates[4]).isNotSameAs(workspace.intermediates[1]);
+    assertThat(workspace.intermediates[4][1]).hasSize(6);
+    assertThat(workspace.intermediates[5]).isNull();
+  }
+
+  @Test
+  void shouldCountIntermediatesPerSample() {
+    var cachesIntermediates = new boolean[]{false, true, false, true, true, false};
+
+    // 81 plus intermediates 6 + 6 + 6
+    assertThat(BatchWorkspace.rowBytes(layerSizes, 1, cachesIntermediates))
+        .isEqualTo(99L * Float.BYTES);
+    // 69 plus intermediates of the slot of layers 1 and 3, and of checkpoint 4
+    assertThat(BatchWorkspace.rowBytes(layerSizes, 2, cachesIntermediates))
+        .isEqualTo(81L * Float.BYTES);
+  }
+
+  @Test
+  void shouldKeepEveryLayerWithoutBudget() {
+    var workspace = BatchWorkspace.withinBudget(layerSizes, 8, 0L);
+
+    assertThat(workspace.checkpointInterval).isEqualTo(1);
+    assertThat(workspace.capacity()).isEqualTo(8);
+  }
+
+  @Test
+  void shouldPickSmallestIntervalWithinBudget() {
+    var workspace = BatchWorkspace.withinBudget(layerSizes, 8, 69L * Float.BYTES * 8);
+
+    assertThat(workspace.checkpointInterval).isEqualTo(2);
+    assertThat(workspace.capacity()).isEqualTo(8);
+  }
+
+  @Test
+  void shouldLowerCapacityToFitBudget() {
+    var workspace = BatchWorkspace.withinBudget(layerSizes, 8, 69L * Float.BYTES * 3);
+
+    assertThat(workspace.checkpointInterval).isEqualTo(2);
+    assertThat(workspace.capacity()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,149 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.activation.TangentHyperbolicActivationFunction;
+import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
+import edu.yaprnn.networks.templates.LayerTemplate;
+import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompactNetworkTest {
+
+  final DataSelector dataSelector = new ClassifierDataSelector();
+  final ActivationFunction linear = new LinearActivationFunction();
+  final ActivationFunction tanh = new TangentHyperbolicActivationFunction();
+  final ActivationFunction sigmoid = new SigmoidActivationFunction();
+  final MultiLayerNetworkTemplate model = MultiLayerNetworkTemplate.builder()
+      .bias(-1f)
+      .lossFunction(new HalfSquaredErrorLossFunction())
+      .layers(List.of(LayerTemplate.builder().size(10).activationFunction(linear).build(),
+          LayerTemplate.builder().size(8).activationFunction(tanh).build(),
+          LayerTemplate.builder().size(3).activationFunction(sigmoid).build()))
+      .build();
+  final TestGradientMatrixService gradientMatrixService = new TestGradientMatrixService();
+
+  Random random;
+  MultiLayerNetwork network;
+  List<Sample> samples;
+
+  @BeforeEach
+  void setup() {
+    random = new Random(11);
+    network = MultiLayerNetwork.builder()
+        .bias(model.getBias())
+        .lossFunction(model.getLossFunction())
+        .activationFunctions(model.collectActivationFunctions())
+        .layerSizes(model.collectLayerSizes())
+        .build();
+    network.resetLayerWeights(gradientMatrixService);
+    network.setName("network");
+
+    samples = IntStream.range(0, 20).<Sample>mapToObj(i -> {
+      var input = new float[10];
+      for (var j = 0; j < input.length; j++) {
+        input[j] = j % 3 == i % 3 ? 0f : random.nextFloat();
+      }
+      var target = new float[3];
+      target[i % 3] = 1f;
+      return SimpleSample.builder().input(input).target(target).build();
+    }).toList();
+  }
+
+  @Test
+  void shouldFeedForwardCloseToFloatNetwork() {
+    for (var precision : List.of(Precision.FP16, Precision.BF16)) {
+      var compact = CompactNetwork.of(network, precision);
+
+      for (var sample : samples) {
+        var expected = Layer.output(network.feedForward(sample, dataSelector)).h();
+        var actual = Layer.output(compact.feedForward(sample, dataSelector)).h();
+        for (var i = 0; i < expected.length; i++) {
+          assertThat(actual[i]).isCloseTo(expected[i], Offset.offset(0.01f));
+        }
+      }
+    }
+  }
+
+  @Test
+  void shouldComputeAccuracyLikeFloatNetwork() {
+    var compact = CompactNetwork.of(network, Precision.FP16);
+
+    try (var workerPool = WorkerPool.persistent(2)) {
+      var expected = network.computeAccuracy(workerPool, samples, dataSelector);
+      var actual = compact.computeAccuracy(workerPool, samples, dataSelector);
+
+      assertThat(actual.error()).isCloseTo(expected.error(), Offset.offset(0.001f));
+      assertThat(actual.hits()).isEqualTo(expected.hits());
+    }
+  }
+
+  @Test
+  void shouldTakeHalfOfFloatWeights() {
+    var compact = CompactNetwork.of(network, Precision.FP16);
+
+    assertThat(compact.sizeInBytes()).isEqualTo((long) Short.BYTES * (11 * 8 + 9 * 3));
+  }
+
+  @Test
+  void shouldPersistSmallerThanFloatNetwork() throws Exception {
+    var objectMapper = new ObjectMapper();
+    var compact = CompactNetwork.of(network, Precision.BF16);
+
+    var json = objectMapper.writeValueAsString(compact);
+    var loaded = objectMapper.readValue(json, CompactNetwork.class);
+
+    assertThat(json.length()).isLessThan(objectMapper.writeValueAsString(network).length());
+    assertThat(loaded.getPrecision()).isEqualTo(HalfPrecision.BF16);
+    assertThat(loaded.getName()).isEqualTo("network");
+    for (var l = 0; l < compact.getLayerWeights().length; l++) {
+      assertThat(loaded.getLayerWeights()[l]).containsExactly(compact.getLayerWeights()[l]);
+    }
+  }
+
+  @Test
+  void shouldWidenIntoMultiLayerNetwork() {
+    var compact = CompactNetwork.of(network, Precision.FP16);
+
+    var widened = compact.toMultiLayerNetwork();
+
+    assertThat(widened.getName()).isEqualTo("network");
+    assertThat(widened.getPreviousLayerGradients()).isNull();
+    for (var l = 0; l < network.getLayerWeights().length; l++) {
+      var expected = network.getLayerWeights()[l];
+      for (var w = 0; w < expected.length; w++) {
+        assertThat(widened.getLayerWeights()[l][w]).isCloseTo(expected[w],
+            Offset.offset(0.001f));
+      }
+    }
+  }
+
+  @Test
+  void shouldThrowOnFp32() {
+    assertThatThrownBy(() -> CompactNetwork.of(network, Precision.FP32))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("precision");
+  }
+
+  final class TestGradientMatrixService extends GradientMatrixService {
+
+    @Override
+    public float[][] resetLayerWeights(int[] layerSizes, ActivationFunction[] activationFunctions) {
+      return super.resetLayerWeights(random, layerSizes, activationFunctions);
+    }
+  }
+}
@@ -6,7 +6,12 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import edu.yaprnn.networks.activation.ActivationFunction;
 import edu.yaprnn.networks.activation.LinearActivationFunction;
 import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 class GradientMatrixServiceTest {
@@ -136,4 +141,66 @@ class GradientMatrixServiceTest {
 
     assertThat(matrices).isEmpty();
   }
+
+  @Nested
+  class SegmentSlices {
+
+    final Arena arena = Arena.ofConfined();
+
+    MemorySegment[] segmentsOf(float[]... layers) {
+      var segments = new MemorySegment[layers.length];
+      for (var l = 0; l < layers.length; l++) {
+        segments[l] = arena.allocate((long) layers[l].length * Float.BYTES, 64L);
+        MemorySegment.copy(layers[l], 0, segments[l], ValueLayout.JAVA_FLOAT, 0L,
+            layers[l].length);
+      }
+      return segments;
+    }
+
+    @AfterEach
+    void closeArena() {
+      arena.close();
+    }
+
+    @Test
+    void shouldReduceAllSlicesIntoFirstChunk() {
+      var chunkGradients = new MemorySegment[][]{
+          segmentsOf(new float[]{1f, 2f, 3f}, new float[]{4f, 5f}),
+          segmentsOf(new float[]{0.1f, 0.2f, 0.3f}, new float[]{0.4f, 0.5f}),
+          segmentsOf(new float[]{10f, 20f, 30f}, new float[]{40f, 50f})
+      };
+
+      for (var slice = 0; slice < 3; slice++) {
+        service.reduceSliceInPlace(chunkGradients, 3, slice);
+      }
+
+      assertThat(chunkGradients[0][0].toArray(ValueLayout.JAVA_FLOAT))
+          .containsExactly(11.1f, 22.2f, 33.3f);
+      assertThat(chunkGradients[0][1].toArray(ValueLayout.JAVA_FLOAT))
+          .containsExactly(44.4f, 55.5f);
+    }
+
+    @Test
+    void shouldReduceOnlyGivenSlice() {
+      var chunkGradients = new MemorySegment[][]{
+          segmentsOf(new float[]{1f, 2f, 3f, 4f}),
+          segmentsOf(new float[]{1f, 1f, 1f, 1f})
+      };
+
+      service.reduceSliceInPlace(chunkGradients, 2, 1);
+
+      assertThat(chunkGradients[0][0].toArray(ValueLayout.JAVA_FLOAT))
+          .containsExactly(1f, 2f, 4f, 5f);
+    }
+
+    @Test
+    void shouldThrowWhenSliceIsOutOfRange() {
+      var chunkGradients = new MemorySegment[][]{segmentsOf(new float[]{1f}),
+          segmentsOf(new float[]{1f})};
+
+      assertThatThrownBy(() -> service.reduceSliceInPlace(chunkGradients, 2, 2))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessageContaining("slice");
+    }
+  }
 }
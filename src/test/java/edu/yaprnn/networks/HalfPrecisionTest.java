@@ -0,0 +1,54 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class HalfPrecisionTest {
+
+  @Nested
+  class Fp16 {
+
+    @Test
+    void shouldRoundTripRepresentableValues() {
+      for (var value : new float[]{0f, -0f, 1f, -2.5f, 0.000061035156f, 65504f}) {
+        assertThat(HalfPrecision.FP16.decode(HalfPrecision.FP16.encode(value))).isEqualTo(value);
+      }
+    }
+
+    @Test
+    void shouldOverflowToInfinity() {
+      assertThat(HalfPrecision.FP16.decode(HalfPrecision.FP16.encode(1e6f)))
+          .isEqualTo(Float.POSITIVE_INFINITY);
+    }
+  }
+
+  @Nested
+  class Bf16 {
+
+    @Test
+    void shouldRoundTripRepresentableValues() {
+      for (var value : new float[]{0f, -0f, 1f, -2.5f, 0.0078125f, 0x1.fep127f}) {
+        assertThat(HalfPrecision.BF16.decode(HalfPrecision.BF16.encode(value))).isEqualTo(value);
+      }
+    }
+
+    @Test
+    void shouldRoundToNearestEven() {
+      // 1 + 2^-8 is halfway between 1 and the next bfloat16 1 + 2^-7
+      assertThat(HalfPrecision.BF16.decode(HalfPrecision.BF16.encode(1.00390625f))).isEqualTo(1f);
+      assertThat(HalfPrecision.BF16.decode(HalfPrecision.BF16.encode(Math.nextUp(1.00390625f))))
+          .isEqualTo(1.0078125f);
+      assertThat(HalfPrecision.BF16.decode(HalfPrecision.BF16.encode(1.01171875f))).isEqualTo(1.015625f);
+    }
+
+    @Test
+    void shouldKeepRangeOfFloat() {
+      assertThat(HalfPrecision.BF16.decode(HalfPrecision.BF16.encode(1e30f))).isCloseTo(1e30f,
+          Offset.offset(1e28f));
+      assertThat(HalfPrecision.BF16.decode(HalfPrecision.BF16.encode(Float.NaN))).isNaN();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package edu.yaprnn.networks;
+
+import edu.yaprnn.support.FloatKernels;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MatrixKernelsPerformanceTest {
+
+  static final int SIZE = 999;
+  static final int ROWS = 64;
+  static final int REPETITIONS = 20;
+
+  final Random random = new Random(42);
+
+  float[][] input;
+  float[][] outputError;
+  float[][] v;
+  float[] weights;
+  float[] gradients;
+
+  float[][] randomRows(int count, int size) {
+    var rows = new float[count][size];
+    for (var row : rows) {
+      for (var i = 0; i < size; i++) {
+        row[i] = random.nextFloat();
+      }
+    }
+    return rows;
+  }
+
+  @BeforeEach
+  void createMatrices() {
+    input = randomRows(ROWS, SIZE);
+    outputError = randomRows(ROWS, SIZE);
+    v = new float[ROWS][SIZE];
+    weights = randomRows(1, (SIZE + 1) * SIZE)[0];
+    gradients = new float[weights.length];
+  }
+
+  @Test
+  void measureTransform() {
+    measure("transformRows",
+        () -> MatrixKernels.transformRows(input, ROWS, weights, -1f, v));
+    measure("transformTiled",
+        () -> MatrixKernels.transformTiled(input, ROWS, weights, -1f, v));
+  }
+
+  @Test
+  void measureAccumulateGradients() {
+    measure("accumulateGradientsRows",
+        () -> MatrixKernels.accumulateGradientsRows(input, outputError, ROWS, -1f, gradients,
+            false));
+    measure("accumulateGradientsTiled",
+        () -> MatrixKernels.accumulateGradientsTiled(input, outputError, ROWS, -1f, gradients,
+            false));
+  }
+
+  /**
+   * Compares the backpropagation through the row-major weights with the one through their
+   * transpose, including the cost of transposing once per pass, for a square layer and narrower
+   * output layers in both SIMD modes.
+   */
+  @Test
+  void measureBackpropagateTransposed() {
+    var simdEnabled = FloatKernels.isSimdEnabled();
+    try {
+      for (var simd : simdEnabled ? new boolean[]{false, true} : new boolean[]{false}) {
+        FloatKernels.setSimdEnabled(simd);
+        for (var outputSize : new int[]{SIZE, 128, 64, 10}) {
+          var layerError = randomRows(ROWS, SIZE);
+          var error = randomRows(ROWS, outputSize);
+          var layerWeights = randomRows(1, (SIZE + 1) * outputSize)[0];
+          var transposed = new float[SIZE * outputSize];
+          var scratch = new float[MatrixKernels.ROW_TILE * (SIZE + 1)];
+          var name = "simd=%s, %s x %s ".formatted(simd, SIZE, outputSize);
+
+          measure(name + "backpropagate",
+              () -> MatrixKernels.backpropagate(error, ROWS, layerWeights, layerError, scratch,
+                  false));
+          measure(name + "transpose", () -> MatrixKernels.transpose(layerWeights, SIZE,
+              outputSize, transposed));
+          measure(name + "backpropagateTransposed",
+              () -> MatrixKernels.backpropagateTransposed(error, ROWS, transposed, layerError,
+                  scratch, false));
+        }
+      }
+    } finally {
+      FloatKernels.setSimdEnabled(simdEnabled);
+    }
+  }
+
+  void measure(String name, Runnable kernel) {
+    for (var i = 0; i < REPETITIONS; i++) {
+      kernel.run();
+    }
+
+    var t = System.nanoTime();
+
+    for (var i = 0; i < REPETITIONS; i++) {
+      kernel.run();
+    }
+
+    var d = System.nanoTime() - t;
+    System.out.printf("%s time delta: %s s%n", name, (d / 1_000_000_000.0));
+  }
+}
@@ -0,0 +1,301 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.yaprnn.support.FloatKernels;
+import edu.yaprnn.support.Floats;
+import java.util.Random;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class MatrixKernelsTest {
+
+  // Sizes that do not divide into whole row and column tiles
+  static final int ROWS = MatrixKernels.ROW_TILE + 3;
+  static final int INPUT_SIZE = 37;
+  static final int OUTPUT_SIZE = MatrixKernels.COLUMN_TILE + 5;
+  static final float BIAS = -1f;
+
+  final Random random = new Random(42);
+
+  float[][] input;
+  float[][] outputError;
+  float[] weights;
+
+  float[][] randomRows(int count, int size) {
+    var rows = new float[count][size];
+    for (var row : rows) {
+      for (var i = 0; i < size; i++) {
+        row[i] = random.nextFloat() - 0.5f;
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Zeroes all but every third input of each sample.
+   *
+   * @return indices of the remaining inputs of each sample
+   */
+  int[][] sparsifyInput() {
+    var nonZeroInputs = new int[ROWS][];
+    for (var s = 0; s < ROWS; s++) {
+      for (var i = 0; i < INPUT_SIZE; i++) {
+        if ((i + s) % 3 != 0) {
+          input[s][i] = 0f;
+        }
+      }
+      nonZeroInputs[s] = Floats.nonZeroIndices(input[s]);
+    }
+    return nonZeroInputs;
+  }
+
+  @BeforeEach
+  void createMatrices() {
+    input = randomRows(ROWS, INPUT_SIZE);
+    outputError = randomRows(ROWS, OUTPUT_SIZE);
+    weights = randomRows(1, (INPUT_SIZE + 1) * OUTPUT_SIZE)[0];
+  }
+
+  @Nested
+  class Transform {
+
+    float[] transformSample(float[] sample) {
+      var v = new float[OUTPUT_SIZE];
+      var w = 0;
+      for (var row = 0; row < INPUT_SIZE; row++) {
+        for (var i = 0; i < OUTPUT_SIZE; i++, w++) {
+          v[i] += weights[w] * sample[row];
+        }
+      }
+      for (var i = 0; i < OUTPUT_SIZE; i++, w++) {
+        v[i] += weights[w] * BIAS;
+      }
+      return v;
+    }
+
+    @Test
+    void shouldTransformRowsLikeSingleSamples() {
+      var v = new float[ROWS][OUTPUT_SIZE];
+
+      MatrixKernels.transformRows(input, ROWS, weights, BIAS, v);
+
+      for (var s = 0; s < ROWS; s++) {
+        assertThat(v[s]).containsExactly(transformSample(input[s]));
+      }
+    }
+
+    @Test
+    void shouldTransformTiledLikeRows() {
+      var expected = new float[ROWS][OUTPUT_SIZE];
+      var actual = new float[ROWS][OUTPUT_SIZE];
+
+      MatrixKernels.transformRows(input, ROWS, weights, BIAS, expected);
+      MatrixKernels.transformTiled(input, ROWS, weights, BIAS, actual);
+
+      for (var s = 0; s < ROWS; s++) {
+        assertThat(actual[s]).containsExactly(expected[s]);
+      }
+    }
+
+    @Test
+    void shouldTransformSparseLikeRows() {
+      var nonZeroInputs = sparsifyInput();
+      var expected = new float[ROWS][OUTPUT_SIZE];
+      var actual = new float[ROWS][OUTPUT_SIZE];
+
+      MatrixKernels.transformRows(input, ROWS, weights, BIAS, expected);
+      MatrixKernels.transformSparse(input, nonZeroInputs, ROWS, weights, BIAS, actual);
+
+      for (var s = 0; s < ROWS; s++) {
+        assertThat(actual[s]).containsExactly(expected[s]);
+      }
+    }
+  }
+
+  @Nested
+  class AccumulateGradients {
+
+    @Test
+    void shouldAccumulateTiledLikeRows() {
+      var expected = new float[weights.length];
+      var actual = new float[weights.length];
+
+      MatrixKernels.accumulateGradientsRows(input, outputError, ROWS, BIAS, expected, false);
+      MatrixKernels.accumulateGradientsTiled(input, outputError, ROWS, BIAS, actual, false);
+
+      assertThat(actual).containsExactly(expected);
+    }
+
+    @Test
+    void shouldSkipZeroInputsLikeRows() {
+      sparsifyInput();
+      var expected = new float[weights.length];
+      var rowsSkipping = new float[weights.length];
+      var tiledSkipping = new float[weights.length];
+
+      MatrixKernels.accumulateGradientsRows(input, outputError, ROWS, BIAS, expected, false);
+      MatrixKernels.accumulateGradientsRows(input, outputError, ROWS, BIAS, rowsSkipping, true);
+      MatrixKernels.accumulateGradientsTiled(input, outputError, ROWS, BIAS, tiledSkipping, true);
+
+      assertThat(rowsSkipping).containsExactly(expected);
+      assertThat(tiledSkipping).containsExactly(expected);
+    }
+
+    @Test
+    void shouldAccumulateSparseLikeRows() {
+      var nonZeroInputs = sparsifyInput();
+      var expected = new float[weights.length];
+      var actual = new float[weights.length];
+
+      MatrixKernels.accumulateGradientsRows(input, outputError, ROWS, BIAS, expected, false);
+      MatrixKernels.accumulateGradientsSparse(input, nonZeroInputs, outputError, ROWS, BIAS,
+          actual);
+
+      assertThat(actual).containsExactly(expected);
+    }
+
+    @Test
+    void shouldIgnoreEmptyChunks() {
+      var gradients = new float[weights.length];
+
+      MatrixKernels.accumulateGradientsTiled(input, outputError, 0, BIAS, gradients, false);
+
+      assertThat(gradients).containsOnly(0f);
+    }
+  }
+
+  @Nested
+  class Backpropagate {
+
+    @Test
+    void shouldMultiplyDerivativesByWeightedErrorsLikeSingleSamples() {
+      var layerError = randomRows(ROWS, INPUT_SIZE);
+      var expected = new float[ROWS][];
+      for (var s = 0; s < ROWS; s++) {
+        expected[s] = layerError[s].clone();
+        for (int j = 0, w = 0; j < INPUT_SIZE; j++, w += OUTPUT_SIZE) {
+          expected[s][j] *= FloatKernels.dot(weights, w, outputError[s], 0, OUTPUT_SIZE);
+        }
+      }
+
+      MatrixKernels.backpropagate(outputError, ROWS, weights, layerError,
+          new float[MatrixKernels.ROW_TILE * (OUTPUT_SIZE + 1)], false);
+
+      for (var s = 0; s < ROWS; s++) {
+        assertThat(layerError[s]).containsExactly(expected[s]);
+      }
+    }
+
+    @Test
+    void shouldBackpropagateTransposedLikeSequentialSums() {
+      var layerError = randomRows(ROWS, INPUT_SIZE);
+      var expected = new float[ROWS][];
+      for (var s = 0; s < ROWS; s++) {
+        expected[s] = layerError[s].clone();
+        for (int j = 0, w = 0; j < INPUT_SIZE; j++, w += OUTPUT_SIZE) {
+          var sum = 0f;
+          for (var i = 0; i < OUTPUT_SIZE; i++) {
+            sum += weights[w + i] * outputError[s][i];
+          }
+          expected[s][j] *= sum;
+        }
+      }
+      var transposed = new float[INPUT_SIZE * OUTPUT_SIZE];
+      MatrixKernels.transpose(weights, INPUT_SIZE, OUTPUT_SIZE, transposed);
+
+      MatrixKernels.backpropagateTransposed(outputError, ROWS, transposed, layerError,
+          new float[MatrixKernels.ROW_TILE * INPUT_SIZE], false);
+
+      for (var s = 0; s < ROWS; s++) {
+        assertThat(layerError[s]).containsExactly(expected[s]);
+      }
+    }
+
+    /**
+     * Zeroes the derivatives of the inputs, and the errors of the outputs, of every other sample
+     * and of every third neuron, like inactive neurons.
+     */
+    float[][] inactiveRows(int count, int size) {
+      var rows = randomRows(count, size);
+      for (var s = 0; s < count; s++) {
+        for (var i = 0; i < size; i++) {
+          if (s % 2 == 0 || i % 3 == 0) {
+            rows[s][i] = 0f;
+          }
+        }
+      }
+      return rows;
+    }
+
+    @Test
+    void shouldSkipInactiveInputsInBothModes() {
+      var simdEnabled = FloatKernels.isSimdEnabled();
+      try {
+        for (var simd : new boolean[]{false, simdEnabled}) {
+          FloatKernels.setSimdEnabled(simd);
+          var expected = inactiveRows(ROWS, INPUT_SIZE);
+          var actual = copyOf(expected);
+          var scratch = new float[MatrixKernels.ROW_TILE * (OUTPUT_SIZE + 1)];
+
+          MatrixKernels.backpropagate(outputError, ROWS, weights, expected, scratch, false);
+          MatrixKernels.backpropagate(outputError, ROWS, weights, actual, scratch, true);
+
+          for (var s = 0; s < ROWS; s++) {
+            // skipped inputs keep +0 instead of a signed zero
+            assertThat(actual[s]).containsExactly(expected[s], Offset.offset(0f));
+          }
+        }
+      } finally {
+        FloatKernels.setSimdEnabled(simdEnabled);
+      }
+    }
+
+    @Test
+    void shouldSkipZeroErrorsTransposed() {
+      var inactiveError = inactiveRows(ROWS, OUTPUT_SIZE);
+      var expected = randomRows(ROWS, INPUT_SIZE);
+      var actual = copyOf(expected);
+      var transposed = new float[INPUT_SIZE * OUTPUT_SIZE];
+      MatrixKernels.transpose(weights, INPUT_SIZE, OUTPUT_SIZE, transposed);
+      var scratch = new float[MatrixKernels.ROW_TILE * INPUT_SIZE];
+
+      MatrixKernels.backpropagateTransposed(inactiveError, ROWS, transposed, expected, scratch,
+          false);
+      MatrixKernels.backpropagateTransposed(inactiveError, ROWS, transposed, actual, scratch,
+          true);
+
+      for (var s = 0; s < ROWS; s++) {
+        assertThat(actual[s]).containsExactly(expected[s], Offset.offset(0f));
+      }
+    }
+
+    float[][] copyOf(float[][] rows) {
+      var copy = new float[rows.length][];
+      for (var s = 0; s < rows.length; s++) {
+        copy[s] = rows[s].clone();
+      }
+      return copy;
+    }
+  }
+
+  @Nested
+  class Transpose {
+
+    @Test
+    void shouldTransposeWithoutBiasRow() {
+      var transposed = new float[INPUT_SIZE * OUTPUT_SIZE];
+
+      MatrixKernels.transpose(weights, INPUT_SIZE, OUTPUT_SIZE, transposed);
+
+      for (var row = 0; row < INPUT_SIZE; row++) {
+        for (var col = 0; col < OUTPUT_SIZE; col++) {
+          assertThat(transposed[col * INPUT_SIZE + row]).isEqualTo(
+              weights[row * OUTPUT_SIZE + col]);
+        }
+      }
+    }
+  }
+}
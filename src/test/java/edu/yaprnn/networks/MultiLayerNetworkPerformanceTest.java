@@ -2,14 +2,22 @@ package edu.yaprnn.networks;
 
 import edu.yaprnn.networks.activation.ActivationFunction;
 import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.ReLUActivationFunction;
 import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.activation.ThresholdActivationFunction;
 import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
 import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.networks.optimizers.AdaGradOptimizer;
+import edu.yaprnn.networks.optimizers.AdamOptimizer;
+import edu.yaprnn.networks.optimizers.MomentumOptimizer;
+import edu.yaprnn.networks.optimizers.NesterovOptimizer;
+import edu.yaprnn.networks.optimizers.RmsPropOptimizer;
 import edu.yaprnn.networks.templates.LayerTemplate;
 import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
 import edu.yaprnn.samples.model.SimpleSample;
 import edu.yaprnn.training.selectors.ClassifierDataSelector;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
@@ -98,9 +106,249 @@ class MultiLayerNetworkPerformanceTest {
     System.out.printf("Time delta: %s s", (d / 1_000_000_000.0));
   }
 
+  @Test
+  void measureLearnMiniBatchBatched() {
+    learnMiniBatch(TrainingEngine.BATCHED);
+
+    var t = System.nanoTime();
+
+    learnMiniBatch(TrainingEngine.BATCHED);
+
+    var d = System.nanoTime() - t;
+    System.out.printf("Time delta: %s s", (d / 1_000_000_000.0));
+  }
+
+  /**
+   * Compares the training on digit-like images, a fifth of whose pixels are inked, with the sparse
+   * first layer against the same network with an input threshold that keeps the inputs but makes
+   * it visit all weights.
+   */
+  @Test
+  void measureLearnMiniBatchSparseInputs() {
+    var digitsLike = IntStream.range(0, 1000)
+        .mapToObj(i -> {
+          var input = new float[784];
+          for (var k = 0; k < input.length; k++) {
+            input[k] = random.nextFloat() < 0.2f ? 0.2f + 0.8f * random.nextFloat() : 0f;
+          }
+          return SimpleSample.builder().input(input).target(generateFloats(10)).build();
+        })
+        .toList();
+
+    for (var inputActivationFunction : List.of(linear, new ThresholdActivationFunction())) {
+      network = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .activationFunctions(new ActivationFunction[]{inputActivationFunction, sigmoid, sigmoid})
+          .layerSizes(new int[]{784, 100, 10})
+          .lossFunction(model.getLossFunction())
+          .build();
+      network.resetLayerWeights(gradientMatrixService);
+
+      for (var trainingEngine : List.of(TrainingEngine.PER_SAMPLE, TrainingEngine.BATCHED)) {
+        network.learnMiniBatch(gradientMatrixService, executor, digitsLike, dataSelector, 1, 10,
+            0.1f, 0.2f, 0f, 0f, trainingEngine);
+
+        var t = System.nanoTime();
+        network.learnMiniBatch(gradientMatrixService, executor, digitsLike, dataSelector, 1, 10,
+            0.1f, 0.2f, 0f, 0f, trainingEngine);
+
+        var d = System.nanoTime() - t;
+        System.out.printf("%s, %s: time delta: %s s%n", inputActivationFunction, trainingEngine,
+            (d / 1_000_000_000.0));
+      }
+    }
+  }
+
+  /**
+   * Compares the training of a network with ReLU hidden layers, which skips the inactive neurons
+   * of each sample in backpropagation, with the same network with linear hidden layers, which has
+   * none.
+   */
+  @Test
+  void measureLearnMiniBatchInactiveNeurons() {
+    var someSamples = samples.subList(0, 200).stream()
+        .map(sample -> SimpleSample.builder()
+            .input(sample.getInput())
+            .target(Arrays.copyOf(sample.getTarget(), 10))
+            .build())
+        .toList();
+
+    for (var hiddenActivationFunction : List.of(new ReLUActivationFunction(), linear)) {
+      network = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .activationFunctions(new ActivationFunction[]{linear, hiddenActivationFunction,
+              hiddenActivationFunction, hiddenActivationFunction, sigmoid})
+          .layerSizes(new int[]{999, 512, 512, 512, 10})
+          .lossFunction(model.getLossFunction())
+          .build();
+      network.resetLayerWeights(gradientMatrixService);
+
+      for (var trainingEngine : List.of(TrainingEngine.PER_SAMPLE, TrainingEngine.BATCHED,
+          TrainingEngine.BATCHED_TRANSPOSED)) {
+        network.learnMiniBatch(gradientMatrixService, executor, someSamples, dataSelector, 1, 10,
+            0.01f, 0.2f, 0f, 0f, trainingEngine);
+
+        var t = System.nanoTime();
+        network.learnMiniBatch(gradientMatrixService, executor, someSamples, dataSelector, 1, 10,
+            0.01f, 0.2f, 0f, 0f, trainingEngine);
+
+        var d = System.nanoTime() - t;
+        System.out.printf("%s, %s: time delta: %s s%n", hiddenActivationFunction, trainingEngine,
+            (d / 1_000_000_000.0));
+      }
+    }
+  }
+
+  /**
+   * Compares the batched engine with and without the transposed weights, on the wide network and
+   * on one with narrow hidden layers. The copy is refreshed after every mini-batch, so it needs
+   * larger batches to pay off.
+   */
+  @Test
+  void measureLearnMiniBatchTransposed() {
+    measureLearnMiniBatchTransposed("wide");
+
+    network = MultiLayerNetwork.builder()
+        .bias(model.getBias())
+        .activationFunctions(new ActivationFunction[]{linear, sigmoid, sigmoid, sigmoid})
+        .layerSizes(new int[]{999, 64, 32, 10})
+        .lossFunction(model.getLossFunction())
+        .build();
+    network.resetLayerWeights(gradientMatrixService);
+    measureLearnMiniBatchTransposed("narrow");
+  }
+
+  void measureLearnMiniBatchTransposed(String name) {
+    for (var batchSize : new int[]{1, 10, 100}) {
+      for (var trainingEngine : List.of(TrainingEngine.BATCHED,
+          TrainingEngine.BATCHED_TRANSPOSED)) {
+        learnMiniBatch(trainingEngine, batchSize);
+
+        var t = System.nanoTime();
+
+        learnMiniBatch(trainingEngine, batchSize);
+
+        var d = System.nanoTime() - t;
+        System.out.printf("%s %s, batch size %s: time delta: %s s%n", name, trainingEngine,
+            batchSize, (d / 1_000_000_000.0));
+      }
+    }
+  }
+
+  /**
+   * Shows the phases of the batched engine on all cores, where the reduction includes the weight
+   * update split across the workers.
+   */
+  @Test
+  void measureLearnMiniBatchPhases() {
+    var parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+    try (var workerPool = WorkerPool.persistent(parallelism)) {
+      for (var batchSize : new int[]{10, 100}) {
+        var optimizerState = network.createOptimizerState(AdamOptimizer.adam(0f, 0f));
+        network.learnMiniBatch(gradientMatrixService, workerPool, samples, dataSelector,
+            batchSize, 0.001f, optimizerState, TrainingEngine.BATCHED, 0L);
+
+        var timings = network.learnMiniBatch(gradientMatrixService, workerPool, samples,
+            dataSelector, batchSize, 0.001f, optimizerState, TrainingEngine.BATCHED, 0L);
+
+        System.out.printf(
+            "batch size %s: gradients %s s, reduction and update %s s, remaining update %s s%n",
+            batchSize, timings.gradientsNanos() / 1_000_000_000.0,
+            timings.reductionNanos() / 1_000_000_000.0, timings.updateNanos() / 1_000_000_000.0);
+      }
+    }
+  }
+
+  /**
+   * Compares the time until the training error halves with synchronous and lock-free updates.
+   */
+  @Test
+  void measureTimeToErrorHogwild() {
+    var parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+    var digitsLike = samples.subList(0, 200);
+    var initial = copyOf(network.getLayerWeights());
+    for (var trainingEngine : List.of(TrainingEngine.BATCHED, TrainingEngine.HOGWILD)) {
+      for (var l = 0; l < initial.length; l++) {
+        System.arraycopy(initial[l], 0, network.getLayerWeights()[l], 0, initial[l].length);
+      }
+      var targetError = network.computeAccuracy(executor, digitsLike, dataSelector, 1).error() / 2f;
+
+      var t = System.nanoTime();
+      var epochs = 0;
+      try (var workerPool = WorkerPool.persistent(parallelism)) {
+        do {
+          network.learnMiniBatch(gradientMatrixService, workerPool, digitsLike, dataSelector, 10,
+              0.02f, 0.2f, 0f, 0f, trainingEngine);
+          epochs++;
+        } while (epochs < 20
+            && network.computeAccuracy(workerPool, digitsLike, dataSelector).error()
+            > targetError);
+      }
+
+      var d = System.nanoTime() - t;
+      System.out.printf("%s: %s epochs, time delta: %s s%n", trainingEngine, epochs,
+          (d / 1_000_000_000.0));
+    }
+  }
+
+  /**
+   * Compares the epochs and the time until the training error halves with each optimizer, each at
+   * a learning rate typical for it.
+   */
+  @Test
+  void measureTimeToErrorOptimizers() {
+    var digitsLike = samples.subList(0, 200);
+    var initial = copyOf(network.getLayerWeights());
+    var optimizers = List.of(new NesterovOptimizer(0.2f, 0f, 0f),
+        new MomentumOptimizer(0.2f, 0f, 0f), AdaGradOptimizer.withDefaults(0f, 0f),
+        RmsPropOptimizer.withDefaults(0f, 0f), AdamOptimizer.adam(0f, 0f),
+        AdamOptimizer.adamW(0f, 0.001f));
+    var learningRates = new float[]{0.02f, 0.02f, 0.01f, 0.001f, 0.001f, 0.001f};
+    for (var o = 0; o < optimizers.size(); o++) {
+      for (var l = 0; l < initial.length; l++) {
+        System.arraycopy(initial[l], 0, network.getLayerWeights()[l], 0, initial[l].length);
+        Arrays.fill(network.momentumBuffers()[l], 0f);
+      }
+      var targetError = network.computeAccuracy(executor, digitsLike, dataSelector, 1).error() / 2f;
+      var optimizerState = network.createOptimizerState(optimizers.get(o));
+
+      var t = System.nanoTime();
+      var epochs = 0;
+      try (var workerPool = WorkerPool.persistent(1)) {
+        do {
+          network.learnMiniBatch(gradientMatrixService, workerPool, digitsLike, dataSelector, 10,
+              learningRates[o], optimizerState, TrainingEngine.BATCHED, 0L);
+          epochs++;
+        } while (epochs < 20
+            && network.computeAccuracy(workerPool, digitsLike, dataSelector).error()
+            > targetError);
+      }
+
+      var d = System.nanoTime() - t;
+      System.out.printf("%s: %s epochs, time delta: %s s%n", optimizers.get(o), epochs,
+          (d / 1_000_000_000.0));
+    }
+  }
+
+  float[][] copyOf(float[][] layerWeights) {
+    var copy = new float[layerWeights.length][];
+    for (var l = 0; l < layerWeights.length; l++) {
+      copy[l] = layerWeights[l].clone();
+    }
+    return copy;
+  }
+
   void learnMiniBatch() {
-    network.learnMiniBatch(gradientMatrixService, executor, samples, dataSelector, 1, 10, 0.02f,
-        0.2f, 0.001f, 0.001f);
+    learnMiniBatch(TrainingEngine.PER_SAMPLE);
+  }
+
+  void learnMiniBatch(TrainingEngine trainingEngine) {
+    learnMiniBatch(trainingEngine, 10);
+  }
+
+  void learnMiniBatch(TrainingEngine trainingEngine, int batchSize) {
+    network.learnMiniBatch(gradientMatrixService, executor, samples, dataSelector, 1, batchSize,
+        0.02f, 0.2f, 0.001f, 0.001f, trainingEngine);
   }
 
   final class TestGradientMatrixService extends GradientMatrixService {
@@ -7,12 +7,24 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import edu.yaprnn.networks.activation.ActivationFunction;
 import edu.yaprnn.networks.activation.GeLUActivationFunction;
 import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.QuickGeLUActivationFunction;
+import edu.yaprnn.networks.activation.ReLUActivationFunction;
+import edu.yaprnn.networks.activation.SoftMaxActivationFunction;
+import edu.yaprnn.networks.activation.ThresholdActivationFunction;
+import edu.yaprnn.networks.loss.BinaryCrossEntropyLossFunction;
 import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
 import edu.yaprnn.networks.loss.LossFunction;
+import edu.yaprnn.networks.loss.SoftMaxCrossEntropy;
+import edu.yaprnn.networks.optimizers.AdaGradOptimizer;
+import edu.yaprnn.networks.optimizers.AdamOptimizer;
+import edu.yaprnn.networks.optimizers.MomentumOptimizer;
+import edu.yaprnn.networks.optimizers.NesterovOptimizer;
+import edu.yaprnn.networks.optimizers.RmsPropOptimizer;
 import edu.yaprnn.networks.templates.LayerTemplate;
 import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
 import edu.yaprnn.samples.model.Sample;
 import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.support.FloatKernels;
 import edu.yaprnn.training.selectors.ClassifierDataSelector;
 import edu.yaprnn.training.selectors.DataSelector;
 import java.security.SecureRandom;
@@ -20,6 +32,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -517,6 +530,63 @@ class MultiLayerNetworkTest {
     }
   }
 
+  @Nested
+  class SoftMaxCrossEntropyOutput {
+
+    final SoftMaxActivationFunction softMax = new SoftMaxActivationFunction();
+    final SimpleSample sample = SimpleSample.builder()
+        .input(new float[]{0.5f, -1f, 2f})
+        .target(new float[]{0f, 3f, 0f, 1f})
+        .build();
+
+    MultiLayerNetwork createNetwork() {
+      var layerWeights = new float[][]{new float[4 * 4]};
+      for (var w = 0; w < layerWeights[0].length; w++) {
+        layerWeights[0][w] = 0.1f * (w % 7) - 0.3f;
+      }
+      return MultiLayerNetwork.builder()
+          .layerSizes(new int[]{3, 4})
+          .activationFunctions(new ActivationFunction[]{linear, softMax})
+          .bias(1f)
+          .lossFunction(new BinaryCrossEntropyLossFunction())
+          .layerWeights(layerWeights)
+          .previousLayerGradients(new float[][]{new float[4 * 4]})
+          .build();
+    }
+
+    @Test
+    void shouldLearnWithOutputMinusTargetAsOutputError() {
+      network = createNetwork();
+      var h = network.feedForward(sample, dataSelector)[1].h();
+      var target = dataSelector.target(sample, softMax);
+      var input = new float[]{0.5f, -1f, 2f, 1f};
+      var expected = network.getLayerWeights()[0].clone();
+      for (int row = 0, w = 0; row < input.length; row++) {
+        for (var c = 0; c < h.length; c++, w++) {
+          expected[w] -= 0.5f * input[row] * (h[c] - target[c]);
+        }
+      }
+
+      network.learnMiniBatch(gradientMatrixService, executor, List.of(sample), dataSelector, 1, 1,
+          0.5f, 0f, 0f, 0f);
+
+      assertThat(network.getLayerWeights()[0]).containsExactly(expected, Offset.offset(1e-6f));
+    }
+
+    @Test
+    void shouldReportLogSumExpLoss() {
+      network = createNetwork();
+      var layers = network.feedForward(sample, dataSelector);
+      var target = dataSelector.target(sample, softMax);
+
+      var accuracy = network.computeAccuracy(executor, List.of(sample), dataSelector, 1);
+
+      assertThat(accuracy.error()).isCloseTo(
+          SoftMaxCrossEntropy.computeNetworkError(network.getLossFunction(), layers[1].v(),
+              layers[1].h(), target), Offset.offset(1e-6f));
+    }
+  }
+
   @Nested
   class LearnMiniBatchValidation {
 
@@ -559,6 +629,14 @@ class MultiLayerNetworkTest {
           .withMessageContaining("dataSelector");
     }
 
+    @Test
+    void shouldThrowOnNullTrainingEngine() {
+      assertThatNullPointerException()
+          .isThrownBy(() -> validationNetwork.learnMiniBatch(gradientMatrixService, executor,
+              List.of(), dataSelector, 1, 10, 0.1f, 0f, 0f, 0f, null))
+          .withMessageContaining("trainingEngine");
+    }
+
     @Test
     void shouldThrowOnInvalidMaxParallelism() {
       assertThatThrownBy(() -> validationNetwork.learnMiniBatch(gradientMatrixService, executor,
@@ -576,6 +654,570 @@ class MultiLayerNetworkTest {
     }
   }
 
+  @Nested
+  class TrainingEngines {
+
+    final MultiLayerNetworkTemplate model = MultiLayerNetworkTemplate.builder()
+        .bias(-1f)
+        .lossFunction(lossFunction)
+        .layers(List.of(LayerTemplate.builder().size(7).activationFunction(linear).build(),
+            LayerTemplate.builder().size(5).activationFunction(nonlinear).build(),
+            LayerTemplate.builder().size(3).activationFunction(nonlinear).build()))
+        .build();
+
+    @BeforeEach
+    void setupSamples() {
+      var sampleRandom = new Random(7);
+      samples = IntStream.range(0, 37)
+          .mapToObj(i -> SimpleSample.builder()
+              .input(randomFloats(sampleRandom, 1 + i % 9))
+              .target(randomFloats(sampleRandom, 3))
+              .build())
+          .toList();
+    }
+
+    float[] randomFloats(Random sampleRandom, int count) {
+      var floats = new float[count];
+      for (var i = 0; i < count; i++) {
+        floats[i] = sampleRandom.nextFloat();
+      }
+      return floats;
+    }
+
+    final ExecutorService parallelExecutor = Executors.newFixedThreadPool(2,
+        Thread.ofVirtual().factory());
+
+    MultiLayerNetwork trainWith(TrainingEngine trainingEngine) {
+      return trainWith(trainingEngine, 1);
+    }
+
+    MultiLayerNetwork trainWith(TrainingEngine trainingEngine, int maxParallelism) {
+      random = new Random(42);
+      var trained = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .lossFunction(model.getLossFunction())
+          .activationFunctions(model.collectActivationFunctions())
+          .layerSizes(model.collectLayerSizes())
+          .build();
+      trained.resetLayerWeights(gradientMatrixService);
+      for (var i = 0; i < 5; i++) {
+        trained.learnMiniBatch(gradientMatrixService, parallelExecutor, samples, dataSelector,
+            maxParallelism, 10, 0.2f, 0.2f, 0.001f, 0.001f, trainingEngine);
+      }
+      return trained;
+    }
+
+    @Test
+    void shouldReduceChunksDeterministically() {
+      var first = trainWith(TrainingEngine.PER_SAMPLE, 3);
+      var second = trainWith(TrainingEngine.PER_SAMPLE, 3);
+
+      for (var l = 0; l < first.getLayerWeights().length; l++) {
+        assertThat(second.getLayerWeights()[l]).containsExactly(first.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldTrainOnPersistentWorkersLikeOnExecutor() {
+      var expected = trainWith(TrainingEngine.BATCHED, 3);
+      random = new Random(42);
+      var actual = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .lossFunction(model.getLossFunction())
+          .activationFunctions(model.collectActivationFunctions())
+          .layerSizes(model.collectLayerSizes())
+          .build();
+      actual.resetLayerWeights(gradientMatrixService);
+
+      try (var workerPool = WorkerPool.persistent(3)) {
+        for (var i = 0; i < 5; i++) {
+          actual.learnMiniBatch(gradientMatrixService, workerPool, samples, dataSelector, 10, 0.2f,
+              0.2f, 0.001f, 0.001f, TrainingEngine.BATCHED);
+        }
+      }
+
+      for (var l = 0; l < expected.getLayerWeights().length; l++) {
+        assertThat(actual.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldReportReductionShare() {
+      var trained = trainWith(TrainingEngine.BATCHED);
+
+      var timings = trained.learnMiniBatch(gradientMatrixService, parallelExecutor, samples,
+          dataSelector, 3, 10, 0.2f, 0.2f, 0f, 0f, TrainingEngine.BATCHED);
+
+      assertThat(timings.reductionNanos()).isPositive();
+      assertThat(timings.reductionShare()).isBetween(0f, 1f);
+    }
+
+    @Test
+    void shouldTrainBatchedExactlyLikePerSample() {
+      var perSample = trainWith(TrainingEngine.PER_SAMPLE);
+      var batched = trainWith(TrainingEngine.BATCHED);
+
+      for (var l = 0; l < perSample.getLayerWeights().length; l++) {
+        assertThat(batched.getLayerWeights()[l]).containsExactly(perSample.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldTrainTransposedExactlyLikePerSampleWithoutSimd() {
+      var simdEnabled = FloatKernels.isSimdEnabled();
+      FloatKernels.setSimdEnabled(false);
+      try {
+        var perSample = trainWith(TrainingEngine.PER_SAMPLE, 3);
+        var transposed = trainWith(TrainingEngine.BATCHED_TRANSPOSED, 3);
+
+        for (var l = 0; l < perSample.getLayerWeights().length; l++) {
+          assertThat(transposed.getLayerWeights()[l]).containsExactly(
+              perSample.getLayerWeights()[l]);
+        }
+      } finally {
+        FloatKernels.setSimdEnabled(simdEnabled);
+      }
+    }
+
+    @Test
+    void shouldTrainTransposedCloseToBatched() {
+      var batched = trainWith(TrainingEngine.BATCHED, 3);
+      var transposed = trainWith(TrainingEngine.BATCHED_TRANSPOSED, 3);
+
+      for (var l = 0; l < batched.getLayerWeights().length; l++) {
+        for (var w = 0; w < batched.getLayerWeights()[l].length; w++) {
+          assertThat(transposed.getLayerWeights()[l][w]).isCloseTo(
+              batched.getLayerWeights()[l][w], Offset.offset(1e-5f));
+        }
+      }
+    }
+
+    @Test
+    void shouldTrainOffHeapExactlyLikePerSample() {
+      var expected = trainWith(TrainingEngine.PER_SAMPLE, 3);
+      var actual = untrained();
+
+      try (var parameters = OffHeapParameters.copyOf(actual, 3)) {
+        for (var i = 0; i < 5; i++) {
+          actual.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 3),
+              parameters, samples, dataSelector, 10, 0.2f, 0.2f, 0.001f, 0.001f);
+        }
+      }
+
+      for (var l = 0; l < expected.getLayerWeights().length; l++) {
+        assertThat(actual.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+        assertThat(actual.getPreviousLayerGradients()[l])
+            .containsExactly(expected.getPreviousLayerGradients()[l]);
+      }
+    }
+
+    @Test
+    void shouldNotAllocateMomentumOffHeapWithoutMomentum() {
+      var network = untrained();
+
+      try (var parameters = OffHeapParameters.copyOf(network, 1)) {
+        network.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 1),
+            parameters, samples, dataSelector, 10, 0.2f, 0f, 0f, 0f);
+      }
+
+      assertThat(network.getPreviousLayerGradients()).isNull();
+    }
+
+    @Test
+    void shouldThrowOnOffHeapParametersForFewerWorkers() {
+      var network = untrained();
+
+      try (var parameters = OffHeapParameters.copyOf(network, 1)) {
+        assertThatThrownBy(() -> network.learnMiniBatch(gradientMatrixService,
+            WorkerPool.of(parallelExecutor, 2), parameters, samples, dataSelector, 10, 0.2f, 0.2f,
+            0f, 0f))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("parameters");
+      }
+    }
+
+    @Test
+    void shouldTrainMixedPrecisionCloseToBatched() {
+      var expected = trainWith(TrainingEngine.BATCHED, 3);
+
+      for (var precision : List.of(Precision.FP16, Precision.BF16)) {
+        var actual = untrained();
+        var state = MixedPrecisionState.create(actual, precision, 3);
+        for (var i = 0; i < 5; i++) {
+          actual.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 3), state,
+              samples, dataSelector, 10, 0.2f, 0.2f, 0.001f, 0.001f);
+        }
+
+        assertThat(state.skippedSteps()).isZero();
+        for (var l = 0; l < expected.getLayerWeights().length; l++) {
+          var expectedWeights = expected.getLayerWeights()[l];
+          for (var w = 0; w < expectedWeights.length; w++) {
+            assertThat(actual.getLayerWeights()[l][w]).isCloseTo(expectedWeights[w],
+                Offset.offset(0.01f));
+          }
+        }
+      }
+    }
+
+    @Test
+    void shouldSkipOverflowingMixedPrecisionSteps() {
+      var network = untrained();
+      var initialWeights = gradientMatrixService.copyMatrices(network.getLayerWeights());
+      var farSamples = samples.stream()
+          .map(sample -> SimpleSample.builder()
+              .input(sample.getInput())
+              .target(new float[]{1e6f, -1e6f, 1e6f})
+              .build())
+          .toList();
+      var state = MixedPrecisionState.create(network, Precision.FP16, 1);
+
+      network.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 1), state,
+          farSamples.subList(0, 10), dataSelector, 10, 0.2f, 0.2f, 0f, 0f);
+
+      assertThat(state.skippedSteps()).isEqualTo(1);
+      assertThat(state.lossScale()).isEqualTo(HalfPrecision.FP16.initialLossScale() / 2f);
+      for (var l = 0; l < initialWeights.length; l++) {
+        assertThat(network.getLayerWeights()[l]).containsExactly(initialWeights[l]);
+      }
+    }
+
+    @Test
+    void shouldTrainNesterovOptimizerExactlyLikeMomentum() {
+      var expected = trainWith(TrainingEngine.BATCHED, 3);
+      var actual = untrained();
+      var optimizerState = actual.createOptimizerState(
+          new NesterovOptimizer(0.2f, 0.001f, 0.001f));
+
+      for (var i = 0; i < 5; i++) {
+        actual.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 3), samples,
+            dataSelector, 10, 0.2f, optimizerState, TrainingEngine.BATCHED, 0L);
+      }
+
+      assertThat(optimizerState.step()).isEqualTo(20);
+      for (var l = 0; l < expected.getLayerWeights().length; l++) {
+        assertThat(actual.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+        assertThat(actual.getPreviousLayerGradients()[l])
+            .containsExactly(expected.getPreviousLayerGradients()[l]);
+      }
+    }
+
+    @Test
+    void shouldTrainInSessionExactlyLikeCallByCall() {
+      for (var trainingEngine : List.of(TrainingEngine.BATCHED,
+          TrainingEngine.BATCHED_TRANSPOSED, TrainingEngine.HOGWILD)) {
+        // on more workers the hogwild updates race, on one they train like batched, except that
+        // every call without a session starts the worker with a fresh state
+        var hogwild = trainingEngine == TrainingEngine.HOGWILD;
+        var parallelism = hogwild ? 1 : 3;
+        var expected = trainWith(hogwild ? TrainingEngine.BATCHED : trainingEngine, parallelism);
+        var actual = untrained();
+
+        try (var session = TrainingSession.open(actual, gradientMatrixService,
+            new NesterovOptimizer(0.2f, 0.001f, 0.001f))) {
+          for (var i = 0; i < 5; i++) {
+            actual.learnMiniBatch(WorkerPool.of(parallelExecutor, parallelism), session, samples,
+                dataSelector, 10, 0.2f, trainingEngine, 0L);
+          }
+        }
+
+        for (var l = 0; l < expected.getLayerWeights().length; l++) {
+          assertThat(actual.getLayerWeights()[l]).as("%s", trainingEngine)
+              .containsExactly(expected.getLayerWeights()[l]);
+        }
+      }
+    }
+
+    @Test
+    void shouldTrainOnSparseInputsExactlyLikeOnDenseInputs() {
+      var sampleRandom = new Random(11);
+      var sparseSamples = IntStream.range(0, 37)
+          .mapToObj(i -> {
+            var input = new float[7];
+            for (var k = i % 3; k < input.length; k += 3) {
+              input[k] = 0.2f + 0.8f * sampleRandom.nextFloat();
+            }
+            return SimpleSample.builder().input(input).target(randomFloats(sampleRandom, 3))
+                .build();
+          })
+          .toList();
+
+      for (var trainingEngine : List.of(TrainingEngine.PER_SAMPLE, TrainingEngine.BATCHED,
+          TrainingEngine.BATCHED_TRANSPOSED)) {
+        // the threshold passes these inputs unchanged, but does not preserve zeros
+        var sparse = untrainedWithInput(linear);
+        var dense = untrainedWithInput(new ThresholdActivationFunction());
+        for (var i = 0; i < 5; i++) {
+          for (var network : List.of(sparse, dense)) {
+            network.learnMiniBatch(gradientMatrixService, parallelExecutor, sparseSamples,
+                dataSelector, 3, 10, 0.2f, 0.2f, 0.001f, 0.001f, trainingEngine);
+          }
+        }
+
+        for (var l = 0; l < dense.getLayerWeights().length; l++) {
+          assertThat(sparse.getLayerWeights()[l]).as("%s", trainingEngine)
+              .containsExactly(dense.getLayerWeights()[l]);
+        }
+        assertThat(sparse.computeAccuracy(executor, sparseSamples, dataSelector, 1))
+            .isEqualTo(dense.computeAccuracy(executor, sparseSamples, dataSelector, 1));
+      }
+    }
+
+    MultiLayerNetwork untrainedWithInput(ActivationFunction inputActivationFunction) {
+      var activationFunctions = model.collectActivationFunctions();
+      activationFunctions[0] = inputActivationFunction;
+      return untrainedWith(activationFunctions);
+    }
+
+    MultiLayerNetwork untrainedWith(ActivationFunction[] activationFunctions) {
+      random = new Random(42);
+      var network = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .lossFunction(model.getLossFunction())
+          .activationFunctions(activationFunctions)
+          .layerSizes(model.collectLayerSizes())
+          .build();
+      network.resetLayerWeights(gradientMatrixService);
+      return network;
+    }
+
+    @Test
+    void shouldSkipInactiveNeuronsExactlyLikeOffHeap() {
+      // the off-heap path backpropagates through every neuron
+      var activationFunctions = new ActivationFunction[]{linear, new ReLUActivationFunction(),
+          new ThresholdActivationFunction()};
+      var expected = untrainedWith(activationFunctions);
+      try (var parameters = OffHeapParameters.copyOf(expected, 3)) {
+        for (var i = 0; i < 5; i++) {
+          expected.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 3),
+              parameters, samples, dataSelector, 10, 0.2f, 0.2f, 0.001f, 0.001f);
+        }
+      }
+
+      for (var trainingEngine : List.of(TrainingEngine.PER_SAMPLE, TrainingEngine.BATCHED,
+          TrainingEngine.BATCHED_TRANSPOSED)) {
+        var actual = untrainedWith(activationFunctions);
+        for (var i = 0; i < 5; i++) {
+          actual.learnMiniBatch(gradientMatrixService, parallelExecutor, samples, dataSelector, 3,
+              10, 0.2f, 0.2f, 0.001f, 0.001f, trainingEngine);
+        }
+
+        for (var l = 0; l < expected.getLayerWeights().length; l++) {
+          assertThat(actual.getLayerWeights()[l]).as("%s", trainingEngine)
+              .containsExactly(expected.getLayerWeights()[l]);
+        }
+      }
+    }
+
+    @Test
+    void shouldKeepActivationIntermediatesInEveryEngine() {
+      var activationFunctions = new ActivationFunction[]{linear, new GeLUActivationFunction(),
+          new QuickGeLUActivationFunction()};
+      var expected = untrainedWith(activationFunctions);
+      for (var i = 0; i < 5; i++) {
+        expected.learnMiniBatch(gradientMatrixService, parallelExecutor, samples, dataSelector, 3,
+            10, 0.2f, 0.2f, 0.001f, 0.001f, TrainingEngine.PER_SAMPLE);
+      }
+
+      var batched = untrainedWith(activationFunctions);
+      var offHeap = untrainedWith(activationFunctions);
+      try (var parameters = OffHeapParameters.copyOf(offHeap, 3)) {
+        for (var i = 0; i < 5; i++) {
+          batched.learnMiniBatch(gradientMatrixService, parallelExecutor, samples, dataSelector, 3,
+              10, 0.2f, 0.2f, 0.001f, 0.001f, TrainingEngine.BATCHED);
+          offHeap.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 3),
+              parameters, samples, dataSelector, 10, 0.2f, 0.2f, 0.001f, 0.001f);
+        }
+      }
+
+      for (var l = 0; l < expected.getLayerWeights().length; l++) {
+        assertThat(batched.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+        assertThat(offHeap.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldReleaseMomentumOnReset() {
+      var network = trainWith(TrainingEngine.BATCHED);
+
+      network.resetLayerWeights(gradientMatrixService);
+
+      assertThat(network.getPreviousLayerGradients()).isNull();
+    }
+
+    @Test
+    void shouldReduceErrorWithEveryOptimizer() {
+      var optimizers = List.of(new MomentumOptimizer(0.2f, 0f, 0f),
+          AdaGradOptimizer.withDefaults(0f, 0f), RmsPropOptimizer.withDefaults(0f, 0f),
+          AdamOptimizer.adam(0f, 0f), AdamOptimizer.adamW(0f, 0.001f));
+
+      for (var optimizer : optimizers) {
+        var network = untrained();
+        var initial = network.computeAccuracy(executor, samples, dataSelector, 1);
+        var optimizerState = network.createOptimizerState(optimizer);
+        for (var i = 0; i < 20; i++) {
+          network.learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 1),
+              samples, dataSelector, 4, 0.01f, optimizerState, TrainingEngine.BATCHED, 0L);
+        }
+
+        assertThat(network.computeAccuracy(executor, samples, dataSelector, 1).error())
+            .as("%s", optimizer)
+            .isLessThan(initial.error());
+      }
+    }
+
+    @Test
+    void shouldUpdateWeightSlicesInParallelExactlyLikeSerially() {
+      // large enough for several weight slices, batch size 1 keeps a single chunk of gradients
+      var layerSizes = new int[]{200, 200, 3};
+      var wideSamples = samples.stream()
+          .map(sample -> SimpleSample.builder()
+              .input(randomFloats(new Random(sample.getInput().length), 200))
+              .target(sample.getTarget())
+              .build())
+          .toList()
+          .subList(0, 5);
+      var networks = new MultiLayerNetwork[2];
+      for (var n = 0; n < networks.length; n++) {
+        random = new Random(42);
+        networks[n] = MultiLayerNetwork.builder()
+            .bias(model.getBias())
+            .lossFunction(model.getLossFunction())
+            .activationFunctions(new ActivationFunction[]{linear, nonlinear, nonlinear})
+            .layerSizes(layerSizes)
+            .build();
+        networks[n].resetLayerWeights(gradientMatrixService);
+        var optimizerState = networks[n].createOptimizerState(AdamOptimizer.adam(0.001f, 0.001f));
+        networks[n].learnMiniBatch(gradientMatrixService, WorkerPool.of(parallelExecutor, 1 + n),
+            wideSamples, dataSelector, 1, 0.01f, optimizerState, TrainingEngine.BATCHED, 0L);
+      }
+
+      assertThat(new WeightSlices(networks[1].getLayerWeights()).sliceCount(2)).isEqualTo(2);
+      for (var l = 0; l < layerSizes.length - 1; l++) {
+        assertThat(networks[1].getLayerWeights()[l]).containsExactly(
+            networks[0].getLayerWeights()[l]);
+      }
+    }
+
+    MultiLayerNetwork untrained() {
+      random = new Random(42);
+      var network = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .lossFunction(model.getLossFunction())
+          .activationFunctions(model.collectActivationFunctions())
+          .layerSizes(model.collectLayerSizes())
+          .build();
+      network.resetLayerWeights(gradientMatrixService);
+      return network;
+    }
+
+    @Test
+    void shouldTrainHogwildOnOneWorkerLikeBatched() {
+      var batched = untrained();
+      var hogwild = untrained();
+
+      batched.learnMiniBatch(gradientMatrixService, parallelExecutor, samples, dataSelector, 1, 10,
+          0.2f, 0.2f, 0.001f, 0.001f, TrainingEngine.BATCHED);
+      var timings = hogwild.learnMiniBatch(gradientMatrixService, parallelExecutor, samples,
+          dataSelector, 1, 10, 0.2f, 0.2f, 0.001f, 0.001f, TrainingEngine.HOGWILD);
+
+      assertThat(timings.reductionShare()).isZero();
+      for (var l = 0; l < batched.getLayerWeights().length; l++) {
+        assertThat(hogwild.getLayerWeights()[l]).containsExactly(batched.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldKeepHogwildMomentumAcrossEpochsOfSession() {
+      var batched = untrained();
+      var hogwild = untrained();
+
+      try (var batchedSession = TrainingSession.open(batched, gradientMatrixService,
+          new NesterovOptimizer(0.2f, 0.001f, 0.001f));
+          var hogwildSession = TrainingSession.open(hogwild, gradientMatrixService,
+              new NesterovOptimizer(0.2f, 0.001f, 0.001f))) {
+        for (var epoch = 0; epoch < 2; epoch++) {
+          batched.learnMiniBatch(WorkerPool.of(parallelExecutor, 1), batchedSession, samples,
+              dataSelector, 10, 0.2f, TrainingEngine.BATCHED, 0L);
+          hogwild.learnMiniBatch(WorkerPool.of(parallelExecutor, 1), hogwildSession, samples,
+              dataSelector, 10, 0.2f, TrainingEngine.HOGWILD, 0L);
+        }
+
+        assertThat(hogwildSession.hogwildOptimizerStates(1)[0].step())
+            .isEqualTo(2 * Math.ceilDiv(samples.size(), 10));
+      }
+
+      for (var l = 0; l < batched.getLayerWeights().length; l++) {
+        assertThat(hogwild.getLayerWeights()[l]).containsExactly(batched.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldReduceErrorWithHogwildWorkers() {
+      var network = untrained();
+      var initial = network.computeAccuracy(executor, samples, dataSelector, 1);
+
+      try (var workerPool = WorkerPool.persistent(3)) {
+        for (var i = 0; i < 20; i++) {
+          network.learnMiniBatch(gradientMatrixService, workerPool, samples, dataSelector, 4, 0.2f,
+              0.2f, 0f, 0f, TrainingEngine.HOGWILD);
+        }
+      }
+
+      var actual = network.computeAccuracy(executor, samples, dataSelector, 1);
+      assertThat(actual.error()).isLessThan(initial.error());
+    }
+
+    MultiLayerNetwork untrainedDeep(int[] layerSizes) {
+      random = new Random(42);
+      var activationFunctions = new ActivationFunction[layerSizes.length];
+      activationFunctions[0] = linear;
+      for (var l = 1; l < layerSizes.length; l++) {
+        activationFunctions[l] = nonlinear;
+      }
+      var network = MultiLayerNetwork.builder()
+          .bias(model.getBias())
+          .lossFunction(model.getLossFunction())
+          .activationFunctions(activationFunctions)
+          .layerSizes(layerSizes)
+          .build();
+      network.resetLayerWeights(gradientMatrixService);
+      return network;
+    }
+
+    @Test
+    void shouldTrainCheckpointedExactlyLikeBatched() {
+      var layerSizes = new int[]{7, 6, 6, 6, 6, 3};
+      var expected = untrainedDeep(layerSizes);
+      var actual = untrainedDeep(layerSizes);
+      // below the 5 samples of each chunk even with checkpoints, so chunks are sliced as well
+      var budget = BatchWorkspace.rowBytes(layerSizes, 2) * 4;
+
+      try (var workerPool = WorkerPool.persistent(2)) {
+        for (var i = 0; i < 3; i++) {
+          expected.learnMiniBatch(gradientMatrixService, workerPool, samples, dataSelector, 10,
+              0.2f, 0.2f, 0.001f, 0.001f, TrainingEngine.BATCHED);
+          actual.learnMiniBatch(gradientMatrixService, workerPool, samples, dataSelector, 10,
+              0.2f, 0.2f, 0.001f, 0.001f, TrainingEngine.BATCHED, budget);
+        }
+      }
+
+      for (var l = 0; l < expected.getLayerWeights().length; l++) {
+        assertThat(actual.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+      }
+    }
+
+    @Test
+    void shouldThrowOnNegativeActivationMemoryBudget() {
+      var network = untrained();
+
+      try (var workerPool = WorkerPool.persistent(1)) {
+        assertThatThrownBy(() -> network.learnMiniBatch(gradientMatrixService, workerPool,
+            samples, dataSelector, 10, 0.2f, 0.2f, 0f, 0f, TrainingEngine.BATCHED, -1L))
+            .isInstanceOf(IllegalArgumentException.class);
+      }
+    }
+  }
+
   @Nested
   class ComputeAccuracyValidation {
 
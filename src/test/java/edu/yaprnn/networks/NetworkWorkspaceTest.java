@@ -0,0 +1,37 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import org.junit.jupiter.api.Test;
+
+class NetworkWorkspaceTest {
+
+  @Test
+  void shouldSizeBuffersFromLayerSizes() {
+    var workspace = new NetworkWorkspace(new int[]{3, 4, 2});
+
+    assertThat(workspace.v.length).isEqualTo(3);
+    assertThat(workspace.v[0]).hasSize(3);
+    assertThat(workspace.h[1]).hasSize(4);
+    assertThat(workspace.errors[2]).hasSize(2);
+    assertThat(workspace.output()).isSameAs(workspace.h[2]);
+  }
+
+  @Test
+  void shouldWrapBuffersIntoLayers() {
+    var workspace = new NetworkWorkspace(new int[]{2, 1});
+    var activationFunctions = new ActivationFunction[]{new LinearActivationFunction(),
+        new SigmoidActivationFunction()};
+
+    var layers = workspace.toLayers(activationFunctions);
+
+    assertThat(layers).hasSize(2);
+    assertThat(layers[1].index()).isEqualTo(1);
+    assertThat(layers[1].v()).isSameAs(workspace.v[1]);
+    assertThat(layers[1].h()).isSameAs(workspace.h[1]);
+    assertThat(layers[1].activationFunction()).isSameAs(activationFunctions[1]);
+  }
+}
@@ -0,0 +1,19 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PrecisionTest {
+
+  @Test
+  void shouldNotPackFp32() {
+    assertThat(Precision.FP32.halfPrecision()).isEmpty();
+  }
+
+  @Test
+  void shouldPackHalfPrecisionsIntoTheirFormat() {
+    assertThat(Precision.FP16.halfPrecision()).contains(HalfPrecision.FP16);
+    assertThat(Precision.BF16.halfPrecision()).contains(HalfPrecision.BF16);
+  }
+}
@@ -0,0 +1,119 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.ReLUActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
+import edu.yaprnn.networks.templates.LayerTemplate;
+import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QuantizedNetworkTest {
+
+  final DataSelector dataSelector = new ClassifierDataSelector();
+  final ActivationFunction linear = new LinearActivationFunction();
+  final ActivationFunction relu = new ReLUActivationFunction();
+  final ActivationFunction sigmoid = new SigmoidActivationFunction();
+  final MultiLayerNetworkTemplate model = MultiLayerNetworkTemplate.builder()
+      .bias(-1f)
+      .lossFunction(new HalfSquaredErrorLossFunction())
+      .layers(List.of(LayerTemplate.builder().size(16).activationFunction(linear).build(),
+          LayerTemplate.builder().size(12).activationFunction(relu).build(),
+          LayerTemplate.builder().size(4).activationFunction(sigmoid).build()))
+      .build();
+  final TestGradientMatrixService gradientMatrixService = new TestGradientMatrixService();
+
+  Random random;
+  MultiLayerNetwork network;
+  List<Sample> samples;
+
+  @BeforeEach
+  void setup() {
+    random = new Random(7);
+    network = MultiLayerNetwork.builder()
+        .bias(model.getBias())
+        .lossFunction(model.getLossFunction())
+        .activationFunctions(model.collectActivationFunctions())
+        .layerSizes(model.collectLayerSizes())
+        .build();
+    network.resetLayerWeights(gradientMatrixService);
+
+    samples = IntStream.range(0, 50).<Sample>mapToObj(i -> {
+      var input = new float[16];
+      for (var j = 0; j < input.length; j++) {
+        // sparse inputs, like the background of images
+        input[j] = random.nextFloat() < 0.3f ? random.nextFloat() : 0f;
+      }
+      var target = new float[4];
+      target[i % 4] = 1f;
+      return SimpleSample.builder().input(input).target(target).build();
+    }).toList();
+  }
+
+  @Test
+  void shouldFeedForwardCloseToFloatNetwork() {
+    var quantized = QuantizedNetwork.quantize(network, samples, dataSelector);
+
+    for (var sample : samples) {
+      var expected = Layer.output(network.feedForward(sample, dataSelector)).h();
+      var actual = Layer.output(quantized.feedForward(sample, dataSelector)).h();
+      for (var i = 0; i < expected.length; i++) {
+        assertThat(actual[i]).isCloseTo(expected[i], Offset.offset(0.02f));
+      }
+    }
+  }
+
+  @Test
+  void shouldComputeAccuracyCloseToFloatNetwork() {
+    var quantized = QuantizedNetwork.quantize(network, samples.subList(0, 10), dataSelector);
+
+    try (var workerPool = WorkerPool.persistent(3)) {
+      var expected = network.computeAccuracy(workerPool, samples, dataSelector);
+      var actual = quantized.computeAccuracy(workerPool, samples, dataSelector);
+
+      assertThat(actual.count()).isEqualTo(1);
+      assertThat(actual.error()).isCloseTo(expected.error(), Offset.offset(0.01f));
+      assertThat(actual.hits()).isCloseTo(expected.hits(), Offset.offset(0.1f));
+    }
+  }
+
+  @Test
+  void shouldTakeAboutQuarterOfFloatWeights() {
+    var quantized = QuantizedNetwork.quantize(network, samples, dataSelector);
+    var floatBytes = (long) Float.BYTES * (17 * 12 + 13 * 4);
+
+    var report = new QuantizationReport(new AccuracyResult(0f, 1, 1f),
+        new AccuracyResult(0f, 1, 1f), floatBytes, quantized.sizeInBytes());
+
+    assertThat(quantized.sizeInBytes()).isEqualTo(16 * 12 + 12 * 4 + 4L * (2 + 2 * 12 + 2 * 4));
+    assertThat(report.compressionRatio()).isGreaterThan(2.5f);
+  }
+
+  @Test
+  void shouldThrowOnMissingCalibrationSamples() {
+    assertThatThrownBy(() -> QuantizedNetwork.quantize(network, List.of(), dataSelector))
+        .isInstanceOf(NoSuchElementException.class);
+  }
+
+  final class TestGradientMatrixService extends GradientMatrixService {
+
+    @Override
+    public float[][] resetLayerWeights(int[] layerSizes, ActivationFunction[] activationFunctions) {
+      return super.resetLayerWeights(random, layerSizes, activationFunctions);
+    }
+  }
+}
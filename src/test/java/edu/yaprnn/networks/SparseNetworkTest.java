@@ -0,0 +1,148 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.ReLUActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
+import edu.yaprnn.networks.templates.LayerTemplate;
+import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import edu.yaprnn.training.selectors.DataSelector;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SparseNetworkTest {
+
+  final DataSelector dataSelector = new ClassifierDataSelector();
+  final ActivationFunction linear = new LinearActivationFunction();
+  final ActivationFunction relu = new ReLUActivationFunction();
+  final ActivationFunction sigmoid = new SigmoidActivationFunction();
+  final MultiLayerNetworkTemplate model = MultiLayerNetworkTemplate.builder()
+      .bias(-1f)
+      .lossFunction(new HalfSquaredErrorLossFunction())
+      .layers(List.of(LayerTemplate.builder().size(20).activationFunction(linear).build(),
+          LayerTemplate.builder().size(10).activationFunction(relu).build(),
+          LayerTemplate.builder().size(4).activationFunction(sigmoid).build()))
+      .build();
+  final TestGradientMatrixService gradientMatrixService = new TestGradientMatrixService();
+
+  Random random;
+  List<Sample> samples;
+
+  @BeforeEach
+  void setup() {
+    random = new Random(13);
+    samples = IntStream.range(0, 30).<Sample>mapToObj(i -> {
+      var input = new float[20];
+      for (var j = 0; j < input.length; j++) {
+        input[j] = random.nextFloat() < 0.5f ? random.nextFloat() : 0f;
+      }
+      var target = new float[4];
+      target[i % 4] = 1f;
+      return SimpleSample.builder().input(input).target(target).build();
+    }).toList();
+  }
+
+  MultiLayerNetwork createNetwork(float zeroShare) {
+    var network = MultiLayerNetwork.builder()
+        .bias(model.getBias())
+        .lossFunction(model.getLossFunction())
+        .activationFunctions(model.collectActivationFunctions())
+        .layerSizes(model.collectLayerSizes())
+        .build();
+    network.resetLayerWeights(gradientMatrixService);
+    for (var weights : network.getLayerWeights()) {
+      for (var w = 0; w < weights.length; w++) {
+        if (random.nextFloat() < zeroShare) {
+          weights[w] = 0f;
+        }
+      }
+    }
+    return network;
+  }
+
+  void assertSameOutputs(MultiLayerNetwork network, SparseNetwork sparseNetwork) {
+    for (var sample : samples) {
+      var expected = Layer.output(network.feedForward(sample, dataSelector)).h();
+      var actual = Layer.output(sparseNetwork.feedForward(sample, dataSelector)).h();
+      for (var i = 0; i < expected.length; i++) {
+        assertThat(actual[i]).isCloseTo(expected[i], Offset.offset(1e-5f));
+      }
+    }
+  }
+
+  @Test
+  void shouldKeepDenseLayersBelowBreakEven() {
+    var network = createNetwork(0f);
+
+    var sparseNetwork = SparseNetwork.prune(network, 0f);
+
+    assertThat(sparseNetwork.compressedLayers()).containsExactly(false, false);
+    assertSameOutputs(network, sparseNetwork);
+  }
+
+  @Test
+  void shouldCompressLayersAboveBreakEven() {
+    var network = createNetwork(0.97f);
+
+    var sparseNetwork = SparseNetwork.prune(network, 0f);
+
+    assertThat(sparseNetwork.compressedLayers()).containsExactly(true, true);
+    assertThat(sparseNetwork.sizeInBytes()).isLessThan(
+        (long) Float.BYTES * (21 * 10 + 11 * 4));
+    assertSameOutputs(network, sparseNetwork);
+  }
+
+  @Test
+  void shouldPruneSmallestWeightsToTargetSparsity() {
+    var network = createNetwork(0f);
+
+    var sparseNetwork = SparseNetwork.prune(network, new float[]{0.95f, 0.5f});
+
+    assertThat(sparseNetwork.sparsities()[0]).isCloseTo(0.95f, Offset.offset(0.01f));
+    assertThat(sparseNetwork.sparsities()[1]).isCloseTo(0.5f, Offset.offset(0.01f));
+    assertThat(sparseNetwork.compressedLayers()).containsExactly(true, false);
+  }
+
+  @Test
+  void shouldComputeAccuracyLikeFloatNetworkWithoutPruning() {
+    var network = createNetwork(0.97f);
+    var sparseNetwork = SparseNetwork.prune(network, 0f);
+
+    try (var workerPool = WorkerPool.persistent(2)) {
+      var expected = network.computeAccuracy(workerPool, samples, dataSelector);
+      var actual = sparseNetwork.computeAccuracy(workerPool, samples, dataSelector);
+
+      assertThat(actual.error()).isCloseTo(expected.error(), Offset.offset(1e-6f));
+      assertThat(actual.hits()).isEqualTo(expected.hits());
+    }
+  }
+
+  @Test
+  void shouldThrowOnInvalidSparsities() {
+    var network = createNetwork(0f);
+
+    assertThatThrownBy(() -> SparseNetwork.prune(network, new float[]{0.5f}))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> SparseNetwork.prune(network, 1.5f))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  final class TestGradientMatrixService extends GradientMatrixService {
+
+    @Override
+    public float[][] resetLayerWeights(int[] layerSizes, ActivationFunction[] activationFunctions) {
+      return super.resetLayerWeights(random, layerSizes, activationFunctions);
+    }
+  }
+}
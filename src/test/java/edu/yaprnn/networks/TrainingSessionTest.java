@@ -0,0 +1,109 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
+import edu.yaprnn.networks.optimizers.AdamOptimizer;
+import edu.yaprnn.networks.optimizers.NesterovOptimizer;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TrainingSessionTest {
+
+  final GradientMatrixService gradientMatrixService = new GradientMatrixService();
+  final MultiLayerNetwork network = network();
+  final TrainingSession session = TrainingSession.open(network, gradientMatrixService,
+      AdamOptimizer.adam(0f, 0f));
+
+  MultiLayerNetwork network() {
+    var layerSizes = new int[]{3, 4, 2};
+    var activationFunctions = new ActivationFunction[]{new LinearActivationFunction(),
+        new SigmoidActivationFunction(), new SigmoidActivationFunction()};
+    return MultiLayerNetwork.builder()
+        .bias(-1f)
+        .lossFunction(new HalfSquaredErrorLossFunction())
+        .activationFunctions(activationFunctions)
+        .layerSizes(layerSizes)
+        .layerWeights(gradientMatrixService.resetLayerWeights(new Random(42L), layerSizes,
+            activationFunctions))
+        .build();
+  }
+
+  @Test
+  void shouldReuseChunkGradients() {
+    var first = session.chunkGradients(1);
+    var grown = session.chunkGradients(3);
+
+    assertThat(grown).hasSize(3);
+    assertThat(grown[0]).isSameAs(first[0]);
+    assertThat(session.chunkGradients(2)).isSameAs(grown);
+  }
+
+  @Test
+  void shouldRecreateAccumulatorsOnlyWhenTheirKeyChanges() {
+    var first = session.chunkAccumulators(2, TrainingEngine.BATCHED, 5, 0L);
+
+    assertThat(session.chunkAccumulators(2, TrainingEngine.BATCHED, 5, 0L)[1])
+        .isSameAs(first[1]);
+    assertThat(session.chunkAccumulators(2, TrainingEngine.BATCHED, 6, 0L)[1])
+        .isNotSameAs(first[1]);
+  }
+
+  @Test
+  void shouldCreateOptimizerStateOnce() {
+    assertThat(session.optimizerState()).isSameAs(session.optimizerState());
+  }
+
+  @Test
+  void shouldKeepHogwildOptimizerStates() {
+    var states = session.hogwildOptimizerStates(2);
+    states[1].beginStep();
+
+    assertThat(session.hogwildOptimizerStates(3)[1]).isSameAs(states[1]);
+    assertThat(states[1].step()).isEqualTo(1);
+    assertThat(session.hogwildOptimizerStates(3)[2].step()).isZero();
+  }
+
+  @Test
+  void shouldNotAllocateMomentumWithoutMomentum() {
+    var samples = List.of(SimpleSample.builder()
+        .input(new float[]{0.1f, 0.2f, 0.3f})
+        .target(new float[]{1f, 0f})
+        .build());
+
+    try (var workerPool = WorkerPool.persistent(1);
+        var withoutMomentum = TrainingSession.open(network, gradientMatrixService,
+            new NesterovOptimizer(0f, 0f, 0f))) {
+      network.learnMiniBatch(workerPool, withoutMomentum, samples, new ClassifierDataSelector(),
+          1, 0.1f, TrainingEngine.BATCHED, 0L);
+    }
+
+    assertThat(network.getPreviousLayerGradients()).isNull();
+  }
+
+  @Test
+  void shouldThrowOnSessionOfAnotherNetwork() {
+    try (var workerPool = WorkerPool.persistent(1)) {
+      assertThatThrownBy(() -> network().learnMiniBatch(workerPool, session, List.of(),
+          new ClassifierDataSelector(), 1, 0.1f, TrainingEngine.BATCHED, 0L))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessageContaining("session");
+    }
+  }
+
+  @Test
+  void shouldThrowWhenClosed() {
+    session.close();
+
+    assertThatThrownBy(session::optimizerState).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> session.chunkGradients(1)).isInstanceOf(
+        IllegalStateException.class);
+  }
+}
@@ -0,0 +1,62 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class WeightSlicesTest {
+
+  final float[][] layerWeights = {new float[100], new float[WeightSlices.MIN_SLICE_WEIGHTS],
+      new float[2 * WeightSlices.MIN_SLICE_WEIGHTS + 7]};
+  final WeightSlices weightSlices = new WeightSlices(layerWeights);
+
+  List<int[]> rangesOf(int slice, int sliceCount) {
+    var ranges = new ArrayList<int[]>();
+    weightSlices.forEach(slice, sliceCount, (l, from, to) -> ranges.add(new int[]{l, from, to}));
+    return ranges;
+  }
+
+  @Test
+  void shouldCoverEveryWeightOnceInOrder() {
+    var next = new int[layerWeights.length];
+    for (var slice = 0; slice < 3; slice++) {
+      for (var range : rangesOf(slice, 3)) {
+        assertThat(range[1]).isEqualTo(next[range[0]]);
+        assertThat(range[2]).isGreaterThan(range[1]);
+        next[range[0]] = range[2];
+      }
+    }
+
+    for (var l = 0; l < layerWeights.length; l++) {
+      assertThat(next[l]).isEqualTo(layerWeights[l].length);
+    }
+  }
+
+  @Test
+  void shouldSpanLayersAndStartAligned() {
+    var first = rangesOf(0, 3);
+    var second = rangesOf(1, 3);
+
+    assertThat(first).hasSize(2);
+    assertThat(first.get(0)).containsExactly(0, 0, 100);
+    var secondStart = 100 + second.getFirst()[1];
+    assertThat(secondStart % WeightSlices.ALIGNMENT).isZero();
+  }
+
+  @Test
+  void shouldLimitSliceCountByWeights() {
+    assertThat(weightSlices.weightCount()).isEqualTo(3 * WeightSlices.MIN_SLICE_WEIGHTS + 107);
+    assertThat(weightSlices.sliceCount(8)).isEqualTo(3);
+    assertThat(weightSlices.sliceCount(2)).isEqualTo(2);
+    assertThat(new WeightSlices(new float[][]{new float[10]}).sliceCount(8)).isOne();
+  }
+
+  @Test
+  void shouldThrowOnSliceOutOfRange() {
+    assertThatThrownBy(() -> weightSlices.forEach(3, 3, (l, from, to) -> {
+    })).isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,139 @@
+package edu.yaprnn.networks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class WorkerPoolTest {
+
+  @Nested
+  class Persistent {
+
+    final WorkerPool workerPool = WorkerPool.persistent(4);
+
+    @AfterEach
+    void closeWorkerPool() {
+      workerPool.close();
+    }
+
+    @Test
+    void shouldRunEveryChunkOnceForManySteps() {
+      var runs = new AtomicIntegerArray(4);
+
+      for (var step = 0; step < 100; step++) {
+        workerPool.run(4, runs::incrementAndGet);
+      }
+
+      for (var c = 0; c < 4; c++) {
+        assertThat(runs.get(c)).isEqualTo(100);
+      }
+    }
+
+    @Test
+    void shouldRunOnlyRequestedChunks() {
+      var runs = new AtomicIntegerArray(4);
+
+      workerPool.run(2, runs::incrementAndGet);
+
+      assertThat(runs.get(0)).isEqualTo(1);
+      assertThat(runs.get(1)).isEqualTo(1);
+      assertThat(runs.get(2)).isEqualTo(0);
+      assertThat(runs.get(3)).isEqualTo(0);
+    }
+
+    @Test
+    void shouldRunFirstChunkOnCallingThread() {
+      var threads = new Thread[1];
+
+      workerPool.run(3, c -> {
+        if (c == 0) {
+          threads[0] = Thread.currentThread();
+        }
+      });
+
+      assertThat(threads[0]).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    void shouldPropagateChunkFailureAndKeepWorking() {
+      var runs = new AtomicIntegerArray(4);
+
+      assertThatThrownBy(() -> workerPool.run(4, c -> {
+        if (c == 2) {
+          throw new IllegalStateException("chunk 2");
+        }
+      }))
+          .isInstanceOf(RuntimeException.class)
+          .hasCauseInstanceOf(IllegalStateException.class);
+
+      workerPool.run(4, runs::incrementAndGet);
+      assertThat(runs.get(2)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldThrowOnInvalidCount() {
+      assertThatThrownBy(() -> workerPool.run(5, c -> {
+      }))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessageContaining("count");
+    }
+
+    @Test
+    void shouldRejectRunsAfterClose() {
+      workerPool.close();
+
+      assertThatThrownBy(() -> workerPool.run(1, c -> {
+      }))
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessageContaining("closed");
+    }
+
+    @Test
+    void shouldThrowOnInvalidParallelism() {
+      assertThatThrownBy(() -> WorkerPool.persistent(0))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessageContaining("maxParallelism");
+    }
+  }
+
+  @Nested
+  class OfExecutor {
+
+    final ExecutorService executor = Executors.newFixedThreadPool(3,
+        Thread.ofVirtual().factory());
+    final WorkerPool workerPool = WorkerPool.of(executor, 4);
+
+    @AfterEach
+    void closeExecutor() {
+      executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRunEveryChunkOnce() {
+      var runs = new AtomicIntegerArray(4);
+
+      workerPool.run(4, runs::incrementAndGet);
+
+      for (var c = 0; c < 4; c++) {
+        assertThat(runs.get(c)).isEqualTo(1);
+      }
+    }
+
+    @Test
+    void shouldPropagateChunkFailure() {
+      assertThatThrownBy(() -> workerPool.run(4, c -> {
+        if (c == 3) {
+          throw new IllegalStateException("chunk 3");
+        }
+      }))
+          .isInstanceOf(RuntimeException.class)
+          .hasCauseInstanceOf(IllegalStateException.class);
+    }
+  }
+}
@@ -20,6 +20,51 @@ class ActivationFunctionTest {
     assertThat(ActivationFunction.COMPARATOR.compare(linear, linear)).isEqualTo(0);
   }
 
+  static final ActivationFunction[] ALL = {new BinaryStepActivationFunction(),
+      new GeLUActivationFunction(), new LinearActivationFunction(),
+      new QuickGeLUActivationFunction(), new ReLUActivationFunction(),
+      new SigmoidActivationFunction(), new SignumActivationFunction(),
+      new SoftMaxActivationFunction(), new TangentHyperbolicActivationFunction(),
+      new TangentHyperbolicHardActivationFunction(), new ThresholdActivationFunction()};
+
+  @Test
+  void shouldApplyIntoBufferLikeApply() {
+    var v = new float[]{-2.5f, -1f, -0.05f, 0f, 0.05f, 0.5f, 1f, 3f};
+
+    for (var fn : ALL) {
+      var expected = fn.apply(v.clone());
+      var h = new float[v.length];
+      fn.applyInto(v, h);
+
+      assertThat(h).as(fn.toString()).containsExactly(expected, Offset.offset(1e-6f));
+    }
+  }
+
+  @Test
+  void shouldApplyIntoInputItself() {
+    for (var fn : ALL) {
+      var v = new float[]{-2.5f, -1f, 0f, 0.5f, 3f};
+      var expected = fn.apply(v.clone());
+      fn.applyInto(v, v);
+
+      assertThat(v).as(fn.toString()).containsExactly(expected, Offset.offset(1e-6f));
+    }
+  }
+
+  @Test
+  void shouldComputeDerivativeIntoBufferLikeDerivative() {
+    var v = new float[]{-2.5f, -1f, -0.05f, 0f, 0.05f, 0.5f, 1f, 3f};
+
+    for (var fn : ALL) {
+      var h = fn.apply(v.clone());
+      var expected = fn.derivative(h, v);
+      var d = new float[v.length];
+      fn.derivativeInto(h, v, d);
+
+      assertThat(d).as(fn.toString()).containsExactly(expected, Offset.offset(1e-6f));
+    }
+  }
+
   static void assertAllFinite(float[] values) {
     for (var v : values) {
       assertThat(v).isFinite();
@@ -33,6 +33,17 @@ class AlignedArraysTest {
     assertThat(result.length()).isEqualTo(3);
   }
 
+  @Test
+  void shouldReadZerosBeyondLength() {
+    var h = new float[]{1f};
+    var target = new float[]{2f, 3f, 4f};
+
+    assertThat(AlignedArrays.length(h, target)).isEqualTo(3);
+    assertThat(AlignedArrays.valueAt(h, 0)).isEqualTo(1f);
+    assertThat(AlignedArrays.valueAt(h, 2)).isEqualTo(0f);
+    assertThat(AlignedArrays.valueAt(target, 2)).isEqualTo(4f);
+  }
+
   @Test
   void shouldNotMutateOriginalArrays() {
     var h = new float[]{1f, 2f};
@@ -3,6 +3,9 @@ package edu.yaprnn.networks.loss;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.activation.SoftMaxActivationFunction;
+import java.util.Arrays;
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -22,6 +25,46 @@ class LossFunctionTest {
     assertThat(LossFunction.COMPARATOR.compare(bce, bce)).isEqualTo(0);
   }
 
+  @Test
+  void shouldComputeOutputErrorIntoBufferLikeOutputError() {
+    var sigmoid = new SigmoidActivationFunction();
+    var v = new float[]{-1f, 0.2f, 2f};
+    var h = sigmoid.apply(v);
+    var losses = new LossFunction[]{new BinaryCrossEntropyLossFunction(),
+        new HalfSquaredErrorLossFunction(), new MeanBinaryCrossEntropyLossFunction(),
+        new MeanSquaredErrorLossFunction()};
+
+    for (var loss : losses) {
+      for (var target : new float[][]{{0f, 1f, 0f}, {1f, 0f}}) {
+        var expected = loss.computeOutputError(v, h, target, sigmoid);
+        var error = new float[h.length];
+        loss.computeOutputErrorInto(v, h, target, sigmoid, error);
+
+        assertThat(error).as(loss.toString()).containsExactly(expected, Offset.offset(1e-6f));
+      }
+    }
+  }
+
+  @Test
+  void shouldComputeNetworkErrorOfMismatchedLengthsLikeOnPaddedCopies() {
+    var losses = new LossFunction[]{new BinaryCrossEntropyLossFunction(),
+        new HalfSquaredErrorLossFunction(), new MeanBinaryCrossEntropyLossFunction(),
+        new MeanSquaredErrorLossFunction()};
+
+    for (var loss : losses) {
+      for (var lengths : new int[][]{{3, 1}, {1, 3}, {2, 2}}) {
+        var h = new float[]{0.25f, 0.5f, 0.75f};
+        var target = new float[]{1f, 0f, 1f};
+        h = Arrays.copyOf(h, lengths[0]);
+        target = Arrays.copyOf(target, lengths[1]);
+        var padded = AlignedArrays.of(h, target);
+
+        assertThat(loss.computeNetworkError(h, target)).as(loss.toString())
+            .isEqualTo(loss.computeNetworkError(padded.h(), padded.target()));
+      }
+    }
+  }
+
   @Nested
   class HalfSquaredErrorCase {
 
@@ -423,4 +466,89 @@ class LossFunctionTest {
       assertThat(loss.toString()).contains("MeanBinaryCrossEntropy");
     }
   }
+
+  @Nested
+  class SoftMaxCrossEntropyCase {
+
+    final SoftMaxActivationFunction softMax = new SoftMaxActivationFunction();
+    final BinaryCrossEntropyLossFunction bce = new BinaryCrossEntropyLossFunction();
+    final MeanBinaryCrossEntropyLossFunction meanBce = new MeanBinaryCrossEntropyLossFunction();
+    final float[] v = {1f, -0.5f, 2f, 0.3f};
+    final float[] h = softMax.apply(v);
+    final float[] target = {0f, 0f, 1f, 0f};
+
+    @Test
+    void shouldOnlyFuseSoftMaxWithCrossEntropy() {
+      assertThat(SoftMaxCrossEntropy.isFused(bce, softMax)).isTrue();
+      assertThat(SoftMaxCrossEntropy.isFused(meanBce, softMax)).isTrue();
+      assertThat(SoftMaxCrossEntropy.isFused(new HalfSquaredErrorLossFunction(), softMax))
+          .isFalse();
+      assertThat(SoftMaxCrossEntropy.isFused(bce, new SigmoidActivationFunction())).isFalse();
+    }
+
+    @Test
+    void shouldComputeOutputErrorAsOutputMinusTarget() {
+      var error = new float[h.length];
+      SoftMaxCrossEntropy.computeOutputErrorInto(bce, h, target, error);
+
+      for (var i = 0; i < h.length; i++) {
+        assertThat(error[i]).isCloseTo(h[i] - target[i], Offset.offset(1e-7f));
+      }
+      assertThat(error).containsExactly(bce.computeOutputError(v, h, target, softMax),
+          Offset.offset(1e-6f));
+    }
+
+    @Test
+    void shouldDivideOutputErrorByLengthForMeanLoss() {
+      var error = new float[h.length];
+      SoftMaxCrossEntropy.computeOutputErrorInto(meanBce, h, target, error);
+
+      for (var i = 0; i < h.length; i++) {
+        assertThat(error[i]).isCloseTo((h[i] - target[i]) / h.length, Offset.offset(1e-7f));
+      }
+    }
+
+    @Test
+    void shouldPadShortTargetsWithZeros() {
+      var error = new float[h.length];
+      SoftMaxCrossEntropy.computeOutputErrorInto(bce, h, new float[]{1f, 0f}, error);
+
+      assertThat(error[0]).isCloseTo(h[0] - 1f, Offset.offset(1e-7f));
+      assertThat(error[3]).isCloseTo(h[3], Offset.offset(1e-7f));
+    }
+
+    @Test
+    void shouldComputeLossLikeCrossEntropy() {
+      assertThat(SoftMaxCrossEntropy.computeNetworkError(bce, v, h, target))
+          .isCloseTo(bce.computeNetworkError(h, target), Offset.offset(1e-5f));
+      assertThat(SoftMaxCrossEntropy.computeNetworkError(meanBce, v, h, target))
+          .isCloseTo(meanBce.computeNetworkError(h, target), Offset.offset(1e-5f));
+      assertThat(SoftMaxCrossEntropy.computeNetworkError(bce, v, h, new float[]{0f, 1f}))
+          .isCloseTo(bce.computeNetworkError(h, new float[]{0f, 1f}), Offset.offset(1e-5f));
+    }
+
+    @Test
+    void shouldComputeNetworkErrorFusedOnlyWhereItApplies() {
+      var halfSquaredError = new HalfSquaredErrorLossFunction();
+
+      assertThat(SoftMaxCrossEntropy.networkError(bce, softMax, v, h, target))
+          .isEqualTo(SoftMaxCrossEntropy.computeNetworkError(bce, v, h, target));
+      assertThat(SoftMaxCrossEntropy.networkError(halfSquaredError, softMax, v, h, target))
+          .isEqualTo(halfSquaredError.computeNetworkError(h, target));
+    }
+
+    @Test
+    void shouldNotClampLossOfSaturatedOutputs() {
+      var saturatedV = new float[]{60f, -60f, 0f};
+      var saturatedH = softMax.apply(saturatedV);
+      var wrongTarget = new float[]{0f, 1f, 0f};
+
+      var loss = SoftMaxCrossEntropy.computeNetworkError(bce, saturatedV, saturatedH,
+          wrongTarget);
+
+      assertThat(saturatedH[1]).isZero();
+      assertThat(loss).isCloseTo(180f, Offset.offset(0.01f));
+      assertThat(bce.computeNetworkError(saturatedH, wrongTarget)).isLessThan(40f);
+    }
+  }
 }
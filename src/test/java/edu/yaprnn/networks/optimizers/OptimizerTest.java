@@ -0,0 +1,127 @@
+package edu.yaprnn.networks.optimizers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import edu.yaprnn.support.FloatKernels;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class OptimizerTest {
+
+  static final Offset<Float> PRECISION = Offset.offset(0.0001f);
+
+  final float[] gradients = {0.5f, -2f, 8f, -0.25f};
+
+  static float[] weights() {
+    return new float[]{0.1f, 0.2f, -0.3f, 0.4f};
+  }
+
+  /**
+   * Runs one update of a single layer and returns the updated weights.
+   */
+  static float[] step(Optimizer optimizer, float[] gradients, float learningRate, int batchSize) {
+    var weights = weights();
+    var state = OptimizerState.create(optimizer, new int[]{1, 2});
+    state.beginStep();
+    state.update(0, weights, gradients, learningRate, batchSize);
+    return weights;
+  }
+
+  @Nested
+  class OptimizerStateCase {
+
+    @Test
+    void shouldCountSteps() {
+      var state = OptimizerState.create(AdamOptimizer.adam(0f, 0f), new int[]{1, 2});
+      state.beginStep();
+      state.beginStep();
+
+      assertThat(state.step()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldWriteThroughWrappedBuffers() {
+      var momentum = new float[1][4];
+      var state = OptimizerState.wrap(new NesterovOptimizer(0.5f, 0f, 0f), momentum);
+      state.beginStep();
+      state.update(0, weights(), gradients, 0.1f, 1);
+
+      for (var i = 0; i < gradients.length; i++) {
+        assertThat(momentum[0][i]).isEqualTo(-0.1f * gradients[i]);
+      }
+    }
+
+    @Test
+    void shouldThrowWhenWrappingOptimizerWithTwoBuffers() {
+      var momentum = new float[1][4];
+      var adam = AdamOptimizer.adam(0f, 0f);
+      assertThatThrownBy(() -> OptimizerState.wrap(adam, momentum)).isInstanceOf(
+          IllegalArgumentException.class);
+    }
+  }
+
+  @Nested
+  class FirstStepCase {
+
+    @Test
+    void shouldUpdateNesterovLikeMomentumStep() {
+      var expected = weights();
+      FloatKernels.momentumStep(expected, expected, gradients, new float[4], 0.1f / 2, 0.5f,
+          0.01f, 0.02f);
+
+      assertThat(step(new NesterovOptimizer(0.5f, 0.01f, 0.02f), gradients, 0.1f, 2))
+          .containsExactly(expected);
+    }
+
+    @Test
+    void shouldUpdateMomentumWithoutMomentumLikePlainGradientDescent() {
+      var updated = step(new MomentumOptimizer(0f, 0f, 0f), gradients, 0.1f, 2);
+
+      var expected = weights();
+      for (var i = 0; i < expected.length; i++) {
+        assertThat(updated[i]).isCloseTo(expected[i] - 0.05f * gradients[i], PRECISION);
+      }
+    }
+
+    @Test
+    void shouldStepByLearningRateWithAdaGradAndAdam() {
+      var adaGrad = step(AdaGradOptimizer.withDefaults(0f, 0f), gradients, 0.1f, 2);
+      var adam = step(AdamOptimizer.adam(0f, 0f), gradients, 0.1f, 2);
+
+      var expected = weights();
+      for (var i = 0; i < expected.length; i++) {
+        var signedStep = 0.1f * Math.signum(gradients[i]);
+        assertThat(adaGrad[i]).isCloseTo(expected[i] - signedStep, PRECISION);
+        assertThat(adam[i]).isCloseTo(expected[i] - signedStep, PRECISION);
+      }
+    }
+
+    @Test
+    void shouldScaleFirstRmsPropStepByDecayRate() {
+      var updated = step(RmsPropOptimizer.withDefaults(0f, 0f), gradients, 0.1f, 2);
+
+      var expected = weights();
+      var scale = 0.1f / (float) Math.sqrt(1f - RmsPropOptimizer.DEFAULT_RHO);
+      for (var i = 0; i < expected.length; i++) {
+        assertThat(updated[i]).isCloseTo(expected[i] - scale * Math.signum(gradients[i]),
+            PRECISION);
+      }
+    }
+
+    @Test
+    void shouldDecayWeightsDecoupledWithAdamW() {
+      var zeroGradients = new float[4];
+      var adam = step(AdamOptimizer.adam(0f, 0.5f), zeroGradients, 0.1f, 1);
+      var adamW = step(AdamOptimizer.adamW(0f, 0.5f), zeroGradients, 0.1f, 1);
+
+      var expected = weights();
+      for (var i = 0; i < expected.length; i++) {
+        // coupled, the decay is normalized like a gradient, decoupled it shrinks by 2 * decayL2
+        assertThat(adam[i]).isCloseTo(expected[i] - 0.1f * Math.signum(expected[i]), PRECISION);
+        assertThat(adamW[i]).isCloseTo(expected[i] * (1f - 0.1f * 2f * 0.5f), PRECISION);
+      }
+    }
+  }
+}
@@ -35,6 +35,19 @@ class SimpleSampleTest {
     assertThat(sample.getOriginal()).isSameAs(sample.getInput());
   }
 
+  @Test
+  void shouldComputeNonZeroInputIndicesOnce() {
+    var s = SimpleSample.builder()
+        .name("test")
+        .labels(new String[]{"A"})
+        .target(new float[]{1f})
+        .input(new float[]{0f, 0.5f, 0f, 0.25f})
+        .build();
+
+    assertThat(s.getNonZeroInputIndices()).containsExactly(1, 3);
+    assertThat(s.getNonZeroInputIndices()).isSameAs(s.getNonZeroInputIndices());
+  }
+
   @Test
   void shouldReturnNullFile() {
     assertThat(sample.getFile()).isNull();
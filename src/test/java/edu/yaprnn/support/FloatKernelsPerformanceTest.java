@@ -0,0 +1,142 @@
+package edu.yaprnn.support;
+
+import java.util.Random;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FloatKernelsPerformanceTest {
+
+  static final int LENGTH = 1000 * 999;
+  static final int REPETITIONS = 50;
+
+  final boolean simdEnabled = FloatKernels.isSimdEnabled();
+  final boolean fastMathEnabled = FloatKernels.isFastMathEnabled();
+  final Random random = new Random(42);
+
+  float[] x;
+  float[] y;
+  float[] previous;
+
+  float[] randomFloats() {
+    var floats = new float[LENGTH];
+    for (var i = 0; i < LENGTH; i++) {
+      floats[i] = random.nextFloat();
+    }
+    return floats;
+  }
+
+  @BeforeEach
+  void createArrays() {
+    x = randomFloats();
+    y = randomFloats();
+    previous = new float[LENGTH];
+  }
+
+  @AfterEach
+  void restoreSimdEnabled() {
+    FloatKernels.setSimdEnabled(simdEnabled);
+    FloatKernels.setFastMathEnabled(fastMathEnabled);
+  }
+
+  @Test
+  void measureAxpy() {
+    measureInBothModes("axpy", () -> FloatKernels.axpy(1e-6f, x, 0, y, 0, LENGTH));
+  }
+
+  @Test
+  void measureDot() {
+    measureInBothModes("dot", () -> FloatKernels.dot(x, 0, y, 0, LENGTH));
+  }
+
+  @Test
+  void measureMomentumStep() {
+    measureInBothModes("momentumStep",
+        () -> FloatKernels.momentumStep(y, y, x, previous, 1e-6f, 0.2f, 0.001f, 0.001f));
+  }
+
+  @Test
+  void measureSigmoid() {
+    measureInBothModes("sigmoid", () -> FloatKernels.sigmoidInto(x, y));
+  }
+
+  /**
+   * Prints the maximum absolute error of fast math against the exact kernels on inputs in
+   * {@code [-8, 8)} and the time of both per SIMD mode.
+   */
+  @Test
+  void measureFastMathTable() {
+    for (var i = 0; i < LENGTH; i++) {
+      x[i] = 16f * x[i] - 8f;
+    }
+    var exact = new float[LENGTH];
+
+    System.out.printf("%-16s %-7s %12s %12s %12s%n", "kernel", "mode", "max error", "exact s",
+        "fast s");
+    printFastMathRow("sigmoid", exact, h -> FloatKernels.sigmoidInto(x, h));
+    printFastMathRow("tanh", exact, h -> FloatKernels.tanhInto(x, h));
+    printFastMathRow("exp", exact, h -> FloatKernels.expInto(x, 8f, h));
+    printFastMathRow("gelu", exact, h -> FloatKernels.geluInto(x, h));
+    printFastMathRow("gelu derivative", exact, d -> FloatKernels.geluDerivativeInto(x, d));
+    printFastMathRow("swish", exact, h -> FloatKernels.swishInto(1.702f, x, h));
+  }
+
+  void printFastMathRow(String name, float[] exact, Consumer<float[]> kernel) {
+    var modes = FloatKernels.isSimdAvailable() ? new boolean[]{false, true} : new boolean[]{false};
+    for (var simd : modes) {
+      FloatKernels.setSimdEnabled(simd);
+      FloatKernels.setFastMathEnabled(false);
+      kernel.accept(exact);
+      var exactSeconds = seconds(() -> kernel.accept(y));
+      FloatKernels.setFastMathEnabled(true);
+      kernel.accept(y);
+      var maxError = 0f;
+      for (var i = 0; i < LENGTH; i++) {
+        maxError = Math.max(maxError, Math.abs(y[i] - exact[i]));
+      }
+      var fastSeconds = seconds(() -> kernel.accept(y));
+
+      System.out.printf("%-16s %-7s %12.3e %12.4f %12.4f%n", name, simd ? "SIMD" : "scalar",
+          maxError, exactSeconds, fastSeconds);
+    }
+  }
+
+  double seconds(Runnable kernel) {
+    for (var i = 0; i < REPETITIONS; i++) {
+      kernel.run();
+    }
+
+    var t = System.nanoTime();
+
+    for (var i = 0; i < REPETITIONS; i++) {
+      kernel.run();
+    }
+
+    return (System.nanoTime() - t) / 1_000_000_000.0;
+  }
+
+  void measureInBothModes(String name, Runnable kernel) {
+    FloatKernels.setSimdEnabled(false);
+    measure(name + " scalar", kernel);
+    if (FloatKernels.isSimdAvailable()) {
+      FloatKernels.setSimdEnabled(true);
+      measure(name + " SIMD", kernel);
+    }
+  }
+
+  void measure(String name, Runnable kernel) {
+    for (var i = 0; i < REPETITIONS; i++) {
+      kernel.run();
+    }
+
+    var t = System.nanoTime();
+
+    for (var i = 0; i < REPETITIONS; i++) {
+      kernel.run();
+    }
+
+    var d = System.nanoTime() - t;
+    System.out.printf("%s time delta: %s s%n", name, (d / 1_000_000_000.0));
+  }
+}
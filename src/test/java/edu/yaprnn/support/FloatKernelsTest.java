@@ -0,0 +1,396 @@
+package edu.yaprnn.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+import java.util.function.Consumer;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the Vector API kernels against the scalar loops. Lengths are chosen to leave a tail
+ * after the last full vector of any species.
+ */
+class FloatKernelsTest {
+
+  static final int LENGTH = 67;
+
+  final boolean simdEnabled = FloatKernels.isSimdEnabled();
+  final boolean fastMathEnabled = FloatKernels.isFastMathEnabled();
+  final Random random = new Random(42);
+
+  float[] randomFloats(int length) {
+    var floats = new float[length];
+    for (var i = 0; i < length; i++) {
+      floats[i] = 4f * random.nextFloat() - 2f;
+    }
+    return floats;
+  }
+
+  /**
+   * @return {@code [scalar result, SIMD result]} of the kernel applied to copies of
+   * {@code values}; both are scalar when the Vector API is not available
+   */
+  float[][] runInBothModes(float[] values, Consumer<float[]> kernel) {
+    var scalar = values.clone();
+    var simd = values.clone();
+
+    FloatKernels.setSimdEnabled(false);
+    kernel.accept(scalar);
+    FloatKernels.setSimdEnabled(FloatKernels.isSimdAvailable());
+    kernel.accept(simd);
+
+    return new float[][]{scalar, simd};
+  }
+
+  @AfterEach
+  void restoreSimdEnabled() {
+    FloatKernels.setSimdEnabled(simdEnabled);
+    FloatKernels.setFastMathEnabled(fastMathEnabled);
+  }
+
+  @Nested
+  class ElementWise {
+
+    final float[] x = randomFloats(LENGTH);
+    final float[] y = randomFloats(LENGTH);
+
+    @Test
+    void shouldAxpyIdenticallyInBothModes() {
+      var results = runInBothModes(y, target -> FloatKernels.axpy(0.3f, x, 2, target, 1, 60));
+
+      assertThat(results[1]).containsExactly(results[0]);
+    }
+
+    @Test
+    void shouldAddInPlaceIdenticallyInBothModes() {
+      var results = runInBothModes(y, target -> FloatKernels.addInPlace(target, x));
+
+      assertThat(results[1]).containsExactly(results[0]);
+    }
+
+    @Test
+    void shouldMultiplyByScaledDifferenceIdenticallyInBothModes() {
+      var h = randomFloats(LENGTH);
+      var results = runInBothModes(y,
+          d -> FloatKernels.multiplyByScaledDifference(d, h, x, LENGTH - 3, 0.5f));
+
+      assertThat(results[1]).containsExactly(results[0]);
+    }
+
+    @Test
+    void shouldApplyMomentumStepIdenticallyInBothModes() {
+      x[0] = 0f;
+      var gradients = randomFloats(LENGTH);
+      var previousGradients = randomFloats(LENGTH);
+      var results = runInBothModes(x,
+          weights -> FloatKernels.momentumStep(weights, weights, gradients,
+              previousGradients.clone(), 0.1f, 0.2f, 0.001f, 0.002f));
+
+      assertThat(results[1]).containsExactly(results[0]);
+    }
+
+    @Test
+    void shouldApplyOptimizerStepsIdenticallyInBothModes() {
+      x[0] = 0f;
+      var gradients = randomFloats(LENGTH);
+      var velocities = randomFloats(LENGTH);
+      var averages = randomFloats(LENGTH);
+      for (var i = 0; i < LENGTH; i++) {
+        averages[i] *= averages[i];
+      }
+      var heavyBall = runInBothModes(x,
+          weights -> FloatKernels.heavyBallStep(weights, gradients, velocities.clone(), 0.1f, 0.2f,
+              0.001f, 0.002f));
+      var rmsProp = runInBothModes(x,
+          weights -> FloatKernels.rmsPropStep(weights, gradients, averages.clone(), 0.5f, 0.1f,
+              0.9f, 0.1f, 1e-8f, 0.001f, 0.002f));
+      var adam = runInBothModes(x,
+          weights -> FloatKernels.adamStep(weights, gradients, velocities.clone(),
+              averages.clone(), 0.5f, 0.1f, 0.9f, 0.999f, 1e-8f, 10f, 1000f, 0.001f, 0.002f,
+              false));
+      var adamW = runInBothModes(x,
+          weights -> FloatKernels.adamStep(weights, gradients, velocities.clone(),
+              averages.clone(), 0.5f, 0.1f, 0.9f, 0.999f, 1e-8f, 10f, 1000f, 0.001f, 0.002f,
+              true));
+
+      assertThat(heavyBall[1]).containsExactly(heavyBall[0]);
+      assertThat(rmsProp[1]).containsExactly(rmsProp[0]);
+      assertThat(adam[1]).containsExactly(adam[0]);
+      assertThat(adamW[1]).containsExactly(adamW[0]);
+    }
+
+    @Test
+    void shouldStepWithoutMomentumExactlyLikeMomentumStepInBothModes() {
+      x[0] = 0f;
+      var gradients = randomFloats(LENGTH);
+      var sgd = runInBothModes(x,
+          weights -> FloatKernels.sgdStep(weights, gradients, 0, LENGTH, 0.1f, 0.001f, 0.002f));
+      var expected = x.clone();
+      FloatKernels.momentumStep(expected, expected, gradients, new float[LENGTH], 0.1f, 0f,
+          0.001f, 0.002f);
+
+      assertThat(sgd[1]).containsExactly(sgd[0]);
+      assertThat(sgd[0]).containsExactly(expected);
+    }
+
+    @Test
+    void shouldApplyReLUIdenticallyInBothModes() {
+      var results = runInBothModes(new float[LENGTH], h -> FloatKernels.reluInto(x, h));
+
+      assertThat(results[1]).containsExactly(results[0]);
+    }
+
+    @Test
+    void shouldDeriveSigmoidAndTanhIdenticallyInBothModes() {
+      var sigmoid = runInBothModes(new float[LENGTH], d -> FloatKernels.sigmoidDerivativeInto(x, d));
+      var tanh = runInBothModes(new float[LENGTH], d -> FloatKernels.tanhDerivativeInto(x, d));
+
+      assertThat(sigmoid[1]).containsExactly(sigmoid[0]);
+      assertThat(tanh[1]).containsExactly(tanh[0]);
+    }
+
+    @Test
+    void shouldDeriveFromKeptIntermediatesExactlyLikeRecomputingThem() {
+      for (var simd : new boolean[]{false, FloatKernels.isSimdAvailable()}) {
+        for (var fast : new boolean[]{false, true}) {
+          FloatKernels.setSimdEnabled(simd);
+          FloatKernels.setFastMathEnabled(fast);
+          var h = new float[LENGTH];
+          var d = new float[LENGTH];
+          var keptH = new float[LENGTH];
+          var kept = new float[LENGTH];
+          var keptD = new float[LENGTH];
+
+          FloatKernels.geluInto(x, h);
+          FloatKernels.geluDerivativeInto(x, d);
+          FloatKernels.geluInto(x, keptH, kept);
+          FloatKernels.geluDerivativeFromTanhInto(x, kept, keptD);
+
+          assertThat(keptH).containsExactly(h);
+          assertThat(keptD).containsExactly(d);
+
+          FloatKernels.swishInto(1.702f, x, h);
+          FloatKernels.swishDerivativeInto(1.702f, h, x, d);
+          FloatKernels.swishInto(1.702f, x, keptH, kept);
+          FloatKernels.swishDerivativeFromSigmoidInto(1.702f, keptH, kept, keptD);
+
+          assertThat(keptH).containsExactly(h);
+          assertThat(keptD).containsExactly(d);
+        }
+      }
+    }
+  }
+
+  @Nested
+  class Approximated {
+
+    final float[] x = randomFloats(LENGTH);
+
+    @Test
+    void shouldComputeDotCloseToScalar() {
+      var y = randomFloats(LENGTH);
+      var results = runInBothModes(new float[1],
+          sum -> sum[0] = FloatKernels.dot(x, 1, y, 2, LENGTH - 2));
+
+      assertThat(results[1][0]).isCloseTo(results[0][0], Offset.offset(1e-4f));
+    }
+
+    @Test
+    void shouldApplySigmoidCloseToScalar() {
+      var results = runInBothModes(new float[LENGTH], h -> FloatKernels.sigmoidInto(x, h));
+
+      assertThat(results[1]).containsExactly(results[0], Offset.offset(1e-6f));
+    }
+
+    @Test
+    void shouldApplyTanhCloseToScalar() {
+      var results = runInBothModes(new float[LENGTH], h -> FloatKernels.tanhInto(x, h));
+
+      assertThat(results[1]).containsExactly(results[0], Offset.offset(1e-6f));
+    }
+  }
+
+  @Nested
+  class FastMath {
+
+    final float[] x = randomFloats(LENGTH);
+
+    /**
+     * Dense grid over {@code [from, to]} including both bounds.
+     */
+    float[] grid(float from, float to, int count) {
+      var values = new float[count];
+      for (var i = 0; i < count; i++) {
+        values[i] = Math.min(from + (to - from) * i / (count - 1), to);
+      }
+      return values;
+    }
+
+    @Test
+    void shouldComputeIdenticallyInBothModes() {
+      FloatKernels.setFastMathEnabled(true);
+      var v = randomFloats(LENGTH);
+      for (var i = 0; i < LENGTH; i++) {
+        v[i] *= 10f;
+      }
+
+      var sigmoid = runInBothModes(new float[LENGTH], h -> FloatKernels.sigmoidInto(v, h));
+      var tanh = runInBothModes(new float[LENGTH], h -> FloatKernels.tanhInto(v, h));
+      var exp = runInBothModes(new float[LENGTH], h -> FloatKernels.expInto(v, 3f, h));
+      var gelu = runInBothModes(new float[LENGTH], h -> FloatKernels.geluInto(v, h));
+      var geluDerivative = runInBothModes(new float[LENGTH],
+          d -> FloatKernels.geluDerivativeInto(v, d));
+      var swish = runInBothModes(new float[LENGTH], h -> FloatKernels.swishInto(1.702f, v, h));
+      var swishDerivative = runInBothModes(new float[LENGTH],
+          d -> FloatKernels.swishDerivativeInto(1.702f, x, v, d));
+
+      assertThat(sigmoid[1]).containsExactly(sigmoid[0]);
+      assertThat(tanh[1]).containsExactly(tanh[0]);
+      assertThat(exp[1]).containsExactly(exp[0]);
+      assertThat(gelu[1]).containsExactly(gelu[0]);
+      assertThat(geluDerivative[1]).containsExactly(geluDerivative[0]);
+      assertThat(swish[1]).containsExactly(swish[0]);
+      assertThat(swishDerivative[1]).containsExactly(swishDerivative[0]);
+    }
+
+    @Test
+    void shouldApproximateExpWithinDocumentedError() {
+      for (var value : grid(FloatKernels.FAST_EXP_MIN, FloatKernels.FAST_EXP_MAX, 100_003)) {
+        var expected = Math.exp(value);
+
+        assertThat(Math.abs(FloatKernels.fastExp(value) - expected) / expected)
+            .isLessThanOrEqualTo(FloatKernels.FAST_EXP_MAX_RELATIVE_ERROR);
+      }
+    }
+
+    @Test
+    void shouldApproximateSigmoidAndTanhWithinDocumentedError() {
+      for (var value : grid(-20f, 20f, 100_003)) {
+        assertThat(Math.abs(FloatKernels.fastSigmoid(value) - 1d / (1d + Math.exp(-value))))
+            .isLessThanOrEqualTo(FloatKernels.FAST_SIGMOID_MAX_ERROR);
+        assertThat(Math.abs(FloatKernels.fastTanh(value) - Math.tanh(value)))
+            .isLessThanOrEqualTo(FloatKernels.FAST_TANH_MAX_ERROR);
+      }
+    }
+
+    @Test
+    void shouldSaturateOutsideOfExpRange() {
+      assertThat(FloatKernels.fastExp(-1000f)).isEqualTo(FloatKernels.fastExp(
+          FloatKernels.FAST_EXP_MIN));
+      assertThat(FloatKernels.fastExp(1000f)).isFinite();
+      assertThat(FloatKernels.fastSigmoid(-1000f)).isCloseTo(0f, Offset.offset(1e-30f));
+      assertThat(FloatKernels.fastSigmoid(1000f)).isEqualTo(1f);
+      assertThat(FloatKernels.fastTanh(-1000f)).isEqualTo(-1f);
+      assertThat(FloatKernels.fastTanh(0f)).isZero();
+    }
+
+    @Test
+    void shouldStayCloseToExactKernels() {
+      var exact = new float[LENGTH];
+      var fast = new float[LENGTH];
+      FloatKernels.setFastMathEnabled(false);
+      var exactSum = FloatKernels.expInto(x, 2f, exact);
+      FloatKernels.setFastMathEnabled(true);
+      var fastSum = FloatKernels.expInto(x, 2f, fast);
+
+      assertThat(fast).containsExactly(exact, Offset.offset(1e-6f));
+      assertThat(fastSum).isCloseTo(exactSum, Offset.offset(1e-5f));
+    }
+  }
+
+  /**
+   * The {@link MemorySegment} overloads must compute exactly like the array kernels of the same
+   * mode.
+   */
+  @Nested
+  class Segments {
+
+    final float[] x = randomFloats(LENGTH);
+    final float[] y = randomFloats(LENGTH);
+    final Arena arena = Arena.ofConfined();
+
+    MemorySegment segmentOf(float[] values) {
+      var segment = arena.allocate((long) values.length * Float.BYTES, 64L);
+      MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_FLOAT, 0L, values.length);
+      return segment;
+    }
+
+    float[] toFloats(MemorySegment segment) {
+      return segment.toArray(ValueLayout.JAVA_FLOAT);
+    }
+
+    @AfterEach
+    void closeArena() {
+      arena.close();
+    }
+
+    @Test
+    void shouldAxpyLikeArrays() {
+      for (var simd : new boolean[]{false, FloatKernels.isSimdAvailable()}) {
+        FloatKernels.setSimdEnabled(simd);
+        var expected = y.clone();
+        FloatKernels.axpy(0.3f, x, 2, expected, 1, 60);
+
+        var fromSegment = y.clone();
+        FloatKernels.axpy(0.3f, segmentOf(x), 2L, fromSegment, 1, 60);
+        var intoSegment = segmentOf(y);
+        FloatKernels.axpy(0.3f, x, 2, intoSegment, 1L, 60);
+
+        assertThat(fromSegment).containsExactly(expected);
+        assertThat(toFloats(intoSegment)).containsExactly(expected);
+      }
+    }
+
+    @Test
+    void shouldComputeDotLikeArrays() {
+      for (var simd : new boolean[]{false, FloatKernels.isSimdAvailable()}) {
+        FloatKernels.setSimdEnabled(simd);
+
+        assertThat(FloatKernels.dot(segmentOf(x), 1L, y, 2, LENGTH - 2))
+            .isEqualTo(FloatKernels.dot(x, 1, y, 2, LENGTH - 2));
+      }
+    }
+
+    @Test
+    void shouldAddInPlaceLikeArrays() {
+      for (var simd : new boolean[]{false, FloatKernels.isSimdAvailable()}) {
+        FloatKernels.setSimdEnabled(simd);
+        var expected = y.clone();
+        FloatKernels.addInPlace(expected, x, 3, LENGTH - 1);
+
+        var accumulator = segmentOf(y);
+        FloatKernels.addInPlace(accumulator, segmentOf(x), 3, LENGTH - 1);
+
+        assertThat(toFloats(accumulator)).containsExactly(expected);
+      }
+    }
+
+    @Test
+    void shouldApplyMomentumStepLikeArrays() {
+      x[0] = 0f;
+      var gradients = randomFloats(LENGTH);
+      var previousGradients = randomFloats(LENGTH);
+      for (var simd : new boolean[]{false, FloatKernels.isSimdAvailable()}) {
+        FloatKernels.setSimdEnabled(simd);
+        var expectedWeights = x.clone();
+        var expectedPrevious = previousGradients.clone();
+        FloatKernels.momentumStep(expectedWeights, expectedWeights, gradients, expectedPrevious,
+            0.1f, 0.2f, 0.001f, 0.002f);
+
+        var weights = segmentOf(x);
+        var previous = segmentOf(previousGradients);
+        FloatKernels.momentumStep(weights, segmentOf(gradients), previous, LENGTH, 0.1f, 0.2f,
+            0.001f, 0.002f);
+
+        assertThat(toFloats(weights)).containsExactly(expectedWeights);
+        assertThat(toFloats(previous)).containsExactly(expectedPrevious);
+      }
+    }
+  }
+}
@@ -87,6 +87,21 @@ class FloatsTest {
     }
   }
 
+  @Nested
+  class NonZeroIndices {
+
+    @Test
+    void shouldReturnAscendingIndicesOfNonZeroValues() {
+      assertThat(Floats.nonZeroIndices(new float[]{0f, 0.5f, -0f, 0f, -1f}))
+          .containsExactly(1, 4);
+    }
+
+    @Test
+    void shouldReturnEmptyArrayForZeros() {
+      assertThat(Floats.nonZeroIndices(new float[]{0f, -0f})).isEmpty();
+    }
+  }
+
   @Nested
   class HaveMaxAtSameIndex {
 
@@ -0,0 +1,172 @@
+package edu.yaprnn.training.processes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import edu.yaprnn.networks.GradientMatrixService;
+import edu.yaprnn.networks.MultiLayerNetwork;
+import edu.yaprnn.networks.TrainingEngine;
+import edu.yaprnn.networks.WorkerPool;
+import edu.yaprnn.networks.templates.LayerTemplate;
+import edu.yaprnn.networks.templates.MultiLayerNetworkTemplate;
+import edu.yaprnn.networks.activation.ActivationFunction;
+import edu.yaprnn.networks.activation.LinearActivationFunction;
+import edu.yaprnn.networks.activation.SigmoidActivationFunction;
+import edu.yaprnn.networks.loss.HalfSquaredErrorLossFunction;
+import edu.yaprnn.samples.model.Sample;
+import edu.yaprnn.samples.model.SimpleSample;
+import edu.yaprnn.support.JacksonConfigurer;
+import edu.yaprnn.training.selectors.ClassifierDataSelector;
+import edu.yaprnn.training.selectors.OnlyInputDataSelector;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProcessTrainingCoordinatorTest {
+
+  final ClassifierDataSelector dataSelector = new ClassifierDataSelector();
+  final ActivationFunction linear = new LinearActivationFunction();
+  final ActivationFunction sigmoid = new SigmoidActivationFunction();
+  final MultiLayerNetworkTemplate model = MultiLayerNetworkTemplate.builder()
+      .bias(-1f)
+      .lossFunction(new HalfSquaredErrorLossFunction())
+      .layers(List.of(LayerTemplate.builder().size(4).activationFunction(linear).build(),
+          LayerTemplate.builder().size(3).activationFunction(sigmoid).build(),
+          LayerTemplate.builder().size(2).activationFunction(sigmoid).build()))
+      .build();
+  final TestGradientMatrixService gradientMatrixService = new TestGradientMatrixService();
+
+  Random random;
+  Path directory;
+  List<Sample> samples;
+
+  @BeforeEach
+  void setup() throws IOException {
+    directory = Files.createTempDirectory("coordinator-test-");
+    var sampleRandom = new Random(5);
+    samples = IntStream.range(0, 11)
+        .<Sample>mapToObj(i -> SimpleSample.builder()
+            .input(randomFloats(sampleRandom, 4))
+            .target(randomFloats(sampleRandom, 2))
+            .build())
+        .toList();
+  }
+
+  @AfterEach
+  void deleteDirectory() throws IOException {
+    if (Files.exists(directory)) {
+      try (var files = Files.walk(directory)) {
+        for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  float[] randomFloats(Random sampleRandom, int count) {
+    var floats = new float[count];
+    for (var i = 0; i < count; i++) {
+      floats[i] = sampleRandom.nextFloat();
+    }
+    return floats;
+  }
+
+  MultiLayerNetwork createNetwork() {
+    random = new Random(3);
+    var network = MultiLayerNetwork.builder()
+        .bias(model.getBias())
+        .lossFunction(model.getLossFunction())
+        .activationFunctions(model.collectActivationFunctions())
+        .layerSizes(model.collectLayerSizes())
+        .build();
+    network.resetLayerWeights(gradientMatrixService);
+    return network;
+  }
+
+  @Test
+  void shouldWriteStridedShards() {
+    var shares = ProcessTrainingCoordinator.writeShards(directory, 2, samples, dataSelector);
+
+    var shard = TrainingShards.read(directory.resolve(TrainingShards.fileName(1)));
+    assertThat(shares).containsExactly(6f / 11f, 5f / 11f);
+    assertThat(shard).hasSize(5);
+    assertThat(shard.get(2).getInput()).containsExactly(samples.get(5).getInput());
+    assertThat(shard.get(2).getTarget()).containsExactly(samples.get(5).getTarget());
+  }
+
+  @Test
+  void shouldWriteShardsWithSelectedTargets() {
+    ProcessTrainingCoordinator.writeShards(directory, 1, samples, new OnlyInputDataSelector());
+
+    var shard = TrainingShards.read(directory.resolve(TrainingShards.fileName(0)));
+    assertThat(shard.getFirst().getTarget()).containsExactly(samples.getFirst().getInput());
+  }
+
+  @Test
+  void shouldTrainEpochOnWorkerLikeInProcess() throws Exception {
+    var objectMapper = JacksonConfigurer.createObjectMapper();
+    var setupFile = directory.resolve(ProcessTrainingCoordinator.SETUP_FILE).toFile();
+    // a budget small enough to checkpoint changes the memory of the worker, not its gradients
+    objectMapper.writeValue(setupFile,
+        new ProcessTrainingSetup(createNetwork(), 3, 1, 0.2f, 0f, 0.001f,
+            TrainingEngine.BATCHED, 64L));
+    var setup = objectMapper.readValue(setupFile, ProcessTrainingSetup.class);
+    var shares = ProcessTrainingCoordinator.writeShards(directory, 1, samples, dataSelector);
+    var exchange = SharedMemoryExchange.create(
+        directory.resolve(ProcessTrainingCoordinator.EXCHANGE_FILE), 1, 5 * 3 + 4 * 2, true);
+
+    var network = createNetwork();
+    Thread worker;
+    try (var coordinator = new ProcessTrainingCoordinator(directory, exchange, shares,
+        List.of())) {
+      var shard = TrainingShards.read(directory.resolve(TrainingShards.fileName(0)));
+      var workerExchange = SharedMemoryExchange.open(
+          directory.resolve(ProcessTrainingCoordinator.EXCHANGE_FILE));
+      worker = Thread.ofPlatform().start(() -> {
+        try (workerExchange) {
+          new ProcessTrainingWorker(setup, shard, workerExchange, 0, () -> {
+          }).run();
+        }
+      });
+
+      for (var epoch = 0; epoch < 2; epoch++) {
+        var timings = coordinator.learnEpoch(network, 0.5f);
+        assertThat(timings.totalNanos()).isPositive();
+      }
+    }
+    worker.join();
+
+    var expected = createNetwork();
+    var shuffled = new ArrayList<>(samples);
+    var random = new Random(0);
+    try (var workerPool = WorkerPool.persistent(1)) {
+      for (var epoch = 0; epoch < 2; epoch++) {
+        Collections.shuffle(shuffled, random);
+        expected.learnMiniBatch(gradientMatrixService, workerPool, shuffled, dataSelector, 3, 0.5f,
+            0.2f, 0f, 0.001f, TrainingEngine.BATCHED);
+      }
+    }
+    for (var l = 0; l < expected.getLayerWeights().length; l++) {
+      assertThat(network.getLayerWeights()[l]).containsExactly(expected.getLayerWeights()[l]);
+      assertThat(network.getPreviousLayerGradients()[l])
+          .containsExactly(expected.getPreviousLayerGradients()[l]);
+    }
+    assertThat(Files.exists(directory)).isFalse();
+  }
+
+  final class TestGradientMatrixService extends GradientMatrixService {
+
+    @Override
+    public float[][] resetLayerWeights(int[] layerSizes, ActivationFunction[] activationFunctions) {
+      return super.resetLayerWeights(random, layerSizes, activationFunctions);
+    }
+  }
+}
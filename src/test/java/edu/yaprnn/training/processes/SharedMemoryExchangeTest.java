@@ -0,0 +1,115 @@
+package edu.yaprnn.training.processes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SharedMemoryExchangeTest {
+
+  Path file;
+
+  @BeforeEach
+  void createFile() throws IOException {
+    file = Files.createTempDirectory("exchange-test-").resolve("exchange.bin");
+  }
+
+  @AfterEach
+  void deleteFile() throws IOException {
+    Files.deleteIfExists(file);
+    Files.delete(file.getParent());
+  }
+
+  @Test
+  void shouldPublishWeightsToWorkers() {
+    try (var coordinator = SharedMemoryExchange.create(file, 2, 5);
+        var worker = SharedMemoryExchange.open(file)) {
+      var generation = coordinator.publish(new float[][]{{1f, 2f}, {3f, 4f, 5f}}, 0.5f);
+
+      var published = new float[][]{new float[2], new float[3]};
+      assertThat(worker.workerCount()).isEqualTo(2);
+      assertThat(worker.weightsCount()).isEqualTo(5);
+      assertThat(worker.awaitPublication(0, () -> {
+      })).isEqualTo(generation);
+      worker.readPublished(published);
+      assertThat(published[0]).containsExactly(1f, 2f);
+      assertThat(published[1]).containsExactly(3f, 4f, 5f);
+      assertThat(worker.learningRate()).isEqualTo(0.5f);
+    }
+  }
+
+  @Test
+  void shouldAverageSubmissionsByShares() {
+    try (var coordinator = SharedMemoryExchange.create(file, 2, 3);
+        var worker = SharedMemoryExchange.open(file)) {
+      var generation = coordinator.publish(new float[][]{new float[3]}, 0.1f);
+      worker.submit(0, new float[][]{{4f, 8f, 0f}}, generation);
+      worker.submit(1, new float[][]{{0f, 4f, 8f}}, generation);
+
+      var averaged = new float[][]{{9f, 9f, 9f}};
+      coordinator.awaitSubmissions(generation, () -> {
+      });
+      coordinator.averageInto(averaged, new float[]{0.25f, 0.75f});
+
+      assertThat(averaged[0]).containsExactly(1f, 5f, 6f);
+    }
+  }
+
+  @Test
+  void shouldExchangeAndAverageMomentumWithWeights() {
+    try (var coordinator = SharedMemoryExchange.create(file, 2, 2, true);
+        var worker = SharedMemoryExchange.open(file)) {
+      assertThat(worker.exchangesMomentum()).isTrue();
+      var generation = coordinator.publish(new float[][]{{1f, 2f}}, new float[][]{{3f, 4f}}, 0.1f);
+      worker.awaitPublication(0, () -> {
+      });
+      var weights = new float[1][2];
+      var momentum = new float[1][2];
+      worker.readPublished(weights, momentum);
+      assertThat(weights[0]).containsExactly(1f, 2f);
+      assertThat(momentum[0]).containsExactly(3f, 4f);
+
+      worker.submit(0, new float[][]{{4f, 8f}}, new float[][]{{8f, 0f}}, generation);
+      worker.submit(1, new float[][]{{0f, 4f}}, new float[][]{{0f, 8f}}, generation);
+      coordinator.awaitSubmissions(generation, () -> {
+      });
+      coordinator.averageInto(weights, momentum, new float[]{0.25f, 0.75f});
+
+      assertThat(weights[0]).containsExactly(1f, 5f);
+      assertThat(momentum[0]).containsExactly(2f, 6f);
+    }
+  }
+
+  @Test
+  void shouldSignalStopToWorkers() {
+    try (var coordinator = SharedMemoryExchange.create(file, 1, 1);
+        var worker = SharedMemoryExchange.open(file)) {
+      var generation = coordinator.publish(new float[][]{{1f}}, 0.1f);
+      coordinator.stop();
+
+      assertThat(worker.awaitPublication(generation, () -> {
+      })).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  void shouldThrowOnMismatchingWeightsCount() {
+    try (var coordinator = SharedMemoryExchange.create(file, 1, 3)) {
+      assertThatIllegalArgumentException()
+          .isThrownBy(() -> coordinator.publish(new float[][]{{1f, 2f}}, 0.1f))
+          .withMessageContaining("weightsCount");
+    }
+  }
+
+  @Test
+  void shouldThrowOnInvalidWorkerCount() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> SharedMemoryExchange.create(file, 0, 3))
+        .withMessageContaining("workerCount");
+  }
+}